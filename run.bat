@@ -35,7 +35,7 @@ echo To use OpenAI: set AI_PROVIDER=OPENAI
 echo To use Ollama: set AI_PROVIDER=OLLAMA
 echo.
 
-REM Run the standalone JAR
-java -jar target\jmonkey-vibe-game-1.0.0-standalone.jar
+REM Run the standalone JAR (the Vector API module enables SIMD terrain noise)
+java --add-modules jdk.incubator.vector -jar target\jmonkey-vibe-game-1.0.0-standalone.jar
 
 pause
@@ -32,5 +32,5 @@ echo "To use OpenAI: export AI_PROVIDER=OPENAI"
 echo "To use Ollama: export AI_PROVIDER=OLLAMA"
 echo ""
 
-# Run the standalone JAR
-java -jar target/jmonkey-vibe-game-1.0.0-standalone.jar
+# Run the standalone JAR (the Vector API module enables SIMD terrain noise)
+java --add-modules jdk.incubator.vector -jar target/jmonkey-vibe-game-1.0.0-standalone.jar
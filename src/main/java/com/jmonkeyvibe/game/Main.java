@@ -7,7 +7,13 @@ import com.jmonkeyvibe.game.audio.AudioManager;
 import com.jmonkeyvibe.game.input.GamepadManager;
 import com.jmonkeyvibe.game.states.ExplorationState;
 import com.jmonkeyvibe.game.states.DungeonCombatState;
+import com.jmonkeyvibe.game.states.DungeonLoadingState;
 import com.jmonkeyvibe.game.states.IntroStoryState;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Main entry point for the JMonkey Vibe Game
@@ -130,15 +136,36 @@ public class Main extends SimpleApplication {
     }
 
     /**
-     * Switch to dungeon combat mode
+     * Switch to dungeon combat mode in the dungeon of a portal. A dungeon
+     * the overworld's pool has already generated is entered directly;
+     * otherwise it is generated (or waited for) in the background behind a
+     * loading screen, which then attaches the combat state.
+     * @param prepared the layout pre-generated for that seed, or null
      */
-    public void enterDungeon() {
+    public void enterDungeon(long seed, Future<DungeonLayout> prepared) {
         stateManager.detach(explorationState);
-        stateManager.attach(dungeonCombatState);
+        DungeonLayout ready = getIfDone(prepared);
+        if (ready != null) {
+            dungeonCombatState.setPreparedDungeon(DungeonCombatState.createDungeonGenerator(assetManager, seed), ready);
+            stateManager.attach(dungeonCombatState);
+        } else {
+            stateManager.attach(new DungeonLoadingState(dungeonCombatState, seed, prepared));
+        }
         // Switch to combat music
         audioManager.playCombatMusic();
     }
 
+    private static DungeonLayout getIfDone(Future<DungeonLayout> future) {
+        if (future == null || !future.isDone() || future.isCancelled()) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+
     /**
      * Return to exploration mode
      */
@@ -150,14 +177,25 @@ public class Main extends SimpleApplication {
     }
 
     /**
-     * Restart the current dungeon (reset and re-enter)
+     * Restart the current dungeon (reset and re-enter). The same seed is
+     * used, so its layout comes from the DungeonLayoutCache instead of being
+     * generated again. A layout still in memory is only copied, so the
+     * loading screen is skipped.
      */
     public void restartDungeon() {
+        long seed = dungeonCombatState.getDungeonSeed();
         stateManager.detach(dungeonCombatState);
         // Create a fresh dungeon state
         dungeonCombatState = new DungeonCombatState();
         dungeonCombatState.setGamepadManager(gamepadManager);
-        stateManager.attach(dungeonCombatState);
+        DungeonGenerator generator = DungeonCombatState.createDungeonGenerator(assetManager, seed);
+        if (generator.isLayoutInMemory(DungeonCombatState.DUNGEON_WIDTH, DungeonCombatState.DUNGEON_HEIGHT)) {
+            dungeonCombatState.setPreparedDungeon(generator,
+                generator.generateLayout(DungeonCombatState.DUNGEON_WIDTH, DungeonCombatState.DUNGEON_HEIGHT));
+            stateManager.attach(dungeonCombatState);
+        } else {
+            stateManager.attach(new DungeonLoadingState(dungeonCombatState, seed, null));
+        }
         // Keep combat music playing
         audioManager.playCombatMusic();
     }
@@ -7,11 +7,16 @@ import com.jmonkeyvibe.game.audio.AudioManager;
 import com.jmonkeyvibe.game.entities.Enemy;
 import com.jmonkeyvibe.game.entities.Player;
 import com.jmonkeyvibe.game.entities.Projectile;
+import com.jmonkeyvibe.game.world.ClearanceMap;
 import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.FlowField;
+import com.jmonkeyvibe.game.world.LightMap;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -29,6 +34,14 @@ public class CombatManager {
          * @param experienceAwarded The XP awarded for the kill
          */
         void onEnemyKilled(Enemy.EnemyType enemyType, int experienceAwarded);
+
+        /**
+         * Called when a projectile broke a wall, after the collision grid,
+         * the clearance map, the chunk mesh and the flow fields were updated
+         * @param x cell X of the broken wall
+         * @param z cell Z of the broken wall
+         */
+        void onWallBroken(int x, int z);
     }
 
     private AssetManager assetManager;
@@ -37,6 +50,13 @@ public class CombatManager {
     private List<Projectile> projectiles;
     private Random random;
     private DungeonGenerator dungeonGenerator;
+    // Distance fields to the player that enemies follow around walls, one per
+    // size class (ClearanceMap.sizeClass) so big enemies avoid narrow gaps
+    private final Map<Float, FlowField> flowFields = new HashMap<>();
+    private final Vector3f flowDirection = new Vector3f();
+    // Dungeon lighting; every projectile carries a small light
+    private LightMap lightMap;
+    private static final int PROJECTILE_LIGHT_RADIUS = 3;
     private CombatListener combatListener;
 
     // Fire rate limiting to prevent sound spam
@@ -71,6 +91,22 @@ public class CombatManager {
      */
     public void setDungeonGenerator(DungeonGenerator dungeonGenerator) {
         this.dungeonGenerator = dungeonGenerator;
+        flowFields.clear();
+    }
+
+    /**
+     * Set the light map that projectile lights are added to
+     */
+    public void setLightMap(LightMap lightMap) {
+        this.lightMap = lightMap;
+    }
+
+    /**
+     * @return the flow field enemies of the given radius follow, or null
+     *         before the first enemy of its size class moved
+     */
+    public FlowField getFlowField(float radius) {
+        return flowFields.get(ClearanceMap.sizeClass(radius));
     }
     
     public void update(float tpf) {
@@ -84,11 +120,16 @@ public class CombatManager {
         while (projIterator.hasNext()) {
             Projectile proj = projIterator.next();
             proj.update(tpf);
+            checkWallHit(proj);
 
             // Remove inactive projectiles
             if (!proj.isActive()) {
+                removeProjectileLight(proj);
                 combatNode.detachChild(proj.getSpatial());
                 projIterator.remove();
+            } else if (proj.getLight() != null) {
+                Vector3f position = proj.getPosition();
+                proj.getLight().setPosition(position.x, position.z);
             }
         }
 
@@ -137,7 +178,36 @@ public class CombatManager {
         }
     }
     
+    /**
+     * Stop a projectile that flew into a wall, breaking the wall if it is breakable
+     */
+    private void checkWallHit(Projectile proj) {
+        if (!proj.isActive() || dungeonGenerator == null) {
+            return;
+        }
+        Vector3f position = proj.getPosition();
+        if (dungeonGenerator.isWalkable(position.x, position.z)) {
+            return;
+        }
+        proj.deactivate();
+        int cellX = Math.round(position.x);
+        int cellZ = Math.round(position.z);
+        if (dungeonGenerator.breakWall(cellX, cellZ)) {
+            for (FlowField flowField : flowFields.values()) {
+                flowField.cellOpened(cellX, cellZ);
+            }
+            if (combatListener != null) {
+                combatListener.onWallBroken(cellX, cellZ);
+            }
+        }
+    }
+
     public void updateEnemies(float tpf, Vector3f playerPosition) {
+        // One BFS per size class when the player enters a new cell serves every enemy
+        for (FlowField flowField : flowFields.values()) {
+            flowField.update(playerPosition.x, playerPosition.z);
+        }
+
         for (Enemy enemy : enemies) {
             if (dungeonGenerator != null) {
                 // Move enemy with collision detection
@@ -151,12 +221,23 @@ public class CombatManager {
 
     /**
      * Move an enemy towards the player with collision detection.
-     * Checks X and Z axes separately to allow sliding along walls.
+     * Follows its size class's flow field around walls and narrow gaps,
+     * heading straight for the player once in the same cell (or if the
+     * field does not reach the enemy).
+     * Checks X and Z axes separately to allow sliding along walls, and only
+     * moves to cells with enough clearance for the enemy's size.
      */
     private void moveEnemyWithCollision(Enemy enemy, float tpf, Vector3f playerPosition) {
         Vector3f currentPos = enemy.getPosition();
-        Vector3f direction = playerPosition.subtract(currentPos).normalizeLocal();
         float speed = enemy.getType().getSpeed();
+        float radius = enemy.getType().getRadius();
+        FlowField flowField = getOrCreateFlowField(radius, playerPosition);
+        Vector3f direction;
+        if (flowField != null && flowField.getDirection(currentPos.x, currentPos.z, flowDirection)) {
+            direction = flowDirection;
+        } else {
+            direction = playerPosition.subtract(currentPos).normalizeLocal();
+        }
 
         // Calculate intended movement
         float moveX = direction.x * speed * tpf;
@@ -164,11 +245,11 @@ public class CombatManager {
 
         // Try moving in X direction first
         float newX = currentPos.x + moveX;
-        boolean canMoveX = dungeonGenerator.isWalkable(newX, currentPos.z);
+        boolean canMoveX = dungeonGenerator.canFit(newX, currentPos.z, radius);
 
         // Try moving in Z direction
         float newZ = currentPos.z + moveZ;
-        boolean canMoveZ = dungeonGenerator.isWalkable(currentPos.x, newZ);
+        boolean canMoveZ = dungeonGenerator.canFit(currentPos.x, newZ, radius);
 
         // Apply valid movements
         Vector3f newPos = currentPos.clone();
@@ -183,6 +264,22 @@ public class CombatManager {
         enemy.updateWithPosition(tpf, newPos);
     }
 
+    /**
+     * The flow field for an enemy radius, built the first time an enemy of
+     * its size class moves
+     * @return the field, or null if the dungeon has no collision data
+     */
+    private FlowField getOrCreateFlowField(float radius, Vector3f playerPosition) {
+        float sizeClass = ClearanceMap.sizeClass(radius);
+        FlowField flowField = flowFields.get(sizeClass);
+        if (flowField == null && dungeonGenerator.getCollisionGrid() != null) {
+            flowField = new FlowField(dungeonGenerator.getCollisionGrid(), dungeonGenerator.getClearanceMap(), sizeClass);
+            flowField.update(playerPosition.x, playerPosition.z);
+            flowFields.put(sizeClass, flowField);
+        }
+        return flowField;
+    }
+
     /**
      * Process enemy attacks on the player.
      * Returns total damage dealt to the player this frame.
@@ -208,20 +305,20 @@ public class CombatManager {
     }
     
     public void spawnEnemy(Enemy.EnemyType type, Vector3f position) {
-        // Ensure spawn position is walkable
-        Vector3f spawnPos = findWalkablePosition(position);
+        // Ensure the enemy fits at its spawn position
+        Vector3f spawnPos = findWalkablePosition(position, type.getRadius());
         Enemy enemy = new Enemy(assetManager, type, spawnPos);
         enemies.add(enemy);
         combatNode.attachChild(enemy.getSpatial());
     }
 
     /**
-     * Find a walkable position near the given position.
-     * If the given position is already walkable, returns it.
-     * Otherwise, searches in a spiral pattern for a nearby walkable tile.
+     * Find a position near the given position where an entity of the given
+     * radius fits. If the given position already fits, returns it.
+     * Otherwise, searches in a spiral pattern for a nearby tile with enough clearance.
      */
-    private Vector3f findWalkablePosition(Vector3f position) {
-        if (dungeonGenerator == null || dungeonGenerator.isWalkable(position.x, position.z)) {
+    private Vector3f findWalkablePosition(Vector3f position, float entityRadius) {
+        if (dungeonGenerator == null || dungeonGenerator.canFit(position.x, position.z, entityRadius)) {
             return position;
         }
 
@@ -233,7 +330,7 @@ public class CombatManager {
                     if (Math.abs(dx) == radius || Math.abs(dz) == radius) {
                         float testX = position.x + dx;
                         float testZ = position.z + dz;
-                        if (dungeonGenerator.isWalkable(testX, testZ)) {
+                        if (dungeonGenerator.canFit(testX, testZ, entityRadius)) {
                             return new Vector3f(testX, position.y, testZ);
                         }
                     }
@@ -253,6 +350,9 @@ public class CombatManager {
         }
 
         Projectile projectile = new Projectile(assetManager, startPosition, direction, damage);
+        if (lightMap != null) {
+            projectile.setLight(lightMap.addLight(startPosition.x, startPosition.z, PROJECTILE_LIGHT_RADIUS));
+        }
         projectiles.add(projectile);
         combatNode.attachChild(projectile.getSpatial());
 
@@ -276,9 +376,17 @@ public class CombatManager {
             combatNode.detachChild(enemy.getSpatial());
         }
         for (Projectile proj : projectiles) {
+            removeProjectileLight(proj);
             combatNode.detachChild(proj.getSpatial());
         }
         enemies.clear();
         projectiles.clear();
     }
+
+    private void removeProjectileLight(Projectile proj) {
+        if (lightMap != null && proj.getLight() != null) {
+            lightMap.removeLight(proj.getLight());
+            proj.setLight(null);
+        }
+    }
 }
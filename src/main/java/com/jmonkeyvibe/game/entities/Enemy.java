@@ -237,6 +237,8 @@ public class Enemy {
         public float getSpeed() { return speed; }
         public float getDamage() { return damage; }
         public float getSize() { return size; }
+        /** Collision radius, half the sprite size */
+        public float getRadius() { return size / 2f; }
         public ColorRGBA getColor() { return color; }
         public int getExperienceValue() { return experienceValue; }
     }
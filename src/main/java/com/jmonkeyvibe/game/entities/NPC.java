@@ -10,6 +10,9 @@ import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.shape.Quad;
 import com.jme3.texture.Texture;
+import com.jmonkeyvibe.game.world.OverworldPath;
+import com.jmonkeyvibe.game.world.OverworldPathfinder;
+import com.jmonkeyvibe.game.world.OverworldTileStore;
 
 import java.util.Random;
 
@@ -27,7 +30,8 @@ public class NPC {
     // Wandering behavior state
     public enum MovementState {
         IDLE,
-        WALKING
+        WALKING,
+        TRAVELING
     }
 
     private MovementState movementState = MovementState.IDLE;
@@ -38,6 +42,13 @@ public class NPC {
     private float maxWanderRadius = 3.0f; // Maximum distance from spawn point
     private Random wanderRandom = new Random();
 
+    // Long-distance travel state
+    private OverworldPathfinder pathfinder;
+    private OverworldPath travelPath;
+    private Vector3f travelWaypoint; // Tile center currently walked to, null when a new one is needed
+    private float travelSpeed = 2.0f;
+    private boolean replanned = false; // Only re-request a blocked route once per trip
+
     // Random name pools for NPC generation
     private static final String[] FIRST_NAMES = {
         "Aldric", "Bran", "Cedric", "Dorian", "Elara", "Fiona", "Gareth", "Helena",
@@ -216,8 +227,9 @@ public class NPC {
     /**
      * Update NPC wandering behavior
      * @param tpf Time per frame
+     * @param tileStore overworld tile data used for collision (may be null)
      */
-    public void update(float tpf) {
+    public void update(float tpf, OverworldTileStore tileStore) {
         if (spawnPosition == null) {
             return; // Not initialized yet
         }
@@ -238,10 +250,87 @@ public class NPC {
                     startIdling();
                 } else {
                     // Move toward target
-                    moveTowardTarget(tpf);
+                    moveTowardTarget(tpf, tileStore);
                 }
                 break;
+
+            case TRAVELING:
+                followTravelPath(tpf, tileStore);
+                break;
+        }
+    }
+
+    /**
+     * Travel to a distant destination along a route from the pathfinder.
+     * On arrival the NPC settles down and wanders around the destination.
+     */
+    public void travelTo(Vector3f destination, OverworldPathfinder pathfinder) {
+        if (travelPath != null) {
+            travelPath.cancel();
+        }
+        this.pathfinder = pathfinder;
+        this.travelPath = pathfinder.requestPath(position, destination);
+        this.travelWaypoint = null;
+        this.replanned = false;
+        movementState = MovementState.TRAVELING;
+    }
+
+    /**
+     * Walk the travel path waypoint by waypoint. Waits while the route is
+     * still being computed, and gives up (settling where it stands) if no
+     * route exists.
+     */
+    private void followTravelPath(float tpf, OverworldTileStore tileStore) {
+        if (travelPath.isPending()) {
+            return;
         }
+        if (travelWaypoint == null) {
+            if (travelPath.hasNextWaypoint()) {
+                travelWaypoint = travelPath.nextWaypoint(null);
+            }
+            if (travelWaypoint == null) {
+                endTravel();
+                return;
+            }
+        }
+
+        float step = travelSpeed * tpf;
+        Vector3f direction = travelWaypoint.subtract(position);
+        direction.y = 0;
+        float remaining = direction.length();
+        if (remaining > step) {
+            direction.multLocal(step / remaining);
+        }
+        if (tileStore != null && !tileStore.isWalkable(position.x + direction.x, position.z + direction.z)) {
+            // The terrain changed under the route: ask for a new one once
+            if (!replanned) {
+                Vector3f goal = travelPath.getGoal();
+                travelTo(goal, pathfinder);
+                replanned = true;
+            } else {
+                endTravel();
+            }
+            return;
+        }
+        position.addLocal(direction);
+        spatial.setLocalTranslation(position);
+        if (remaining <= step) {
+            travelWaypoint = null;
+        }
+    }
+
+    private void endTravel() {
+        travelPath = null;
+        travelWaypoint = null;
+        spawnPosition = position.clone();
+        startIdling();
+    }
+
+    /**
+     * Check if NPC is on its way to a distant destination
+     */
+    public boolean isTraveling() {
+        return movementState == MovementState.TRAVELING;
     }
 
     /**
@@ -280,9 +369,10 @@ public class NPC {
     }
 
     /**
-     * Move NPC toward its current wander target
+     * Move NPC toward its current wander target.
+     * If the next step would enter an unwalkable tile, the NPC stops and idles.
      */
-    private void moveTowardTarget(float tpf) {
+    private void moveTowardTarget(float tpf, OverworldTileStore tileStore) {
         if (wanderTarget == null) {
             return;
         }
@@ -293,6 +383,10 @@ public class NPC {
         if (direction.lengthSquared() > 0.01f) {
             direction.normalizeLocal();
             Vector3f movement = direction.mult(wanderSpeed * tpf);
+            if (tileStore != null && !tileStore.isWalkable(position.x + movement.x, position.z + movement.z)) {
+                startIdling();
+                return;
+            }
             position.addLocal(movement);
             spatial.setLocalTranslation(position);
         }
@@ -309,6 +403,6 @@ public class NPC {
      * Check if NPC is currently moving
      */
     public boolean isMoving() {
-        return movementState == MovementState.WALKING;
+        return movementState == MovementState.WALKING || movementState == MovementState.TRAVELING;
     }
 }
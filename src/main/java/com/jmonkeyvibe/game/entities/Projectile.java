@@ -8,6 +8,7 @@ import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.shape.Quad;
+import com.jmonkeyvibe.game.world.LightMap;
 
 /**
  * Projectile entity for combat
@@ -21,6 +22,8 @@ public class Projectile {
     private float lifetime;
     private float maxLifetime;
     private boolean active;
+    // Light carried by the projectile, if the dungeon is lit
+    private LightMap.Light light;
     
     private static final float PROJECTILE_SPEED = 15f;
     private static final float MAX_LIFETIME = 3f; // seconds
@@ -94,4 +97,12 @@ public class Projectile {
     public Vector3f getPosition() {
         return position.clone();
     }
+
+    public LightMap.Light getLight() {
+        return light;
+    }
+
+    public void setLight(LightMap.Light light) {
+        this.light = light;
+    }
 }
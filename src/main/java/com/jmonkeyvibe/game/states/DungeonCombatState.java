@@ -3,14 +3,20 @@ package com.jmonkeyvibe.game.states;
 import com.jme3.app.Application;
 import com.jme3.app.SimpleApplication;
 import com.jme3.app.state.BaseAppState;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
 import com.jme3.input.KeyInput;
 import com.jme3.input.MouseInput;
 import com.jme3.input.controls.ActionListener;
 import com.jme3.input.controls.KeyTrigger;
 import com.jme3.input.controls.MouseButtonTrigger;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
 import com.jmonkeyvibe.game.entities.Player;
 import com.jmonkeyvibe.game.entities.Enemy;
 import com.jmonkeyvibe.game.audio.AudioManager;
@@ -19,10 +25,17 @@ import com.jmonkeyvibe.game.input.GamepadManager;
 import com.jmonkeyvibe.game.ui.HealthBarUI;
 import com.jmonkeyvibe.game.ui.GameOverUI;
 import com.jmonkeyvibe.game.ui.LevelUpUI;
+import com.jmonkeyvibe.game.world.ClearanceMap;
+import com.jmonkeyvibe.game.world.CollisionGrid;
 import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+import com.jmonkeyvibe.game.world.DungeonLayoutCache;
+import com.jmonkeyvibe.game.world.FieldOfView;
+import com.jmonkeyvibe.game.world.FogOfWar;
+import com.jmonkeyvibe.game.world.LightMap;
+import com.jmonkeyvibe.game.world.PlacementService;
+import com.jmonkeyvibe.game.world.TileMeshBuilder;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -39,6 +52,10 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
     private LevelUpUI levelUpUI;
     private DungeonGenerator dungeonGenerator;
 
+    // Dungeon generated ahead of time by DungeonLoadingState, used by the next initialize()
+    private DungeonGenerator preparedGenerator;
+    private DungeonLayout preparedLayout;
+
     // Leveling system
     private boolean levelUpPending = false;
     
@@ -53,9 +70,40 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
     private Vector3f gamepadAimDirection = new Vector3f(0, 0, 1); // Default aim forward
 
     private Vector3f dungeonExitPosition;
+
+    // Fog of war, revealed by the player's field of view
+    private FieldOfView fieldOfView;
+    private FogOfWar fogOfWar;
+    private static final int FOV_RADIUS = 12;
+
+    // Minimap of the explored dungeon (colors as 0xRRGGBBAA)
+    private MinimapState minimap;
+    private static final int MINIMAP_FLOOR = 0x5A5A62FF;
+    private static final int MINIMAP_WALL = 0x1C1C20FF;
+    private static final int MINIMAP_UNEXPLORED = 0x00000080;
+
+    // Torch lighting: static torches along walls, a light on the player and
+    // one on every projectile (see CombatManager)
+    private LightMap lightMap;
+    private LightMap.Light playerLight;
+    private static final int PLAYER_LIGHT_RADIUS = 9;
+    private static final int TORCH_LIGHT_RADIUS = 7;
+    private static final float TORCH_SPACING = 9.0f;
+    private static final int CELLS_PER_TORCH = 60;
+    private static final ColorRGBA TORCH_COLOR = new ColorRGBA(1.0f, 0.6f, 0.15f, 1.0f);
     private static final float MOVE_SPEED = 7.0f;
     private static final float EXIT_DISTANCE = 2.0f;
 
+    /**
+     * Dungeon layout mode and size in cells. The defaults are the small
+     * ROOMS arena; large BSP dungeons can be selected with, for example,
+     * -Djmonkeyvibe.dungeonMode=bsp -Djmonkeyvibe.dungeonSize=512
+     */
+    public static final DungeonGenerator.Mode DUNGEON_MODE = readDungeonMode();
+    public static final int DUNGEON_WIDTH = Integer.getInteger("jmonkeyvibe.dungeonSize", 40);
+    public static final int DUNGEON_HEIGHT = DUNGEON_WIDTH;
+    public static final String DUNGEON_SEED_PROPERTY = "jmonkeyvibe.dungeonSeed";
+
     // Enemy spawning constants
     private static final int BASE_ENEMIES = 3;                    // Starting number of enemies in wave 1
     private static final int ENEMIES_PER_WAVE_INCREASE = 1;       // Additional enemies per wave
@@ -75,14 +123,23 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
 
     @Override
     protected void initialize(Application app) {
+        long initStart = System.nanoTime();
         this.app = (SimpleApplication) app;
         this.dungeonNode = new Node("Dungeon");
         this.combatManager = new CombatManager(this.app.getAssetManager());
         this.random = new Random();
 
-        // Generate procedural dungeon first (before player spawn)
-        dungeonGenerator = new DungeonGenerator(this.app.getAssetManager());
-        dungeonGenerator.generateDungeon(dungeonNode, 40, 40);
+        // Generate procedural dungeon first (before player spawn), unless it
+        // was already generated in the background
+        if (preparedLayout != null) {
+            dungeonGenerator = preparedGenerator;
+            dungeonGenerator.attachLayout(dungeonNode, preparedLayout);
+            preparedGenerator = null;
+            preparedLayout = null;
+        } else {
+            dungeonGenerator = createDungeonGenerator(this.app.getAssetManager(), newDungeonSeed());
+            dungeonGenerator.generateDungeon(dungeonNode, DUNGEON_WIDTH, DUNGEON_HEIGHT);
+        }
 
         // Create player for combat
         player = new Player(this.app.getAssetManager());
@@ -92,6 +149,19 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
         player.setPosition(spawnPosition);
         dungeonNode.attachChild(player.getSpatial());
 
+        // Reveal the dungeon as the player explores it
+        CollisionGrid grid = dungeonGenerator.getCollisionGrid();
+        fieldOfView = new FieldOfView(grid, FOV_RADIUS);
+        fogOfWar = new FogOfWar(this.app.getAssetManager(), grid.getWidth(), grid.getHeight());
+        dungeonNode.attachChild(fogOfWar.getGeometry());
+        minimap = new MinimapState(new DungeonMinimapSource());
+        this.app.getStateManager().attach(minimap);
+        lightMap = new LightMap(this.app.getAssetManager(), grid);
+        dungeonNode.attachChild(lightMap.getGeometry());
+        placeTorches();
+        playerLight = lightMap.addLight(spawnPosition.x, spawnPosition.z, PLAYER_LIGHT_RADIUS);
+        combatManager.setLightMap(lightMap);
+
         // Pass dungeon generator to combat manager for enemy collision detection
         combatManager.setDungeonGenerator(dungeonGenerator);
 
@@ -153,10 +223,69 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
         
         this.app.getRootNode().attachChild(dungeonNode);
 
-        System.out.println("Entered dungeon combat mode!");
+        System.out.printf("Entered dungeon combat mode! (seed %d, initialized in %.1f ms)%n",
+            dungeonGenerator.getSeed(), (System.nanoTime() - initStart) / 1e6);
         System.out.println("Survive the infinite waves!");
     }
 
+    private static DungeonGenerator.Mode readDungeonMode() {
+        String mode = System.getProperty("jmonkeyvibe.dungeonMode", "rooms");
+        try {
+            return DungeonGenerator.Mode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Warning: Unknown dungeon mode '" + mode + "', using rooms");
+            return DungeonGenerator.Mode.ROOMS;
+        }
+    }
+
+    /**
+     * Create a generator for a dungeon seed with the configured mode and the
+     * shared layout cache
+     */
+    public static DungeonGenerator createDungeonGenerator(AssetManager assetManager, long seed) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, seed);
+        generator.setMode(DUNGEON_MODE);
+        generator.setLayoutCache(DungeonLayoutCache.getDefault());
+        return generator;
+    }
+
+    /**
+     * Seed for a dungeon not entered through a portal: random, unless a
+     * specific dungeon is replayed with -Djmonkeyvibe.dungeonSeed=<seed>
+     */
+    public static long newDungeonSeed() {
+        Long seed = Long.getLong(DUNGEON_SEED_PROPERTY);
+        return seed != null ? seed : new Random().nextLong();
+    }
+
+    /**
+     * @return the seed of the current dungeon, which restarting it reuses
+     */
+    public long getDungeonSeed() {
+        return dungeonGenerator.getSeed();
+    }
+
+    /**
+     * Load the textures, font and material definition the combat scene uses
+     * into the asset cache. Safe to call from a worker thread, so the first
+     * frame of combat does not have to read them from disk.
+     */
+    public static void preloadAssets(AssetManager assetManager) {
+        assetManager.loadAsset(new AssetKey<>("Common/MatDefs/Misc/Unshaded.j3md"));
+        assetManager.loadFont("Interface/Fonts/Default.fnt");
+        assetManager.loadTexture("Textures/player.png");
+        assetManager.loadTexture("Textures/enemy.png");
+    }
+
+    /**
+     * Use a dungeon that was generated ahead of time for the next initialize()
+     * instead of generating one on the render thread
+     */
+    public void setPreparedDungeon(DungeonGenerator generator, DungeonLayout layout) {
+        this.preparedGenerator = generator;
+        this.preparedLayout = layout;
+    }
+
     /**
      * Start the next wave of enemies
      */
@@ -182,17 +311,17 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
     }
 
     /**
-     * Spawn enemies for the current wave
+     * Spawn enemies for the current wave, spread out in a band around the player
      */
     private void spawnWaveEnemies(int enemyCount) {
-        List<Vector3f> usedPositions = new ArrayList<>();
         Vector3f playerPos = player.getPosition();
+        PlacementService.Sampler sampler = dungeonGenerator.getPlacementService().newSampler(
+            MIN_ENEMY_SEPARATION, random, playerPos.x, playerPos.z, MAX_ENEMY_SPAWN_DISTANCE);
 
         for (int i = 0; i < enemyCount; i++) {
-            Vector3f position = generateRandomEnemyPosition(playerPos, usedPositions);
+            Enemy.EnemyType type = getRandomEnemyTypeForWave(currentWave);
+            Vector3f position = generateRandomEnemyPosition(sampler, playerPos, type.getRadius());
             if (position != null) {
-                usedPositions.add(position);
-                Enemy.EnemyType type = getRandomEnemyTypeForWave(currentWave);
                 combatManager.spawnEnemy(type, position);
             }
         }
@@ -272,107 +401,49 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
     }
 
     /**
-     * Generate a random position for an enemy that doesn't overlap with existing positions,
-     * maintains minimum distance from player spawn, and is on a walkable tile
+     * Pick the next enemy position from the wave's sampler: at least
+     * MIN_ENEMY_SEPARATION from the other enemies, between MIN_ENEMY_SPAWN_DISTANCE
+     * and MAX_ENEMY_SPAWN_DISTANCE from the player, with room for an enemy of the given radius
+     * @return the position, or null if the band around the player is full
      */
-    private Vector3f generateRandomEnemyPosition(Vector3f playerSpawn, List<Vector3f> usedPositions) {
-        int maxAttempts = 50;
-
-        for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            // Generate random position within dungeon bounds
-            float angle = random.nextFloat() * com.jme3.math.FastMath.TWO_PI;
-            float distance = MIN_ENEMY_SPAWN_DISTANCE + random.nextFloat() * (MAX_ENEMY_SPAWN_DISTANCE - MIN_ENEMY_SPAWN_DISTANCE);
-
-            float x = playerSpawn.x + com.jme3.math.FastMath.cos(angle) * distance;
-            float z = playerSpawn.z + com.jme3.math.FastMath.sin(angle) * distance;
-
-            // Keep within reasonable dungeon bounds (0-40 based on dungeon size)
-            x = Math.max(2, Math.min(38, x));
-            z = Math.max(2, Math.min(38, z));
-
-            Vector3f candidatePos = new Vector3f(x, 0, z);
-
-            // Check if position is walkable (not a wall)
-            if (!dungeonGenerator.isWalkable(candidatePos.x, candidatePos.z)) {
-                continue; // Skip non-walkable positions
-            }
-
-            // Check if position is far enough from all used positions
-            boolean validPosition = true;
-            for (Vector3f usedPos : usedPositions) {
-                if (candidatePos.distance(usedPos) < MIN_ENEMY_SEPARATION) {
-                    validPosition = false;
-                    break;
-                }
-            }
-
-            // Also ensure minimum distance from player spawn
-            if (validPosition && candidatePos.distance(playerSpawn) < MIN_ENEMY_SPAWN_DISTANCE) {
-                validPosition = false;
-            }
-
-            if (validPosition) {
-                return candidatePos;
-            }
-        }
-
-        return null; // Could not find valid position
+    private Vector3f generateRandomEnemyPosition(PlacementService.Sampler sampler, Vector3f playerSpawn, float radius) {
+        return sampler.next((x, z) -> {
+            float dx = x - playerSpawn.x;
+            float dz = z - playerSpawn.z;
+            float distanceSquared = dx * dx + dz * dz;
+            return distanceSquared >= MIN_ENEMY_SPAWN_DISTANCE * MIN_ENEMY_SPAWN_DISTANCE
+                && distanceSquared <= MAX_ENEMY_SPAWN_DISTANCE * MAX_ENEMY_SPAWN_DISTANCE
+                && dungeonGenerator.canFit(x, z, radius);
+        });
     }
 
     /**
-     * Find a walkable spawn position for the player.
-     * If the preferred position is walkable, return it.
-     * Otherwise, search in expanding squares around the preferred position.
+     * Find a walkable spawn position for the player: the preferred position
+     * if it is walkable, otherwise the closest floor cell to it.
      */
     private Vector3f findWalkableSpawnPosition(Vector3f preferredPosition) {
-        // Check if preferred position is walkable
-        if (dungeonGenerator.isWalkable(preferredPosition.x, preferredPosition.z)) {
+        PlacementService placement = dungeonGenerator.getPlacementService();
+        Vector3f position = placement != null ? placement.findNearestWalkable(preferredPosition) : preferredPosition;
+        if (position == null) {
+            // Should never happen if the dungeon has any rooms
+            System.out.println("Warning: No walkable tiles found! Using preferred position anyway.");
             return preferredPosition;
         }
-
-        // Search in expanding squares around the preferred position
-        int maxSearchRadius = 20;
-        for (int radius = 1; radius <= maxSearchRadius; radius++) {
-            // Check all positions at this radius
-            for (int dx = -radius; dx <= radius; dx++) {
-                for (int dz = -radius; dz <= radius; dz++) {
-                    // Only check positions on the edge of the square
-                    if (Math.abs(dx) == radius || Math.abs(dz) == radius) {
-                        float x = preferredPosition.x + dx;
-                        float z = preferredPosition.z + dz;
-
-                        if (dungeonGenerator.isWalkable(x, z)) {
-                            System.out.println("Player spawn adjusted from " + preferredPosition +
-                                " to walkable position (" + x + ", 0, " + z + ")");
-                            return new Vector3f(x, 0, z);
-                        }
-                    }
-                }
-            }
-        }
-
-        // Fallback: scan the entire dungeon for any walkable tile
-        System.out.println("Warning: Could not find walkable position near preferred spawn. Scanning entire dungeon...");
-        int[][] grid = dungeonGenerator.getCollisionGrid();
-        if (grid != null) {
-            for (int x = 0; x < grid.length; x++) {
-                for (int z = 0; z < grid[0].length; z++) {
-                    if (grid[x][z] == 1) {
-                        System.out.println("Player spawn fallback to walkable position (" + x + ", 0, " + z + ")");
-                        return new Vector3f(x, 0, z);
-                    }
-                }
-            }
+        if (position != preferredPosition) {
+            System.out.println("Player spawn adjusted from " + preferredPosition + " to walkable position " + position);
         }
-
-        // Ultimate fallback (should never happen if dungeon has any rooms)
-        System.out.println("Warning: No walkable tiles found! Using preferred position anyway.");
-        return preferredPosition;
+        return position;
     }
 
     @Override
     protected void cleanup(Application app) {
+        if (lightMap != null) {
+            System.out.println(lightMap.getStatsSummary());
+        }
         this.app.getRootNode().detachChild(dungeonNode);
+        if (minimap != null) {
+            this.app.getStateManager().detach(minimap);
+        }
         if (playerHealthBar != null) {
             playerHealthBar.cleanup();
         }
@@ -498,11 +569,101 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
         // Check if player is near exit
         checkExitProximity();
 
-        // Update camera to follow player
+        updateFieldOfView();
+
+        // Flood only the lights that moved (player, projectiles) or changed
         Vector3f playerPos = player.getPosition();
+        playerLight.setPosition(playerPos.x, playerPos.z);
+        lightMap.update();
+
+        // Update camera to follow player
         app.getCamera().setLocation(new Vector3f(playerPos.x, 50, playerPos.z));
     }
 
+    /**
+     * Put torches on floor cells along the walls, TORCH_SPACING apart, and
+     * draw them all as one mesh
+     */
+    private void placeTorches() {
+        PlacementService placement = dungeonGenerator.getPlacementService();
+        ClearanceMap clearance = dungeonGenerator.getClearanceMap();
+        PlacementService.Sampler sampler = placement.newSampler(TORCH_SPACING, random);
+        TileMeshBuilder builder = new TileMeshBuilder();
+        int torches = placement.getWalkableCount() / CELLS_PER_TORCH;
+        for (int i = 0; i < torches; i++) {
+            // Next to a wall: the clearance of a floor cell touching a wall is 0.5
+            Vector3f position = sampler.next((x, z) -> clearance.getClearance(Math.round(x), Math.round(z)) <= 0.5f);
+            if (position == null) {
+                break;
+            }
+            lightMap.addLight(position.x, position.z, TORCH_LIGHT_RADIUS);
+            builder.addQuad(Math.round(position.x) - 0.2f, Math.round(position.z) - 0.2f,
+                            Math.round(position.x) + 0.2f, Math.round(position.z) + 0.2f, TORCH_COLOR);
+        }
+        if (!builder.isEmpty()) {
+            Material material = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+            material.setBoolean("VertexColor", true);
+            Geometry torchGeometry = new Geometry("Torches", builder.build());
+            torchGeometry.setMaterial(material);
+            torchGeometry.setLocalTranslation(0, 0.02f, 0);
+            dungeonNode.attachChild(torchGeometry);
+        }
+        System.out.println("Placed " + builder.getQuadCount() + " torches");
+    }
+
+    /**
+     * Minimap contents: explored cells, the player, visible enemies and the exit
+     */
+    private class DungeonMinimapSource implements MinimapState.Source {
+        @Override
+        public Vector3f getCenter() {
+            return player.getPosition();
+        }
+
+        @Override
+        public int getColor(int x, int z) {
+            if (!fieldOfView.isExplored(x, z)) {
+                return MINIMAP_UNEXPLORED;
+            }
+            return dungeonGenerator.getCollisionGrid().isWalkable(x, z) ? MINIMAP_FLOOR : MINIMAP_WALL;
+        }
+
+        @Override
+        public void addMarkers(MinimapState minimap) {
+            if (dungeonExitPosition != null) {
+                minimap.addMarker(dungeonExitPosition, ColorRGBA.Green);
+            }
+            for (Enemy enemy : combatManager.getEnemies()) {
+                if (fieldOfView.isVisible(enemy.getPosition().x, enemy.getPosition().z)) {
+                    minimap.addMarker(enemy.getPosition(), ColorRGBA.Red);
+                }
+            }
+            minimap.addMarker(player.getPosition(), ColorRGBA.White);
+        }
+    }
+
+    /**
+     * Recompute the field of view when the player enters another cell,
+     * redraw the fog cells that changed, show the rooms that came into view
+     * and hide enemies out of view
+     */
+    private void updateFieldOfView() {
+        Vector3f playerPos = player.getPosition();
+        if (fieldOfView.update(playerPos.x, playerPos.z)) {
+            fogOfWar.apply(fieldOfView);
+            dungeonGenerator.revealRooms(fieldOfView);
+            for (int i = 0; i < fieldOfView.getChangedCount(); i++) {
+                int cell = fieldOfView.getChangedCell(i);
+                minimap.markDirty(cell % fieldOfView.getWidth(), cell / fieldOfView.getWidth());
+            }
+        }
+        for (Enemy enemy : combatManager.getEnemies()) {
+            Vector3f enemyPos = enemy.getPosition();
+            enemy.getSpatial().setCullHint(fieldOfView.isVisible(enemyPos.x, enemyPos.z)
+                ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
+        }
+    }
+
     /**
      * Move the player with collision detection.
      * Checks X and Z axes separately to allow sliding along walls.
@@ -666,6 +827,15 @@ public class DungeonCombatState extends BaseAppState implements ActionListener,
         }
     }
 
+    @Override
+    public void onWallBroken(int x, int z) {
+        // New lines of sight through the gap; the wall cell turns into floor
+        fieldOfView.invalidate();
+        minimap.markDirty(x, z);
+        lightMap.cellChanged(x, z);
+        System.out.println("Wall broken at (" + x + ", " + z + ")");
+    }
+
     /**
      * Trigger the level up UI
      */
@@ -0,0 +1,192 @@
+package com.jmonkeyvibe.game.states;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Quad;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Transition screen shown while a dungeon is generated in the background.
+ *
+ * The layout and its meshes are built on a worker thread (see
+ * DungeonGenerator.generateLayout()) while this state keeps the frame loop
+ * running with a simple animated overlay. The worker also preloads the
+ * combat scene's assets. The finished layout is handed back
+ * through app.enqueue(), and on the render thread this state detaches itself
+ * and attaches the combat state, which only has to create the geometry.
+ *
+ * If the overworld's DungeonPool already generated the dungeon (or is still
+ * generating it), the worker just waits for that result instead. A dungeon
+ * that was generated in an earlier session (a replayed seed) is only
+ * decoded from the DungeonLayoutCache; restarting one still in memory skips
+ * this screen altogether (see Main.restartDungeon()).
+ */
+public class DungeonLoadingState extends BaseAppState {
+
+    private static final String LOADING_TEXT = "Entering the dungeon";
+    private static final float DOT_INTERVAL = 0.3f;
+
+    private final DungeonCombatState combatState;
+    private final long seed;
+    private final Future<DungeonLayout> prepared;
+
+    private SimpleApplication app;
+    private Node loadingNode;
+    private BitmapText loadingText;
+    private float dotTimer = 0f;
+    private int dots = 0;
+    private boolean cancelled = false;
+
+    // Transition timing, reported once the dungeon is swapped in
+    private long startNanos;
+    private int frames = 0;
+    private float worstFrame = 0f;
+
+    /**
+     * Load a new random dungeon (or the one set with -Djmonkeyvibe.dungeonSeed)
+     */
+    public DungeonLoadingState(DungeonCombatState combatState) {
+        this(combatState, DungeonCombatState.newDungeonSeed(), null);
+    }
+
+    /**
+     * Load the dungeon for a seed
+     * @param prepared the pooled layout for that seed, or null to generate it here
+     */
+    public DungeonLoadingState(DungeonCombatState combatState, long seed, Future<DungeonLayout> prepared) {
+        this.combatState = combatState;
+        this.seed = seed;
+        this.prepared = prepared;
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        this.app = (SimpleApplication) app;
+        this.loadingNode = new Node("DungeonLoading");
+        createUI();
+
+        DungeonGenerator generator = DungeonCombatState.createDungeonGenerator(app.getAssetManager(), seed);
+        startNanos = System.nanoTime();
+
+        ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DungeonLoader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.submit(() -> {
+            DungeonLayout layout = null;
+            try {
+                DungeonCombatState.preloadAssets(this.app.getAssetManager());
+                layout = takePrepared();
+                if (layout == null) {
+                    layout = generator.generateLayout(DungeonCombatState.DUNGEON_WIDTH, DungeonCombatState.DUNGEON_HEIGHT);
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Background dungeon generation failed, generating on the render thread: " + e);
+            }
+            DungeonLayout result = layout;
+            this.app.enqueue(() -> onDungeonGenerated(generator, result));
+        });
+        worker.shutdown();
+    }
+
+    /**
+     * Wait for the pooled layout, if there is one (worker thread)
+     * @return the layout, or null if there is none or it could not be generated
+     */
+    private DungeonLayout takePrepared() {
+        if (prepared == null) {
+            return null;
+        }
+        try {
+            return prepared.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | CancellationException e) {
+            System.out.println("Warning: Pooled dungeon unavailable, generating it now: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Called on the render thread with the finished layout (null if generation failed)
+     */
+    private void onDungeonGenerated(DungeonGenerator generator, DungeonLayout layout) {
+        if (cancelled) {
+            return;
+        }
+        System.out.printf("Dungeon " + (prepared != null ? "taken from the pool" : "generated in the background")
+            + " in %.1f ms (%d frames, worst frame %.1f ms)%n",
+            (System.nanoTime() - startNanos) / 1e6, frames, worstFrame * 1000f);
+        if (layout != null) {
+            combatState.setPreparedDungeon(generator, layout);
+        }
+        app.getStateManager().detach(this);
+        app.getStateManager().attach(combatState);
+    }
+
+    private void createUI() {
+        int screenWidth = app.getCamera().getWidth();
+        int screenHeight = app.getCamera().getHeight();
+
+        Geometry background = new Geometry("DungeonLoadingBackground", new Quad(screenWidth, screenHeight));
+        Material material = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setColor("Color", new ColorRGBA(0.02f, 0.02f, 0.03f, 1.0f));
+        background.setMaterial(material);
+        background.setLocalTranslation(0, 0, -1);
+        loadingNode.attachChild(background);
+
+        BitmapFont font = app.getAssetManager().loadFont("Interface/Fonts/Default.fnt");
+        loadingText = new BitmapText(font);
+        loadingText.setSize(font.getCharSet().getRenderedSize() * 1.5f);
+        loadingText.setColor(new ColorRGBA(0.8f, 0.3f, 0.3f, 1.0f));
+        loadingText.setText(LOADING_TEXT + "...");
+        loadingText.setLocalTranslation((screenWidth - loadingText.getLineWidth()) / 2, screenHeight / 2f, 0);
+        loadingText.setText(LOADING_TEXT);
+        loadingNode.attachChild(loadingText);
+    }
+
+    @Override
+    public void update(float tpf) {
+        frames++;
+        worstFrame = Math.max(worstFrame, tpf);
+
+        dotTimer += tpf;
+        if (dotTimer >= DOT_INTERVAL) {
+            dotTimer = 0f;
+            dots = (dots + 1) % 4;
+            loadingText.setText(LOADING_TEXT + ".".repeat(dots));
+        }
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+        // A result that arrives after this state was removed is dropped
+        cancelled = true;
+    }
+
+    @Override
+    protected void onEnable() {
+        app.getGuiNode().attachChild(loadingNode);
+    }
+
+    @Override
+    protected void onDisable() {
+        app.getGuiNode().detachChild(loadingNode);
+    }
+}
@@ -14,12 +14,22 @@ import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.shape.Quad;
+import com.jmonkeyvibe.game.world.ChunkRegionStore;
+import com.jmonkeyvibe.game.world.ChunkStreamer;
+import com.jmonkeyvibe.game.world.DungeonLayoutCache;
+import com.jmonkeyvibe.game.world.DungeonPool;
+import com.jmonkeyvibe.game.world.OverworldPathfinder;
+import com.jmonkeyvibe.game.world.OverworldTileStore;
+import com.jmonkeyvibe.game.world.PlacementService;
+import com.jmonkeyvibe.game.world.TileChunk;
+import com.jmonkeyvibe.game.world.TileType;
 import com.jmonkeyvibe.game.world.WorldGenerator;
 import com.jmonkeyvibe.game.entities.Player;
 import com.jmonkeyvibe.game.entities.NPC;
 import com.jmonkeyvibe.game.ai.NPCConversationManager;
 import com.jmonkeyvibe.game.audio.AudioManager;
 import com.jmonkeyvibe.game.ui.DialogUI;
+import com.jmonkeyvibe.game.ui.WorldMapUI;
 import com.jmonkeyvibe.game.input.GamepadManager;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,9 +44,17 @@ public class ExplorationState extends BaseAppState implements ActionListener {
     private Node worldNode;
     private Player player;
     private WorldGenerator worldGenerator;
+    private ChunkStreamer chunkStreamer;
+    private OverworldTileStore tileStore;
+    private PlacementService spawnPlacement;
+    private ChunkRegionStore chunkPersistence;
+    private OverworldPathfinder pathfinder;
     private NPCConversationManager conversationManager;
     private List<NPC> npcs;
     private DialogUI dialogUI;
+    private WorldMapUI worldMap;
+    private MinimapState minimap;
+    private final OverworldTileStore.ChunkListener minimapChunkListener = this::onChunkChanged;
     
     private boolean moveForward = false;
     private boolean moveBackward = false;
@@ -52,6 +70,10 @@ public class ExplorationState extends BaseAppState implements ActionListener {
     private boolean isTypingCustomResponse = false;
     private StringBuilder customResponseBuffer = new StringBuilder();
     private List<Vector3f> dungeonPortals = new ArrayList<>();
+    // Dungeon seed of each portal, parallel to dungeonPortals
+    private List<Long> portalSeeds = new ArrayList<>();
+    private DungeonPool dungeonPool;
+    private float dungeonPoolTimer = 0f;
     private com.jme3.font.BitmapText controlsTooltip;
     
     private static final float MOVE_SPEED = 5.0f;
@@ -65,6 +87,13 @@ public class ExplorationState extends BaseAppState implements ActionListener {
     private static final int MAX_PORTALS = 4;
     private static final float WORLD_SPAWN_RADIUS = 15.0f;
     private static final float MIN_SPAWN_DISTANCE = 3.0f;
+    // Chance per second that an idle traveler or merchant sets off for another location
+    private static final float TRAVEL_CHANCE_PER_SECOND = 0.05f;
+
+    // Dungeons of portals within this distance are generated ahead of time
+    private static final float DUNGEON_PREWARM_DISTANCE = 40.0f;
+    private static final int DUNGEON_POOL_CAPACITY = 3;
+    private static final float DUNGEON_POOL_INTERVAL = 0.5f;
 
     private Random random;
 
@@ -72,32 +101,50 @@ public class ExplorationState extends BaseAppState implements ActionListener {
     protected void initialize(Application app) {
         this.app = (SimpleApplication) app;
         this.worldNode = new Node("World");
-        this.worldGenerator = new WorldGenerator(this.app.getAssetManager());
+        this.worldGenerator = createWorldGenerator();
         this.npcs = new ArrayList<>();
         this.conversationManager = new NPCConversationManager();
         this.dialogUI = new DialogUI(this.app);
         this.random = new Random();
 
-        System.out.println("Initializing exploration state...");
+        System.out.println("Initializing exploration state... (world seed " + worldGenerator.getSeed() + ")");
 
-        // Generate initial world
-        worldGenerator.generateOverworld(worldNode, 20, 20);
-        System.out.println("World generated with tiles");
+        // Stream the overworld in chunks around the player; only the chunks
+        // directly around the spawn point are built before the first frame
+        tileStore = new OverworldTileStore(worldGenerator);
+        tileStore.setPersistence(chunkPersistence);
+        chunkStreamer = new ChunkStreamer(this.app, worldGenerator, worldNode, tileStore);
+        pathfinder = new OverworldPathfinder(tileStore);
+        worldMap = new WorldMapUI(this.app, tileStore, chunkPersistence);
+        chunkStreamer.addExploredListener(worldMap::markExplored);
+        chunkStreamer.preload(Vector3f.ZERO, 1);
+        System.out.println("World streaming started: " + chunkStreamer.getStatsSummary());
 
         // Create player
         player = new Player(this.app.getAssetManager());
-        player.setPosition(new Vector3f(0, 0, 0));
+        player.setPosition(findWalkableSpawnPosition(new Vector3f(0, 0, 0)));
         worldNode.attachChild(player.getSpatial());
-        System.out.println("Player created at (0, 0, 0)");
+        System.out.println("Player created at " + player.getPosition());
 
         // Spawn random NPCs
         spawnRandomNPCs();
         System.out.println("NPCs created: " + npcs.size());
 
-        // Create random dungeon portals
+        // Create random dungeon portals; their dungeons are pre-generated
+        // in the background while the player is nearby
+        dungeonPool = new DungeonPool(this.app.getAssetManager(),
+            DungeonCombatState.DUNGEON_WIDTH, DungeonCombatState.DUNGEON_HEIGHT, DUNGEON_POOL_CAPACITY);
+        dungeonPool.setMode(DungeonCombatState.DUNGEON_MODE);
+        dungeonPool.setLayoutCache(DungeonLayoutCache.getDefault());
+        dungeonPool.setWarmup(() -> DungeonCombatState.preloadAssets(this.app.getAssetManager()));
         spawnRandomPortals();
         System.out.println("Dungeon portals created: " + dungeonPortals.size());
         
+        // Corner minimap, repainted where tiles change
+        minimap = new MinimapState(new OverworldMinimapSource());
+        this.app.getStateManager().attach(minimap);
+        tileStore.addChunkListener(minimapChunkListener);
+
         // Create controls tooltip UI
         createControlsTooltip();
         
@@ -107,9 +154,83 @@ public class ExplorationState extends BaseAppState implements ActionListener {
 
     @Override
     protected void cleanup(Application app) {
+        System.out.println("World streaming stats: " + chunkStreamer.getStatsSummary());
+        System.out.println("Pathfinding stats: " + pathfinder.getStatsSummary());
+        System.out.println(dungeonPool.getStatsSummary());
+        System.out.println(minimap.getStatsSummary());
+        dungeonPool.cleanup();
+        pathfinder.cleanup();
+        worldMap.cleanup();
+        tileStore.removeChunkListener(minimapChunkListener);
+        this.app.getStateManager().detach(minimap);
+        chunkStreamer.cleanup();
+        if (chunkPersistence != null) {
+            chunkPersistence.close();
+        }
         this.app.getRootNode().detachChild(worldNode);
     }
 
+    /**
+     * Repaint the minimap where a chunk was loaded or its tiles changed
+     */
+    private void onChunkChanged(TileChunk chunk) {
+        int minX = chunk.getChunkX() * TileChunk.SIZE;
+        int minZ = chunk.getChunkZ() * TileChunk.SIZE;
+        minimap.markDirty(minX, minZ, minX + TileChunk.SIZE - 1, minZ + TileChunk.SIZE - 1);
+    }
+
+    /**
+     * Minimap contents: tiles, the player, NPCs and dungeon portals
+     */
+    private class OverworldMinimapSource implements MinimapState.Source {
+        private final int[] tileColors = new int[TileType.values().length];
+
+        OverworldMinimapSource() {
+            for (TileType type : TileType.values()) {
+                tileColors[type.ordinal()] = MinimapState.packColor(type.getColor());
+            }
+        }
+
+        @Override
+        public Vector3f getCenter() {
+            return player.getPosition();
+        }
+
+        @Override
+        public int getColor(int x, int z) {
+            return tileColors[tileStore.getTile(x, z).ordinal()];
+        }
+
+        @Override
+        public void addMarkers(MinimapState minimap) {
+            for (Vector3f portal : dungeonPortals) {
+                minimap.addMarker(portal, ColorRGBA.Magenta);
+            }
+            for (NPC npc : npcs) {
+                minimap.addMarker(npc.getPosition(), ColorRGBA.Yellow);
+            }
+            minimap.addMarker(player.getPosition(), ColorRGBA.White);
+        }
+    }
+
+    /**
+     * Open the saved overworld and reuse its seed, so explored and modified
+     * chunks come back on the next launch. Falls back to a fresh, unsaved
+     * world if the save directory cannot be used.
+     */
+    private WorldGenerator createWorldGenerator() {
+        try {
+            chunkPersistence = new ChunkRegionStore(ChunkRegionStore.getDefaultDirectory());
+            long seed = chunkPersistence.loadOrCreateSeed();
+            System.out.println("Overworld save: " + chunkPersistence.getDirectory());
+            return new WorldGenerator(app.getAssetManager(), seed);
+        } catch (java.io.IOException e) {
+            System.out.println("Warning: Overworld will not be saved: " + e.getMessage());
+            chunkPersistence = null;
+            return new WorldGenerator(app.getAssetManager());
+        }
+    }
+
     @Override
     protected void onEnable() {
         setupInput();
@@ -155,11 +276,23 @@ public class ExplorationState extends BaseAppState implements ActionListener {
 
         if (moveDirection.lengthSquared() > 0) {
             moveDirection.normalizeLocal();
-            player.move(moveDirection.mult(MOVE_SPEED * tpf));
+            movePlayerWithCollision(moveDirection.mult(MOVE_SPEED * tpf));
         }
 
         // Update camera to follow player (keep it high above)
         Vector3f playerPos = player.getPosition();
+
+        // Stream chunks in and out around the player
+        chunkStreamer.update(playerPos);
+        pathfinder.update();
+        worldMap.update(playerPos);
+
+        dungeonPoolTimer -= tpf;
+        if (dungeonPoolTimer <= 0f) {
+            dungeonPoolTimer = DUNGEON_POOL_INTERVAL;
+            updateDungeonPool(playerPos);
+        }
+
         app.getCamera().setLocation(new Vector3f(playerPos.x, 100, playerPos.z));
         app.getCamera().lookAt(new Vector3f(playerPos.x, 0, playerPos.z), Vector3f.UNIT_Z);
 
@@ -173,13 +306,72 @@ public class ExplorationState extends BaseAppState implements ActionListener {
         checkDialogDistance();
     }
 
+    /**
+     * Move the player with collision against unwalkable tiles (water).
+     * Checks X and Z axes separately to allow sliding along shores.
+     */
+    private void movePlayerWithCollision(Vector3f movement) {
+        Vector3f currentPos = player.getPosition();
+
+        float newX = currentPos.x + movement.x;
+        if (tileStore.isWalkable(newX, currentPos.z)) {
+            currentPos.x = newX;
+        }
+
+        float newZ = currentPos.z + movement.z;
+        if (tileStore.isWalkable(currentPos.x, newZ)) {
+            currentPos.z = newZ;
+        }
+
+        player.setPosition(currentPos);
+    }
+
+    /**
+     * Find the walkable tile closest to the preferred position in the spawn
+     * area (see getSpawnPlacement())
+     */
+    private Vector3f findWalkableSpawnPosition(Vector3f preferredPosition) {
+        Vector3f position = getSpawnPlacement().findNearestWalkable(preferredPosition);
+        if (position == null) {
+            System.out.println("Warning: No walkable tile near " + preferredPosition + ", spawning there anyway");
+            return preferredPosition.clone();
+        }
+        return position;
+    }
+
     /**
      * Update all NPCs (wandering behavior)
      */
     private void updateNPCs(float tpf) {
         for (NPC npc : npcs) {
-            npc.update(tpf);
+            npc.update(tpf, tileStore);
+
+            // Travelers and merchants occasionally move on to another portal or NPC
+            boolean wayfarer = npc.getNpcType() == NPC.NPCType.TRAVELER || npc.getNpcType() == NPC.NPCType.MERCHANT;
+            if (wayfarer && npc != currentTalkingNPC && npc.getMovementState() == NPC.MovementState.IDLE
+                    && random.nextFloat() < TRAVEL_CHANCE_PER_SECOND * tpf) {
+                Vector3f destination = pickTravelDestination(npc);
+                if (destination != null) {
+                    npc.travelTo(destination, pathfinder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick a dungeon portal or another NPC's position as a travel destination
+     */
+    private Vector3f pickTravelDestination(NPC traveler) {
+        List<Vector3f> destinations = new ArrayList<>(dungeonPortals);
+        for (NPC npc : npcs) {
+            if (npc != traveler) {
+                destinations.add(npc.getPosition());
+            }
+        }
+        if (destinations.isEmpty()) {
+            return null;
         }
+        return destinations.get(random.nextInt(destinations.size()));
     }
 
     /**
@@ -266,10 +458,11 @@ public class ExplorationState extends BaseAppState implements ActionListener {
         app.getInputManager().addMapping("TypeCustom", new KeyTrigger(KeyInput.KEY_T));
         app.getInputManager().addMapping("Escape", new KeyTrigger(KeyInput.KEY_ESCAPE));
         app.getInputManager().addMapping("EnterDungeon", new KeyTrigger(KeyInput.KEY_F));
+        app.getInputManager().addMapping("ToggleMap", new KeyTrigger(KeyInput.KEY_M));
         
         app.getInputManager().addListener(this, 
             "MoveForward", "MoveBackward", "MoveLeft", "MoveRight", "Interact",
-            "Choice1", "Choice2", "Choice3", "TypeCustom", "Escape", "EnterDungeon");
+            "Choice1", "Choice2", "Choice3", "TypeCustom", "Escape", "EnterDungeon", "ToggleMap");
         
         // Add raw input listener for text typing
         app.getInputManager().addRawInputListener(new com.jme3.input.RawInputListener() {
@@ -300,6 +493,7 @@ public class ExplorationState extends BaseAppState implements ActionListener {
         app.getInputManager().deleteMapping("Choice3");
         app.getInputManager().deleteMapping("TypeCustom");
         app.getInputManager().deleteMapping("Escape");
+        app.getInputManager().deleteMapping("ToggleMap");
         app.getInputManager().removeListener(this);
     }
 
@@ -362,6 +556,11 @@ public class ExplorationState extends BaseAppState implements ActionListener {
                     checkDungeonEntrance();
                 }
                 break;
+            case "ToggleMap":
+                if (isPressed) {
+                    worldMap.toggle(player.getPosition());
+                }
+                break;
         }
     }
 
@@ -597,6 +796,27 @@ public class ExplorationState extends BaseAppState implements ActionListener {
         }
     }
 
+    /**
+     * Get the overworld tile data used for gameplay queries
+     */
+    public OverworldTileStore getTileStore() {
+        return tileStore;
+    }
+
+    /**
+     * Get the hierarchical pathfinder NPCs use for long-distance travel
+     */
+    public OverworldPathfinder getPathfinder() {
+        return pathfinder;
+    }
+
+    /**
+     * Get the overworld chunk streamer (exposes generation latency and cache hit rate)
+     */
+    public ChunkStreamer getChunkStreamer() {
+        return chunkStreamer;
+    }
+
     private void createTestNPC(Vector3f position, String name) {
         NPC npc = new NPC(app.getAssetManager(), name);
         npc.setPosition(position);
@@ -609,12 +829,11 @@ public class ExplorationState extends BaseAppState implements ActionListener {
      */
     private void spawnRandomNPCs() {
         int npcCount = MIN_NPCS + random.nextInt(MAX_NPCS - MIN_NPCS + 1);
-        List<Vector3f> usedPositions = new ArrayList<>();
+        PlacementService.Sampler sampler = newSpawnSampler();
 
         for (int i = 0; i < npcCount; i++) {
-            Vector3f position = generateRandomPosition(usedPositions);
+            Vector3f position = generateRandomPosition(sampler);
             if (position != null) {
-                usedPositions.add(position);
                 NPC npc = NPC.createRandomNPC(app.getAssetManager());
                 npc.setPosition(position);
                 worldNode.attachChild(npc.getSpatial());
@@ -629,17 +848,16 @@ public class ExplorationState extends BaseAppState implements ActionListener {
      */
     private void spawnRandomPortals() {
         int portalCount = MIN_PORTALS + random.nextInt(MAX_PORTALS - MIN_PORTALS + 1);
-        List<Vector3f> usedPositions = new ArrayList<>();
+        PlacementService.Sampler sampler = newSpawnSampler();
 
-        // Collect NPC positions to avoid spawning portals on them
+        // Keep portals away from the NPCs
         for (NPC npc : npcs) {
-            usedPositions.add(npc.getPosition());
+            sampler.block(npc.getPosition());
         }
 
         for (int i = 0; i < portalCount; i++) {
-            Vector3f position = generateRandomPosition(usedPositions);
+            Vector3f position = generateRandomPosition(sampler);
             if (position != null) {
-                usedPositions.add(position);
                 createDungeonPortal(position);
                 System.out.println("  Spawned dungeon portal at " + position);
             }
@@ -647,34 +865,38 @@ public class ExplorationState extends BaseAppState implements ActionListener {
     }
 
     /**
-     * Generate a random position that doesn't overlap with existing positions
+     * Index of the land tiles within WORLD_SPAWN_RADIUS of the world origin,
+     * where the player, NPCs and portals are placed
      */
-    private Vector3f generateRandomPosition(List<Vector3f> usedPositions) {
-        int maxAttempts = 50;
-
-        for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            // Generate random position within world bounds, avoiding center (player spawn)
-            float angle = random.nextFloat() * FastMath.TWO_PI;
-            float distance = MIN_SPAWN_DISTANCE + random.nextFloat() * (WORLD_SPAWN_RADIUS - MIN_SPAWN_DISTANCE);
-            float x = FastMath.cos(angle) * distance;
-            float z = FastMath.sin(angle) * distance;
-            Vector3f candidatePos = new Vector3f(x, 0, z);
-
-            // Check if position is far enough from all used positions
-            boolean validPosition = true;
-            for (Vector3f usedPos : usedPositions) {
-                if (candidatePos.distance(usedPos) < MIN_SPAWN_DISTANCE) {
-                    validPosition = false;
-                    break;
-                }
-            }
-
-            if (validPosition) {
-                return candidatePos;
-            }
+    private PlacementService getSpawnPlacement() {
+        if (spawnPlacement == null) {
+            int radius = (int) Math.ceil(WORLD_SPAWN_RADIUS);
+            spawnPlacement = new PlacementService(-radius, -radius, 2 * radius + 1, 2 * radius + 1,
+                tileStore::isWalkable);
         }
+        return spawnPlacement;
+    }
 
-        return null; // Could not find valid position
+    /**
+     * A sampler over the land tiles around the player spawn, keeping
+     * MIN_SPAWN_DISTANCE between everything it places
+     */
+    private PlacementService.Sampler newSpawnSampler() {
+        return getSpawnPlacement().newSampler(MIN_SPAWN_DISTANCE, random);
+    }
+
+    /**
+     * Generate a random land position between MIN_SPAWN_DISTANCE and
+     * WORLD_SPAWN_RADIUS from the player spawn that doesn't overlap with the
+     * sampler's other positions
+     * @return the position, or null if there is no room left
+     */
+    private Vector3f generateRandomPosition(PlacementService.Sampler sampler) {
+        return sampler.next((x, z) -> {
+            float distanceSquared = x * x + z * z;
+            return distanceSquared >= MIN_SPAWN_DISTANCE * MIN_SPAWN_DISTANCE
+                && distanceSquared <= WORLD_SPAWN_RADIUS * WORLD_SPAWN_RADIUS;
+        });
     }
     
     private void createDungeonPortal(Vector3f position) {
@@ -698,6 +920,26 @@ public class ExplorationState extends BaseAppState implements ActionListener {
         worldNode.attachChild(portalNode);
         
         dungeonPortals.add(position);
+        portalSeeds.add(random.nextLong());
+    }
+
+    /**
+     * Keep the dungeons of the nearest portals in range pre-generated
+     */
+    private void updateDungeonPool(Vector3f playerPos) {
+        List<Integer> nearby = new ArrayList<>();
+        for (int i = 0; i < dungeonPortals.size(); i++) {
+            if (dungeonPortals.get(i).distance(playerPos) <= DUNGEON_PREWARM_DISTANCE) {
+                nearby.add(i);
+            }
+        }
+        nearby.sort((a, b) -> Float.compare(dungeonPortals.get(a).distanceSquared(playerPos),
+                                            dungeonPortals.get(b).distanceSquared(playerPos)));
+        List<Long> seeds = new ArrayList<>();
+        for (int i : nearby) {
+            seeds.add(portalSeeds.get(i));
+        }
+        dungeonPool.retain(seeds);
     }
     
     private void createControlsTooltip() {
@@ -706,7 +948,7 @@ public class ExplorationState extends BaseAppState implements ActionListener {
         controlsTooltip.setSize(font.getCharSet().getRenderedSize() * 0.8f);
         controlsTooltip.setColor(ColorRGBA.White);
         controlsTooltip.setText(
-            "KEYBOARD: WASD=Move | E=Talk | F=Dungeon | 1-3=Dialog | T=Type | ESC=Close\n" +
+            "KEYBOARD: WASD=Move | E=Talk | F=Dungeon | M=Map | 1-3=Dialog | T=Type | ESC=Close\n" +
             "GAMEPAD: LStick=Move | A=Talk/Select | X=Dungeon | DPad=Navigate | B=Close | Y=Type\n" +
             "COMBAT: WASD/LStick=Move | Mouse/RStick=Aim | Click/RT=Shoot | ESC/Start=Exit"
         );
@@ -731,11 +973,13 @@ public class ExplorationState extends BaseAppState implements ActionListener {
         }
         
         Vector3f playerPos = player.getPosition();
-        for (Vector3f portalPos : dungeonPortals) {
-            float distance = playerPos.distance(portalPos);
+        for (int i = 0; i < dungeonPortals.size(); i++) {
+            float distance = playerPos.distance(dungeonPortals.get(i));
             if (distance < PORTAL_DISTANCE) {
-                System.out.println("Entering dungeon...");
-                ((com.jmonkeyvibe.game.Main) app).enterDungeon();
+                long seed = portalSeeds.get(i);
+                System.out.println("Entering dungeon... (seed " + seed
+                    + (dungeonPool.isReady(seed) ? ", pre-generated)" : ")"));
+                ((com.jmonkeyvibe.game.Main) app).enterDungeon(seed, dungeonPool.take(seed));
                 return;
             }
         }
@@ -0,0 +1,293 @@
+package com.jmonkeyvibe.game.states;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Corner minimap of the cells around the player, for dungeons and the
+ * overworld alike.
+ *
+ * The map is a MAP_CELLS x MAP_CELLS texture (one texel per cell) used as a
+ * torus: cell (x, z) always lives in texel (x mod MAP_CELLS, z mod MAP_CELLS)
+ * and the quad's texture coordinates follow the window, with repeat
+ * wrapping. The window is painted once; when the player moves, only the
+ * rows and columns that scroll into view are painted, and other cells are
+ * repainted only when the owner marks them dirty (fog reveals, changed
+ * tiles). Markers (player, enemies, portals) are one dynamic point mesh,
+ * so the minimap costs two draw calls whatever the size of the map.
+ */
+public class MinimapState extends BaseAppState {
+
+    /** Width and height of the shown window, in cells */
+    public static final int MAP_CELLS = 64;
+
+    private static final float SCREEN_SIZE = 192f;
+    private static final float SCREEN_MARGIN = 10f;
+    private static final int MAX_MARKERS = 256;
+    private static final float MARKER_SIZE = 5f;
+
+    /**
+     * What the minimap shows; called on the render thread
+     */
+    public interface Source {
+        /** Position the window is centered on, usually the player's */
+        Vector3f getCenter();
+
+        /** Color of a cell as 0xRRGGBBAA */
+        int getColor(int x, int z);
+
+        /** Add this frame's markers with MinimapState.addMarker() */
+        void addMarkers(MinimapState minimap);
+    }
+
+    private final Source source;
+
+    private SimpleApplication app;
+    private Node minimapNode;
+    private ByteBuffer pixels;
+    private Image image;
+    private Mesh mapMesh;
+    private FloatBuffer mapTexCoords;
+    private Mesh markerMesh;
+    private FloatBuffer markerPositions;
+    private FloatBuffer markerColors;
+    private int markerCount = 0;
+    private boolean textureDirty = false;
+
+    // Lowest cell coordinates inside the window
+    private int originX;
+    private int originZ;
+    private boolean painted = false;
+
+    // Statistics
+    private long pixelsPainted;
+    private long uploads;
+
+    public MinimapState(Source source) {
+        this.source = source;
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        this.app = (SimpleApplication) app;
+        this.minimapNode = new Node("Minimap");
+
+        // Big-endian so putInt(0xRRGGBBAA) writes the bytes in RGBA8 order
+        pixels = BufferUtils.createByteBuffer(MAP_CELLS * MAP_CELLS * 4).order(ByteOrder.BIG_ENDIAN);
+        image = new Image(Image.Format.RGBA8, MAP_CELLS, MAP_CELLS, pixels, ColorSpace.sRGB);
+        Texture2D texture = new Texture2D(image);
+        texture.setMagFilter(Texture.MagFilter.Nearest);
+        texture.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        texture.setWrap(Texture.WrapMode.Repeat);
+
+        Material mapMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        mapMaterial.setTexture("ColorMap", texture);
+        mapMaterial.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
+
+        mapMesh = new Mesh();
+        mapMesh.setBuffer(VertexBuffer.Type.Position, 3, new float[]{
+            0, 0, 0,
+            SCREEN_SIZE, 0, 0,
+            SCREEN_SIZE, SCREEN_SIZE, 0,
+            0, SCREEN_SIZE, 0
+        });
+        mapTexCoords = BufferUtils.createFloatBuffer(8);
+        mapMesh.setBuffer(VertexBuffer.Type.TexCoord, 2, mapTexCoords);
+        mapMesh.setBuffer(VertexBuffer.Type.Index, 3, new short[]{0, 1, 2, 0, 2, 3});
+        mapMesh.updateBound();
+        Geometry mapGeometry = new Geometry("MinimapMap", mapMesh);
+        mapGeometry.setMaterial(mapMaterial);
+        minimapNode.attachChild(mapGeometry);
+
+        markerPositions = BufferUtils.createFloatBuffer(MAX_MARKERS * 3);
+        markerColors = BufferUtils.createFloatBuffer(MAX_MARKERS * 4);
+        markerMesh = new Mesh();
+        markerMesh.setMode(Mesh.Mode.Points);
+        markerMesh.setBuffer(VertexBuffer.Type.Position, 3, markerPositions);
+        markerMesh.setBuffer(VertexBuffer.Type.Color, 4, markerColors);
+        Material markerMaterial = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        markerMaterial.setBoolean("VertexColor", true);
+        markerMaterial.setFloat("PointSize", MARKER_SIZE);
+        Geometry markerGeometry = new Geometry("MinimapMarkers", markerMesh);
+        markerGeometry.setMaterial(markerMaterial);
+        markerGeometry.setLocalTranslation(0, 0, 1);
+        minimapNode.attachChild(markerGeometry);
+
+        minimapNode.setLocalTranslation(app.getCamera().getWidth() - SCREEN_SIZE - SCREEN_MARGIN,
+                                        app.getCamera().getHeight() - SCREEN_SIZE - SCREEN_MARGIN, 0);
+        painted = false;
+    }
+
+    @Override
+    public void update(float tpf) {
+        Vector3f center = source.getCenter();
+        scrollTo(Math.round(center.x) - MAP_CELLS / 2, Math.round(center.z) - MAP_CELLS / 2);
+
+        markerPositions.clear();
+        markerColors.clear();
+        markerCount = 0;
+        source.addMarkers(this);
+        markerPositions.flip();
+        markerColors.flip();
+        markerMesh.getBuffer(VertexBuffer.Type.Position).updateData(markerPositions);
+        markerMesh.getBuffer(VertexBuffer.Type.Color).updateData(markerColors);
+        markerMesh.updateCounts();
+        markerMesh.updateBound();
+
+        if (textureDirty) {
+            image.setUpdateNeeded();
+            textureDirty = false;
+            uploads++;
+        }
+    }
+
+    /**
+     * Move the window, painting only the cells that scrolled into it
+     */
+    private void scrollTo(int newOriginX, int newOriginZ) {
+        if (painted && newOriginX == originX && newOriginZ == originZ) {
+            return;
+        }
+        int oldOriginX = originX;
+        int oldOriginZ = originZ;
+        boolean repaintAll = !painted
+            || Math.abs(newOriginX - oldOriginX) >= MAP_CELLS || Math.abs(newOriginZ - oldOriginZ) >= MAP_CELLS;
+        originX = newOriginX;
+        originZ = newOriginZ;
+        painted = true;
+
+        if (repaintAll) {
+            paintRect(originX, originZ, originX + MAP_CELLS, originZ + MAP_CELLS);
+        } else {
+            // Columns, then rows, that entered the window
+            if (originX > oldOriginX) {
+                paintRect(oldOriginX + MAP_CELLS, originZ, originX + MAP_CELLS, originZ + MAP_CELLS);
+            } else if (originX < oldOriginX) {
+                paintRect(originX, originZ, oldOriginX, originZ + MAP_CELLS);
+            }
+            if (originZ > oldOriginZ) {
+                paintRect(originX, oldOriginZ + MAP_CELLS, originX + MAP_CELLS, originZ + MAP_CELLS);
+            } else if (originZ < oldOriginZ) {
+                paintRect(originX, originZ, originX + MAP_CELLS, oldOriginZ);
+            }
+        }
+
+        // Texel (x mod MAP_CELLS) covers cell x, so the window starts at origin mod MAP_CELLS.
+        // The camera looks down with +X to the left, so the map is mirrored in X.
+        float u0 = Math.floorMod(originX, MAP_CELLS) / (float) MAP_CELLS;
+        float v0 = Math.floorMod(originZ, MAP_CELLS) / (float) MAP_CELLS;
+        mapTexCoords.clear();
+        mapTexCoords.put(u0 + 1).put(v0)
+                    .put(u0).put(v0)
+                    .put(u0).put(v0 + 1)
+                    .put(u0 + 1).put(v0 + 1);
+        mapTexCoords.flip();
+        mapMesh.getBuffer(VertexBuffer.Type.TexCoord).updateData(mapTexCoords);
+    }
+
+    /**
+     * Repaint the cells in [minX, maxX) x [minZ, maxZ) that are inside the window
+     */
+    private void paintRect(int minX, int minZ, int maxX, int maxZ) {
+        minX = Math.max(minX, originX);
+        minZ = Math.max(minZ, originZ);
+        maxX = Math.min(maxX, originX + MAP_CELLS);
+        maxZ = Math.min(maxZ, originZ + MAP_CELLS);
+        for (int z = minZ; z < maxZ; z++) {
+            int row = Math.floorMod(z, MAP_CELLS) * MAP_CELLS;
+            for (int x = minX; x < maxX; x++) {
+                pixels.putInt((row + Math.floorMod(x, MAP_CELLS)) * 4, source.getColor(x, z));
+            }
+        }
+        if (maxX > minX && maxZ > minZ) {
+            pixelsPainted += (long) (maxX - minX) * (maxZ - minZ);
+            textureDirty = true;
+        }
+    }
+
+    /**
+     * Repaint one cell on the next update, e.g. after it was revealed or changed
+     */
+    public void markDirty(int x, int z) {
+        markDirty(x, z, x, z);
+    }
+
+    /**
+     * Repaint the cells in [minX, maxX] x [minZ, maxZ] on the next update
+     */
+    public void markDirty(int minX, int minZ, int maxX, int maxZ) {
+        if (painted) {
+            paintRect(minX, minZ, maxX + 1, maxZ + 1);
+        }
+    }
+
+    /**
+     * Add a marker for this frame (only from Source.addMarkers())
+     */
+    public void addMarker(Vector3f position, ColorRGBA color) {
+        if (markerCount == MAX_MARKERS) {
+            return;
+        }
+        // Same mirrored mapping as the texture, cells centered on integers
+        float screenX = SCREEN_SIZE * (originX + MAP_CELLS - 0.5f - position.x) / MAP_CELLS;
+        float screenY = SCREEN_SIZE * (position.z - originZ + 0.5f) / MAP_CELLS;
+        if (screenX < 0 || screenX > SCREEN_SIZE || screenY < 0 || screenY > SCREEN_SIZE) {
+            return;
+        }
+        markerPositions.put(screenX).put(screenY).put(0);
+        markerColors.put(color.r).put(color.g).put(color.b).put(color.a);
+        markerCount++;
+    }
+
+    /**
+     * Pack a color as 0xRRGGBBAA for Source.getColor()
+     */
+    public static int packColor(ColorRGBA color) {
+        return ((int) (color.r * 255) << 24) | ((int) (color.g * 255) << 16)
+            | ((int) (color.b * 255) << 8) | (int) (color.a * 255);
+    }
+
+    public long getPixelsPainted() {
+        return pixelsPainted;
+    }
+
+    public long getUploads() {
+        return uploads;
+    }
+
+    public String getStatsSummary() {
+        return String.format("Minimap: %d pixels painted, %d texture uploads", pixelsPainted, uploads);
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+    }
+
+    @Override
+    protected void onEnable() {
+        app.getGuiNode().attachChild(minimapNode);
+    }
+
+    @Override
+    protected void onDisable() {
+        app.getGuiNode().detachChild(minimapNode);
+    }
+}
@@ -0,0 +1,322 @@
+package com.jmonkeyvibe.game.ui;
+
+import com.jme3.app.SimpleApplication;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Quad;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import com.jmonkeyvibe.game.world.ChunkRegionStore;
+import com.jmonkeyvibe.game.world.OverworldTileStore;
+import com.jmonkeyvibe.game.world.TileChunk;
+import com.jmonkeyvibe.game.world.TileType;
+import com.jmonkeyvibe.game.world.WorldGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Zoomed-out map of the explored overworld, shown on the GUI layer.
+ *
+ * The map is drawn from per-chunk summaries (the dominant tile type of every
+ * 8x8 block, see TileChunk.getSummary()) into a single texture on a single
+ * quad, so it costs one draw call however much of the world was explored.
+ * Summaries of all explored chunks are kept in memory (16 bytes per chunk):
+ * loaded from the save at start-up, added as the player explores, and
+ * replaced only for chunks whose tiles change. The player is drawn into the
+ * texture as well.
+ *
+ * The texture covers MAP_CHUNKS x MAP_CHUNKS chunks and is re-centered on the
+ * player when the map is opened far from its current center.
+ */
+public class WorldMapUI implements OverworldTileStore.ChunkListener {
+
+    /** Map width and height in chunks */
+    public static final int MAP_CHUNKS = 128;
+
+    private static final int PIXELS_PER_CHUNK = TileChunk.SUMMARY_SIZE;
+    private static final int TEXTURE_SIZE = MAP_CHUNKS * PIXELS_PER_CHUNK;
+    private static final int PLAYER_MARKER_RADIUS = 1;
+    private static final float SCREEN_FRACTION = 0.8f;
+
+    private static final byte[] UNEXPLORED_COLOR = {12, 12, 16, (byte) 230};
+    private static final byte[] PLAYER_COLOR = {(byte) 255, (byte) 255, (byte) 255, (byte) 255};
+    private static final byte[][] TILE_COLORS = new byte[TileType.values().length][];
+
+    static {
+        for (TileType type : TileType.values()) {
+            ColorRGBA color = type.getColor();
+            TILE_COLORS[type.ordinal()] = new byte[]{
+                (byte) (color.r * 255), (byte) (color.g * 255), (byte) (color.b * 255), (byte) 255
+            };
+        }
+    }
+
+    private final SimpleApplication app;
+    private final OverworldTileStore tileStore;
+    private final Map<Long, byte[]> summaries = new HashMap<>();
+
+    private final ByteBuffer pixels;
+    private final Image image;
+    private final Geometry mapGeometry;
+
+    // Lowest chunk coordinates inside the window (X is mirrored, see pixelX())
+    private int originChunkX;
+    private int originChunkZ;
+    private int playerPixelX = -1;
+    private int playerPixelY = -1;
+    private boolean visible = false;
+    private boolean textureDirty = false;
+
+    public WorldMapUI(SimpleApplication app, OverworldTileStore tileStore, ChunkRegionStore persistence) {
+        this.app = app;
+        this.tileStore = tileStore;
+
+        pixels = BufferUtils.createByteBuffer(TEXTURE_SIZE * TEXTURE_SIZE * 4);
+        image = new Image(Image.Format.RGBA8, TEXTURE_SIZE, TEXTURE_SIZE, pixels, ColorSpace.sRGB);
+        Texture2D texture = new Texture2D(image);
+        texture.setMagFilter(Texture.MagFilter.Nearest);
+        texture.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+
+        Material material = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setTexture("ColorMap", texture);
+        material.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
+
+        float size = Math.min(app.getCamera().getWidth(), app.getCamera().getHeight()) * SCREEN_FRACTION;
+        mapGeometry = new Geometry("WorldMap", new Quad(size, size));
+        mapGeometry.setMaterial(material);
+        mapGeometry.setLocalTranslation((app.getCamera().getWidth() - size) / 2f,
+                                        (app.getCamera().getHeight() - size) / 2f, 10);
+
+        if (persistence != null) {
+            try {
+                persistence.forEachExploredSummary(
+                    (chunkX, chunkZ, summary) -> summaries.put(WorldGenerator.chunkKey(chunkX, chunkZ), summary.clone()));
+            } catch (IOException e) {
+                System.out.println("Warning: Could not read explored chunks for the world map: " + e.getMessage());
+            }
+        }
+        System.out.println("World map: " + summaries.size() + " explored chunks");
+
+        tileStore.addChunkListener(this);
+        recenter(0, 0);
+    }
+
+    /**
+     * Record a chunk the player has explored
+     */
+    public void markExplored(TileChunk chunk) {
+        putSummary(chunk);
+    }
+
+    /**
+     * Tile changes in explored chunks; chunks loaded for other reasons
+     * (e.g. pathfinding) are not shown until the player explores them
+     */
+    @Override
+    public void onChunkChanged(TileChunk chunk) {
+        if (summaries.containsKey(WorldGenerator.chunkKey(chunk.getChunkX(), chunk.getChunkZ()))) {
+            putSummary(chunk);
+        }
+    }
+
+    private void putSummary(TileChunk chunk) {
+        long key = WorldGenerator.chunkKey(chunk.getChunkX(), chunk.getChunkZ());
+        byte[] summary = chunk.getSummary();
+        byte[] previous = summaries.get(key);
+        if (previous != null && Arrays.equals(previous, summary)) {
+            return;
+        }
+        summaries.put(key, summary.clone());
+        paintChunk(chunk.getChunkX(), chunk.getChunkZ());
+        drawPlayerMarker();
+    }
+
+    /**
+     * Move the player marker, re-centering the map if the player left it,
+     * and upload the texture if anything changed. Call once per frame.
+     */
+    public void update(Vector3f playerPosition) {
+        int tileX = Math.round(playerPosition.x);
+        int tileZ = Math.round(playerPosition.z);
+        int chunkX = Math.floorDiv(tileX, TileChunk.SIZE);
+        int chunkZ = Math.floorDiv(tileZ, TileChunk.SIZE);
+        if (chunkX < originChunkX || chunkX >= originChunkX + MAP_CHUNKS
+                || chunkZ < originChunkZ || chunkZ >= originChunkZ + MAP_CHUNKS) {
+            recenter(chunkX, chunkZ);
+        }
+
+        int blockX = Math.floorDiv(tileX, TileChunk.SUMMARY_BLOCK);
+        int blockZ = Math.floorDiv(tileZ, TileChunk.SUMMARY_BLOCK);
+        int pixelX = pixelX(blockX);
+        int pixelY = pixelY(blockZ);
+        if (pixelX != playerPixelX || pixelY != playerPixelY) {
+            erasePlayerMarker();
+            playerPixelX = pixelX;
+            playerPixelY = pixelY;
+            drawPlayerMarker();
+        }
+
+        if (visible && textureDirty) {
+            image.setUpdateNeeded();
+            textureDirty = false;
+        }
+    }
+
+    public void toggle(Vector3f playerPosition) {
+        if (visible) {
+            hide();
+        } else {
+            show(playerPosition);
+        }
+    }
+
+    public void show(Vector3f playerPosition) {
+        if (visible) {
+            return;
+        }
+        int chunkX = Math.floorDiv(Math.round(playerPosition.x), TileChunk.SIZE);
+        int chunkZ = Math.floorDiv(Math.round(playerPosition.z), TileChunk.SIZE);
+        int centerX = originChunkX + MAP_CHUNKS / 2;
+        int centerZ = originChunkZ + MAP_CHUNKS / 2;
+        if (Math.abs(chunkX - centerX) > MAP_CHUNKS / 4 || Math.abs(chunkZ - centerZ) > MAP_CHUNKS / 4) {
+            recenter(chunkX, chunkZ);
+        }
+        visible = true;
+        app.getGuiNode().attachChild(mapGeometry);
+        update(playerPosition);
+    }
+
+    public void hide() {
+        if (!visible) {
+            return;
+        }
+        visible = false;
+        app.getGuiNode().detachChild(mapGeometry);
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public int getExploredChunkCount() {
+        return summaries.size();
+    }
+
+    public void cleanup() {
+        hide();
+        tileStore.removeChunkListener(this);
+    }
+
+    /**
+     * Center the window on a chunk and repaint it from the summaries
+     */
+    private void recenter(int chunkX, int chunkZ) {
+        originChunkX = chunkX - MAP_CHUNKS / 2;
+        originChunkZ = chunkZ - MAP_CHUNKS / 2;
+
+        for (int i = 0; i < TEXTURE_SIZE * TEXTURE_SIZE; i++) {
+            pixels.put(i * 4, UNEXPLORED_COLOR);
+        }
+        for (Map.Entry<Long, byte[]> entry : summaries.entrySet()) {
+            long key = entry.getKey();
+            paintChunk((int) (key >> 32), (int) key);
+        }
+        playerPixelX = -1;
+        playerPixelY = -1;
+        textureDirty = true;
+    }
+
+    /**
+     * Paint one chunk's summary into the texture, if it is inside the window
+     */
+    private void paintChunk(int chunkX, int chunkZ) {
+        if (chunkX < originChunkX || chunkX >= originChunkX + MAP_CHUNKS
+                || chunkZ < originChunkZ || chunkZ >= originChunkZ + MAP_CHUNKS) {
+            return;
+        }
+        for (int blockZ = 0; blockZ < TileChunk.SUMMARY_SIZE; blockZ++) {
+            for (int blockX = 0; blockX < TileChunk.SUMMARY_SIZE; blockX++) {
+                paintBlock(chunkX * TileChunk.SUMMARY_SIZE + blockX, chunkZ * TileChunk.SUMMARY_SIZE + blockZ);
+            }
+        }
+    }
+
+    /**
+     * Paint one summary block (in world block coordinates) from the summaries
+     */
+    private void paintBlock(int blockX, int blockZ) {
+        int pixelX = pixelX(blockX);
+        int pixelY = pixelY(blockZ);
+        if (pixelX < 0 || pixelX >= TEXTURE_SIZE || pixelY < 0 || pixelY >= TEXTURE_SIZE) {
+            return;
+        }
+        int chunkX = Math.floorDiv(blockX, TileChunk.SUMMARY_SIZE);
+        int chunkZ = Math.floorDiv(blockZ, TileChunk.SUMMARY_SIZE);
+        byte[] summary = summaries.get(WorldGenerator.chunkKey(chunkX, chunkZ));
+        byte[] color = UNEXPLORED_COLOR;
+        if (summary != null) {
+            int index = Math.floorMod(blockZ, TileChunk.SUMMARY_SIZE) * TileChunk.SUMMARY_SIZE
+                + Math.floorMod(blockX, TileChunk.SUMMARY_SIZE);
+            color = TILE_COLORS[summary[index]];
+        }
+        pixels.put((pixelY * TEXTURE_SIZE + pixelX) * 4, color);
+        textureDirty = true;
+    }
+
+    private void drawPlayerMarker() {
+        forEachMarkerPixel(true);
+    }
+
+    private void erasePlayerMarker() {
+        forEachMarkerPixel(false);
+    }
+
+    private void forEachMarkerPixel(boolean draw) {
+        if (playerPixelX < 0) {
+            return;
+        }
+        for (int dy = -PLAYER_MARKER_RADIUS; dy <= PLAYER_MARKER_RADIUS; dy++) {
+            for (int dx = -PLAYER_MARKER_RADIUS; dx <= PLAYER_MARKER_RADIUS; dx++) {
+                int pixelX = playerPixelX + dx;
+                int pixelY = playerPixelY + dy;
+                if (pixelX < 0 || pixelX >= TEXTURE_SIZE || pixelY < 0 || pixelY >= TEXTURE_SIZE) {
+                    continue;
+                }
+                if (draw) {
+                    pixels.put((pixelY * TEXTURE_SIZE + pixelX) * 4, PLAYER_COLOR);
+                    textureDirty = true;
+                } else {
+                    // Pixel -> block is the inverse of pixelX()/pixelY()
+                    paintBlock(blockFromPixelX(pixelX), blockFromPixelY(pixelY));
+                }
+            }
+        }
+    }
+
+    // The camera looks down with +Z up and +X to the left, so the map is mirrored in X
+    private int pixelX(int blockX) {
+        return TEXTURE_SIZE - 1 - (blockX - originChunkX * TileChunk.SUMMARY_SIZE);
+    }
+
+    private int pixelY(int blockZ) {
+        return blockZ - originChunkZ * TileChunk.SUMMARY_SIZE;
+    }
+
+    private int blockFromPixelX(int pixelX) {
+        return originChunkX * TileChunk.SUMMARY_SIZE + TEXTURE_SIZE - 1 - pixelX;
+    }
+
+    private int blockFromPixelY(int pixelY) {
+        return originChunkZ * TileChunk.SUMMARY_SIZE + pixelY;
+    }
+}
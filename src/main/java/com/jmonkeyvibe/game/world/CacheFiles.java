@@ -0,0 +1,79 @@
+package com.jmonkeyvibe.game.world;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Size bound for on-disk caches (the DungeonLayoutCache).
+ *
+ * A cache file's modification time doubles as its last use: touch() is
+ * called on every hit, and trim() deletes the least recently used files
+ * until the directory is back under its byte limit. Failures are logged and
+ * ignored; at worst a file stays around until the next trim.
+ */
+final class CacheFiles {
+
+    private CacheFiles() {
+    }
+
+    /**
+     * Mark a cache file as just used
+     */
+    static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only affects which file is evicted first
+        }
+    }
+
+    /**
+     * Delete the least recently used files with the given suffix until the
+     * rest take at most maxBytes
+     * @return the total size of the files left
+     */
+    static long trim(Path directory, String suffix, long maxBytes) {
+        List<Path> files = new ArrayList<>();
+        List<BasicFileAttributes> attributes = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path file : stream) {
+                BasicFileAttributes attribute = Files.readAttributes(file, BasicFileAttributes.class);
+                files.add(file);
+                attributes.add(attribute);
+                total += attribute.size();
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: Could not list cache directory " + directory + ": " + e.getMessage());
+            return 0;
+        }
+        if (total <= maxBytes) {
+            return total;
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+        for (int i : order) {
+            if (total <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(files.get(i));
+                total -= attributes.get(i).size();
+            } catch (IOException e) {
+                System.out.println("Warning: Could not evict cache file " + files.get(i) + ": " + e.getMessage());
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,275 @@
+package com.jmonkeyvibe.game.world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, memory-mapped store for explored and modified overworld chunks.
+ *
+ * The world is split into regions of REGION_SIZE x REGION_SIZE chunks. Each
+ * region is one file made of a small header followed by a fixed-size record
+ * slot for every chunk in the region, so a chunk's record lives at an offset
+ * computed directly from its coordinates. Region files are mapped with
+ * FileChannel.map() and the OS pages records in and out on demand: a huge
+ * explored area costs almost no heap, and reloads instantly on the next launch.
+ *
+ * Record layout (RECORD_SIZE bytes):
+ *   int  state    (STATE_EXPLORED, STATE_MODIFIED bits; 0 = empty slot)
+ *   int  reserved
+ *   byte summary[SUMMARY_SIZE * SUMMARY_SIZE]   (TileChunk.getSummary(), for the world map)
+ *   byte tiles[CHUNK_SIZE * CHUNK_SIZE]   (TileType ordinals, [localZ * CHUNK_SIZE + localX])
+ *
+ * Methods are synchronized because chunk workers load records while the
+ * render thread saves them.
+ */
+public class ChunkRegionStore {
+
+    /** Region edge length in chunks */
+    public static final int REGION_SIZE = 32;
+
+    public static final int STATE_EXPLORED = 1;
+    public static final int STATE_MODIFIED = 2;
+
+    private static final int MAGIC = 0x4A4D5652; // "JMVR"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int SUMMARY_OFFSET = 8;
+    private static final int SUMMARY_LENGTH = TileChunk.SUMMARY_SIZE * TileChunk.SUMMARY_SIZE;
+    private static final int RECORD_HEADER_SIZE = SUMMARY_OFFSET + SUMMARY_LENGTH;
+    public static final int RECORD_SIZE = RECORD_HEADER_SIZE + TileChunk.TILE_COUNT;
+    private static final long REGION_FILE_SIZE = HEADER_SIZE + (long) REGION_SIZE * REGION_SIZE * RECORD_SIZE;
+
+    /** Maximum number of region files mapped at once */
+    private static final int MAX_OPEN_REGIONS = 16;
+
+    private static final String SEED_FILE = "world.seed";
+    private static final Pattern REGION_FILE = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.bin");
+
+    private final Path directory;
+    private final LinkedHashMap<Long, MappedByteBuffer> openRegions;
+
+    public ChunkRegionStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.openRegions = new LinkedHashMap<Long, MappedByteBuffer>(MAX_OPEN_REGIONS * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+                if (size() > MAX_OPEN_REGIONS) {
+                    // Write back; the mapping itself is released when the buffer is collected
+                    eldest.getValue().force();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Default location of the overworld save: ~/.jmonkeyvibe/overworld
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".jmonkeyvibe", "overworld");
+    }
+
+    /**
+     * Read the world seed saved in this store, or create and save a new random one
+     */
+    public synchronized long loadOrCreateSeed() throws IOException {
+        Path seedFile = directory.resolve(SEED_FILE);
+        if (Files.exists(seedFile)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(seedFile));
+            if (buffer.remaining() >= Long.BYTES) {
+                return buffer.getLong();
+            }
+        }
+        long seed = new Random().nextLong();
+        Files.write(seedFile, ByteBuffer.allocate(Long.BYTES).putLong(0, seed).array());
+        return seed;
+    }
+
+    /**
+     * Load a chunk's tiles
+     * @return the chunk, or null if it was never saved
+     */
+    public synchronized TileChunk load(int chunkX, int chunkZ) {
+        MappedByteBuffer region = region(chunkX, chunkZ, false);
+        if (region == null) {
+            return null;
+        }
+        int offset = recordOffset(chunkX, chunkZ);
+        if (region.getInt(offset) == 0) {
+            return null;
+        }
+
+        TileType[] types = new TileType[TileChunk.TILE_COUNT];
+        int tileOffset = offset + RECORD_HEADER_SIZE;
+        for (int i = 0; i < types.length; i++) {
+            types[i] = TileType.fromOrdinal(region.get(tileOffset + i));
+        }
+        return new TileChunk(chunkX, chunkZ, types);
+    }
+
+    /**
+     * Write a chunk's tiles and mark it explored (and modified if requested).
+     * A chunk that was modified once stays marked as modified.
+     */
+    public synchronized void save(TileChunk chunk, boolean modified) {
+        MappedByteBuffer region = region(chunk.getChunkX(), chunk.getChunkZ(), true);
+        if (region == null) {
+            return;
+        }
+        int offset = recordOffset(chunk.getChunkX(), chunk.getChunkZ());
+        int state = region.getInt(offset) | STATE_EXPLORED | (modified ? STATE_MODIFIED : 0);
+
+        byte[] summary = chunk.getSummary();
+        for (int i = 0; i < SUMMARY_LENGTH; i++) {
+            region.put(offset + SUMMARY_OFFSET + i, summary[i]);
+        }
+        int tileOffset = offset + RECORD_HEADER_SIZE;
+        for (int localZ = 0; localZ < TileChunk.SIZE; localZ++) {
+            for (int localX = 0; localX < TileChunk.SIZE; localX++) {
+                region.put(tileOffset++, (byte) chunk.getTile(localX, localZ).ordinal());
+            }
+        }
+        // State last, so a torn write never exposes a half-written record as valid
+        region.putInt(offset, state);
+    }
+
+    /**
+     * @return the record state bits of a chunk, 0 if it was never saved
+     */
+    public synchronized int getState(int chunkX, int chunkZ) {
+        MappedByteBuffer region = region(chunkX, chunkZ, false);
+        return region == null ? 0 : region.getInt(recordOffset(chunkX, chunkZ));
+    }
+
+    public boolean isExplored(int chunkX, int chunkZ) {
+        return (getState(chunkX, chunkZ) & STATE_EXPLORED) != 0;
+    }
+
+    /**
+     * Call the visitor with the summary of every explored chunk in the store.
+     * Reads only the small record headers, not the tiles.
+     */
+    public synchronized void forEachExploredSummary(SummaryVisitor visitor) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> REGION_FILE.matcher(file.getFileName().toString()).matches())
+                           .collect(Collectors.toList());
+        }
+
+        byte[] summary = new byte[SUMMARY_LENGTH];
+        for (Path file : files) {
+            Matcher matcher = REGION_FILE.matcher(file.getFileName().toString());
+            matcher.matches();
+            int regionX = Integer.parseInt(matcher.group(1));
+            int regionZ = Integer.parseInt(matcher.group(2));
+            int baseChunkX = regionX * REGION_SIZE;
+            int baseChunkZ = regionZ * REGION_SIZE;
+            MappedByteBuffer region = region(baseChunkX, baseChunkZ, false);
+            if (region == null) {
+                continue;
+            }
+            for (int slot = 0; slot < REGION_SIZE * REGION_SIZE; slot++) {
+                int offset = HEADER_SIZE + slot * RECORD_SIZE;
+                if ((region.getInt(offset) & STATE_EXPLORED) == 0) {
+                    continue;
+                }
+                for (int i = 0; i < SUMMARY_LENGTH; i++) {
+                    summary[i] = region.get(offset + SUMMARY_OFFSET + i);
+                }
+                visitor.visit(baseChunkX + slot % REGION_SIZE, baseChunkZ + slot / REGION_SIZE, summary);
+            }
+        }
+    }
+
+    /**
+     * Write all dirty pages of the mapped regions back to disk
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer region : openRegions.values()) {
+            region.force();
+        }
+    }
+
+    public synchronized void close() {
+        flush();
+        openRegions.clear();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private static int recordOffset(int chunkX, int chunkZ) {
+        int slot = Math.floorMod(chunkZ, REGION_SIZE) * REGION_SIZE + Math.floorMod(chunkX, REGION_SIZE);
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    /**
+     * Get the mapped region containing a chunk, mapping it if necessary
+     * @param create whether to create the region file if it does not exist
+     * @return the mapped region, or null if it does not exist (or cannot be opened)
+     */
+    private MappedByteBuffer region(int chunkX, int chunkZ, boolean create) {
+        int regionX = Math.floorDiv(chunkX, REGION_SIZE);
+        int regionZ = Math.floorDiv(chunkZ, REGION_SIZE);
+        long key = WorldGenerator.chunkKey(regionX, regionZ);
+
+        MappedByteBuffer region = openRegions.get(key);
+        if (region != null) {
+            return region;
+        }
+
+        Path file = directory.resolve("r." + regionX + "." + regionZ + ".bin");
+        if (!create && !Files.exists(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean fresh = channel.size() == 0;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_FILE_SIZE);
+            if (!fresh && (region.getInt(0) != MAGIC || region.getInt(4) != VERSION)) {
+                // Written by an older version: start the region over (the terrain regenerates from the seed)
+                System.out.println("Warning: Discarding incompatible region file " + file);
+                channel.truncate(0);
+                region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_FILE_SIZE);
+                fresh = true;
+            }
+            if (fresh) {
+                region.putInt(0, MAGIC);
+                region.putInt(4, VERSION);
+                region.putInt(8, regionX);
+                region.putInt(12, regionZ);
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: Could not open region file " + file + ": " + e.getMessage());
+            return null;
+        }
+
+        openRegions.put(key, region);
+        return region;
+    }
+
+    /**
+     * Receives chunk summaries; the summary array is reused between calls
+     */
+    public interface SummaryVisitor {
+        void visit(int chunkX, int chunkZ, byte[] summary);
+    }
+}
@@ -0,0 +1,425 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.app.Application;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams overworld chunks in and out around the player.
+ *
+ * Chunks within LOAD_RADIUS of the player's chunk are generated on a small
+ * pool of background threads and attached to the world node through
+ * app.enqueue(). Built chunks live in a bounded LRU cache; chunks that fall
+ * out of range are detached but stay cached until evicted, so walking back
+ * is free and memory stays flat however far the player walks.
+ *
+ * All bookkeeping happens on the render thread: workers only generate tiles
+ * and bake meshes, and hand the finished geometry back through the app queue.
+ * The tile data of every built chunk is registered with the OverworldTileStore
+ * so gameplay queries never have to look at the scene graph.
+ *
+ * A chunk still resident in the tile store is always built from a copy of
+ * the store's tiles, taken on the render thread, and the store keeps its
+ * own copy when the build finishes, so an edit is never replaced by freshly
+ * generated terrain. Only chunks that are not resident are read from disk
+ * (if the tile store has a ChunkRegionStore, which also records every newly
+ * generated chunk as explored) or generated.
+ */
+public class ChunkStreamer {
+
+    /** Chunks within this Chebyshev distance of the player's chunk are kept attached */
+    public static final int LOAD_RADIUS = 2;
+
+    /** Chunks are detached once they are further away than this (hysteresis) */
+    public static final int UNLOAD_RADIUS = LOAD_RADIUS + 1;
+
+    /** Maximum number of built chunks kept in memory, attached or not */
+    public static final int CACHE_CAPACITY = 64;
+
+    private final Application app;
+    private final WorldGenerator worldGenerator;
+    private final Node worldNode;
+    private final OverworldTileStore tileStore;
+    private final ExecutorService workers;
+
+    // LRU cache of built chunk geometry, most recently used last
+    private final LinkedHashMap<Long, Geometry> cache;
+    private final Map<Long, Geometry> attached = new HashMap<>();
+    private final Set<Long> pending = new HashSet<>();
+    // Pending chunks whose tiles changed again after their build was submitted
+    private final Set<Long> stale = new HashSet<>();
+    private final List<OverworldTileStore.ChunkListener> exploredListeners = new ArrayList<>();
+
+    private int centerChunkX = Integer.MIN_VALUE;
+    private int centerChunkZ = Integer.MIN_VALUE;
+    private boolean shutdown = false;
+
+    // Statistics (render thread only)
+    private long cacheHits;
+    private long cacheMisses;
+    private long evictions;
+    private long chunksGenerated;
+    private long totalGenerationNanos;
+    private long maxGenerationNanos;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    public ChunkStreamer(Application app, WorldGenerator worldGenerator, Node worldNode,
+                         OverworldTileStore tileStore) {
+        this.app = app;
+        this.worldGenerator = worldGenerator;
+        this.worldNode = worldNode;
+        this.tileStore = tileStore;
+        this.cache = new LinkedHashMap<>(CACHE_CAPACITY * 2, 0.75f, true);
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.workers = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+    }
+
+    /**
+     * Synchronously build the chunks directly around a position, so the
+     * player does not start on an empty screen. Intended for load time only.
+     */
+    public void preload(Vector3f position, int radius) {
+        int playerChunkX = Math.floorDiv(Math.round(position.x), WorldGenerator.CHUNK_SIZE);
+        int playerChunkZ = Math.floorDiv(Math.round(position.z), WorldGenerator.CHUNK_SIZE);
+        for (int chunkX = playerChunkX - radius; chunkX <= playerChunkX + radius; chunkX++) {
+            for (int chunkZ = playerChunkZ - radius; chunkZ <= playerChunkZ + radius; chunkZ++) {
+                long key = WorldGenerator.chunkKey(chunkX, chunkZ);
+                if (cache.containsKey(key)) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                BuiltChunk chunk = buildChunk(chunkX, chunkZ, residentTiles(chunkX, chunkZ));
+                long elapsed = System.nanoTime() - start;
+                onChunkBuilt(key, chunk, elapsed, elapsed);
+            }
+        }
+        update(position);
+    }
+
+    /**
+     * Request the chunks around the player and release the ones that fell
+     * out of range. Cheap unless the player crossed into a new chunk.
+     */
+    public void update(Vector3f playerPosition) {
+        int playerChunkX = Math.floorDiv(Math.round(playerPosition.x), WorldGenerator.CHUNK_SIZE);
+        int playerChunkZ = Math.floorDiv(Math.round(playerPosition.z), WorldGenerator.CHUNK_SIZE);
+        if (playerChunkX == centerChunkX && playerChunkZ == centerChunkZ) {
+            return;
+        }
+        centerChunkX = playerChunkX;
+        centerChunkZ = playerChunkZ;
+
+        unloadDistantChunks();
+        requestNearbyChunks();
+    }
+
+    private void requestNearbyChunks() {
+        // Nearest chunks first, so the ones on screen arrive before the margin
+        List<int[]> wanted = new ArrayList<>();
+        for (int dx = -LOAD_RADIUS; dx <= LOAD_RADIUS; dx++) {
+            for (int dz = -LOAD_RADIUS; dz <= LOAD_RADIUS; dz++) {
+                wanted.add(new int[]{centerChunkX + dx, centerChunkZ + dz});
+            }
+        }
+        wanted.sort(Comparator.comparingInt(c -> distanceToCenter(c[0], c[1])));
+
+        for (int[] coords : wanted) {
+            long key = WorldGenerator.chunkKey(coords[0], coords[1]);
+            if (attached.containsKey(key) || pending.contains(key)) {
+                continue;
+            }
+
+            Geometry cached = cache.get(key);
+            if (cached != null) {
+                cacheHits++;
+                attach(key, cached);
+            } else {
+                cacheMisses++;
+                submit(coords[0], coords[1], key, residentTiles(coords[0], coords[1]));
+            }
+        }
+    }
+
+    private void unloadDistantChunks() {
+        Iterator<Map.Entry<Long, Geometry>> it = attached.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Geometry> entry = it.next();
+            long key = entry.getKey();
+            if (distanceToCenter((int) (key >> 32), (int) key) > UNLOAD_RADIUS) {
+                worldNode.detachChild(entry.getValue());
+                it.remove();
+            }
+        }
+        trimCache();
+    }
+
+    /**
+     * Copy the tiles of a chunk resident in the tile store; the worker must
+     * not read a chunk the render thread keeps editing
+     * @return the tiles, or null if the chunk is not resident
+     */
+    private TileType[] residentTiles(int chunkX, int chunkZ) {
+        TileChunk resident = tileStore.getResidentChunk(chunkX, chunkZ);
+        return resident != null ? resident.toTileArray() : null;
+    }
+
+    /**
+     * Build a chunk on a worker
+     * @param resident the chunk's tiles copied from the tile store, or null
+     *                 to read them from disk or generate them
+     */
+    private void submit(int chunkX, int chunkZ, long key, TileType[] resident) {
+        pending.add(key);
+        long submitted = System.nanoTime();
+        workers.execute(() -> {
+            long start = System.nanoTime();
+            BuiltChunk chunk = null;
+            try {
+                chunk = buildChunk(chunkX, chunkZ, resident);
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Could not build chunk " + chunkX + "," + chunkZ + ": " + e);
+            } finally {
+                // Always clear the pending mark, so a failed chunk is requested again later
+                BuiltChunk built = chunk;
+                long generationNanos = System.nanoTime() - start;
+                app.enqueue(() -> {
+                    pending.remove(key);
+                    if (shutdown) {
+                        return;
+                    }
+                    if (built != null) {
+                        onChunkBuilt(key, built, generationNanos, System.nanoTime() - submitted);
+                    }
+                    if (stale.remove(key)) {
+                        invalidateChunk(chunkX, chunkZ);
+                    }
+                });
+            }
+        });
+    }
+
+    private BuiltChunk buildChunk(int chunkX, int chunkZ, TileType[] resident) {
+        if (resident != null) {
+            return new BuiltChunk(new TileChunk(chunkX, chunkZ, resident),
+                worldGenerator.buildChunkGeometry(chunkX, chunkZ, resident));
+        }
+        ChunkRegionStore persistence = tileStore.getPersistence();
+        TileChunk data = persistence != null ? persistence.load(chunkX, chunkZ) : null;
+        TileType[] tiles;
+        if (data != null) {
+            tiles = data.toTileArray();
+        } else {
+            tiles = worldGenerator.generateChunkTiles(chunkX, chunkZ);
+            data = new TileChunk(chunkX, chunkZ, tiles);
+            if (persistence != null) {
+                persistence.save(data, false);
+            }
+        }
+        return new BuiltChunk(data, worldGenerator.buildChunkGeometry(chunkX, chunkZ, tiles));
+    }
+
+    /**
+     * Called on the render thread when a chunk has been built
+     */
+    private void onChunkBuilt(long key, BuiltChunk built, long generationNanos, long latencyNanos) {
+        chunksGenerated++;
+        totalGenerationNanos += generationNanos;
+        maxGenerationNanos = Math.max(maxGenerationNanos, generationNanos);
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+
+        int chunkX = (int) (key >> 32);
+        int chunkZ = (int) key;
+        // A resident chunk is the up-to-date one (it may have been edited while
+        // the worker ran, see invalidateChunk()); only fill it in if it is missing
+        TileChunk data = tileStore.getResidentChunk(chunkX, chunkZ);
+        if (data == null) {
+            data = built.data;
+            tileStore.putChunk(data);
+        }
+        for (OverworldTileStore.ChunkListener listener : exploredListeners) {
+            listener.onChunkChanged(data);
+        }
+        Geometry chunk = built.geometry;
+        cache.put(key, chunk);
+        if (centerChunkX != Integer.MIN_VALUE && distanceToCenter(chunkX, chunkZ) <= LOAD_RADIUS) {
+            attach(key, chunk);
+        }
+        trimCache();
+    }
+
+    /**
+     * Register a listener called on the render thread for every chunk streamed
+     * in around the player, i.e. every chunk the player has explored
+     */
+    public void addExploredListener(OverworldTileStore.ChunkListener listener) {
+        exploredListeners.add(listener);
+    }
+
+    public void removeExploredListener(OverworldTileStore.ChunkListener listener) {
+        exploredListeners.remove(listener);
+    }
+
+    private void attach(long key, Geometry chunk) {
+        Geometry previous = attached.put(key, chunk);
+        if (previous != chunk) {
+            if (previous != null) {
+                worldNode.detachChild(previous);
+            }
+            worldNode.attachChild(chunk);
+        }
+    }
+
+    /**
+     * Rebuild a chunk's mesh after its tiles changed, from the tiles in the
+     * tile store. The old geometry stays on screen until the new one is ready.
+     */
+    public void invalidateChunk(int chunkX, int chunkZ) {
+        long key = WorldGenerator.chunkKey(chunkX, chunkZ);
+        cache.remove(key);
+        if (pending.contains(key)) {
+            // The build in flight may predate the edit; rebuild once it lands
+            stale.add(key);
+            return;
+        }
+        if (!attached.containsKey(key)) {
+            // Built from the store's tiles when it is next requested
+            return;
+        }
+        submit(chunkX, chunkZ, key, residentTiles(chunkX, chunkZ));
+    }
+
+    /**
+     * Evict least recently used chunks until the cache is within capacity,
+     * skipping chunks that are still attached
+     */
+    private void trimCache() {
+        Iterator<Map.Entry<Long, Geometry>> it = cache.entrySet().iterator();
+        while (cache.size() > CACHE_CAPACITY && it.hasNext()) {
+            Map.Entry<Long, Geometry> entry = it.next();
+            if (!attached.containsKey(entry.getKey())) {
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private int distanceToCenter(int chunkX, int chunkZ) {
+        return Math.max(Math.abs(chunkX - centerChunkX), Math.abs(chunkZ - centerChunkZ));
+    }
+
+    /**
+     * Stop the workers and detach every streamed chunk
+     */
+    public void cleanup() {
+        shutdown = true;
+        workers.shutdownNow();
+        for (Geometry chunk : attached.values()) {
+            worldNode.detachChild(chunk);
+        }
+        attached.clear();
+        pending.clear();
+        stale.clear();
+        cache.clear();
+    }
+
+    public int getAttachedChunkCount() {
+        return attached.size();
+    }
+
+    public int getCachedChunkCount() {
+        return cache.size();
+    }
+
+    public int getPendingChunkCount() {
+        return pending.size();
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Fraction of chunk requests served from the cache
+     */
+    public float getCacheHitRate() {
+        long requests = cacheHits + cacheMisses;
+        return requests == 0 ? 0f : (float) cacheHits / requests;
+    }
+
+    /**
+     * Average time a worker spent generating one chunk, in milliseconds
+     */
+    public float getAverageGenerationMillis() {
+        return chunksGenerated == 0 ? 0f : totalGenerationNanos / 1e6f / chunksGenerated;
+    }
+
+    public float getMaxGenerationMillis() {
+        return maxGenerationNanos / 1e6f;
+    }
+
+    /**
+     * Average time from requesting a chunk to it being ready on the render thread, in milliseconds
+     */
+    public float getAverageLatencyMillis() {
+        return chunksGenerated == 0 ? 0f : totalLatencyNanos / 1e6f / chunksGenerated;
+    }
+
+    public float getMaxLatencyMillis() {
+        return maxLatencyNanos / 1e6f;
+    }
+
+    public String getStatsSummary() {
+        return String.format("chunks attached=%d cached=%d pending=%d | hit rate=%.0f%% evictions=%d | "
+                + "gen avg=%.2fms max=%.2fms | latency avg=%.2fms max=%.2fms",
+            getAttachedChunkCount(), getCachedChunkCount(), getPendingChunkCount(),
+            getCacheHitRate() * 100f, evictions,
+            getAverageGenerationMillis(), getMaxGenerationMillis(),
+            getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+
+    /**
+     * Result of a worker: the chunk's tile data and its baked geometry
+     */
+    private static class BuiltChunk {
+        final TileChunk data;
+        final Geometry geometry;
+
+        BuiltChunk(TileChunk data, Geometry geometry) {
+            this.data = data;
+            this.geometry = geometry;
+        }
+    }
+
+    /**
+     * Low-priority daemon threads so chunk generation never competes with the render thread
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ChunkWorker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+}
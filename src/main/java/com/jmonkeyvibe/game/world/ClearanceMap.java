@@ -0,0 +1,200 @@
+package com.jmonkeyvibe.game.world;
+
+/**
+ * Distance from every dungeon cell to the nearest wall, so that entities of
+ * any size can be collision checked with a single array lookup.
+ *
+ * The clearance of a floor cell is the radius of the largest circle centered
+ * on the cell that touches no wall cell, approximated as the distance to the
+ * nearest wall cell center minus half a cell: exact along the axes and
+ * slightly generous towards diagonal corners. Floor next to a wall has a
+ * clearance of 0.5, so one-cell corridors only fit entities up to 1 unit
+ * wide. Walls (and everything outside the grid) have a clearance of 0.
+ *
+ * Built with the separable exact Euclidean distance transform of
+ * Felzenszwalb and Huttenlocher: one scan along every column followed by a
+ * lower envelope of parabolas along every row, O(width * height) in total.
+ * When a wall is removed, cellOpened() repairs the cells around it instead.
+ */
+public final class ClearanceMap {
+
+    // Cells within this many cells of an opened wall are repaired; further
+    // cells keep their old, lower clearance, which only matters for entities
+    // much wider than any enemy
+    private static final int REPAIR_RANGE = 3;
+    private static final int SEARCH_RANGE = 2 * REPAIR_RANGE;
+
+    private final int width;
+    private final int height;
+    // Clearance per cell, row-major
+    private final float[] clearance;
+
+    private ClearanceMap(int width, int height, float[] clearance) {
+        this.width = width;
+        this.height = height;
+        this.clearance = clearance;
+    }
+
+    /**
+     * Run the distance transform over a collision grid
+     */
+    public static ClearanceMap fromGrid(CollisionGrid grid) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+
+        // Columns: distance to the nearest wall in the same column, with the
+        // cells just outside the grid counting as walls
+        int[] columnDistance = new int[width * height];
+        for (int x = 0; x < width; x++) {
+            int distance = 0;
+            for (int z = 0; z < height; z++) {
+                distance = grid.isWalkable(x, z) ? distance + 1 : 0;
+                columnDistance[z * width + x] = distance;
+            }
+            distance = 0;
+            for (int z = height - 1; z >= 0; z--) {
+                int cell = z * width + x;
+                distance = columnDistance[cell] == 0 ? 0 : distance + 1;
+                columnDistance[cell] = Math.min(columnDistance[cell], distance);
+            }
+        }
+
+        // Rows: squared distance to the nearest wall anywhere, as the lower
+        // envelope of the parabolas (x - q)^2 + columnDistance(q)^2. Samples
+        // 0 and width + 1 are the walls outside the grid.
+        float[] clearance = new float[width * height];
+        long[] f = new long[width + 2];
+        int[] v = new int[width + 2];
+        double[] boundary = new double[width + 3];
+        for (int z = 0; z < height; z++) {
+            int row = z * width;
+            for (int x = 0; x < width; x++) {
+                long d = columnDistance[row + x];
+                f[x + 1] = d * d;
+            }
+
+            int k = 0;
+            v[0] = 0;
+            boundary[0] = Double.NEGATIVE_INFINITY;
+            boundary[1] = Double.POSITIVE_INFINITY;
+            for (int q = 1; q < width + 2; q++) {
+                double s = intersection(f, q, v[k]);
+                while (s <= boundary[k]) {
+                    k--;
+                    s = intersection(f, q, v[k]);
+                }
+                k++;
+                v[k] = q;
+                boundary[k] = s;
+                boundary[k + 1] = Double.POSITIVE_INFINITY;
+            }
+
+            k = 0;
+            for (int q = 1; q <= width; q++) {
+                while (boundary[k + 1] < q) {
+                    k++;
+                }
+                long dq = q - v[k];
+                long squared = dq * dq + f[v[k]];
+                clearance[row + q - 1] = squared == 0 ? 0f : (float) Math.sqrt(squared) - 0.5f;
+            }
+        }
+        return new ClearanceMap(width, height, clearance);
+    }
+
+    /**
+     * Abscissa where the parabolas rooted at samples q and p intersect
+     */
+    private static double intersection(long[] f, int q, int p) {
+        return ((f[q] + (long) q * q) - (f[p] + (long) p * p)) / (2.0 * (q - p));
+    }
+
+    /**
+     * @return an independent copy of this map
+     */
+    public ClearanceMap copy() {
+        return new ClearanceMap(width, height, clearance.clone());
+    }
+
+    /**
+     * A wall cell became walkable (call after updating the grid). Clearance
+     * only grows, and only where the opened cell was the nearest wall, so
+     * the cells around it are searched again for their nearest wall.
+     */
+    public void cellOpened(CollisionGrid grid, int x, int z) {
+        for (int cz = Math.max(0, z - REPAIR_RANGE); cz <= Math.min(height - 1, z + REPAIR_RANGE); cz++) {
+            for (int cx = Math.max(0, x - REPAIR_RANGE); cx <= Math.min(width - 1, x + REPAIR_RANGE); cx++) {
+                if (grid.isWalkable(cx, cz)) {
+                    int cell = cz * width + cx;
+                    clearance[cell] = Math.max(clearance[cell], nearestWall(grid, cx, cz));
+                }
+            }
+        }
+    }
+
+    /**
+     * Clearance of a floor cell from the walls in square rings around it,
+     * stopping once no ring can hold a closer wall. Walls further than
+     * SEARCH_RANGE are not looked for, giving a lower bound.
+     */
+    private static float nearestWall(CollisionGrid grid, int x, int z) {
+        long best = Long.MAX_VALUE;
+        for (int ring = 1; ring <= SEARCH_RANGE && (long) ring * ring < best; ring++) {
+            for (int d = -ring; d <= ring; d++) {
+                best = closerWall(grid, x, z, x + d, z - ring, best);
+                best = closerWall(grid, x, z, x + d, z + ring, best);
+                best = closerWall(grid, x, z, x - ring, z + d, best);
+                best = closerWall(grid, x, z, x + ring, z + d, best);
+            }
+        }
+        long limit = (long) SEARCH_RANGE * SEARCH_RANGE;
+        return (float) Math.sqrt(Math.min(best, limit)) - 0.5f;
+    }
+
+    private static long closerWall(CollisionGrid grid, int x, int z, int wallX, int wallZ, long best) {
+        if (grid.isWalkable(wallX, wallZ)) {
+            return best;
+        }
+        long dx = wallX - x;
+        long dz = wallZ - z;
+        return Math.min(best, dx * dx + dz * dz);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the clearance of a cell, 0 for walls and cells outside the grid
+     */
+    public float getClearance(int x, int z) {
+        if ((x | z) < 0 || x >= width || z >= height) {
+            return 0f;
+        }
+        return clearance[z * width + x];
+    }
+
+    /**
+     * Smallest clearance a cell can have (the distance between two cell
+     * centers less half a cell) that fits an entity of the given radius.
+     * Entities whose radii have the same size class fit the same cells, so
+     * they can share navigation data.
+     */
+    public static float sizeClass(float radius) {
+        long squared = Math.max(1, (long) Math.ceil((radius + 0.5) * (radius + 0.5)));
+        return (float) Math.sqrt(squared) - 0.5f;
+    }
+
+    /**
+     * Check whether an entity of the given radius fits in the cell containing
+     * a world position
+     */
+    public boolean fits(float x, float z, float radius) {
+        float cellClearance = getClearance(Math.round(x), Math.round(z));
+        return cellClearance > 0f && cellClearance >= radius;
+    }
+}
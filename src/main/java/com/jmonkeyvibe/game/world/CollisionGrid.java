@@ -0,0 +1,293 @@
+package com.jmonkeyvibe.game.world;
+
+/**
+ * Bit-packed walkability grid for dungeons.
+ *
+ * One bit per cell (1 = walkable), stored row-major in a long[]: row z holds
+ * cells x = 0..width-1 in (width + 63) / 64 words, so a 1024x1024 dungeon
+ * takes 128 KB. Cell (x, z) is centered on integer coordinates and covers
+ * [x - 0.5, x + 0.5) x [z - 0.5, z + 0.5), which matches the Math.round
+ * lookup the int[][] grid used. Everything outside the grid is a wall.
+ *
+ * Shape queries (AABB, circle, segment) reduce to one run of cells per row
+ * and test each run a 64-bit word at a time.
+ *
+ * Masks of up to 64 cells per row (see RoomTemplate) are stamped, erased and
+ * overlap-tested with one or two word operations per row, which is how the
+ * dungeon generator carves rooms and keeps them apart.
+ */
+public final class CollisionGrid {
+
+    // Operations of applyMask()
+    private static final int MASK_OR = 0;
+    private static final int MASK_AND_NOT = 1;
+    private static final int MASK_TEST = 2;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    /**
+     * Create a grid of the given size with every cell a wall
+     */
+    public CollisionGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Pack a cell grid
+     * @param cells the grid indexed [x][z] (0 = wall, 1 = floor)
+     */
+    public static CollisionGrid fromCells(int[][] cells) {
+        int width = cells.length;
+        int height = width > 0 ? cells[0].length : 0;
+        CollisionGrid grid = new CollisionGrid(width, height);
+        for (int x = 0; x < width; x++) {
+            int[] column = cells[x];
+            int word = x >>> 6;
+            long bit = 1L << x;
+            for (int z = 0; z < height; z++) {
+                if (column[z] == 1) {
+                    grid.bits[z * grid.wordsPerRow + word] |= bit;
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * @return an independent copy of this grid
+     */
+    public CollisionGrid copy() {
+        CollisionGrid copy = new CollisionGrid(width, height);
+        System.arraycopy(bits, 0, copy.bits, 0, bits.length);
+        return copy;
+    }
+
+    /**
+     * Unpack into a cell grid indexed [x][z] (0 = wall, 1 = floor)
+     */
+    public int[][] toCells() {
+        int[][] cells = new int[width][height];
+        for (int z = 0; z < height; z++) {
+            int row = z * wordsPerRow;
+            for (int x = 0; x < width; x++) {
+                if ((bits[row + (x >>> 6)] & (1L << x)) != 0) {
+                    cells[x][z] = 1;
+                }
+            }
+        }
+        return cells;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Check a single cell; cells outside the grid are walls
+     */
+    public boolean isWalkable(int x, int z) {
+        if ((x | z) < 0 || x >= width || z >= height) {
+            return false;
+        }
+        return (bits[z * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Check the cell containing a world position
+     */
+    public boolean isWalkable(float x, float z) {
+        return isWalkable(Math.round(x), Math.round(z));
+    }
+
+    public void setWalkable(int x, int z, boolean walkable) {
+        if (x < 0 || x >= width || z < 0 || z >= height) {
+            return;
+        }
+        int index = z * wordsPerRow + (x >>> 6);
+        if (walkable) {
+            bits[index] |= 1L << x;
+        } else {
+            bits[index] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * Make the cells of a mask walkable. Bit i of mask[r] is cell
+     * (x + i, z + r); cells outside the grid are ignored.
+     */
+    public void stamp(long[] mask, int x, int z) {
+        applyMask(mask, x, z, MASK_OR);
+    }
+
+    /**
+     * Make the cells of a mask walls (see stamp())
+     */
+    public void erase(long[] mask, int x, int z) {
+        applyMask(mask, x, z, MASK_AND_NOT);
+    }
+
+    /**
+     * Check whether any cell of a mask is walkable (see stamp())
+     */
+    public boolean intersects(long[] mask, int x, int z) {
+        return applyMask(mask, x, z, MASK_TEST);
+    }
+
+    /**
+     * Combine every mask row with the (at most two) words it overlaps
+     * @return for MASK_TEST, whether any masked cell is set
+     */
+    private boolean applyMask(long[] mask, int x, int z, int op) {
+        for (int r = 0; r < mask.length; r++) {
+            int gridZ = z + r;
+            long rowBits = mask[r];
+            int startX = x;
+            if (startX < 0) {
+                // Drop the cells left of the grid
+                rowBits = startX > -64 ? rowBits >>> -startX : 0L;
+                startX = 0;
+            }
+            if (gridZ < 0 || gridZ >= height || startX >= width || rowBits == 0L) {
+                continue;
+            }
+            int word = startX >>> 6;
+            int shift = startX & 63;
+            int index = gridZ * wordsPerRow + word;
+            long low = (rowBits << shift) & wordMask(word);
+            long high = shift != 0 && word + 1 < wordsPerRow ? (rowBits >>> (64 - shift)) & wordMask(word + 1) : 0L;
+            switch (op) {
+                case MASK_OR:
+                    bits[index] |= low;
+                    if (high != 0L) {
+                        bits[index + 1] |= high;
+                    }
+                    break;
+                case MASK_AND_NOT:
+                    bits[index] &= ~low;
+                    if (high != 0L) {
+                        bits[index + 1] &= ~high;
+                    }
+                    break;
+                default:
+                    if ((bits[index] & low) != 0L || (high != 0L && (bits[index + 1] & high) != 0L)) {
+                        return true;
+                    }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The bits of a row word that lie inside the grid
+     */
+    private long wordMask(int word) {
+        int used = width - (word << 6);
+        return used >= 64 ? -1L : (1L << used) - 1;
+    }
+
+    /**
+     * Check that every cell in an inclusive cell rectangle is walkable
+     */
+    public boolean isRectWalkable(int minX, int minZ, int maxX, int maxZ) {
+        if (minX > maxX || minZ > maxZ) {
+            return true;
+        }
+        for (int z = minZ; z <= maxZ; z++) {
+            if (!isRunWalkable(z, minX, maxX)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that every cell overlapped by a world-space box is walkable
+     */
+    public boolean isBoxWalkable(float minX, float minZ, float maxX, float maxZ) {
+        return isRectWalkable(Math.round(minX), Math.round(minZ), Math.round(maxX), Math.round(maxZ));
+    }
+
+    /**
+     * Check that every cell overlapped by a circle is walkable
+     */
+    public boolean isCircleWalkable(float centerX, float centerZ, float radius) {
+        int minZ = Math.round(centerZ - radius);
+        int maxZ = Math.round(centerZ + radius);
+        float radiusSquared = radius * radius;
+        for (int z = minZ; z <= maxZ; z++) {
+            // Closest distance from the center to this row's band of cells
+            float dz = Math.max(0f, Math.abs(centerZ - z) - 0.5f);
+            float halfWidth = (float) Math.sqrt(Math.max(0f, radiusSquared - dz * dz));
+            if (!isRunWalkable(z, Math.round(centerX - halfWidth), Math.round(centerX + halfWidth))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that every cell a segment passes through is walkable. Cells the
+     * segment only touches at a corner count as passed through.
+     */
+    public boolean isSegmentWalkable(float x0, float z0, float x1, float z1) {
+        if (z0 > z1) {
+            float t = x0; x0 = x1; x1 = t;
+            t = z0; z0 = z1; z1 = t;
+        }
+        int firstRow = Math.round(z0);
+        int lastRow = Math.round(z1);
+        if (firstRow == lastRow) {
+            return isRunWalkable(firstRow, Math.round(Math.min(x0, x1)), Math.round(Math.max(x0, x1)));
+        }
+
+        float slope = (x1 - x0) / (z1 - z0);
+        for (int z = firstRow; z <= lastRow; z++) {
+            // Part of the segment inside this row's band [z - 0.5, z + 0.5]
+            float bandStart = Math.max(z0, z - 0.5f);
+            float bandEnd = Math.min(z1, z + 0.5f);
+            float xa = x0 + (bandStart - z0) * slope;
+            float xb = x0 + (bandEnd - z0) * slope;
+            if (!isRunWalkable(z, Math.round(Math.min(xa, xb)), Math.round(Math.max(xa, xb)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check cells minX..maxX (inclusive) of one row, a word at a time
+     */
+    private boolean isRunWalkable(int z, int minX, int maxX) {
+        if (z < 0 || z >= height || minX < 0 || maxX >= width) {
+            return false;
+        }
+        int row = z * wordsPerRow;
+        int firstWord = minX >>> 6;
+        int lastWord = maxX >>> 6;
+        long firstMask = -1L << minX;
+        long lastMask = -1L >>> (63 - (maxX & 63));
+        if (firstWord == lastWord) {
+            long mask = firstMask & lastMask;
+            return (bits[row + firstWord] & mask) == mask;
+        }
+        if ((bits[row + firstWord] & firstMask) != firstMask) {
+            return false;
+        }
+        for (int word = firstWord + 1; word < lastWord; word++) {
+            if (bits[row + word] != -1L) {
+                return false;
+            }
+        }
+        return (bits[row + lastWord] & lastMask) == lastMask;
+    }
+}
@@ -3,95 +3,658 @@ package com.jmonkeyvibe.game.world;
 import com.jme3.asset.AssetManager;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
-import com.jme3.math.FastMath;
 import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
-import com.jme3.scene.shape.Quad;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 /**
- * Procedural dungeon generator for combat areas
+ * Procedural dungeon generator for combat areas.
+ *
+ * The layout is a pure function of the seed, the map size and the number
+ * of loop edges.
+ *
+ * Two layout modes are available. ROOMS scatters up to MAX_ROOMS random
+ * rooms with rejection sampling and connects them with a minimum spanning
+ * tree, which suits the small combat arena. BSP recursively splits the map
+ * into leaves of BSP_MIN_LEAF..BSP_MAX_LEAF cells, puts one room in every
+ * leaf and joins the two halves of every split with a corridor (a spanning
+ * tree of neighbouring rooms), so it runs in time linear in the map area and
+ * scales to 512x512 and beyond with hundreds of rooms. Both modes then add
+ * loopEdges corridors between near rooms for loops, and a flood fill from
+ * the first room checks that all floor is reachable, carving a way in to
+ * any pocket that is not (FloorConnectivity).
+ *
+ * Rooms are RoomTemplates: in both modes PREFAB_CHANCE of them are
+ * handcrafted shapes from the RoomTemplateLibrary, the rest rectangles.
+ * Templates are pre-packed bit rows, so carving a room is one OR per row
+ * into a bit grid and the ROOMS overlap test one AND per row against the
+ * rooms placed so far. Corridors attach to each template's anchor cell.
+ *
+ * Both modes record the rooms and the corridors between them in a RoomGraph,
+ * and every room's floor and walls get their own node. revealRooms() hides
+ * the rooms the player has not explored yet, which the fog of war covers
+ * anyway but frustum culling would still draw, and shows each one as soon
+ * as any of its cells comes into view.
+ *
+ * With a DungeonLayoutCache, every generated layout is kept in memory, and
+ * small ones are also stored on disk in the compact DungeonLayoutFormat.
+ * Generating the same seed, mode, size and loop edges again only copies the
+ * layout held in memory, or else decodes the grid and rooms and bakes their
+ * meshes.
+ *
+ * Generation is split in two: generateLayout() computes the grid and bakes
+ * the meshes without touching the scene graph, so it may run on a worker
+ * thread; attachLayout() creates the geometry and must run on the render
+ * thread. generateDungeon() does both.
+ *
+ * Some one-cell-thick walls between two floor cells are breakable. They are
+ * drawn as one vertex-colored quad each, so breakWall() opens one in place:
+ * the collision grid bit and the clearance around it are updated, and the
+ * wall's quad in its room's mesh is recolored as floor. Nothing is
+ * remeshed or reallocated.
  */
 public class DungeonGenerator {
 
+    /** Bump whenever layouts change, so cached layouts are not reused */
+    public static final int GENERATOR_VERSION = 5;
+
+    /** Layout algorithm, see the class comment */
+    public enum Mode {
+        ROOMS,
+        BSP
+    }
+
     private AssetManager assetManager;
+    private final long seed;
     private Random random;
+    private Mode mode = Mode.ROOMS;
+    private DungeonLayoutCache layoutCache;
+    private int loopEdges = DEFAULT_LOOP_EDGES;
+
+    // Vertex-colored material shared by all dungeon geometry
+    private Material dungeonMaterial;
+
+    // Rooms and corridors of the layout being generated
+    private final List<Room> rooms = new ArrayList<>();
+    private final List<int[]> corridors = new ArrayList<>();
+
+    // The attached dungeon and one node per room
+    private DungeonLayout layout;
+    private Node[] roomNodes;
+
+    // Rooms shown by revealRooms(), or null before its first call
+    private boolean[] revealedRooms;
+    private int revealedCount;
 
-    // Collision grid: 0 = wall (blocked), 1 = floor (walkable)
-    private int[][] collisionGrid;
+    // Walkability of the last generated dungeon, one bit per cell
+    private CollisionGrid collisionGrid;
+    private ClearanceMap clearanceMap;
+    private PlacementService placementService;
 
     private static final int ROOM_MIN_SIZE = 4;
     private static final int ROOM_MAX_SIZE = 10;
     private static final int MAX_ROOMS = 15;
 
+    // Corridors are this many cells wide: the middle cell's clearance of 1.5
+    // fits every enemy, up to the 1.5-unit-wide demon
+    private static final int CORRIDOR_WIDTH = 3;
+
+    /** Corridors added on top of the spanning tree, to make loops */
+    public static final int DEFAULT_LOOP_EDGES = 3;
+
+    // Share of rooms that are prefabs from the template library instead of rectangles
+    private static final float PREFAB_CHANCE = 0.35f;
+    private static final RoomTemplateLibrary TEMPLATES = RoomTemplateLibrary.getDefault();
+
+    // Share of the thin walls between two floor cells that can be broken
+    private static final float BREAKABLE_WALL_CHANCE = 0.25f;
+
+    // Cell values are tagged as room * CELL_VALUES + value for meshing
+    private static final int CELL_VALUES = 3;
+
+    // Room nodes are grouped in chunks of CHUNK_SIZE x CHUNK_SIZE cells
+    private static final int CHUNK_SIZE = 64;
+
+    private static final ColorRGBA FLOOR_COLOR = new ColorRGBA(0.3f, 0.3f, 0.3f, 1.0f); // Dark gray floor
+    private static final ColorRGBA WALL_COLOR = new ColorRGBA(0.1f, 0.1f, 0.1f, 1.0f); // Almost black walls
+    private static final ColorRGBA BREAKABLE_WALL_COLOR = new ColorRGBA(0.3f, 0.2f, 0.12f, 1.0f); // Cracked brown
+
+    // BSP leaves are split until no side is longer than BSP_MAX_LEAF
+    private static final int BSP_MIN_LEAF = 10;
+    private static final int BSP_MAX_LEAF = 2 * BSP_MIN_LEAF;
+
+    /**
+     * Create a dungeon generator with a random seed
+     */
     public DungeonGenerator(AssetManager assetManager) {
+        this(assetManager, new Random().nextLong());
+    }
+
+    /**
+     * Create a dungeon generator; the same seed and size always produce the same dungeon
+     */
+    public DungeonGenerator(AssetManager assetManager, long seed) {
         this.assetManager = assetManager;
-        this.random = new Random();
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getLoopEdges() {
+        return loopEdges;
+    }
+
+    /**
+     * Set how many extra corridors are added on top of the spanning tree
+     * that connects the rooms; 0 leaves a tree without loops
+     */
+    public void setLoopEdges(int loopEdges) {
+        this.loopEdges = Math.max(0, loopEdges);
+    }
+
+    public DungeonLayoutCache getLayoutCache() {
+        return layoutCache;
     }
 
     /**
-     * Generate a procedural dungeon layout
-     * @return the collision grid (0 = wall, 1 = floor)
+     * Reuse layouts generated before for the same seed, mode, size and
+     * loop edges
+     * @param layoutCache the cache, or null to always generate
+     */
+    public void setLayoutCache(DungeonLayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
+    /**
+     * Check whether generateLayout() would only copy a layout held in memory,
+     * which is fast enough for the render thread
+     */
+    public boolean isLayoutInMemory(int width, int height) {
+        return layoutCache != null && layoutCache.isInMemory(DungeonLayoutCache.key(mode, seed, width, height, loopEdges));
+    }
+
+    /**
+     * Generate a procedural dungeon and attach its geometry
+     * @return the cell grid (0 = wall, 1 = floor, 2 = breakable wall)
      */
     public int[][] generateDungeon(Node dungeonNode, int width, int height) {
-        System.out.println("Generating dungeon: " + width + "x" + height);
-        
-        // Initialize dungeon grid (0 = wall, 1 = floor)
-        int[][] grid = new int[width][height];
-        
-        // Generate rooms
-        List<Room> rooms = new ArrayList<>();
+        DungeonLayout layout = generateLayout(width, height);
+        attachLayout(dungeonNode, layout);
+        return layout.getCells();
+    }
+
+    /**
+     * Generate the grid and bake the floor and wall meshes. Touches no scene
+     * state, so it may be called from a worker thread (one call at a time
+     * per generator). With a layout cache, a layout generated before for the
+     * same seed, mode, size and loop edges is copied from memory or, if
+     * small enough to be stored on disk, decoded instead of generated.
+     */
+    public DungeonLayout generateLayout(int width, int height) {
+        String key = layoutCache != null ? DungeonLayoutCache.key(mode, seed, width, height, loopEdges) : null;
+        boolean onDisk = key != null && DungeonLayoutCache.isStoredOnDisk(width, height);
+        if (key != null) {
+            DungeonLayout cached = layoutCache.getLayout(key);
+            if (cached != null) {
+                return cached;
+            }
+            byte[] data = onDisk ? layoutCache.load(key) : null;
+            if (data != null) {
+                try {
+                    DungeonLayout layout = loadLayout(data);
+                    layoutCache.putLayout(key, layout);
+                    return layout.copy();
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Warning: Discarding unreadable cached dungeon " + key + ": " + e.getMessage());
+                    layoutCache.remove(key);
+                }
+            }
+        }
+
+        System.out.println("Generating dungeon: " + width + "x" + height + " (" + mode + ", seed " + seed + ")");
+        random = new Random(seed);
+
+        // Rooms and corridors are carved into a bit grid (1 = floor), then unpacked
+        CollisionGrid floor = new CollisionGrid(width, height);
+        rooms.clear();
+        corridors.clear();
+        if (mode == Mode.BSP) {
+            generateBsp(floor);
+        } else {
+            generateRooms(floor);
+        }
+        addLoopEdges(floor);
+        int pockets = repairConnectivity(floor);
+        int[][] grid = floor.toCells();
+        int breakableCount = markBreakableWalls(grid);
+
+        int[][] roomRects = new int[rooms.size()][];
+        for (int i = 0; i < roomRects.length; i++) {
+            Room room = rooms.get(i);
+            roomRects[i] = new int[]{room.x, room.z, room.width, room.height};
+        }
+        RoomGraph roomGraph = RoomGraph.build(grid, roomRects, corridors);
+        if (onDisk) {
+            // Encode before anything can break a wall of the grid
+            layoutCache.save(key, DungeonLayoutFormat.encode(seed, mode, grid, roomGraph));
+        }
+
+        System.out.println("Dungeon generated with " + roomGraph.getRoomCount() + " rooms, " + corridors.size()
+            + " corridors, " + breakableCount + " breakable walls"
+            + (pockets > 0 ? ", " + pockets + " unreachable pockets connected" : ""));
+
+        DungeonLayout layout = buildLayout(seed, grid, roomGraph);
+        if (key != null) {
+            layoutCache.putLayout(key, layout);
+            return layout.copy();
+        }
+        return layout;
+    }
+
+    /**
+     * Rebuild a layout from its encoding (see DungeonLayoutFormat) without
+     * running the generator; the seed and mode of this generator are not
+     * used. Touches no scene state.
+     * @throws IllegalArgumentException if the data cannot be decoded
+     */
+    public DungeonLayout loadLayout(byte[] data) {
+        DungeonLayoutFormat.Decoded decoded = DungeonLayoutFormat.decode(data);
+        RoomGraph roomGraph = RoomGraph.build(decoded.cells, decoded.roomRects, decoded.corridors);
+        return buildLayout(decoded.seed, decoded.cells, roomGraph);
+    }
+
+    /**
+     * Bake one vertex-colored mesh per room of a grid
+     */
+    private static DungeonLayout buildLayout(long seed, int[][] grid, RoomGraph roomGraph) {
+        int width = grid.length;
+        int height = grid[0].length;
+
+        // Tag every cell with its room, so the greedy mesher never merges across rooms
+        int[][] roomCells = new int[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int z = 0; z < height; z++) {
+                roomCells[x][z] = roomGraph.getRoom(x, z) * CELL_VALUES + grid[x][z];
+            }
+        }
+
+        int roomCount = roomGraph.getRoomCount();
+        Mesh[] roomMeshes = new Mesh[roomCount];
+        for (int room = 0; room < roomCount; room++) {
+            roomMeshes[room] = buildRoomMesh(roomCells, room * CELL_VALUES, roomGraph.getBounds(room));
+        }
+        return new DungeonLayout(seed, grid, roomGraph, roomMeshes);
+    }
+
+    /**
+     * Make some of the walls that separate two floor cells (along X or Z)
+     * breakable, so that breaking one opens a shortcut
+     * @return the number of breakable walls
+     */
+    private int markBreakableWalls(int[][] grid) {
+        int count = 0;
+        for (int x = 1; x < grid.length - 1; x++) {
+            for (int z = 1; z < grid[0].length - 1; z++) {
+                if (grid[x][z] != DungeonLayout.WALL) {
+                    continue;
+                }
+                boolean thinAlongX = grid[x - 1][z] == DungeonLayout.FLOOR && grid[x + 1][z] == DungeonLayout.FLOOR;
+                boolean thinAlongZ = grid[x][z - 1] == DungeonLayout.FLOOR && grid[x][z + 1] == DungeonLayout.FLOOR;
+                if ((thinAlongX || thinAlongZ) && random.nextFloat() < BREAKABLE_WALL_CHANCE) {
+                    grid[x][z] = DungeonLayout.BREAKABLE_WALL;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Scatter random rooms, skipping any that overlap, and connect them with
+     * a minimum spanning tree. Overlap is tested with the room's footprint
+     * mask against a bit grid of the rooms placed so far, so shaped rooms can
+     * nest into each other's corners.
+     */
+    private void generateRooms(CollisionGrid floor) {
+        int width = floor.getWidth();
+        int height = floor.getHeight();
+        CollisionGrid occupied = new CollisionGrid(width, height);
         for (int i = 0; i < MAX_ROOMS; i++) {
             Room room = createRandomRoom(width, height);
-            
-            // Check if room overlaps with existing rooms
-            boolean overlaps = false;
-            for (Room existingRoom : rooms) {
-                if (room.intersects(existingRoom)) {
-                    overlaps = true;
-                    break;
+            if (room == null || occupied.intersects(room.template.getFootprint(), room.x - 1, room.z - 1)) {
+                continue;
+            }
+
+            room.index = rooms.size();
+            rooms.add(room);
+            occupied.stamp(room.template.getShape(), room.x, room.z);
+            carveRoom(floor, room);
+        }
+        connectSpanningTree(floor);
+    }
+
+    /**
+     * Connect the rooms with the corridors of a minimum spanning tree over
+     * their anchors (Prim's algorithm, corridor length as the weight). Only
+     * used for the few rooms of ROOMS mode: it is quadratic in the room count.
+     */
+    private void connectSpanningTree(CollisionGrid floor) {
+        int count = rooms.size();
+        if (count < 2) {
+            return;
+        }
+        boolean[] inTree = new boolean[count];
+        int[] bestLength = new int[count];
+        int[] bestFrom = new int[count];
+        Arrays.fill(bestLength, Integer.MAX_VALUE);
+        int current = 0;
+        inTree[current] = true;
+        for (int added = 1; added < count; added++) {
+            int next = -1;
+            for (int i = 0; i < count; i++) {
+                if (inTree[i]) {
+                    continue;
+                }
+                int length = corridorLength(rooms.get(current), rooms.get(i));
+                if (length < bestLength[i]) {
+                    bestLength[i] = length;
+                    bestFrom[i] = current;
+                }
+                if (next < 0 || bestLength[i] < bestLength[next]) {
+                    next = i;
                 }
             }
-            
-            if (!overlaps) {
-                rooms.add(room);
-                carveRoom(grid, room);
-                
-                // Connect to previous room with corridor
-                if (rooms.size() > 1) {
-                    Room prevRoom = rooms.get(rooms.size() - 2);
-                    carveCorridor(grid, prevRoom.centerX, prevRoom.centerZ, room.centerX, room.centerZ);
+            inTree[next] = true;
+            connect(floor, rooms.get(bestFrom[next]), rooms.get(next));
+            current = next;
+        }
+    }
+
+    /**
+     * Add loopEdges corridors on top of the tree: each from a random room to
+     * the nearest room it has no corridor to yet, so the dungeon gets short
+     * loops instead of dead-end chains. Linear in the room count per edge.
+     */
+    private void addLoopEdges(CollisionGrid floor) {
+        if (rooms.size() < 3) {
+            return;
+        }
+        Set<Long> connected = new HashSet<>();
+        for (int[] corridor : corridors) {
+            connected.add(pairKey(corridor[0], corridor[1]));
+        }
+        for (int i = 0; i < loopEdges; i++) {
+            Room from = rooms.get(random.nextInt(rooms.size()));
+            Room nearest = null;
+            int nearestLength = Integer.MAX_VALUE;
+            for (Room other : rooms) {
+                int length = corridorLength(from, other);
+                if (other != from && length < nearestLength && !connected.contains(pairKey(from.index, other.index))) {
+                    nearest = other;
+                    nearestLength = length;
                 }
             }
+            if (nearest != null) {
+                connect(floor, from, nearest);
+                connected.add(pairKey(from.index, nearest.index));
+            }
         }
-        
-        // Create dungeon geometry from grid
-        for (int x = 0; x < width; x++) {
-            for (int z = 0; z < height; z++) {
-                if (grid[x][z] == 1) {
-                    createFloorTile(dungeonNode, x, z);
-                } else {
-                    createWallTile(dungeonNode, x, z);
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static int corridorLength(Room a, Room b) {
+        return Math.abs(a.centerX - b.centerX) + Math.abs(a.centerZ - b.centerZ);
+    }
+
+    /**
+     * Flood fill the floor from the first room and carve a way in to every
+     * pocket the fill did not reach (see FloorConnectivity), so that
+     * everything spawned on floor is reachable
+     * @return the number of pockets connected
+     */
+    private int repairConnectivity(CollisionGrid floor) {
+        if (rooms.isEmpty()) {
+            return 0;
+        }
+        Room start = rooms.get(0);
+        return FloorConnectivity.repair(floor, start.centerX, start.centerZ);
+    }
+
+    /**
+     * Binary space partitioning: one room per leaf, one corridor per split
+     */
+    private void generateBsp(CollisionGrid floor) {
+        splitAndCarve(floor, 0, 0, floor.getWidth(), floor.getHeight());
+    }
+
+    /**
+     * Split a region along its longer side until it is small enough for a
+     * leaf, carve a room in each leaf and connect the two halves of each split
+     * @return a room inside the region, for the parent to connect to
+     */
+    private Room splitAndCarve(CollisionGrid floor, int x, int z, int width, int height) {
+        boolean splitX = width > BSP_MAX_LEAF;
+        boolean splitZ = height > BSP_MAX_LEAF;
+        if (!splitX && !splitZ) {
+            Room room = createLeafRoom(x, z, width, height);
+            room.index = rooms.size();
+            rooms.add(room);
+            carveRoom(floor, room);
+            return room;
+        }
+
+        boolean alongX = splitX && (!splitZ || width > height || (width == height && random.nextBoolean()));
+        Room first;
+        Room second;
+        if (alongX) {
+            int cut = BSP_MIN_LEAF + random.nextInt(width - 2 * BSP_MIN_LEAF + 1);
+            first = splitAndCarve(floor, x, z, cut, height);
+            second = splitAndCarve(floor, x + cut, z, width - cut, height);
+        } else {
+            int cut = BSP_MIN_LEAF + random.nextInt(height - 2 * BSP_MIN_LEAF + 1);
+            first = splitAndCarve(floor, x, z, width, cut);
+            second = splitAndCarve(floor, x, z + cut, width, height - cut);
+        }
+        connect(floor, first, second);
+        return random.nextBoolean() ? first : second;
+    }
+
+    /**
+     * A random room inside a BSP leaf, at least one cell away from its edges:
+     * sometimes a prefab that fits, otherwise a rectangle
+     */
+    private Room createLeafRoom(int leafX, int leafZ, int leafWidth, int leafHeight) {
+        RoomTemplate template = randomPrefab(leafWidth - 2, leafHeight - 2);
+        if (template == null) {
+            template = TEMPLATES.getRectangle(randomRoomSide(leafWidth), randomRoomSide(leafHeight));
+        }
+        int x = leafX + 1 + random.nextInt(Math.max(1, leafWidth - template.getWidth() - 1));
+        int z = leafZ + 1 + random.nextInt(Math.max(1, leafHeight - template.getHeight() - 1));
+        return new Room(x, z, template);
+    }
+
+    /**
+     * @return a prefab no larger than maxWidth x maxHeight in PREFAB_CHANCE
+     *         of the calls, otherwise (or if the one drawn does not fit) null
+     */
+    private RoomTemplate randomPrefab(int maxWidth, int maxHeight) {
+        if (random.nextFloat() >= PREFAB_CHANCE) {
+            return null;
+        }
+        return TEMPLATES.randomPrefab(random, maxWidth, maxHeight);
+    }
+
+    private int randomRoomSide(int leafSide) {
+        int max = Math.max(1, Math.min(ROOM_MAX_SIZE, leafSide - 2));
+        int min = Math.min(ROOM_MIN_SIZE, max);
+        return min + random.nextInt(max - min + 1);
+    }
+
+    /**
+     * Create the floor and wall geometry of a layout under the dungeon node
+     * and make it the current dungeon for collision queries. Render thread only.
+     */
+    public void attachLayout(Node dungeonNode, DungeonLayout layout) {
+        int roomCount = layout.getRoomCount();
+        int chunksX = (layout.getWidth() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int chunksZ = (layout.getHeight() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Node[] chunkNodes = new Node[chunksX * chunksZ];
+        roomNodes = new Node[roomCount];
+        for (int room = 0; room < roomCount; room++) {
+            Node roomNode = new Node("DungeonRoom_" + room);
+            Mesh mesh = layout.getRoomMesh(room);
+            if (mesh != null) {
+                Geometry geometry = new Geometry("DungeonRoomGeometry_" + room, mesh);
+                geometry.setMaterial(getDungeonMaterial());
+                roomNode.attachChild(geometry);
+            }
+            roomNodes[room] = roomNode;
+
+            // Rooms are grouped by chunk, so the frustum rejects them a chunk at a time
+            int[] bounds = layout.getRoomGraph().getBounds(room);
+            int chunkX = Math.max(0, (bounds[0] + bounds[2]) / 2) / CHUNK_SIZE;
+            int chunkZ = Math.max(0, (bounds[1] + bounds[3]) / 2) / CHUNK_SIZE;
+            int chunk = chunkZ * chunksX + chunkX;
+            if (chunkNodes[chunk] == null) {
+                chunkNodes[chunk] = new Node("DungeonChunk_" + chunkX + "_" + chunkZ);
+                dungeonNode.attachChild(chunkNodes[chunk]);
+            }
+            chunkNodes[chunk].attachChild(roomNode);
+        }
+        revealedRooms = null;
+        revealedCount = roomCount;
+        this.layout = layout;
+        this.collisionGrid = layout.getCollisionGrid();
+        this.clearanceMap = layout.getClearanceMap();
+        this.placementService = layout.getPlacementService();
+    }
+
+    /**
+     * Check whether a cell is a breakable wall
+     */
+    public boolean isBreakableWall(int x, int z) {
+        if (layout == null || x < 0 || x >= layout.getWidth() || z < 0 || z >= layout.getHeight()) {
+            return false;
+        }
+        return layout.getCells()[x][z] == DungeonLayout.BREAKABLE_WALL;
+    }
+
+    /**
+     * Turn a breakable wall into floor: updates the cell grid, the collision
+     * grid and the clearance around it, and recolors the wall's quad in its
+     * room's mesh. Render thread only. Callers owning derived data (flow
+     * fields, field of view, minimap) update it for this cell themselves.
+     * @return false if the cell is not a breakable wall
+     */
+    public boolean breakWall(int x, int z) {
+        if (!isBreakableWall(x, z)) {
+            return false;
+        }
+        layout.getCells()[x][z] = DungeonLayout.FLOOR;
+        collisionGrid.setWalkable(x, z, true);
+        clearanceMap.cellOpened(collisionGrid, x, z);
+
+        Mesh mesh = layout.getRoomMesh(layout.getRoomGraph().getRoom(x, z));
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        VertexBuffer colorBuffer = mesh.getBuffer(VertexBuffer.Type.Color);
+        FloatBuffer colors = (FloatBuffer) colorBuffer.getData();
+        for (int quad = 0; quad < mesh.getVertexCount() / 4; quad++) {
+            // First vertex of a tile quad is (x - 0.5, z + 0.5); greedy floor
+            // and wall quads can start there too, so check the color as well
+            int p = quad * 12;
+            if (Math.round(positions.get(p) + 0.5f) == x && Math.round(positions.get(p + 2) - 0.5f) == z
+                    && colors.get(quad * 16 + 1) == BREAKABLE_WALL_COLOR.g) {
+                for (int c = quad * 16; c < quad * 16 + 16; c += 4) {
+                    colors.put(c, FLOOR_COLOR.r).put(c + 1, FLOOR_COLOR.g)
+                          .put(c + 2, FLOOR_COLOR.b).put(c + 3, FLOOR_COLOR.a);
                 }
+                colorBuffer.setUpdateNeeded();
+                break;
             }
         }
+        return true;
+    }
 
-        // Store the collision grid for external access
-        this.collisionGrid = grid;
+    /**
+     * Show only the rooms the player has explored: the first call hides every
+     * room not explored yet, later calls show the rooms of the cells that
+     * came into view. Call after every FieldOfView update that recomputed
+     * the field. Render thread only.
+     * @return the number of rooms shown
+     */
+    public int revealRooms(FieldOfView fieldOfView) {
+        if (layout == null) {
+            return 0;
+        }
+        RoomGraph roomGraph = layout.getRoomGraph();
+        int width = fieldOfView.getWidth();
+        if (revealedRooms == null) {
+            revealedRooms = new boolean[roomNodes.length];
+            revealedCount = 0;
+            for (Node roomNode : roomNodes) {
+                roomNode.setCullHint(Spatial.CullHint.Always);
+            }
+            for (int cell = fieldOfView.nextExploredCell(0); cell >= 0; cell = fieldOfView.nextExploredCell(cell + 1)) {
+                revealRoom(roomGraph.getRoom(cell % width, cell / width));
+            }
+            return revealedCount;
+        }
+        for (int i = 0; i < fieldOfView.getChangedCount(); i++) {
+            int cell = fieldOfView.getChangedCell(i);
+            int x = cell % width;
+            int z = cell / width;
+            if (fieldOfView.isVisible(x, z)) {
+                revealRoom(roomGraph.getRoom(x, z));
+            }
+        }
+        return revealedCount;
+    }
 
-        System.out.println("Dungeon generated with " + rooms.size() + " rooms");
+    private void revealRoom(int room) {
+        if (room >= 0 && !revealedRooms[room]) {
+            revealedRooms[room] = true;
+            revealedCount++;
+            roomNodes[room].setCullHint(Spatial.CullHint.Inherit);
+        }
+    }
 
-        return grid;
+    /**
+     * @return the number of rooms shown, all of them before the first
+     *         revealRooms()
+     */
+    public int getRevealedRoomCount() {
+        return revealedCount;
     }
 
     /**
      * Get the collision grid for this dungeon
-     * @return the collision grid (0 = wall, 1 = floor)
+     * @return the collision grid, or null before the first dungeon is generated
      */
-    public int[][] getCollisionGrid() {
+    public CollisionGrid getCollisionGrid() {
         return collisionGrid;
     }
 
@@ -105,120 +668,146 @@ public class DungeonGenerator {
         if (collisionGrid == null) {
             return true; // No collision data available
         }
+        // Out of bounds = wall
+        return collisionGrid.isWalkable(x, z);
+    }
 
-        // Convert world coordinates to grid coordinates
-        int gridX = Math.round(x);
-        int gridZ = Math.round(z);
+    /**
+     * Get the distance-to-wall map for this dungeon
+     * @return the clearance map, or null before the first dungeon is generated
+     */
+    public ClearanceMap getClearanceMap() {
+        return clearanceMap;
+    }
 
-        // Check bounds
-        if (gridX < 0 || gridX >= collisionGrid.length ||
-            gridZ < 0 || gridZ >= collisionGrid[0].length) {
-            return false; // Out of bounds = wall
-        }
+    /**
+     * Get the spawn placement index for this dungeon
+     * @return the placement service, or null before the first dungeon is generated
+     */
+    public PlacementService getPlacementService() {
+        return placementService;
+    }
 
-        return collisionGrid[gridX][gridZ] == 1;
+    /**
+     * Check if an entity of the given radius fits at a position without
+     * overlapping a wall (one lookup in the clearance map)
+     */
+    public boolean canFit(float x, float z, float radius) {
+        if (clearanceMap == null) {
+            return true; // No collision data available
+        }
+        return clearanceMap.fits(x, z, radius);
     }
     
+    /**
+     * A prefab or a random rectangle at a random position
+     * @return the room, or null if the map is too small for it
+     */
     private Room createRandomRoom(int mapWidth, int mapHeight) {
-        int width = random.nextInt(ROOM_MAX_SIZE - ROOM_MIN_SIZE + 1) + ROOM_MIN_SIZE;
-        int height = random.nextInt(ROOM_MAX_SIZE - ROOM_MIN_SIZE + 1) + ROOM_MIN_SIZE;
-        int x = random.nextInt(mapWidth - width - 1);
-        int z = random.nextInt(mapHeight - height - 1);
-        
-        return new Room(x, z, width, height);
-    }
-    
-    private void carveRoom(int[][] grid, Room room) {
-        for (int x = room.x; x < room.x + room.width; x++) {
-            for (int z = room.z; z < room.z + room.height; z++) {
-                if (x >= 0 && x < grid.length && z >= 0 && z < grid[0].length) {
-                    grid[x][z] = 1;
-                }
-            }
+        RoomTemplate template = randomPrefab(mapWidth - 2, mapHeight - 2);
+        if (template == null) {
+            int width = random.nextInt(ROOM_MAX_SIZE - ROOM_MIN_SIZE + 1) + ROOM_MIN_SIZE;
+            int height = random.nextInt(ROOM_MAX_SIZE - ROOM_MIN_SIZE + 1) + ROOM_MIN_SIZE;
+            template = TEMPLATES.getRectangle(width, height);
+        }
+        if (template.getWidth() + 1 >= mapWidth || template.getHeight() + 1 >= mapHeight) {
+            return null;
         }
+        int x = random.nextInt(mapWidth - template.getWidth() - 1);
+        int z = random.nextInt(mapHeight - template.getHeight() - 1);
+
+        return new Room(x, z, template);
     }
-    
-    private void carveCorridor(int[][] grid, int x1, int z1, int x2, int z2) {
+
+    /**
+     * Stamp a room's floor into the grid, one word operation per row
+     */
+    private void carveRoom(CollisionGrid floor, Room room) {
+        floor.stamp(room.template.getShape(), room.x, room.z);
+    }
+
+    /**
+     * Carve a corridor between the anchors of two rooms and record it
+     */
+    private void connect(CollisionGrid floor, Room from, Room to) {
+        carveCorridor(floor, from.centerX, from.centerZ, to.centerX, to.centerZ);
+        corridors.add(new int[]{from.index, to.index});
+    }
+
+    /**
+     * Carve an L-shaped corridor CORRIDOR_WIDTH cells wide, centered on the
+     * line from (x1, z1) along X to x2 and then along Z to z2. Cells outside
+     * the grid are skipped.
+     */
+    private void carveCorridor(CollisionGrid floor, int x1, int z1, int x2, int z2) {
+        int half = CORRIDOR_WIDTH / 2;
+
         // Horizontal corridor
-        int startX = Math.min(x1, x2);
-        int endX = Math.max(x1, x2);
+        int startX = Math.min(x1, x2) - half;
+        int endX = Math.max(x1, x2) + half;
         for (int x = startX; x <= endX; x++) {
-            if (x >= 0 && x < grid.length && z1 >= 0 && z1 < grid[0].length) {
-                grid[x][z1] = 1;
+            for (int z = z1 - half; z <= z1 + half; z++) {
+                floor.setWalkable(x, z, true);
             }
         }
-        
+
         // Vertical corridor
-        int startZ = Math.min(z1, z2);
-        int endZ = Math.max(z1, z2);
+        int startZ = Math.min(z1, z2) - half;
+        int endZ = Math.max(z1, z2) + half;
         for (int z = startZ; z <= endZ; z++) {
-            if (x2 >= 0 && x2 < grid.length && z >= 0 && z < grid[0].length) {
-                grid[x2][z] = 1;
+            for (int x = x2 - half; x <= x2 + half; x++) {
+                floor.setWalkable(x, z, true);
             }
         }
     }
     
-    private void createFloorTile(Node parent, int x, int z) {
-        Quad quad = new Quad(1, 1);
-        Geometry tile = new Geometry("Floor_" + x + "_" + z, quad);
-        
-        Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        mat.setColor("Color", new ColorRGBA(0.3f, 0.3f, 0.3f, 1.0f)); // Dark gray floor
-        tile.setMaterial(mat);
-        
-        // Center and rotate for top-down view
-        tile.setLocalTranslation(-0.5f, 0, -0.5f); // Center the quad
-        tile.rotate(-FastMath.HALF_PI, 0, 0); // Rotate to face camera
-        
-        // Use container node for world positioning
-        Node tileNode = new Node("FloorNode_" + x + "_" + z);
-        tileNode.attachChild(tile);
-        tileNode.setLocalTranslation(x, 0, z);
-        
-        parent.attachChild(tileNode);
+    /**
+     * Greedy-merged floor and walls of a room, plus one quad per breakable
+     * wall so each can be recolored alone
+     * @param tag the room's tagged cell value for WALL (room * CELL_VALUES)
+     * @return the mesh, or null if the room owns no cell
+     */
+    private static Mesh buildRoomMesh(int[][] roomCells, int tag, int[] bounds) {
+        TileMeshBuilder builder = new TileMeshBuilder();
+        DungeonMesher.addRectangles(roomCells, tag + DungeonLayout.FLOOR, FLOOR_COLOR,
+            bounds[0], bounds[1], bounds[2] + 1, bounds[3] + 1, builder);
+        DungeonMesher.addRectangles(roomCells, tag + DungeonLayout.WALL, WALL_COLOR,
+            bounds[0], bounds[1], bounds[2] + 1, bounds[3] + 1, builder);
+        for (int x = bounds[0]; x <= bounds[2]; x++) {
+            for (int z = bounds[1]; z <= bounds[3]; z++) {
+                if (roomCells[x][z] == tag + DungeonLayout.BREAKABLE_WALL) {
+                    builder.addTile(x, z, BREAKABLE_WALL_COLOR);
+                }
+            }
+        }
+        return builder.isEmpty() ? null : builder.build();
     }
-    
-    private void createWallTile(Node parent, int x, int z) {
-        Quad quad = new Quad(1, 1);
-        Geometry tile = new Geometry("Wall_" + x + "_" + z, quad);
-        
-        Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        mat.setColor("Color", new ColorRGBA(0.1f, 0.1f, 0.1f, 1.0f)); // Almost black walls
-        tile.setMaterial(mat);
-        
-        // Center and rotate for top-down view
-        tile.setLocalTranslation(-0.5f, 0, -0.5f); // Center the quad
-        tile.rotate(-FastMath.HALF_PI, 0, 0); // Rotate to face camera
-        
-        // Use container node for world positioning
-        Node wallNode = new Node("WallNode_" + x + "_" + z);
-        wallNode.attachChild(tile);
-        wallNode.setLocalTranslation(x, 0, z);
-        
-        parent.attachChild(wallNode);
+
+    private Material getDungeonMaterial() {
+        if (dungeonMaterial == null) {
+            dungeonMaterial = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+            dungeonMaterial.setBoolean("VertexColor", true);
+        }
+        return dungeonMaterial;
     }
     
     /**
-     * Inner class representing a dungeon room
+     * Inner class representing a dungeon room: a template placed at (x, z)
      */
     private static class Room {
+        int index;
+        final RoomTemplate template;
         int x, z, width, height;
         int centerX, centerZ;
-        
-        Room(int x, int z, int width, int height) {
+
+        Room(int x, int z, RoomTemplate template) {
+            this.template = template;
             this.x = x;
             this.z = z;
-            this.width = width;
-            this.height = height;
-            this.centerX = x + width / 2;
-            this.centerZ = z + height / 2;
-        }
-        
-        boolean intersects(Room other) {
-            return !(x + width < other.x || 
-                    other.x + other.width < x ||
-                    z + height < other.z ||
-                    other.z + other.height < z);
+            this.width = template.getWidth();
+            this.height = template.getHeight();
+            this.centerX = x + template.getAnchorX();
+            this.centerZ = z + template.getAnchorZ();
         }
     }
 }
@@ -0,0 +1,125 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+
+/**
+ * A generated dungeon that is not yet part of the scene graph: the cell grid,
+ * its bit-packed collision grid, its clearance map, the placement index of
+ * its floor, its room graph and the baked mesh of every room (so whole rooms
+ * can be culled).
+ *
+ * Produced by DungeonGenerator.generateLayout(), which touches no scene
+ * state and can run on a worker thread. DungeonGenerator.attachLayout()
+ * turns it into geometry on the render thread.
+ *
+ * Breaking a wall changes the cells, the collision grid, the clearance map
+ * and a room mesh's colors in place. copy() gives a layout whose walls can
+ * be broken without changing this one, sharing everything else, which is
+ * how the DungeonLayoutCache hands out layouts.
+ */
+public class DungeonLayout {
+
+    /** Cell values of the grid */
+    public static final int WALL = 0;
+    public static final int FLOOR = 1;
+    public static final int BREAKABLE_WALL = 2;
+
+    private final long seed;
+    private final int[][] cells;
+    private final CollisionGrid collisionGrid;
+    private final ClearanceMap clearanceMap;
+    private final PlacementService placementService;
+    private final RoomGraph roomGraph;
+    // Vertex-colored floor and wall mesh per room, null where a room owns no cell
+    private final Mesh[] roomMeshes;
+
+    DungeonLayout(long seed, int[][] cells, RoomGraph roomGraph, Mesh[] roomMeshes) {
+        this.seed = seed;
+        this.cells = cells;
+        this.collisionGrid = CollisionGrid.fromCells(cells);
+        this.clearanceMap = ClearanceMap.fromGrid(collisionGrid);
+        this.placementService = PlacementService.fromGrid(collisionGrid);
+        this.roomGraph = roomGraph;
+        this.roomMeshes = roomMeshes;
+    }
+
+    private DungeonLayout(DungeonLayout source) {
+        this.seed = source.seed;
+        this.cells = new int[source.cells.length][];
+        for (int x = 0; x < cells.length; x++) {
+            cells[x] = source.cells[x].clone();
+        }
+        this.collisionGrid = source.collisionGrid.copy();
+        this.clearanceMap = source.clearanceMap.copy();
+        this.placementService = source.placementService;
+        this.roomGraph = source.roomGraph;
+        this.roomMeshes = new Mesh[source.roomMeshes.length];
+        for (int room = 0; room < roomMeshes.length; room++) {
+            Mesh mesh = source.roomMeshes[room];
+            if (mesh != null) {
+                // Positions and indices are shared, colors are recolored by breakWall()
+                Mesh copy = mesh.clone();
+                VertexBuffer colors = mesh.getBuffer(VertexBuffer.Type.Color).clone();
+                copy.clearBuffer(VertexBuffer.Type.Color);
+                copy.setBuffer(colors);
+                roomMeshes[room] = copy;
+            }
+        }
+    }
+
+    /**
+     * @return a layout with the same dungeon whose walls can be broken
+     *         without changing this one
+     */
+    public DungeonLayout copy() {
+        return new DungeonLayout(this);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return cells.length;
+    }
+
+    public int getHeight() {
+        return cells.length > 0 ? cells[0].length : 0;
+    }
+
+    /**
+     * @return the cell grid indexed [x][z] (WALL, FLOOR or BREAKABLE_WALL)
+     */
+    public int[][] getCells() {
+        return cells;
+    }
+
+    public CollisionGrid getCollisionGrid() {
+        return collisionGrid;
+    }
+
+    public ClearanceMap getClearanceMap() {
+        return clearanceMap;
+    }
+
+    public PlacementService getPlacementService() {
+        return placementService;
+    }
+
+    public RoomGraph getRoomGraph() {
+        return roomGraph;
+    }
+
+    /**
+     * @return the vertex-colored floor, wall and breakable wall mesh of a
+     *         room, or null if it owns no cell
+     */
+    public Mesh getRoomMesh(int room) {
+        return roomMeshes[room];
+    }
+
+    public int getRoomCount() {
+        return roomGraph.getRoomCount();
+    }
+}
@@ -0,0 +1,251 @@
+package com.jmonkeyvibe.game.world;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of dungeon layouts, in memory and optionally on disk.
+ *
+ * Keys are built from the generator version, the mode, the seed, the size
+ * and the loop edge count, so an entry is only ever reused for exactly the
+ * same input. The most recently used MEMORY_CAPACITY layouts are kept in
+ * memory fully built (grid, room graph and room meshes), and handed out as
+ * copies (see DungeonLayout.copy()), which makes restarting a dungeon skip
+ * generation, decoding and meshing. With a directory, layouts of up to
+ * MAX_DISK_CELLS cells are also written as .dgn files in the compact
+ * DungeonLayoutFormat, so a dungeon can be replayed in a later session, or
+ * shared by copying its file.
+ *
+ * A disk hit only skips the generator itself: the room graph, room meshes,
+ * clearance map and placement index are rebuilt from the decoded grid
+ * either way, and they dominate as dungeons grow. Over four runs of
+ * DungeonLayoutCacheBenchmark a disk hit took 0.8-1.2 ms against 1.7-2.4 ms
+ * to generate the 40x40 arena and 1.8-2.5 ms against 2.7-3.7 ms at 64x64,
+ * but landed on either side of generation from 128x128 up (4.6-5.8 ms
+ * against 5.1-6.2 ms at 128x128, 64-69 ms against 65-74 ms at 512x512).
+ * Larger layouts are therefore only cached in memory (see
+ * isStoredOnDisk()).
+ *
+ * Files are written to a temporary name and then moved into place, and the
+ * directory is kept under maxBytes by deleting the least recently used
+ * files (see CacheFiles). Methods are synchronized; the
+ * loading screen and the dungeon pool use the cache from their worker
+ * threads. Disable with -Djmonkeyvibe.dungeonCache=false.
+ */
+public class DungeonLayoutCache {
+
+    /** System property that turns the cache off in the game when set to false */
+    public static final String ENABLED_PROPERTY = "jmonkeyvibe.dungeonCache";
+
+    private static final int MEMORY_CAPACITY = 8;
+
+    /** Default size limit of the layout directory (a 64x64 layout takes under 1 KB) */
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+    /** Largest layout (width * height) worth storing on disk, see isStoredOnDisk() */
+    public static final int MAX_DISK_CELLS = 64 * 64;
+
+    private static final String SUFFIX = ".dgn";
+
+    private static DungeonLayoutCache defaultCache;
+
+    private final Path directory;
+    private final long maxBytes;
+    private long bytes;
+    // Built layouts that are only ever copied, never attached or modified
+    private final LinkedHashMap<String, DungeonLayout> memory;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param directory where to store layout files, or null for memory only
+     */
+    public DungeonLayoutCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param directory where to store layout files, or null for memory only
+     * @param maxBytes  size limit of the directory's layout files
+     */
+    public DungeonLayoutCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (directory != null) {
+            Files.createDirectories(directory);
+            bytes = CacheFiles.trim(directory, SUFFIX, maxBytes);
+        }
+        this.memory = new LinkedHashMap<String, DungeonLayout>(MEMORY_CAPACITY * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DungeonLayout> eldest) {
+                return size() > MEMORY_CAPACITY;
+            }
+        };
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * The game's shared cache in its default directory, falling back to
+     * memory only if the directory cannot be used
+     * @return the cache, or null if disabled
+     */
+    public static synchronized DungeonLayoutCache getDefault() {
+        if (!isEnabled()) {
+            return null;
+        }
+        if (defaultCache == null) {
+            try {
+                defaultCache = new DungeonLayoutCache(getDefaultDirectory());
+            } catch (IOException e) {
+                System.out.println("Warning: Dungeon layouts cached in memory only: " + e.getMessage());
+                try {
+                    defaultCache = new DungeonLayoutCache(null);
+                } catch (IOException impossible) {
+                    throw new IllegalStateException(impossible);
+                }
+            }
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Default location of the layout files: ~/.jmonkeyvibe/dungeons
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".jmonkeyvibe", "dungeons");
+    }
+
+    public static String key(DungeonGenerator.Mode mode, long seed, int width, int height, int loopEdges) {
+        return "dungeon-v" + DungeonGenerator.GENERATOR_VERSION + "-" + mode.name().toLowerCase()
+            + "-" + seed + "-" + width + "x" + height + "-l" + loopEdges;
+    }
+
+    /**
+     * Check whether layouts of a size go to disk: above MAX_DISK_CELLS,
+     * decoding and rebuilding a layout costs as much as generating it
+     */
+    public static boolean isStoredOnDisk(int width, int height) {
+        return (long) width * height <= MAX_DISK_CELLS;
+    }
+
+    /**
+     * Check whether a layout is cached in memory, so loading it is immediate
+     */
+    public synchronized boolean isInMemory(String key) {
+        return memory.containsKey(key);
+    }
+
+    /**
+     * Get a layout cached in memory
+     * @return a copy of the layout that the caller may modify, or null if
+     *         it is not in memory
+     */
+    public synchronized DungeonLayout getLayout(String key) {
+        DungeonLayout layout = memory.get(key);
+        if (layout == null) {
+            return null;
+        }
+        hits++;
+        return layout.copy();
+    }
+
+    /**
+     * Keep a built layout in memory. The cache keeps this instance, so the
+     * caller must only use copies of it (see getLayout()).
+     */
+    public synchronized void putLayout(String key, DungeonLayout layout) {
+        memory.put(key, layout);
+    }
+
+    /**
+     * Load an encoded layout from disk
+     * @return the encoded layout, or null if it is not cached (or cannot be read)
+     */
+    public synchronized byte[] load(String key) {
+        byte[] data = null;
+        if (directory != null) {
+            Path file = file(key);
+            if (Files.exists(file)) {
+                try {
+                    data = Files.readAllBytes(file);
+                    CacheFiles.touch(file);
+                } catch (IOException e) {
+                    System.out.println("Warning: Could not read cached dungeon " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        if (data == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return data;
+    }
+
+    /**
+     * Store an encoded layout on disk; failures only cost a future cache miss
+     */
+    public synchronized void save(String key, byte[] data) {
+        if (directory == null) {
+            return;
+        }
+        Path file = file(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, data);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            bytes += data.length;
+            if (bytes > maxBytes) {
+                bytes = CacheFiles.trim(directory, SUFFIX, maxBytes * 3 / 4);
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: Could not cache dungeon " + file + ": " + e.getMessage());
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // Nothing left to do; the stray file is harmless
+            }
+        }
+    }
+
+    /**
+     * Drop an entry that turned out to be unreadable
+     */
+    public synchronized void remove(String key) {
+        memory.remove(key);
+        if (directory != null) {
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                System.out.println("Warning: Could not delete cached dungeon " + file(key) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,230 @@
+package com.jmonkeyvibe.game.world;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a generated dungeon: everything needed to
+ * rebuild its layout without running the generator again.
+ *
+ * Layout (big-endian; "varint" is an unsigned LEB128 int):
+ *   int    MAGIC ("JMVD")
+ *   byte   FORMAT_VERSION
+ *   int    DungeonGenerator.GENERATOR_VERSION
+ *   long   seed
+ *   byte   mode ordinal
+ *   varint width, height
+ *   per row z: varint run lengths along x, alternating non-floor / floor,
+ *          starting with non-floor (possibly 0) and summing to width
+ *   varint breakable wall count, then each wall's cell index (z * width + x)
+ *          as a varint gap from the previous one
+ *   varint room count, then varint x, z, width, height per room
+ *   varint corridor count, then varint roomA, roomB per corridor
+ *
+ * A 40x40 arena takes a few hundred bytes; a 512x512 BSP dungeon a few
+ * tens of KB. Only a freshly generated grid is worth encoding: broken
+ * walls are not recorded apart from the other floor.
+ */
+public final class DungeonLayoutFormat {
+
+    private static final int MAGIC = 0x4A4D5644; // "JMVD"
+    private static final int FORMAT_VERSION = 1;
+
+    // Largest grid decode() accepts (4096x4096)
+    private static final long MAX_CELLS = 1L << 24;
+
+    private DungeonLayoutFormat() {
+    }
+
+    /**
+     * A decoded layout: the cell grid and the room graph's rooms and corridors
+     */
+    public static final class Decoded {
+        public final long seed;
+        public final DungeonGenerator.Mode mode;
+        public final int[][] cells;
+        public final int[][] roomRects;
+        public final List<int[]> corridors;
+
+        Decoded(long seed, DungeonGenerator.Mode mode, int[][] cells, int[][] roomRects, List<int[]> corridors) {
+            this.seed = seed;
+            this.mode = mode;
+            this.cells = cells;
+            this.roomRects = roomRects;
+            this.corridors = corridors;
+        }
+    }
+
+    /**
+     * Encode a grid with the rooms and corridors of its room graph
+     */
+    public static byte[] encode(long seed, DungeonGenerator.Mode mode, int[][] cells, RoomGraph roomGraph) {
+        int width = cells.length;
+        int height = width > 0 ? cells[0].length : 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + height * 4);
+        writeInt(out, MAGIC);
+        out.write(FORMAT_VERSION);
+        writeInt(out, DungeonGenerator.GENERATOR_VERSION);
+        writeInt(out, (int) (seed >>> 32));
+        writeInt(out, (int) seed);
+        out.write(mode.ordinal());
+        writeVarint(out, width);
+        writeVarint(out, height);
+
+        int breakableCount = 0;
+        for (int z = 0; z < height; z++) {
+            boolean floor = false;
+            int run = 0;
+            for (int x = 0; x < width; x++) {
+                if ((cells[x][z] == DungeonLayout.FLOOR) != floor) {
+                    writeVarint(out, run);
+                    floor = !floor;
+                    run = 0;
+                }
+                run++;
+                if (cells[x][z] == DungeonLayout.BREAKABLE_WALL) {
+                    breakableCount++;
+                }
+            }
+            writeVarint(out, run);
+        }
+
+        writeVarint(out, breakableCount);
+        int previous = 0;
+        for (int z = 0; z < height; z++) {
+            for (int x = 0; x < width; x++) {
+                if (cells[x][z] == DungeonLayout.BREAKABLE_WALL) {
+                    int cell = z * width + x;
+                    writeVarint(out, cell - previous);
+                    previous = cell;
+                }
+            }
+        }
+
+        writeVarint(out, roomGraph.getRoomCount());
+        for (int room = 0; room < roomGraph.getRoomCount(); room++) {
+            for (int value : roomGraph.getRoomRect(room)) {
+                writeVarint(out, value);
+            }
+        }
+        List<int[]> corridors = roomGraph.getCorridors();
+        writeVarint(out, corridors.size());
+        for (int[] corridor : corridors) {
+            writeVarint(out, corridor[0]);
+            writeVarint(out, corridor[1]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a layout
+     * @throws IllegalArgumentException if the data is not a layout of the
+     *         current format and generator version, or is corrupt
+     */
+    public static Decoded decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a dungeon layout");
+            }
+            int formatVersion = in.get();
+            int generatorVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION || generatorVersion != DungeonGenerator.GENERATOR_VERSION) {
+                throw new IllegalArgumentException("Unsupported dungeon layout version "
+                    + formatVersion + "/" + generatorVersion);
+            }
+            long seed = in.getLong();
+            int modeOrdinal = in.get();
+            DungeonGenerator.Mode[] modes = DungeonGenerator.Mode.values();
+            if (modeOrdinal < 0 || modeOrdinal >= modes.length) {
+                throw new IllegalArgumentException("Unknown dungeon mode " + modeOrdinal);
+            }
+            int width = readVarint(in);
+            int height = readVarint(in);
+            // Every row takes at least one byte, so a bogus size fails here and not in new int[][]
+            if (width == 0 || height == 0 || height > in.remaining() || (long) width * height > MAX_CELLS) {
+                throw new IllegalArgumentException("Bad dungeon size " + width + "x" + height);
+            }
+
+            int[][] cells = new int[width][height];
+            for (int z = 0; z < height; z++) {
+                boolean floor = false;
+                int x = 0;
+                do {
+                    int run = readVarint(in);
+                    if (run > width - x) {
+                        throw new IllegalArgumentException("Run overflows row " + z);
+                    }
+                    if (floor) {
+                        for (int end = x + run; x < end; x++) {
+                            cells[x][z] = DungeonLayout.FLOOR;
+                        }
+                    } else {
+                        x += run;
+                    }
+                    floor = !floor;
+                } while (x < width);
+            }
+
+            int breakableCount = readVarint(in);
+            int cell = 0;
+            for (int i = 0; i < breakableCount; i++) {
+                cell += readVarint(in);
+                if (cell < 0 || cell >= width * height || cells[cell % width][cell / width] == DungeonLayout.FLOOR) {
+                    throw new IllegalArgumentException("Bad breakable wall " + cell);
+                }
+                cells[cell % width][cell / width] = DungeonLayout.BREAKABLE_WALL;
+            }
+
+            int roomCount = readVarint(in);
+            if (roomCount > in.remaining()) {
+                throw new IllegalArgumentException("Dungeon layout truncated");
+            }
+            int[][] roomRects = new int[roomCount][];
+            for (int room = 0; room < roomCount; room++) {
+                roomRects[room] = new int[]{readVarint(in), readVarint(in), readVarint(in), readVarint(in)};
+            }
+            int corridorCount = readVarint(in);
+            List<int[]> corridors = new ArrayList<>(Math.min(corridorCount, in.remaining()));
+            for (int i = 0; i < corridorCount; i++) {
+                corridors.add(new int[]{readVarint(in), readVarint(in)});
+            }
+            return new Decoded(seed, modes[modeOrdinal], cells, roomRects, corridors);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Dungeon layout truncated", e);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Negative varint");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+}
@@ -0,0 +1,116 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Mesh;
+
+/**
+ * Greedy mesher for the dungeon collision grid (and any other cell grid,
+ * such as an overworld chunk's tile types).
+ *
+ * Runs of same-type cells are merged into maximal rectangles: each rectangle
+ * is grown along X first and then along Z for as long as every cell in the
+ * new row matches. The resulting quads are baked into one mesh per cell type.
+ */
+public final class DungeonMesher {
+
+    private DungeonMesher() {
+    }
+
+    /**
+     * Build a single mesh covering every cell of the grid equal to cellValue
+     * @param grid the collision grid (0 = wall, 1 = floor), indexed [x][z]
+     * @param cellValue which cells to mesh
+     * @return the merged mesh, or null if the grid contains no such cell
+     */
+    public static Mesh buildMesh(int[][] grid, int cellValue) {
+        TileMeshBuilder builder = new TileMeshBuilder();
+        addRectangles(grid, cellValue, builder);
+        return builder.isEmpty() ? null : builder.build();
+    }
+
+    /**
+     * Build a single mesh covering the cells equal to cellValue in the region
+     * [minX, maxX) x [minZ, maxZ) of the grid, e.g. one chunk of a dungeon
+     * @return the merged mesh, or null if the region contains no such cell
+     */
+    public static Mesh buildMesh(int[][] grid, int cellValue, int minX, int minZ, int maxX, int maxZ) {
+        TileMeshBuilder builder = new TileMeshBuilder();
+        addRectangles(grid, cellValue, ColorRGBA.White, minX, minZ, maxX, maxZ, builder);
+        return builder.isEmpty() ? null : builder.build();
+    }
+
+    /**
+     * Greedily merge all cells equal to cellValue into rectangles and add them
+     * to the builder as quads
+     * @return the number of rectangles emitted
+     */
+    public static int addRectangles(int[][] grid, int cellValue, TileMeshBuilder builder) {
+        return addRectangles(grid, cellValue, ColorRGBA.White, builder);
+    }
+
+    /**
+     * Greedily merge all cells equal to cellValue into rectangles of the given
+     * vertex color and add them to the builder as quads
+     * @return the number of rectangles emitted
+     */
+    public static int addRectangles(int[][] grid, int cellValue, ColorRGBA color, TileMeshBuilder builder) {
+        int width = grid.length;
+        int height = width > 0 ? grid[0].length : 0;
+        return addRectangles(grid, cellValue, color, 0, 0, width, height, builder);
+    }
+
+    /**
+     * Greedily merge the cells equal to cellValue in the region
+     * [minX, maxX) x [minZ, maxZ) into rectangles and add them to the builder
+     * @return the number of rectangles emitted
+     */
+    public static int addRectangles(int[][] grid, int cellValue, ColorRGBA color,
+                                    int minX, int minZ, int maxX, int maxZ, TileMeshBuilder builder) {
+        int width = maxX - minX;
+        int height = maxZ - minZ;
+        boolean[] consumed = new boolean[width * height];
+        int rectangles = 0;
+
+        for (int z = 0; z < height; z++) {
+            for (int x = 0; x < width; x++) {
+                if (consumed[z * width + x] || grid[minX + x][minZ + z] != cellValue) {
+                    continue;
+                }
+
+                // Grow along X
+                int runEnd = x + 1;
+                while (runEnd < width && !consumed[z * width + runEnd] && grid[minX + runEnd][minZ + z] == cellValue) {
+                    runEnd++;
+                }
+
+                // Grow along Z while the whole run matches
+                int rowEnd = z + 1;
+                while (rowEnd < height
+                        && rowMatches(grid, consumed, width, minX, minZ, x, runEnd, rowEnd, cellValue)) {
+                    rowEnd++;
+                }
+
+                for (int rz = z; rz < rowEnd; rz++) {
+                    for (int rx = x; rx < runEnd; rx++) {
+                        consumed[rz * width + rx] = true;
+                    }
+                }
+
+                // Cell (x, z) is centered on integer coordinates
+                builder.addQuad(minX + x - 0.5f, minZ + z - 0.5f, minX + runEnd - 0.5f, minZ + rowEnd - 0.5f, color);
+                rectangles++;
+            }
+        }
+        return rectangles;
+    }
+
+    private static boolean rowMatches(int[][] grid, boolean[] consumed, int width, int minX, int minZ,
+                                      int fromX, int toX, int z, int cellValue) {
+        for (int x = fromX; x < toX; x++) {
+            if (consumed[z * width + x] || grid[minX + x][minZ + z] != cellValue) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,159 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.asset.AssetManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bounded pool of dungeons generated ahead of time, keyed by dungeon seed.
+ *
+ * The overworld calls retain() with the seeds of the portals near the player,
+ * nearest first. Missing ones are queued on a single low-priority background
+ * thread; seeds that are no longer wanted are dropped (or cancelled if still
+ * queued), so at most the pool's capacity of layouts is held in memory.
+ * take() hands a layout (or its pending future) over when the player enters
+ * the portal.
+ *
+ * All methods must be called from the render thread; only generation runs on
+ * the worker.
+ */
+public class DungeonPool {
+
+    private final AssetManager assetManager;
+    private final int width;
+    private final int height;
+    private final int capacity;
+    private final ExecutorService worker;
+    private DungeonGenerator.Mode mode = DungeonGenerator.Mode.ROOMS;
+    private DungeonLayoutCache layoutCache;
+    private Runnable warmup;
+
+    // Pooled dungeons by seed, in the order they were requested
+    private final Map<Long, Future<DungeonLayout>> entries = new LinkedHashMap<>();
+
+    // Statistics
+    private long generated;
+    private long taken;
+    private long takenReady;
+    private long discarded;
+
+    public DungeonPool(AssetManager assetManager, int width, int height, int capacity) {
+        this.assetManager = assetManager;
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DungeonPool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public void setMode(DungeonGenerator.Mode mode) {
+        this.mode = mode;
+    }
+
+    public void setLayoutCache(DungeonLayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
+    /**
+     * Work to run once on the pool thread before the first dungeon, such as
+     * loading the assets of the combat scene
+     */
+    public void setWarmup(Runnable warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * Keep exactly these dungeons pooled (up to capacity, nearest first):
+     * queue the missing ones and discard everything else
+     */
+    public void retain(List<Long> seeds) {
+        List<Long> wanted = seeds.size() > capacity ? seeds.subList(0, capacity) : seeds;
+
+        Iterator<Map.Entry<Long, Future<DungeonLayout>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Future<DungeonLayout>> entry = it.next();
+            if (!wanted.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                it.remove();
+                discarded++;
+            }
+        }
+
+        if (warmup != null && !wanted.isEmpty()) {
+            worker.submit(warmup);
+            warmup = null;
+        }
+        for (Long seed : wanted) {
+            if (!entries.containsKey(seed)) {
+                entries.put(seed, worker.submit(() -> generate(seed)));
+            }
+        }
+    }
+
+    private DungeonLayout generate(long seed) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, seed);
+        generator.setMode(mode);
+        generator.setLayoutCache(layoutCache);
+        DungeonLayout layout = generator.generateLayout(width, height);
+        synchronized (this) {
+            generated++;
+        }
+        return layout;
+    }
+
+    /**
+     * Remove a dungeon from the pool for entering it
+     * @return the layout's future (possibly still running), or null if the
+     *         seed was never requested
+     */
+    public Future<DungeonLayout> take(long seed) {
+        Future<DungeonLayout> future = entries.remove(seed);
+        if (future != null) {
+            taken++;
+            if (future.isDone()) {
+                takenReady++;
+            }
+        }
+        return future;
+    }
+
+    /**
+     * @return whether the dungeon for this seed is generated and waiting
+     */
+    public boolean isReady(long seed) {
+        Future<DungeonLayout> future = entries.get(seed);
+        return future != null && future.isDone() && !future.isCancelled();
+    }
+
+    public int getPooledCount() {
+        return entries.size();
+    }
+
+    /**
+     * Drop every pooled dungeon and stop the worker once it is idle. Futures
+     * already handed out by take() still complete.
+     */
+    public void cleanup() {
+        for (Future<DungeonLayout> future : entries.values()) {
+            future.cancel(false);
+        }
+        discarded += entries.size();
+        entries.clear();
+        worker.shutdown();
+    }
+
+    public synchronized String getStatsSummary() {
+        return String.format("Dungeon pool: %d generated, %d entered (%d ready), %d discarded, %d pooled",
+            generated, taken, takenReady, discarded, entries.size());
+    }
+}
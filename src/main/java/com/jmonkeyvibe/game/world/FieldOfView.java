@@ -0,0 +1,264 @@
+package com.jmonkeyvibe.game.world;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Player field of view over a CollisionGrid, by recursive shadowcasting.
+ *
+ * Each of the 8 octants around the viewer is scanned row by row outwards;
+ * a wall shadows the slopes behind it, and the scan recurses into the gap
+ * left of each wall run, so every cell within the radius is visited at
+ * most once and cells in shadow are never visited at all. Walls that are
+ * lit are visible themselves.
+ *
+ * The field is recomputed only when the viewer moves to another cell (or
+ * after invalidate()). Visible cells carry a generation stamp, and every
+ * cell whose visibility changed in the last recompute is listed, so a
+ * fog-of-war overlay only has to redraw those.
+ */
+public class FieldOfView {
+
+    // Octant transforms: row offset (dx, dz) maps to (dx * xx + dz * xy, dx * zx + dz * zz)
+    private static final int[][] OCTANTS = {
+        {1, 0, 0, 1}, {0, 1, 1, 0}, {0, -1, 1, 0}, {-1, 0, 0, 1},
+        {-1, 0, 0, -1}, {0, -1, -1, 0}, {0, 1, -1, 0}, {1, 0, 0, -1}
+    };
+
+    private final CollisionGrid grid;
+    private final int width;
+    private final int height;
+    private final int radius;
+
+    // Cells visible in the current field have stamp == currentStamp
+    private final int[] stamp;
+    private int currentStamp = 1;
+    private final BitSet explored;
+
+    // Cells visible now and in the previous field (z * width + x)
+    private int[] visibleCells = new int[256];
+    private int visibleCount = 0;
+    private int[] previousCells = new int[256];
+    private int previousCount = 0;
+
+    // Cells whose visibility changed in the last recompute
+    private int[] changedCells = new int[256];
+    private int changedCount = 0;
+
+    private int viewerX = Integer.MIN_VALUE;
+    private int viewerZ = Integer.MIN_VALUE;
+    private boolean dirty = true;
+
+    // Statistics
+    private long recomputes;
+    private long cellsVisited;
+
+    public FieldOfView(CollisionGrid grid, int radius) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.radius = radius;
+        this.stamp = new int[width * height];
+        this.explored = new BitSet(width * height);
+    }
+
+    /**
+     * Center the field on the cell containing a world position, recomputing
+     * it if that cell changed or the field was invalidated
+     * @return true if the field was recomputed
+     */
+    public boolean update(float x, float z) {
+        int cellX = Math.round(x);
+        int cellZ = Math.round(z);
+        if (!dirty && cellX == viewerX && cellZ == viewerZ) {
+            return false;
+        }
+        recompute(cellX, cellZ);
+        return true;
+    }
+
+    /**
+     * Force a recompute on the next update(), e.g. after walls changed
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    private void recompute(int cellX, int cellZ) {
+        viewerX = cellX;
+        viewerZ = cellZ;
+        dirty = false;
+        recomputes++;
+
+        // The current field becomes the previous one
+        int[] swap = previousCells;
+        previousCells = visibleCells;
+        previousCount = visibleCount;
+        visibleCells = swap;
+        visibleCount = 0;
+        changedCount = 0;
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 2;
+            for (int i = 0; i < previousCount; i++) {
+                stamp[previousCells[i]] = 1;
+            }
+        }
+
+        markVisible(cellX, cellZ);
+        for (int[] octant : OCTANTS) {
+            castLight(cellX, cellZ, 1, 1.0f, 0.0f, octant[0], octant[1], octant[2], octant[3]);
+        }
+
+        // Cells that were visible before but not now
+        for (int i = 0; i < previousCount; i++) {
+            int cell = previousCells[i];
+            if (stamp[cell] != currentStamp) {
+                addChanged(cell);
+            }
+        }
+    }
+
+    /**
+     * Scan one octant from row outwards between two slopes (1 = the
+     * octant's diagonal edge, 0 = its axis)
+     */
+    private void castLight(int originX, int originZ, int row, float start, float end,
+                           int xx, int xy, int zx, int zz) {
+        if (start < end) {
+            return;
+        }
+        int radiusSquared = radius * radius;
+        float newStart = 0f;
+        for (int distance = row; distance <= radius; distance++) {
+            boolean blocked = false;
+            int dz = -distance;
+            for (int dx = -distance; dx <= 0; dx++) {
+                float leftSlope = (dx - 0.5f) / (dz + 0.5f);
+                float rightSlope = (dx + 0.5f) / (dz - 0.5f);
+                if (start < rightSlope) {
+                    continue;
+                }
+                if (end > leftSlope) {
+                    break;
+                }
+
+                int x = originX + dx * xx + dz * xy;
+                int z = originZ + dx * zx + dz * zz;
+                cellsVisited++;
+                if (dx * dx + dz * dz <= radiusSquared) {
+                    markVisible(x, z);
+                }
+
+                boolean opaque = !grid.isWalkable(x, z);
+                if (blocked) {
+                    if (opaque) {
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else if (opaque && distance < radius) {
+                    // A wall run starts: light the gap before it, then skip it
+                    blocked = true;
+                    castLight(originX, originZ, distance + 1, start, leftSlope, xx, xy, zx, zz);
+                    newStart = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+
+    private void markVisible(int x, int z) {
+        if ((x | z) < 0 || x >= width || z >= height) {
+            return;
+        }
+        int cell = z * width + x;
+        if (stamp[cell] == currentStamp) {
+            return;
+        }
+        // Not visible in the previous field either: it just came into view
+        if (stamp[cell] != currentStamp - 1) {
+            addChanged(cell);
+        }
+        stamp[cell] = currentStamp;
+        explored.set(cell);
+        if (visibleCount == visibleCells.length) {
+            visibleCells = Arrays.copyOf(visibleCells, visibleCount * 2);
+        }
+        visibleCells[visibleCount++] = cell;
+    }
+
+    private void addChanged(int cell) {
+        if (changedCount == changedCells.length) {
+            changedCells = Arrays.copyOf(changedCells, changedCount * 2);
+        }
+        changedCells[changedCount++] = cell;
+    }
+
+    public boolean isVisible(int x, int z) {
+        if ((x | z) < 0 || x >= width || z >= height) {
+            return false;
+        }
+        return stamp[z * width + x] == currentStamp;
+    }
+
+    /**
+     * Check the cell containing a world position
+     */
+    public boolean isVisible(float x, float z) {
+        return isVisible(Math.round(x), Math.round(z));
+    }
+
+    /**
+     * @return whether a cell has ever been visible
+     */
+    public boolean isExplored(int x, int z) {
+        if ((x | z) < 0 || x >= width || z >= height) {
+            return false;
+        }
+        return explored.get(z * width + x);
+    }
+
+    /**
+     * @return the first explored cell (z * width + x) at or after a cell,
+     *         or -1 if there is none
+     */
+    public int nextExploredCell(int fromCell) {
+        return explored.nextSetBit(fromCell);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return how many cells came into or went out of view in the last recompute
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * @return a cell that changed visibility in the last recompute, as z * width + x
+     */
+    public int getChangedCell(int index) {
+        return changedCells[index];
+    }
+
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    public String getStatsSummary() {
+        return String.format("Field of view: %d recomputes, %d cells visited, %d cells explored",
+            recomputes, cellsVisited, explored.cardinality());
+    }
+}
@@ -0,0 +1,151 @@
+package com.jmonkeyvibe.game.world;
+
+import java.util.Arrays;
+
+/**
+ * Reachability check and repair for a dungeon's floor, in time linear in
+ * the grid size.
+ *
+ * countUnreachable() flood fills the floor from a start cell. repair()
+ * additionally connects every pocket of floor the fill did not reach: one
+ * breadth-first pass from the reached floor over all cells (rock included)
+ * records the shortest way back from every cell, then each pocket is joined
+ * by carving the cells along that way from its first cell and flooded in
+ * turn, so no cell is filled more than once.
+ *
+ * Works on the bit-packed grid the generator carves into (walkable = floor);
+ * breakable walls are not floor, so it runs before they are marked.
+ */
+public final class FloorConnectivity {
+
+    private FloorConnectivity() {
+    }
+
+    /**
+     * @return the number of floor cells not connected to (startX, startZ);
+     *         all of them if the start is not floor
+     */
+    public static int countUnreachable(CollisionGrid floor, int startX, int startZ) {
+        int width = floor.getWidth();
+        int height = floor.getHeight();
+        boolean[] reached = new boolean[width * height];
+        int[] queue = new int[width * height];
+        int count = floor.isWalkable(startX, startZ) ? fill(floor, reached, queue, startZ * width + startX) : 0;
+        return countFloor(floor) - count;
+    }
+
+    /**
+     * Connect every floor cell to (startX, startZ) by carving the shortest
+     * ways from unreached pockets of floor to the reached floor
+     * @return the number of pockets connected
+     */
+    public static int repair(CollisionGrid floor, int startX, int startZ) {
+        if (!floor.isWalkable(startX, startZ)) {
+            return 0;
+        }
+        int width = floor.getWidth();
+        int height = floor.getHeight();
+        int cells = width * height;
+        boolean[] reached = new boolean[cells];
+        int[] queue = new int[cells];
+        int reachedCount = fill(floor, reached, queue, startZ * width + startX);
+        if (reachedCount == countFloor(floor)) {
+            return 0;
+        }
+
+        // Way back to the reached floor from every cell: the neighbour one step closer
+        int[] next = new int[cells];
+        Arrays.fill(next, -1);
+        int tail = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (reached[cell]) {
+                next[cell] = cell;
+                queue[tail++] = cell;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int x = cell % width;
+            int z = cell / width;
+            if (x > 0 && next[cell - 1] < 0) {
+                next[cell - 1] = cell;
+                queue[tail++] = cell - 1;
+            }
+            if (x + 1 < width && next[cell + 1] < 0) {
+                next[cell + 1] = cell;
+                queue[tail++] = cell + 1;
+            }
+            if (z > 0 && next[cell - width] < 0) {
+                next[cell - width] = cell;
+                queue[tail++] = cell - width;
+            }
+            if (z + 1 < height && next[cell + width] < 0) {
+                next[cell + width] = cell;
+                queue[tail++] = cell + width;
+            }
+        }
+
+        int pockets = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (reached[cell] || !floor.isWalkable(cell % width, cell / width)) {
+                continue;
+            }
+            // Carve back to reached floor, then take in everything now connected
+            for (int way = cell; !reached[way]; way = next[way]) {
+                floor.setWalkable(way % width, way / width, true);
+            }
+            fill(floor, reached, queue, cell);
+            pockets++;
+        }
+        return pockets;
+    }
+
+    /**
+     * Flood fill unreached floor from a cell, marking it reached
+     * @return the number of cells marked
+     */
+    private static int fill(CollisionGrid floor, boolean[] reached, int[] queue, int start) {
+        int width = floor.getWidth();
+        int height = floor.getHeight();
+        if (reached[start]) {
+            return 0;
+        }
+        reached[start] = true;
+        queue[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int x = cell % width;
+            int z = cell / width;
+            if (x > 0 && !reached[cell - 1] && floor.isWalkable(x - 1, z)) {
+                reached[cell - 1] = true;
+                queue[tail++] = cell - 1;
+            }
+            if (x + 1 < width && !reached[cell + 1] && floor.isWalkable(x + 1, z)) {
+                reached[cell + 1] = true;
+                queue[tail++] = cell + 1;
+            }
+            if (z > 0 && !reached[cell - width] && floor.isWalkable(x, z - 1)) {
+                reached[cell - width] = true;
+                queue[tail++] = cell - width;
+            }
+            if (z + 1 < height && !reached[cell + width] && floor.isWalkable(x, z + 1)) {
+                reached[cell + width] = true;
+                queue[tail++] = cell + width;
+            }
+        }
+        return tail;
+    }
+
+    private static int countFloor(CollisionGrid floor) {
+        int count = 0;
+        for (int z = 0; z < floor.getHeight(); z++) {
+            for (int x = 0; x < floor.getWidth(); x++) {
+                if (floor.isWalkable(x, z)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
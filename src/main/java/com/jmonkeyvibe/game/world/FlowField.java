@@ -0,0 +1,267 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.math.Vector3f;
+
+/**
+ * Breadth-first distance field over a CollisionGrid, rooted at one goal cell
+ * (the player), that every enemy can follow.
+ *
+ * The field is rebuilt only when the goal moves to another cell or after a
+ * wall was added. Each rebuild is a single BFS whose cost is proportional to
+ * the cells it reaches (at most maxDistance steps from the goal): cells are
+ * marked with a generation stamp instead of clearing the arrays. Opening a
+ * wall only lowers distances, so cellOpened() repairs the field in place.
+ *
+ * getDirection() looks at the 8 neighbours of a cell and steers towards the
+ * one closest to the goal, never cutting a wall corner, so reading a step
+ * is O(1) however many enemies there are.
+ *
+ * A field built with a ClearanceMap and a size class only spreads through
+ * cells with at least that much clearance, so it leads entities of that
+ * size around gaps they do not fit through. The goal cell itself is always
+ * included: the player may stand where a large enemy cannot, and the enemy
+ * should still come as close as it fits.
+ */
+public class FlowField {
+
+    /** Distance of cells that are walls or not reached */
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static final int[] NEIGHBOUR_X = {1, -1, 0, 0};
+    private static final int[] NEIGHBOUR_Z = {0, 0, 1, -1};
+
+    private final CollisionGrid grid;
+    private final ClearanceMap clearanceMap;
+    private final float sizeClass;
+    private final int width;
+    private final int height;
+
+    // Distance per cell (row-major), valid only where stamp == currentStamp
+    private final int[] distance;
+    private final int[] stamp;
+    private final int[] queue;
+    private int currentStamp = 0;
+
+    private int goalX = Integer.MIN_VALUE;
+    private int goalZ = Integer.MIN_VALUE;
+    private boolean dirty = true;
+    private int maxDistance = UNREACHED;
+
+    // Statistics
+    private long rebuilds;
+    private long repairs;
+    private long cellsVisited;
+
+    public FlowField(CollisionGrid grid) {
+        this(grid, null, 0f);
+    }
+
+    /**
+     * @param clearanceMap clearance of the grid's cells, or null to use every
+     *                     walkable cell
+     * @param sizeClass    clearance a cell needs to be part of the field (see
+     *                     ClearanceMap.sizeClass)
+     */
+    public FlowField(CollisionGrid grid, ClearanceMap clearanceMap, float sizeClass) {
+        this.grid = grid;
+        this.clearanceMap = clearanceMap;
+        this.sizeClass = sizeClass;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.distance = new int[width * height];
+        this.stamp = new int[width * height];
+        this.queue = new int[width * height];
+    }
+
+    /**
+     * Limit the field to cells at most this many steps from the goal; cells
+     * further away report no direction
+     */
+    public void setMaxDistance(int maxDistance) {
+        this.maxDistance = maxDistance;
+        dirty = true;
+    }
+
+    /**
+     * Root the field at the cell containing a world position, rebuilding it
+     * if that cell changed or a wall was added since the last rebuild
+     * @return true if the field was rebuilt
+     */
+    public boolean update(float x, float z) {
+        int cellX = Math.round(x);
+        int cellZ = Math.round(z);
+        if (!dirty && cellX == goalX && cellZ == goalZ) {
+            return false;
+        }
+        rebuild(cellX, cellZ);
+        return true;
+    }
+
+    private void rebuild(int cellX, int cellZ) {
+        goalX = cellX;
+        goalZ = cellZ;
+        dirty = false;
+        rebuilds++;
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+        if (!grid.isWalkable(cellX, cellZ)) {
+            return;
+        }
+        int goal = cellZ * width + cellX;
+        distance[goal] = 0;
+        stamp[goal] = currentStamp;
+        queue[0] = goal;
+        propagate(1);
+    }
+
+    /**
+     * Breadth-first relaxation of the cells in queue[0..tail), lowering the
+     * distance of any neighbour that can be reached in fewer steps
+     */
+    private void propagate(int tail) {
+        int head = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = distance[cell] + 1;
+            if (next > maxDistance) {
+                continue;
+            }
+            cellsVisited++;
+            int x = cell % width;
+            int z = cell / width;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + NEIGHBOUR_X[d];
+                int nz = z + NEIGHBOUR_Z[d];
+                if (!isPassable(nx, nz)) {
+                    continue;
+                }
+                int neighbour = nz * width + nx;
+                if (stamp[neighbour] != currentStamp || distance[neighbour] > next) {
+                    stamp[neighbour] = currentStamp;
+                    distance[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    /**
+     * A wall cell became walkable (call after updating the grid and the
+     * clearance map). Distances can only shrink, so they are repaired from
+     * that cell outwards; fields for entities wider than a cell are rebuilt
+     * on the next update() instead.
+     */
+    public void cellOpened(int x, int z) {
+        if (clearanceMap != null && sizeClass > ClearanceMap.sizeClass(0f)) {
+            // The clearance around the cell grew too, so cells other than the
+            // opened one may have joined the field
+            dirty = true;
+            return;
+        }
+        if (dirty || !isPassable(x, z)) {
+            return;
+        }
+        int best = UNREACHED;
+        for (int d = 0; d < 4; d++) {
+            best = Math.min(best, getDistance(x + NEIGHBOUR_X[d], z + NEIGHBOUR_Z[d]));
+        }
+        if (best == UNREACHED || best + 1 > maxDistance) {
+            return;
+        }
+        int cell = z * width + x;
+        if (stamp[cell] == currentStamp && distance[cell] <= best + 1) {
+            return;
+        }
+        repairs++;
+        stamp[cell] = currentStamp;
+        distance[cell] = best + 1;
+        queue[0] = cell;
+        propagate(1);
+    }
+
+    /**
+     * A walkable cell became a wall (call after updating the grid). Paths
+     * through it get longer, so the field is rebuilt on the next update().
+     */
+    public void cellClosed(int x, int z) {
+        dirty = true;
+    }
+
+    /**
+     * @return the number of steps from a cell to the goal, or UNREACHED
+     */
+    public int getDistance(int x, int z) {
+        if (x < 0 || x >= width || z < 0 || z >= height) {
+            return UNREACHED;
+        }
+        int cell = z * width + x;
+        return stamp[cell] == currentStamp ? distance[cell] : UNREACHED;
+    }
+
+    /**
+     * Direction from a world position towards the neighbouring cell closest
+     * to the goal
+     * @param store receives the normalized direction (y = 0)
+     * @return false if the position is in the goal cell or not reached by
+     *         the field, in which case store is left unchanged
+     */
+    public boolean getDirection(float x, float z, Vector3f store) {
+        int cellX = Math.round(x);
+        int cellZ = Math.round(z);
+        int best = getDistance(cellX, cellZ);
+        if (best == UNREACHED || best == 0) {
+            return false;
+        }
+        int bestX = 0;
+        int bestZ = 0;
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (dx == 0 && dz == 0) {
+                    continue;
+                }
+                // Diagonal steps must not cut the corner of a wall
+                if (dx != 0 && dz != 0
+                        && (!isPassable(cellX + dx, cellZ) || !isPassable(cellX, cellZ + dz))) {
+                    continue;
+                }
+                int neighbour = getDistance(cellX + dx, cellZ + dz);
+                if (neighbour < best) {
+                    best = neighbour;
+                    bestX = dx;
+                    bestZ = dz;
+                }
+            }
+        }
+        if (bestX == 0 && bestZ == 0) {
+            return false;
+        }
+        store.set(cellX + bestX - x, 0, cellZ + bestZ - z).normalizeLocal();
+        return true;
+    }
+
+    /**
+     * @return true if the field may spread through a cell
+     */
+    private boolean isPassable(int x, int z) {
+        return grid.isWalkable(x, z) && (clearanceMap == null || clearanceMap.getClearance(x, z) >= sizeClass);
+    }
+
+    public float getSizeClass() {
+        return sizeClass;
+    }
+
+    public int getGoalX() {
+        return goalX;
+    }
+
+    public int getGoalZ() {
+        return goalZ;
+    }
+
+    public String getStatsSummary() {
+        return String.format("Flow field: %d rebuilds, %d repairs, %d cells visited", rebuilds, repairs, cellsVisited);
+    }
+}
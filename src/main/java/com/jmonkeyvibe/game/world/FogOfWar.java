@@ -0,0 +1,136 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fog-of-war overlay for a dungeon: one texel per cell in a single texture,
+ * drawn on a quad just above the floor.
+ *
+ * Unexplored cells are black, explored cells out of view are dimmed and
+ * visible cells are clear. After the FieldOfView recomputes, apply() only
+ * rewrites the texels of the cells whose visibility changed in the CPU-side
+ * buffer. jME has no partial texture update, so the GPU copy is still
+ * uploaded whole (4 bytes per cell: 6.4 KB at 40x40, 1 MB at 512x512), but
+ * at most once per recompute, on the next render.
+ */
+public class FogOfWar {
+
+    private static final float FOG_HEIGHT = 0.05f;
+    private static final byte UNEXPLORED_ALPHA = (byte) 255;
+    private static final byte EXPLORED_ALPHA = (byte) 150;
+    private static final byte VISIBLE_ALPHA = 0;
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer data;
+    private final Image image;
+    private final Geometry geometry;
+
+    // Statistics
+    private long texelsWritten;
+    private long uploads;
+
+    public FogOfWar(AssetManager assetManager, int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        // Black everywhere, fully opaque until explored
+        data = BufferUtils.createByteBuffer(width * height * 4);
+        for (int i = 0; i < width * height; i++) {
+            data.put((byte) 0).put((byte) 0).put((byte) 0).put(UNEXPLORED_ALPHA);
+        }
+        data.flip();
+        image = new Image(Image.Format.RGBA8, width, height, data, ColorSpace.Linear);
+        Texture2D texture = new Texture2D(image);
+        texture.setMagFilter(Texture.MagFilter.Bilinear);
+        texture.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+        texture.setWrap(Texture.WrapMode.EdgeClamp);
+
+        Material material = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setTexture("ColorMap", texture);
+        material.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
+        material.getAdditionalRenderState().setDepthWrite(false);
+
+        geometry = new Geometry("FogOfWar", createMesh());
+        geometry.setMaterial(material);
+        geometry.setQueueBucket(RenderQueue.Bucket.Transparent);
+    }
+
+    /**
+     * One quad over the whole grid; texel (x, z) covers cell (x, z)
+     */
+    private Mesh createMesh() {
+        float x0 = -0.5f;
+        float z0 = -0.5f;
+        float x1 = width - 0.5f;
+        float z1 = height - 0.5f;
+
+        // Same vertex order as TileMeshBuilder (normal +Y)
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, new float[]{
+            x0, FOG_HEIGHT, z1,
+            x1, FOG_HEIGHT, z1,
+            x1, FOG_HEIGHT, z0,
+            x0, FOG_HEIGHT, z0
+        });
+        mesh.setBuffer(VertexBuffer.Type.TexCoord, 2, new float[]{
+            0, 1,
+            1, 1,
+            1, 0,
+            0, 0
+        });
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, new short[]{0, 1, 2, 0, 2, 3});
+        mesh.updateBound();
+        return mesh;
+    }
+
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Redraw the cells whose visibility changed in the field's last recompute
+     */
+    public void apply(FieldOfView fieldOfView) {
+        int changed = fieldOfView.getChangedCount();
+        if (changed == 0) {
+            return;
+        }
+        for (int i = 0; i < changed; i++) {
+            int cell = fieldOfView.getChangedCell(i);
+            int x = cell % width;
+            int z = cell / width;
+            byte alpha;
+            if (fieldOfView.isVisible(x, z)) {
+                alpha = VISIBLE_ALPHA;
+            } else if (fieldOfView.isExplored(x, z)) {
+                alpha = EXPLORED_ALPHA;
+            } else {
+                alpha = UNEXPLORED_ALPHA;
+            }
+            data.put(cell * 4 + 3, alpha);
+        }
+        texelsWritten += changed;
+        // Re-uploads the whole texture, once per recompute
+        image.setUpdateNeeded();
+        uploads++;
+    }
+
+    public String getStatsSummary() {
+        return String.format("Fog of war: %dx%d texture, %d texels written, %d uploads",
+            width, height, texelsWritten, uploads);
+    }
+}
@@ -0,0 +1,488 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Torch lighting for a dungeon, baked on the CPU into one texel per cell and
+ * drawn as a quad that multiplies the floor and walls below it (modulate
+ * blending), so any number of lights costs one draw call and no jME lights.
+ *
+ * Each Light floods outwards from its cell over the CollisionGrid, with
+ * chamfer steps (2 half-cells orthogonally, 3 diagonally, never cutting a
+ * wall corner) so its pool of light is roughly round. Walls are lit but
+ * stop the flood. A light's field is kept in its own (2 * radius + 1)^2
+ * array; a cell's brightness is the brightest field covering it.
+ *
+ * Nothing is recomputed until update(): a light that moved to another cell,
+ * was added or removed, or had a wall change inside its radius is flooded
+ * again, and only the cells it covered before and covers now are
+ * recombined from the lights overlapping them (found through a bucket
+ * grid). Only texels whose brightness changed are rewritten in the
+ * CPU-side buffer. jME has no partial texture update, so the GPU copy is
+ * still uploaded whole (4 bytes per cell), but at most once per update()
+ * that changed a texel, however many lights it recomputed.
+ */
+public class LightMap {
+
+    private static final float LIGHT_HEIGHT = 0.03f;
+    private static final float AMBIENT = 0.35f;
+    private static final int BUCKET_SIZE = 16;
+    private static final int ORTHOGONAL_COST = 2;
+    private static final int DIAGONAL_COST = 3;
+
+    private static final int[] STEP_X = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] STEP_Z = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    /**
+     * A point light; move it with setPosition() and remove it with
+     * LightMap.removeLight()
+     */
+    public final class Light {
+        private final int radius;
+        private final int size;
+        // Brightness 0..255 per cell of the light's square, local z * size + x
+        private final int[] field;
+        private int cellX;
+        private int cellZ;
+        private boolean dirty;
+        private boolean removed;
+        // Square the field was last combined into the map at, if any
+        private boolean placed;
+        private int placedX;
+        private int placedZ;
+        private int visitStamp;
+
+        private Light(int cellX, int cellZ, int radius) {
+            this.cellX = cellX;
+            this.cellZ = cellZ;
+            this.radius = radius;
+            this.size = 2 * radius + 1;
+            this.field = new int[size * size];
+        }
+
+        /**
+         * Move the light to the cell containing a world position; it is only
+         * flooded again (on the next update) if that cell changed
+         */
+        public void setPosition(float x, float z) {
+            int newX = Math.round(x);
+            int newZ = Math.round(z);
+            if (newX != cellX || newZ != cellZ) {
+                cellX = newX;
+                cellZ = newZ;
+                markDirty(this);
+            }
+        }
+
+        public int getRadius() {
+            return radius;
+        }
+    }
+
+    private final CollisionGrid grid;
+    private final int width;
+    private final int height;
+    // Combined brightness per cell, row-major
+    private final int[] brightness;
+    private final ByteBuffer data;
+    private final Image image;
+    private final Geometry geometry;
+    private final byte[][] texelColors = new byte[256][];
+
+    private final List<Light> lights = new ArrayList<>();
+    private final List<Light> dirtyLights = new ArrayList<>();
+    private final List<List<Light>> buckets = new ArrayList<>();
+    private final int bucketsX;
+    private final int bucketsZ;
+    private int currentVisit = 0;
+
+    // Scratch space for flooding and combining
+    private int[] cost = new int[0];
+    private int[] head = new int[0];
+    // Bucket queue entries: a cell and the next entry of the same cost
+    private int[] entryCell = new int[0];
+    private int[] entryNext = new int[0];
+    private int[] combined = new int[0];
+
+    // Statistics
+    private long floods;
+    private long cellsFlooded;
+    private long cellsCombined;
+    private long texelsWritten;
+    private long uploads;
+
+    public LightMap(AssetManager assetManager, CollisionGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.brightness = new int[width * height];
+        this.bucketsX = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        this.bucketsZ = (height + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        for (int i = 0; i < bucketsX * bucketsZ; i++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        // Warm light over a neutral ambient level
+        for (int level = 0; level < 256; level++) {
+            float lit = (1f - AMBIENT) * level / 255f;
+            texelColors[level] = new byte[]{
+                (byte) (255 * (AMBIENT + lit)),
+                (byte) (255 * (AMBIENT + lit * 0.85f)),
+                (byte) (255 * (AMBIENT + lit * 0.6f)),
+                (byte) 255
+            };
+        }
+
+        // Ambient everywhere until lights are added
+        data = BufferUtils.createByteBuffer(width * height * 4);
+        for (int i = 0; i < width * height; i++) {
+            data.put(texelColors[0]);
+        }
+        data.flip();
+        image = new Image(Image.Format.RGBA8, width, height, data, ColorSpace.Linear);
+        Texture2D texture = new Texture2D(image);
+        texture.setMagFilter(Texture.MagFilter.Bilinear);
+        texture.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+        texture.setWrap(Texture.WrapMode.EdgeClamp);
+
+        Material material = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setTexture("ColorMap", texture);
+        material.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Modulate);
+        material.getAdditionalRenderState().setDepthWrite(false);
+
+        geometry = new Geometry("LightMap", createMesh());
+        geometry.setMaterial(material);
+        geometry.setQueueBucket(RenderQueue.Bucket.Transparent);
+    }
+
+    /**
+     * One quad over the whole grid; texel (x, z) covers cell (x, z)
+     */
+    private Mesh createMesh() {
+        float x0 = -0.5f;
+        float z0 = -0.5f;
+        float x1 = width - 0.5f;
+        float z1 = height - 0.5f;
+
+        // Same vertex order as TileMeshBuilder (normal +Y)
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, new float[]{
+            x0, LIGHT_HEIGHT, z1,
+            x1, LIGHT_HEIGHT, z1,
+            x1, LIGHT_HEIGHT, z0,
+            x0, LIGHT_HEIGHT, z0
+        });
+        mesh.setBuffer(VertexBuffer.Type.TexCoord, 2, new float[]{
+            0, 1,
+            1, 1,
+            1, 0,
+            0, 0
+        });
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, new short[]{0, 1, 2, 0, 2, 3});
+        mesh.updateBound();
+        return mesh;
+    }
+
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Add a light reaching radius cells from the cell containing a world position
+     */
+    public Light addLight(float x, float z, int radius) {
+        Light light = new Light(Math.round(x), Math.round(z), radius);
+        lights.add(light);
+        markDirty(light);
+        return light;
+    }
+
+    public void removeLight(Light light) {
+        if (!light.removed) {
+            light.removed = true;
+            lights.remove(light);
+            markDirty(light);
+        }
+    }
+
+    /**
+     * A cell turned from wall to floor or back (call after updating the
+     * grid); lights that reach it are flooded again on the next update
+     */
+    public void cellChanged(int x, int z) {
+        if ((x | z) < 0 || x >= width || z >= height) {
+            return;
+        }
+        for (Light light : buckets.get((z / BUCKET_SIZE) * bucketsX + x / BUCKET_SIZE)) {
+            if (Math.abs(x - light.placedX) <= light.radius && Math.abs(z - light.placedZ) <= light.radius) {
+                markDirty(light);
+            }
+        }
+    }
+
+    private void markDirty(Light light) {
+        if (!light.dirty) {
+            light.dirty = true;
+            dirtyLights.add(light);
+        }
+    }
+
+    /**
+     * Flood the lights that changed and rewrite the texels they affect
+     * @return true if any light changed
+     */
+    public boolean update() {
+        if (dirtyLights.isEmpty()) {
+            return false;
+        }
+        long written = texelsWritten;
+        for (Light light : dirtyLights) {
+            light.dirty = false;
+            int oldX = light.placedX;
+            int oldZ = light.placedZ;
+            boolean wasPlaced = light.placed;
+            if (wasPlaced) {
+                setBuckets(light, false);
+                light.placed = false;
+            }
+            if (!light.removed) {
+                flood(light);
+                light.placedX = light.cellX;
+                light.placedZ = light.cellZ;
+                light.placed = true;
+                setBuckets(light, true);
+            }
+
+            int r = light.radius;
+            if (wasPlaced && light.placed && Math.abs(oldX - light.cellX) <= 2 * r
+                    && Math.abs(oldZ - light.cellZ) <= 2 * r) {
+                // Old and new squares overlap: combine their union once
+                combine(Math.min(oldX, light.cellX) - r, Math.min(oldZ, light.cellZ) - r,
+                        Math.max(oldX, light.cellX) + r, Math.max(oldZ, light.cellZ) + r);
+            } else {
+                if (wasPlaced) {
+                    combine(oldX - r, oldZ - r, oldX + r, oldZ + r);
+                }
+                if (light.placed) {
+                    combine(light.cellX - r, light.cellZ - r, light.cellX + r, light.cellZ + r);
+                }
+            }
+        }
+        dirtyLights.clear();
+        if (texelsWritten != written) {
+            // Re-uploads the whole texture, once for all the lights above
+            image.setUpdateNeeded();
+            uploads++;
+        }
+        return true;
+    }
+
+    /**
+     * Dijkstra over the light's square with a bucket queue (costs are small
+     * integers), converting the cost of every reached cell to a brightness
+     */
+    private void flood(Light light) {
+        floods++;
+        int size = light.size;
+        int cells = size * size;
+        int maxCost = ORTHOGONAL_COST * light.radius;
+        if (cost.length < cells) {
+            cost = new int[cells];
+            // A cell is queued at most once per neighbour, plus the start
+            entryCell = new int[cells * STEP_X.length + 1];
+            entryNext = new int[cells * STEP_X.length + 1];
+        }
+        if (head.length < maxCost + 1) {
+            head = new int[maxCost + 1];
+        }
+        Arrays.fill(cost, 0, cells, Integer.MAX_VALUE);
+        Arrays.fill(head, 0, maxCost + 1, -1);
+        Arrays.fill(light.field, 0);
+        if (!grid.isWalkable(light.cellX, light.cellZ)) {
+            return;
+        }
+
+        int originX = light.cellX - light.radius;
+        int originZ = light.cellZ - light.radius;
+        int start = light.radius * size + light.radius;
+        cost[start] = 0;
+        entryCell[0] = start;
+        entryNext[0] = -1;
+        head[0] = 0;
+        int entries = 1;
+        for (int c = 0; c <= maxCost; c++) {
+            for (int entry = head[c]; entry >= 0; entry = entryNext[entry]) {
+                int cell = entryCell[entry];
+                if (cost[cell] != c) {
+                    continue; // Reached more cheaply since it was queued
+                }
+                cellsFlooded++;
+                float t = (float) (maxCost - c) / maxCost;
+                light.field[cell] = (int) (255 * t * t);
+                int lx = cell % size;
+                int lz = cell / size;
+                int x = originX + lx;
+                int z = originZ + lz;
+                if (!grid.isWalkable(x, z)) {
+                    continue; // Lit, but light stops here
+                }
+                for (int d = 0; d < STEP_X.length; d++) {
+                    int nlx = lx + STEP_X[d];
+                    int nlz = lz + STEP_Z[d];
+                    if ((nlx | nlz) < 0 || nlx >= size || nlz >= size) {
+                        continue;
+                    }
+                    boolean diagonal = d >= 4;
+                    if (diagonal && (!grid.isWalkable(x + STEP_X[d], z) || !grid.isWalkable(x, z + STEP_Z[d]))) {
+                        continue;
+                    }
+                    int nextCost = c + (diagonal ? DIAGONAL_COST : ORTHOGONAL_COST);
+                    int neighbour = nlz * size + nlx;
+                    if (nextCost <= maxCost && nextCost < cost[neighbour]) {
+                        cost[neighbour] = nextCost;
+                        entryCell[entries] = neighbour;
+                        entryNext[entries] = head[nextCost];
+                        head[nextCost] = entries++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recompute the brightness of the cells in an inclusive rectangle from
+     * the lights overlapping it, and rewrite the texels that changed
+     */
+    private void combine(int minX, int minZ, int maxX, int maxZ) {
+        minX = Math.max(minX, 0);
+        minZ = Math.max(minZ, 0);
+        maxX = Math.min(maxX, width - 1);
+        maxZ = Math.min(maxZ, height - 1);
+        if (minX > maxX || minZ > maxZ) {
+            return;
+        }
+        int rectWidth = maxX - minX + 1;
+        int rectCells = rectWidth * (maxZ - minZ + 1);
+        if (combined.length < rectCells) {
+            combined = new int[rectCells];
+        }
+        Arrays.fill(combined, 0, rectCells, 0);
+
+        currentVisit++;
+        for (int bz = minZ / BUCKET_SIZE; bz <= maxZ / BUCKET_SIZE; bz++) {
+            for (int bx = minX / BUCKET_SIZE; bx <= maxX / BUCKET_SIZE; bx++) {
+                for (Light light : buckets.get(bz * bucketsX + bx)) {
+                    if (light.visitStamp == currentVisit) {
+                        continue;
+                    }
+                    light.visitStamp = currentVisit;
+                    addField(light, minX, minZ, maxX, maxZ, rectWidth);
+                }
+            }
+        }
+
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = minX; x <= maxX; x++) {
+                int cell = z * width + x;
+                int level = combined[(z - minZ) * rectWidth + x - minX];
+                if (brightness[cell] != level) {
+                    brightness[cell] = level;
+                    data.position(cell * 4);
+                    data.put(texelColors[level]);
+                    texelsWritten++;
+                }
+            }
+        }
+        data.rewind();
+        cellsCombined += rectCells;
+    }
+
+    /**
+     * Take the maximum of the combined brightness and a light's field over
+     * the part of the rectangle the light covers
+     */
+    private void addField(Light light, int minX, int minZ, int maxX, int maxZ, int rectWidth) {
+        int originX = light.placedX - light.radius;
+        int originZ = light.placedZ - light.radius;
+        int fromX = Math.max(minX, originX);
+        int fromZ = Math.max(minZ, originZ);
+        int toX = Math.min(maxX, originX + light.size - 1);
+        int toZ = Math.min(maxZ, originZ + light.size - 1);
+        for (int z = fromZ; z <= toZ; z++) {
+            int fieldRow = (z - originZ) * light.size - originX;
+            int rectRow = (z - minZ) * rectWidth - minX;
+            for (int x = fromX; x <= toX; x++) {
+                int level = light.field[fieldRow + x];
+                if (level > combined[rectRow + x]) {
+                    combined[rectRow + x] = level;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a light to (or remove it from) every bucket its placed square overlaps
+     */
+    private void setBuckets(Light light, boolean add) {
+        int minBX = Math.max(0, (light.placedX - light.radius) / BUCKET_SIZE);
+        int minBZ = Math.max(0, (light.placedZ - light.radius) / BUCKET_SIZE);
+        int maxBX = Math.min(bucketsX - 1, Math.max(0, light.placedX + light.radius) / BUCKET_SIZE);
+        int maxBZ = Math.min(bucketsZ - 1, Math.max(0, light.placedZ + light.radius) / BUCKET_SIZE);
+        for (int bz = minBZ; bz <= maxBZ; bz++) {
+            for (int bx = minBX; bx <= maxBX; bx++) {
+                List<Light> bucket = buckets.get(bz * bucketsX + bx);
+                if (add) {
+                    bucket.add(light);
+                } else {
+                    bucket.remove(light);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the brightness of a cell from 0 (ambient only) to 255
+     */
+    public int getBrightness(int x, int z) {
+        if ((x | z) < 0 || x >= width || z >= height) {
+            return 0;
+        }
+        return brightness[z * width + x];
+    }
+
+    public int getLightCount() {
+        return lights.size();
+    }
+
+    public long getTexelsWritten() {
+        return texelsWritten;
+    }
+
+    /**
+     * @return how many times the whole texture was marked for upload
+     */
+    public long getUploads() {
+        return uploads;
+    }
+
+    public String getStatsSummary() {
+        return String.format("Light map: %d lights, %d floods, %d cells flooded, %d cells combined, %d texels written, "
+            + "%d uploads", lights.size(), floods, cellsFlooded, cellsCombined, texelsWritten, uploads);
+    }
+}
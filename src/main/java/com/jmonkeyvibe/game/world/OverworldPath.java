@@ -0,0 +1,151 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.math.Vector3f;
+
+import java.util.ArrayDeque;
+
+/**
+ * A path request handed out by the OverworldPathfinder.
+ *
+ * The request starts out PENDING and is resolved over the next frames by
+ * OverworldPathfinder.update(). Once FOUND, the path holds the abstract route
+ * (cluster entrances) and is refined into tile-by-tile waypoints lazily, one
+ * segment at a time, as the caller walks it.
+ */
+public class OverworldPath {
+
+    public enum Status {
+        PENDING,
+        FOUND,
+        FAILED
+    }
+
+    private final OverworldPathfinder pathfinder;
+    private final int startX;
+    private final int startZ;
+    private final int goalX;
+    private final int goalZ;
+    private Status status = Status.PENDING;
+
+    // Abstract route: tile coordinates of the entrance nodes, start and goal included
+    private int[] routeX;
+    private int[] routeZ;
+    private int routeIndex;
+
+    // Refined waypoints of the current segment, as alternating x, z tile coordinates
+    private int[] segment;
+    private int segmentIndex;
+
+    // Request processing state (owned by the pathfinder)
+    int corridorIndex;
+    ArrayDeque<Long> missingClusters;
+    // Pathfinder's eviction count when missingClusters was computed
+    long corridorEvictions;
+
+    OverworldPath(OverworldPathfinder pathfinder, int startX, int startZ, int goalX, int goalZ) {
+        this.pathfinder = pathfinder;
+        this.startX = startX;
+        this.startZ = startZ;
+        this.goalX = goalX;
+        this.goalZ = goalZ;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isPending() {
+        return status == Status.PENDING;
+    }
+
+    public boolean isFound() {
+        return status == Status.FOUND;
+    }
+
+    public boolean isFailed() {
+        return status == Status.FAILED;
+    }
+
+    public Vector3f getGoal() {
+        return new Vector3f(goalX, 0, goalZ);
+    }
+
+    /**
+     * Stop processing this request; a cancelled path reports FAILED
+     */
+    public void cancel() {
+        status = Status.FAILED;
+    }
+
+    /**
+     * @return whether there are waypoints left to walk to
+     */
+    public boolean hasNextWaypoint() {
+        if (status != Status.FOUND) {
+            return false;
+        }
+        return (segment != null && segmentIndex < segment.length) || routeIndex < routeX.length - 1;
+    }
+
+    /**
+     * Get the next tile center to walk to, refining the next segment of the
+     * route if needed. If the terrain changed so the segment can no longer be
+     * walked, the path becomes FAILED and null is returned.
+     */
+    public Vector3f nextWaypoint(Vector3f store) {
+        while (segment == null || segmentIndex >= segment.length) {
+            if (status != Status.FOUND || routeIndex >= routeX.length - 1) {
+                return null;
+            }
+            segment = pathfinder.refineSegment(routeX[routeIndex], routeZ[routeIndex],
+                                               routeX[routeIndex + 1], routeZ[routeIndex + 1]);
+            segmentIndex = 0;
+            routeIndex++;
+            if (segment == null) {
+                status = Status.FAILED;
+                return null;
+            }
+        }
+        if (store == null) {
+            store = new Vector3f();
+        }
+        store.set(segment[segmentIndex], 0, segment[segmentIndex + 1]);
+        segmentIndex += 2;
+        return store;
+    }
+
+    /**
+     * Number of entrance nodes on the abstract route, start and goal included
+     */
+    public int getRouteLength() {
+        return routeX == null ? 0 : routeX.length;
+    }
+
+    int getStartX() {
+        return startX;
+    }
+
+    int getStartZ() {
+        return startZ;
+    }
+
+    int getGoalX() {
+        return goalX;
+    }
+
+    int getGoalZ() {
+        return goalZ;
+    }
+
+    void setFound(int[] routeX, int[] routeZ) {
+        this.routeX = routeX;
+        this.routeZ = routeZ;
+        this.routeIndex = 0;
+        this.segment = null;
+        this.status = Status.FOUND;
+    }
+
+    void setFailed() {
+        status = Status.FAILED;
+    }
+}
@@ -0,0 +1,943 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.math.Vector3f;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hierarchical pathfinding (HPA*) over the overworld tile data.
+ *
+ * The world is divided into clusters, one per chunk. Where two neighbouring
+ * clusters share a run of walkable border tiles, an entrance is placed (one in
+ * the middle of a short run, one at each end of a long run); each entrance is
+ * a pair of nodes, one on either side, joined by a cost-1 edge. Inside a
+ * cluster, every pair of entrance nodes is joined by an edge whose cost is the
+ * walking distance between them. Long routes are then found by A* over this
+ * small abstract graph instead of over every tile.
+ *
+ * The graph is updated incrementally: when the tile store reports a chunk as
+ * loaded or changed, only that cluster and the borders and edges of its four
+ * neighbours are rebuilt. Clusters a route needs but that were never streamed
+ * in are generated on demand along a corridor around the straight line
+ * between start and goal; their terrain is generated on a background thread
+ * and the request waits for it. Only the MAX_CLUSTERS most recently used
+ * clusters are kept; evicted ones are rebuilt from the tile store when a
+ * route needs them again.
+ *
+ * Routes are refined into tiles lazily, one abstract edge at a time, by a
+ * breadth-first search inside a single cluster; refined segments and whole
+ * abstract routes are cached. Requests are queued and resolved in update()
+ * within a fixed CPU budget per frame; an abstract search that runs out of
+ * budget is suspended and resumed on the next frame. Only one request at a
+ * time builds the missing clusters of its corridor; while it waits for
+ * terrain or runs out of budget doing so, it moves to the back of the queue
+ * and requests that need no new clusters (such as route cache hits) go
+ * ahead. Hundreds of NPCs can ask for paths without stalling a frame.
+ *
+ * Not thread-safe: use from the render thread only.
+ */
+public class OverworldPathfinder implements OverworldTileStore.ChunkListener {
+
+    /** Clusters are the streamed chunks, so graph updates follow chunk loads */
+    public static final int CLUSTER_SIZE = TileChunk.SIZE;
+
+    /** Border runs at least this long get an entrance at each end instead of one in the middle */
+    private static final int SPLIT_ENTRANCE_LENGTH = 6;
+
+    /** CPU time update() may spend per frame */
+    private static final long FRAME_BUDGET_NANOS = 2_000_000L;
+
+    /** Abstract search gives up after expanding this many nodes */
+    private static final int MAX_EXPANSIONS = 50_000;
+
+    /** Half-widths (in clusters) of the corridors searched around the straight line, widest last */
+    private static final int[] CORRIDOR_WIDTHS = {1, 4};
+
+    /** Requests that would need to generate more clusters than this fail */
+    private static final int MAX_CORRIDOR_CLUSTERS = 1024;
+
+    /** Clusters kept in the graph, least recently used evicted first; room for a few corridors */
+    private static final int MAX_CLUSTERS = 4096;
+
+    /** Evictions done per update even when the budget is spent, so the graph cannot outgrow MAX_CLUSTERS */
+    private static final int MIN_EVICTIONS_PER_UPDATE = 16;
+
+    private static final int MAX_SEGMENTS_PER_CLUSTER = 256;
+    private static final int MAX_CACHED_ROUTES = 512;
+
+    private static final int EAST = 0;
+    private static final int WEST = 1;
+    private static final int NORTH = 2;
+    private static final int SOUTH = 3;
+    private static final int[] DIRECTION_X = {1, -1, 0, 0};
+    private static final int[] DIRECTION_Z = {0, 0, 1, -1};
+
+    private final OverworldTileStore tileStore;
+    // Clusters in least recently used order
+    private final LinkedHashMap<Long, Cluster> clusters = new LinkedHashMap<>(MAX_CLUSTERS * 2, 0.75f, true);
+    // Chunks reported by the tile store whose cluster still has to be (re)built
+    private final LinkedHashMap<Long, TileChunk> dirtyClusters = new LinkedHashMap<>();
+    // Terrain of missing corridor chunks, generated off the render thread
+    private final ExecutorService generator;
+    private final Set<Long> generating = new HashSet<>();
+    private final Queue<TileChunk> generated = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<OverworldPath> requests = new ArrayDeque<>();
+    private final LinkedHashMap<RouteKey, CachedRoute> routeCache;
+
+    // Bumped whenever the walkability of an existing cluster changes; older cached routes are stale
+    private int graphVersion;
+    // Bumped on every cluster (re)build; a suspended search restarts when it changes
+    private int structureVersion;
+    private ActiveSearch activeSearch;
+    // The one request whose missing corridor clusters are being built; the
+    // others wait their turn, so corridors are not built all at once and
+    // evicted again before their searches run
+    private OverworldPath corridorBuilder;
+
+    // Scratch buffers for in-cluster breadth-first searches
+    private final int[] distance = new int[TileChunk.TILE_COUNT];
+    private final int[] previous = new int[TileChunk.TILE_COUNT];
+    private final int[] queue = new int[TileChunk.TILE_COUNT];
+    private int searchStamp;
+
+    // Statistics
+    private long pathsFound;
+    private long pathsFailed;
+    private long routeCacheHits;
+    private long segmentsRefined;
+    private long segmentCacheHits;
+    private long clustersBuilt;
+    private long clustersEvicted;
+    private long maxUpdateNanos;
+
+    public OverworldPathfinder(OverworldTileStore tileStore) {
+        this.tileStore = tileStore;
+        this.routeCache = new LinkedHashMap<RouteKey, CachedRoute>(MAX_CACHED_ROUTES * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, CachedRoute> eldest) {
+                return size() > MAX_CACHED_ROUTES;
+            }
+        };
+        this.generator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PathfinderChunks");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        tileStore.addChunkListener(this);
+    }
+
+    @Override
+    public void onChunkChanged(TileChunk chunk) {
+        dirtyClusters.put(WorldGenerator.chunkKey(chunk.getChunkX(), chunk.getChunkZ()), chunk);
+    }
+
+    /**
+     * Queue a path request. The returned path is PENDING until a later update()
+     * resolves it.
+     */
+    public OverworldPath requestPath(Vector3f from, Vector3f to) {
+        OverworldPath path = new OverworldPath(this, Math.round(from.x), Math.round(from.z),
+                                               Math.round(to.x), Math.round(to.z));
+        requests.add(path);
+        return path;
+    }
+
+    /**
+     * Apply pending graph updates and work on queued requests, spending at
+     * most FRAME_BUDGET_NANOS. Call once per frame.
+     */
+    public void update() {
+        long start = System.nanoTime();
+        long deadline = start + FRAME_BUDGET_NANOS;
+
+        for (TileChunk chunk = generated.poll(); chunk != null; chunk = generated.poll()) {
+            long key = WorldGenerator.chunkKey(chunk.getChunkX(), chunk.getChunkZ());
+            generating.remove(key);
+            // The streamer may have loaded the chunk meanwhile; its copy wins
+            if (tileStore.getChunk(chunk.getChunkX(), chunk.getChunkZ()) == null) {
+                tileStore.putChunk(chunk);
+                // Not in the graph yet; the request waiting for it builds the
+                // cluster within its own turn instead of ahead of every request
+                dirtyClusters.remove(key);
+            }
+        }
+
+        Iterator<Map.Entry<Long, TileChunk>> dirty = dirtyClusters.entrySet().iterator();
+        while (dirty.hasNext() && System.nanoTime() < deadline) {
+            Map.Entry<Long, TileChunk> entry = dirty.next();
+            dirty.remove();
+            rebuildCluster(entry.getValue());
+        }
+
+        // Stop once every request left has had its turn and is still unresolved
+        int deferred = 0;
+        while (deferred < requests.size() && System.nanoTime() < deadline) {
+            OverworldPath path = requests.peek();
+            if (!path.isPending() || process(path, deadline)) {
+                requests.poll();
+            } else if (activeSearch != null && activeSearch.path == path) {
+                // Search out of budget; it stays first and resumes next frame
+                break;
+            } else {
+                // Waiting for terrain, or out of budget building the clusters it
+                // needs; that progress is kept, so let the others go first
+                requests.add(requests.poll());
+                deferred++;
+            }
+        }
+
+        if (activeSearch == null) {
+            trimClusters(deadline);
+        }
+
+        maxUpdateNanos = Math.max(maxUpdateNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * Work on one request until it is resolved, the deadline passes or it
+     * has to wait for generated terrain or for another request's corridor
+     * @return true if the request was resolved (found or failed)
+     */
+    private boolean process(OverworldPath path, long deadline) {
+        if (path.missingClusters == null) {
+            RouteKey key = new RouteKey(path.getStartX(), path.getStartZ(), path.getGoalX(), path.getGoalZ());
+            CachedRoute cached = routeCache.get(key);
+            if (cached != null && cached.version == graphVersion) {
+                routeCacheHits++;
+                pathsFound++;
+                path.setFound(cached.routeX, cached.routeZ);
+                return true;
+            }
+            if (!findCorridor(path)) {
+                return fail(path);
+            }
+        }
+
+        if (!path.missingClusters.isEmpty()) {
+            if (corridorBuilder != null && corridorBuilder != path && corridorBuilder.isPending()) {
+                return false;
+            }
+            corridorBuilder = path;
+        }
+        Iterator<Long> missing = path.missingClusters.iterator();
+        while (missing.hasNext()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            long key = missing.next();
+            if (clusters.containsKey(key)) {
+                missing.remove();
+                continue;
+            }
+            if (generating.contains(key)) {
+                continue;
+            }
+            int chunkX = (int) (key >> 32);
+            int chunkZ = (int) key;
+            TileChunk chunk = dirtyClusters.remove(key);
+            if (chunk == null) {
+                chunk = tileStore.getChunk(chunkX, chunkZ);
+            }
+            if (chunk == null) {
+                WorldGenerator worldGenerator = tileStore.getWorldGenerator();
+                generating.add(key);
+                generator.execute(() ->
+                    generated.add(new TileChunk(chunkX, chunkZ, worldGenerator.generateChunkTiles(chunkX, chunkZ))));
+                continue;
+            }
+            missing.remove();
+            rebuildCluster(chunk);
+        }
+        if (!path.missingClusters.isEmpty()) {
+            return false;
+        }
+        if (corridorBuilder == path) {
+            corridorBuilder = null;
+        }
+
+        if (activeSearch == null || activeSearch.path != path || activeSearch.structureVersion != structureVersion) {
+            if (path.corridorEvictions != clustersEvicted) {
+                // Clusters built on earlier frames may have been evicted meanwhile
+                if (!findCorridor(path)) {
+                    return fail(path);
+                }
+                if (!path.missingClusters.isEmpty()) {
+                    return process(path, deadline);
+                }
+            }
+            // New request, or the graph changed while the search was suspended: (re)start it
+            discardSearch();
+            Cluster startCluster = clusterAt(path.getStartX(), path.getStartZ());
+            Cluster goalCluster = clusterAt(path.getGoalX(), path.getGoalZ());
+            if (!startCluster.isWalkable(localIndex(path.getStartX(), path.getStartZ()))
+                    || !goalCluster.isWalkable(localIndex(path.getGoalX(), path.getGoalZ()))) {
+                return fail(path);
+            }
+            activeSearch = beginSearch(path, startCluster, goalCluster);
+        }
+
+        int[][] route = continueSearch(activeSearch, deadline);
+        if (route == null && !activeSearch.finished) {
+            return false;
+        }
+        discardSearch();
+
+        if (route != null) {
+            routeCache.put(new RouteKey(path.getStartX(), path.getStartZ(), path.getGoalX(), path.getGoalZ()),
+                           new CachedRoute(graphVersion, route[0], route[1]));
+            pathsFound++;
+            path.setFound(route[0], route[1]);
+            return true;
+        }
+
+        // Not reachable inside this corridor: try a wider one before giving up
+        if (++path.corridorIndex < CORRIDOR_WIDTHS.length) {
+            if (!findCorridor(path)) {
+                return fail(path);
+            }
+            return process(path, deadline);
+        }
+        return fail(path);
+    }
+
+    private boolean fail(OverworldPath path) {
+        pathsFailed++;
+        path.setFailed();
+        return true;
+    }
+
+    /**
+     * Set a request's missing clusters for its current corridor width
+     * @return false if the corridor is too large
+     */
+    private boolean findCorridor(OverworldPath path) {
+        path.missingClusters = missingCorridorClusters(path, CORRIDOR_WIDTHS[path.corridorIndex]);
+        path.corridorEvictions = clustersEvicted;
+        return path.missingClusters != null;
+    }
+
+    /**
+     * Clusters within the given Chebyshev distance of the straight line from
+     * start to goal that are not in the graph yet, nearest to the start first.
+     * Marks the corridor's existing clusters as recently used.
+     * @return the clusters, or null if there are more than MAX_CORRIDOR_CLUSTERS
+     */
+    private ArrayDeque<Long> missingCorridorClusters(OverworldPath path, int width) {
+        int x0 = Math.floorDiv(path.getStartX(), CLUSTER_SIZE);
+        int z0 = Math.floorDiv(path.getStartZ(), CLUSTER_SIZE);
+        int x1 = Math.floorDiv(path.getGoalX(), CLUSTER_SIZE);
+        int z1 = Math.floorDiv(path.getGoalZ(), CLUSTER_SIZE);
+
+        LinkedHashSet<Long> missing = new LinkedHashSet<>();
+        int dx = Math.abs(x1 - x0);
+        int dz = -Math.abs(z1 - z0);
+        int stepX = x0 < x1 ? 1 : -1;
+        int stepZ = z0 < z1 ? 1 : -1;
+        int error = dx + dz;
+        int x = x0;
+        int z = z0;
+        while (true) {
+            for (int ox = -width; ox <= width; ox++) {
+                for (int oz = -width; oz <= width; oz++) {
+                    long key = WorldGenerator.chunkKey(x + ox, z + oz);
+                    if (clusters.get(key) == null) {
+                        missing.add(key);
+                    }
+                }
+            }
+            if (missing.size() > MAX_CORRIDOR_CLUSTERS) {
+                return null;
+            }
+            if (x == x1 && z == z1) {
+                break;
+            }
+            int doubled = 2 * error;
+            if (doubled >= dz) {
+                error += dz;
+                x += stepX;
+            }
+            if (doubled <= dx) {
+                error += dx;
+                z += stepZ;
+            }
+        }
+        return new ArrayDeque<>(missing);
+    }
+
+    /**
+     * Start an A* search over the abstract graph, with the start and goal
+     * tiles temporarily linked to the entrances of their clusters
+     */
+    private ActiveSearch beginSearch(OverworldPath path, Cluster startCluster, Cluster goalCluster) {
+        int startLocal = localIndex(path.getStartX(), path.getStartZ());
+        int goalLocal = localIndex(path.getGoalX(), path.getGoalZ());
+        Node start = new Node(startCluster, startLocal, -1);
+        Node goal = new Node(goalCluster, goalLocal, -1);
+        ActiveSearch search = new ActiveSearch(path, goal, ++searchStamp, structureVersion);
+
+        breadthFirstSearch(startCluster, startLocal, -1);
+        for (Node node : startCluster.nodes) {
+            if (distance[node.local] >= 0) {
+                start.edges.add(new Edge(node, distance[node.local]));
+            }
+        }
+        if (startCluster == goalCluster && distance[goalLocal] >= 0) {
+            start.edges.add(new Edge(goal, distance[goalLocal]));
+        }
+
+        breadthFirstSearch(goalCluster, goalLocal, -1);
+        for (Node node : goalCluster.nodes) {
+            if (distance[node.local] >= 0) {
+                node.edges.add(new Edge(goal, distance[node.local]));
+                search.linked.add(node);
+            }
+        }
+
+        start.openStamp = search.stamp;
+        start.cost = 0;
+        start.parent = null;
+        search.open.add(new OpenEntry(start, heuristic(start, goal)));
+        return search;
+    }
+
+    /**
+     * Expand nodes of the active search until it finishes or the deadline passes
+     * @return the route as {x[], z[]} tile coordinates, or null if not found (yet)
+     */
+    private int[][] continueSearch(ActiveSearch search, long deadline) {
+        int stamp = search.stamp;
+        Node goal = search.goal;
+        while (!search.open.isEmpty()) {
+            Node node = search.open.poll().node;
+            if (node.closedStamp == stamp) {
+                continue;
+            }
+            node.closedStamp = stamp;
+            if (node == goal) {
+                search.finished = true;
+                return buildRoute(goal);
+            }
+            if (++search.expansions > MAX_EXPANSIONS) {
+                break;
+            }
+
+            for (Edge edge : node.edges) {
+                Node target = edge.target;
+                if (target.closedStamp == stamp) {
+                    continue;
+                }
+                int cost = node.cost + edge.cost;
+                if (target.openStamp != stamp || cost < target.cost) {
+                    target.openStamp = stamp;
+                    target.cost = cost;
+                    target.parent = node;
+                    search.open.add(new OpenEntry(target, cost + heuristic(target, goal)));
+                }
+            }
+
+            if ((search.expansions & 63) == 0 && System.nanoTime() >= deadline) {
+                return null;
+            }
+        }
+        search.finished = true;
+        return null;
+    }
+
+    /**
+     * Drop the active search and unlink its temporary goal node
+     */
+    private void discardSearch() {
+        if (activeSearch == null) {
+            return;
+        }
+        Node goal = activeSearch.goal;
+        for (Node node : activeSearch.linked) {
+            node.edges.removeIf(edge -> edge.target == goal);
+        }
+        activeSearch = null;
+    }
+
+    private static int heuristic(Node node, Node goal) {
+        return Math.abs(node.x - goal.x) + Math.abs(node.z - goal.z);
+    }
+
+    private static int[][] buildRoute(Node goal) {
+        List<Node> reversed = new ArrayList<>();
+        for (Node node = goal; node != null; node = node.parent) {
+            Node last = reversed.isEmpty() ? null : reversed.get(reversed.size() - 1);
+            // Corner entrances and start/goal tiles can share a tile with an entrance
+            if (last == null || last.x != node.x || last.z != node.z) {
+                reversed.add(node);
+            }
+        }
+        int count = reversed.size();
+        int[] routeX = new int[count];
+        int[] routeZ = new int[count];
+        for (int i = 0; i < count; i++) {
+            Node node = reversed.get(count - 1 - i);
+            routeX[i] = node.x;
+            routeZ[i] = node.z;
+        }
+        return new int[][]{routeX, routeZ};
+    }
+
+    /**
+     * Refine one abstract edge into tiles
+     * @return alternating x, z tile coordinates after (ax, az) up to and
+     *         including (bx, bz), or null if the segment can no longer be walked
+     */
+    int[] refineSegment(int ax, int az, int bx, int bz) {
+        int steps = Math.abs(ax - bx) + Math.abs(az - bz);
+        if (steps == 0) {
+            return new int[0];
+        }
+        if (steps == 1) {
+            // Inter-cluster edges always join adjacent tiles
+            return new int[]{bx, bz};
+        }
+
+        Cluster cluster = clusterAt(ax, az);
+        if (cluster == null) {
+            // Evicted since the route was found: its terrain is still in the tile store
+            rebuildCluster(tileStore.loadChunk(Math.floorDiv(ax, CLUSTER_SIZE), Math.floorDiv(az, CLUSTER_SIZE)));
+            cluster = clusterAt(ax, az);
+        }
+        if (cluster != clusterAt(bx, bz)) {
+            return null;
+        }
+        int from = localIndex(ax, az);
+        int to = localIndex(bx, bz);
+        Integer key = from * TileChunk.TILE_COUNT + to;
+        int[] segment = cluster.segments.get(key);
+        if (segment != null) {
+            segmentCacheHits++;
+            return segment;
+        }
+
+        breadthFirstSearch(cluster, from, to);
+        if (distance[to] < 0) {
+            return null;
+        }
+        int length = distance[to];
+        int originX = cluster.chunkX * CLUSTER_SIZE;
+        int originZ = cluster.chunkZ * CLUSTER_SIZE;
+        segment = new int[length * 2];
+        int tile = to;
+        for (int i = length - 1; i >= 0; i--) {
+            segment[i * 2] = originX + tile % CLUSTER_SIZE;
+            segment[i * 2 + 1] = originZ + tile / CLUSTER_SIZE;
+            tile = previous[tile];
+        }
+
+        if (cluster.segments.size() >= MAX_SEGMENTS_PER_CLUSTER) {
+            cluster.segments.clear();
+        }
+        cluster.segments.put(key, segment);
+        segmentsRefined++;
+        return segment;
+    }
+
+    /**
+     * Build (or rebuild) the cluster of a chunk: its walkability, the
+     * entrances on its four borders and the intra-cluster edges of it and of
+     * its neighbours. Does nothing if the walkability did not change.
+     */
+    private void rebuildCluster(TileChunk chunk) {
+        long key = WorldGenerator.chunkKey(chunk.getChunkX(), chunk.getChunkZ());
+        long[] walkable = walkableBits(chunk);
+        Cluster cluster = clusters.get(key);
+        if (cluster != null) {
+            if (Arrays.equals(cluster.walkable, walkable)) {
+                return;
+            }
+            graphVersion++;
+        } else {
+            cluster = new Cluster(chunk.getChunkX(), chunk.getChunkZ());
+            clusters.put(key, cluster);
+        }
+        System.arraycopy(walkable, 0, cluster.walkable, 0, walkable.length);
+        cluster.segments.clear();
+        clustersBuilt++;
+        structureVersion++;
+
+        List<Cluster> touched = new ArrayList<>();
+        touched.add(cluster);
+        for (int direction = 0; direction < 4; direction++) {
+            removeBorderNodes(cluster, direction);
+            Cluster neighbour = clusters.get(WorldGenerator.chunkKey(
+                cluster.chunkX + DIRECTION_X[direction], cluster.chunkZ + DIRECTION_Z[direction]));
+            if (neighbour == null) {
+                continue;
+            }
+            removeBorderNodes(neighbour, direction ^ 1);
+            if (direction == EAST || direction == NORTH) {
+                createEntrances(cluster, neighbour, direction);
+            } else {
+                createEntrances(neighbour, cluster, direction ^ 1);
+            }
+            touched.add(neighbour);
+        }
+
+        for (Cluster changed : touched) {
+            connectEntrances(changed);
+        }
+    }
+
+    /**
+     * Evict least recently used clusters until at most MAX_CLUSTERS are left,
+     * or at least MIN_EVICTIONS_PER_UPDATE once the deadline has passed.
+     * Only the entrances that neighbours shared with an evicted cluster are
+     * removed; their other edges stay valid.
+     */
+    private void trimClusters(long deadline) {
+        int evictions = 0;
+        while (clusters.size() > MAX_CLUSTERS
+                && (evictions < MIN_EVICTIONS_PER_UPDATE || System.nanoTime() < deadline)) {
+            Iterator<Cluster> eldest = clusters.values().iterator();
+            Cluster cluster = eldest.next();
+            eldest.remove();
+            for (int direction = 0; direction < 4; direction++) {
+                Cluster neighbour = clusters.get(WorldGenerator.chunkKey(
+                    cluster.chunkX + DIRECTION_X[direction], cluster.chunkZ + DIRECTION_Z[direction]));
+                if (neighbour != null) {
+                    int side = direction ^ 1;
+                    removeBorderNodes(neighbour, side);
+                    for (Node node : neighbour.nodes) {
+                        node.edges.removeIf(edge -> edge.target.cluster == neighbour && edge.target.side == side);
+                    }
+                }
+            }
+            evictions++;
+        }
+        if (evictions > 0) {
+            clustersEvicted += evictions;
+            structureVersion++;
+        }
+    }
+
+    private static long[] walkableBits(TileChunk chunk) {
+        long[] bits = new long[TileChunk.TILE_COUNT / 64];
+        for (int localZ = 0; localZ < CLUSTER_SIZE; localZ++) {
+            for (int localX = 0; localX < CLUSTER_SIZE; localX++) {
+                if (chunk.isWalkable(localX, localZ)) {
+                    int index = localZ * CLUSTER_SIZE + localX;
+                    bits[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static void removeBorderNodes(Cluster cluster, int side) {
+        cluster.nodes.removeIf(node -> node.side == side);
+    }
+
+    /**
+     * Place entrances along the border between a cluster and its neighbour to
+     * the east or north
+     */
+    private static void createEntrances(Cluster cluster, Cluster neighbour, int direction) {
+        int run = 0;
+        for (int i = 0; i <= CLUSTER_SIZE; i++) {
+            boolean open = i < CLUSTER_SIZE
+                && cluster.isWalkable(borderIndex(direction, i, true))
+                && neighbour.isWalkable(borderIndex(direction, i, false));
+            if (open) {
+                run++;
+                continue;
+            }
+            if (run > 0) {
+                int first = i - run;
+                int last = i - 1;
+                if (run < SPLIT_ENTRANCE_LENGTH) {
+                    addTransition(cluster, neighbour, direction, (first + last) / 2);
+                } else {
+                    addTransition(cluster, neighbour, direction, first);
+                    addTransition(cluster, neighbour, direction, last);
+                }
+                run = 0;
+            }
+        }
+    }
+
+    private static int borderIndex(int direction, int i, boolean nearSide) {
+        int edge = nearSide ? CLUSTER_SIZE - 1 : 0;
+        return direction == EAST ? i * CLUSTER_SIZE + edge : edge * CLUSTER_SIZE + i;
+    }
+
+    private static void addTransition(Cluster cluster, Cluster neighbour, int direction, int i) {
+        Node near = new Node(cluster, borderIndex(direction, i, true), direction);
+        Node far = new Node(neighbour, borderIndex(direction, i, false), direction ^ 1);
+        near.edges.add(new Edge(far, 1));
+        far.edges.add(new Edge(near, 1));
+        cluster.nodes.add(near);
+        neighbour.nodes.add(far);
+    }
+
+    /**
+     * Recompute the intra-cluster edges between all entrance nodes of a cluster
+     */
+    private void connectEntrances(Cluster cluster) {
+        for (Node node : cluster.nodes) {
+            node.edges.removeIf(edge -> edge.target.cluster == cluster);
+        }
+        for (Node node : cluster.nodes) {
+            breadthFirstSearch(cluster, node.local, -1);
+            for (Node other : cluster.nodes) {
+                if (other != node && distance[other.local] >= 0) {
+                    node.edges.add(new Edge(other, distance[other.local]));
+                }
+            }
+        }
+    }
+
+    /**
+     * 4-connected breadth-first search inside one cluster, filling the distance
+     * and previous scratch buffers. Stops early once target is reached (-1 for none).
+     */
+    private void breadthFirstSearch(Cluster cluster, int start, int target) {
+        Arrays.fill(distance, -1);
+        if (!cluster.isWalkable(start)) {
+            return;
+        }
+        distance[start] = 0;
+        previous[start] = -1;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int tile = queue[head++];
+            if (tile == target) {
+                return;
+            }
+            int localX = tile % CLUSTER_SIZE;
+            int localZ = tile / CLUSTER_SIZE;
+            int next = distance[tile] + 1;
+            if (localX > 0) {
+                tail = visit(cluster, tile, tile - 1, next, tail);
+            }
+            if (localX < CLUSTER_SIZE - 1) {
+                tail = visit(cluster, tile, tile + 1, next, tail);
+            }
+            if (localZ > 0) {
+                tail = visit(cluster, tile, tile - CLUSTER_SIZE, next, tail);
+            }
+            if (localZ < CLUSTER_SIZE - 1) {
+                tail = visit(cluster, tile, tile + CLUSTER_SIZE, next, tail);
+            }
+        }
+    }
+
+    private int visit(Cluster cluster, int from, int tile, int tileDistance, int tail) {
+        if (distance[tile] < 0 && cluster.isWalkable(tile)) {
+            distance[tile] = tileDistance;
+            previous[tile] = from;
+            queue[tail++] = tile;
+        }
+        return tail;
+    }
+
+    private Cluster clusterAt(int x, int z) {
+        return clusters.get(WorldGenerator.chunkKey(Math.floorDiv(x, CLUSTER_SIZE), Math.floorDiv(z, CLUSTER_SIZE)));
+    }
+
+    private static int localIndex(int x, int z) {
+        return Math.floorMod(z, CLUSTER_SIZE) * CLUSTER_SIZE + Math.floorMod(x, CLUSTER_SIZE);
+    }
+
+    /**
+     * Stop listening to the tile store and drop all queued requests
+     */
+    public void cleanup() {
+        tileStore.removeChunkListener(this);
+        generator.shutdownNow();
+        discardSearch();
+        for (OverworldPath path : requests) {
+            path.cancel();
+        }
+        requests.clear();
+        corridorBuilder = null;
+        dirtyClusters.clear();
+        generating.clear();
+        generated.clear();
+    }
+
+    public int getClusterCount() {
+        return clusters.size();
+    }
+
+    public int getNodeCount() {
+        int count = 0;
+        for (Cluster cluster : clusters.values()) {
+            count += cluster.nodes.size();
+        }
+        return count;
+    }
+
+    public int getPendingRequestCount() {
+        return requests.size();
+    }
+
+    public float getMaxUpdateMillis() {
+        return maxUpdateNanos / 1e6f;
+    }
+
+    public String getStatsSummary() {
+        return String.format("clusters=%d nodes=%d built=%d evicted=%d | paths found=%d failed=%d pending=%d | "
+                + "route cache hits=%d | segments refined=%d cached hits=%d | max update=%.2fms",
+            getClusterCount(), getNodeCount(), clustersBuilt, clustersEvicted,
+            pathsFound, pathsFailed, requests.size(),
+            routeCacheHits, segmentsRefined, segmentCacheHits, getMaxUpdateMillis());
+    }
+
+    /**
+     * One chunk-sized cluster of the abstract graph
+     */
+    private static class Cluster {
+        final int chunkX;
+        final int chunkZ;
+        final long[] walkable = new long[TileChunk.TILE_COUNT / 64];
+        final List<Node> nodes = new ArrayList<>();
+        // Refined paths between two tiles of this cluster, keyed by from * TILE_COUNT + to
+        final Map<Integer, int[]> segments = new HashMap<>();
+
+        Cluster(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        boolean isWalkable(int index) {
+            return (walkable[index >>> 6] & (1L << index)) != 0;
+        }
+    }
+
+    /**
+     * Entrance node on one side of a cluster border (side -1 for temporary start/goal nodes)
+     */
+    private static class Node {
+        final Cluster cluster;
+        final int local;
+        final int side;
+        final int x;
+        final int z;
+        final List<Edge> edges = new ArrayList<>();
+
+        // A* state, valid when the stamps match the current search
+        int openStamp;
+        int closedStamp;
+        int cost;
+        Node parent;
+
+        Node(Cluster cluster, int local, int side) {
+            this.cluster = cluster;
+            this.local = local;
+            this.side = side;
+            this.x = cluster.chunkX * CLUSTER_SIZE + local % CLUSTER_SIZE;
+            this.z = cluster.chunkZ * CLUSTER_SIZE + local / CLUSTER_SIZE;
+        }
+    }
+
+    private static class Edge {
+        final Node target;
+        final int cost;
+
+        Edge(Node target, int cost) {
+            this.target = target;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * A* search over the abstract graph that can be suspended between frames
+     */
+    private static class ActiveSearch {
+        final OverworldPath path;
+        final Node goal;
+        final int stamp;
+        final int structureVersion;
+        final PriorityQueue<OpenEntry> open = new PriorityQueue<>();
+        // Entrance nodes temporarily linked to the goal
+        final List<Node> linked = new ArrayList<>();
+        int expansions;
+        boolean finished;
+
+        ActiveSearch(OverworldPath path, Node goal, int stamp, int structureVersion) {
+            this.path = path;
+            this.goal = goal;
+            this.stamp = stamp;
+            this.structureVersion = structureVersion;
+        }
+    }
+
+    private static class OpenEntry implements Comparable<OpenEntry> {
+        final Node node;
+        final int estimate;
+
+        OpenEntry(Node node, int estimate) {
+            this.node = node;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public int compareTo(OpenEntry other) {
+            return Integer.compare(estimate, other.estimate);
+        }
+    }
+
+    private static class RouteKey {
+        final int startX;
+        final int startZ;
+        final int goalX;
+        final int goalZ;
+
+        RouteKey(int startX, int startZ, int goalX, int goalZ) {
+            this.startX = startX;
+            this.startZ = startZ;
+            this.goalX = goalX;
+            this.goalZ = goalZ;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RouteKey)) {
+                return false;
+            }
+            RouteKey other = (RouteKey) o;
+            return startX == other.startX && startZ == other.startZ
+                && goalX == other.goalX && goalZ == other.goalZ;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((startX * 31 + startZ) * 31 + goalX) * 31 + goalZ;
+        }
+    }
+
+    private static class CachedRoute {
+        final int version;
+        final int[] routeX;
+        final int[] routeZ;
+
+        CachedRoute(int version, int[] routeX, int[] routeZ) {
+            this.version = version;
+            this.routeX = routeX;
+            this.routeZ = routeZ;
+        }
+    }
+}
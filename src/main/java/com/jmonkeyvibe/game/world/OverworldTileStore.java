@@ -0,0 +1,199 @@
+package com.jmonkeyvibe.game.world;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gameplay-side view of the overworld: tile data per chunk, looked up by
+ * world coordinate in O(1).
+ *
+ * This is the single source of truth for questions like "is this water?".
+ * Gameplay code (player and NPC movement, spawning) queries the store and
+ * never walks the scene graph. Chunks are added by the ChunkStreamer as they
+ * are generated. Queries outside any stored chunk fall back to the world
+ * generator, whose terrain is a pure function of the seed, so every
+ * coordinate always has an answer.
+ *
+ * With a ChunkRegionStore attached, chunks that were evicted are paged back
+ * in from disk, and tile changes made through setTile() are written through
+ * so they survive eviction and restarts.
+ *
+ * Not thread-safe: use from the render thread only.
+ */
+public class OverworldTileStore {
+
+    /** Default number of chunks kept (about 1 KB each) */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final WorldGenerator worldGenerator;
+    private final int capacity;
+    private final LinkedHashMap<Long, TileChunk> chunks;
+    private ChunkRegionStore persistence;
+    private final List<ChunkListener> listeners = new ArrayList<>();
+
+    // Most recent lookup; consecutive queries usually hit the same chunk
+    private TileChunk lastChunk;
+
+    public OverworldTileStore(WorldGenerator worldGenerator) {
+        this(worldGenerator, DEFAULT_CAPACITY);
+    }
+
+    public OverworldTileStore(WorldGenerator worldGenerator, int capacity) {
+        this.worldGenerator = worldGenerator;
+        this.capacity = capacity;
+        this.chunks = new LinkedHashMap<Long, TileChunk>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TileChunk> eldest) {
+                if (size() > OverworldTileStore.this.capacity) {
+                    if (eldest.getValue() == lastChunk) {
+                        lastChunk = null;
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public void setPersistence(ChunkRegionStore persistence) {
+        this.persistence = persistence;
+    }
+
+    public ChunkRegionStore getPersistence() {
+        return persistence;
+    }
+
+    public WorldGenerator getWorldGenerator() {
+        return worldGenerator;
+    }
+
+    public void addChunkListener(ChunkListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChunkListener(ChunkListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void putChunk(TileChunk chunk) {
+        chunks.put(WorldGenerator.chunkKey(chunk.getChunkX(), chunk.getChunkZ()), chunk);
+        // May replace the chunk of the last lookup
+        lastChunk = chunk;
+        fireChunkChanged(chunk);
+    }
+
+    /**
+     * Get a stored chunk
+     * @return the chunk, or null if it has not been generated or was evicted
+     */
+    public TileChunk getChunk(int chunkX, int chunkZ) {
+        TileChunk last = lastChunk;
+        if (last != null && last.getChunkX() == chunkX && last.getChunkZ() == chunkZ) {
+            return last;
+        }
+        TileChunk chunk = chunks.get(WorldGenerator.chunkKey(chunkX, chunkZ));
+        if (chunk == null && persistence != null) {
+            chunk = persistence.load(chunkX, chunkZ);
+            if (chunk != null) {
+                putChunk(chunk);
+            }
+        }
+        if (chunk != null) {
+            lastChunk = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * Get a chunk only if it is held in memory, without paging it in from
+     * the persistent store
+     * @return the chunk, or null if it is not resident
+     */
+    public TileChunk getResidentChunk(int chunkX, int chunkZ) {
+        return chunks.get(WorldGenerator.chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Get a chunk, generating and storing it if it is not available yet
+     */
+    public TileChunk loadChunk(int chunkX, int chunkZ) {
+        TileChunk chunk = getChunk(chunkX, chunkZ);
+        if (chunk == null) {
+            chunk = new TileChunk(chunkX, chunkZ, worldGenerator.generateChunkTiles(chunkX, chunkZ));
+            putChunk(chunk);
+        }
+        return chunk;
+    }
+
+    public boolean hasChunk(int chunkX, int chunkZ) {
+        return getChunk(chunkX, chunkZ) != null;
+    }
+
+    /**
+     * Tile type at an integer tile coordinate
+     */
+    public TileType getTile(int x, int z) {
+        TileChunk chunk = getChunk(Math.floorDiv(x, TileChunk.SIZE), Math.floorDiv(z, TileChunk.SIZE));
+        if (chunk == null) {
+            return worldGenerator.getTileType(x, z);
+        }
+        return chunk.getTile(Math.floorMod(x, TileChunk.SIZE), Math.floorMod(z, TileChunk.SIZE));
+    }
+
+    /**
+     * Change the tile at an integer tile coordinate. The change is written
+     * through to the persistent store, if any; the chunk's mesh has to be
+     * rebuilt separately (see ChunkStreamer.invalidateChunk).
+     */
+    public void setTile(int x, int z, TileType type) {
+        int chunkX = Math.floorDiv(x, TileChunk.SIZE);
+        int chunkZ = Math.floorDiv(z, TileChunk.SIZE);
+        TileChunk chunk = loadChunk(chunkX, chunkZ);
+        chunk.setTile(Math.floorMod(x, TileChunk.SIZE), Math.floorMod(z, TileChunk.SIZE), type);
+        if (persistence != null) {
+            persistence.save(chunk, true);
+        }
+        fireChunkChanged(chunk);
+    }
+
+    /**
+     * Tile type under a world position (tiles are centered on integer coordinates)
+     */
+    public TileType getTile(float x, float z) {
+        return getTile(Math.round(x), Math.round(z));
+    }
+
+    public boolean isWalkable(int x, int z) {
+        TileChunk chunk = getChunk(Math.floorDiv(x, TileChunk.SIZE), Math.floorDiv(z, TileChunk.SIZE));
+        if (chunk == null) {
+            return worldGenerator.getTileType(x, z).isWalkable();
+        }
+        return chunk.isWalkable(Math.floorMod(x, TileChunk.SIZE), Math.floorMod(z, TileChunk.SIZE));
+    }
+
+    /**
+     * Check if a world position is walkable (not water)
+     */
+    public boolean isWalkable(float x, float z) {
+        return isWalkable(Math.round(x), Math.round(z));
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    private void fireChunkChanged(TileChunk chunk) {
+        for (ChunkListener listener : listeners) {
+            listener.onChunkChanged(chunk);
+        }
+    }
+
+    /**
+     * Listener for chunks being added to the store or having their tiles changed
+     */
+    public interface ChunkListener {
+        void onChunkChanged(TileChunk chunk);
+    }
+}
@@ -0,0 +1,383 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Places entities (enemies, NPCs, portals, spawn points) on the walkable
+ * cells of a map.
+ *
+ * Built once per map, it holds an index of the walkable cells and, on first
+ * use, a nearest-walkable lookup for every cell (a multi-source BFS), so
+ * snapping a position to the closest floor is one array read. Cells are
+ * centered on integer coordinates, like CollisionGrid.
+ *
+ * Spread-out positions come from a Sampler: Bridson's Poisson-disk sampling
+ * on a background grid of cells minDistance / sqrt(2) wide, so each distance
+ * check looks at a fixed 5x5 block of grid cells and placing N entities is
+ * O(N). When the sampling front dies out the sampler scans the walkable
+ * cells of its bounds, so next() only returns null when no valid position
+ * is left.
+ */
+public final class PlacementService {
+
+    /** Walkability of one map cell */
+    public interface CellFilter {
+        boolean accept(int x, int z);
+    }
+
+    /** Extra condition on a candidate position, such as a distance band or clearance */
+    public interface PositionFilter {
+        boolean accept(float x, float z);
+    }
+
+    // Candidates tried around each active sample before it is retired
+    private static final int CANDIDATES = 30;
+
+    private final int minX;
+    private final int minZ;
+    private final int width;
+    private final int height;
+    private final BitSet walkable;
+    // Walkable cells as z * width + x (map-local), ascending
+    private final int[] cells;
+    // Nearest walkable cell of every cell, built on first use
+    private int[] nearest;
+
+    /**
+     * Index the walkable cells of the map region [minX, minX + width) x [minZ, minZ + height)
+     */
+    public PlacementService(int minX, int minZ, int width, int height, CellFilter filter) {
+        this.minX = minX;
+        this.minZ = minZ;
+        this.width = width;
+        this.height = height;
+        this.walkable = new BitSet(width * height);
+        int count = 0;
+        for (int z = 0; z < height; z++) {
+            for (int x = 0; x < width; x++) {
+                if (filter.accept(minX + x, minZ + z)) {
+                    walkable.set(z * width + x);
+                    count++;
+                }
+            }
+        }
+        this.cells = new int[count];
+        for (int i = 0, cell = walkable.nextSetBit(0); cell >= 0; cell = walkable.nextSetBit(cell + 1)) {
+            cells[i++] = cell;
+        }
+    }
+
+    /**
+     * Index the walkable cells of a dungeon
+     */
+    public static PlacementService fromGrid(CollisionGrid grid) {
+        return new PlacementService(0, 0, grid.getWidth(), grid.getHeight(), grid::isWalkable);
+    }
+
+    public int getWalkableCount() {
+        return cells.length;
+    }
+
+    /**
+     * Check the cell containing a world position
+     */
+    public boolean isWalkable(float x, float z) {
+        int cellX = Math.round(x) - minX;
+        int cellZ = Math.round(z) - minZ;
+        if ((cellX | cellZ) < 0 || cellX >= width || cellZ >= height) {
+            return false;
+        }
+        return walkable.get(cellZ * width + cellX);
+    }
+
+    /**
+     * Snap a position to the center of the closest walkable cell (by steps
+     * across the grid); positions outside the map are clamped to it first
+     * @return the position if it is already walkable, the cell center, or
+     *         null if the map has no walkable cell
+     */
+    public Vector3f findNearestWalkable(Vector3f position) {
+        if (isWalkable(position.x, position.z)) {
+            return position;
+        }
+        if (cells.length == 0) {
+            return null;
+        }
+        if (nearest == null) {
+            nearest = buildNearest();
+        }
+        int cellX = Math.max(0, Math.min(width - 1, Math.round(position.x) - minX));
+        int cellZ = Math.max(0, Math.min(height - 1, Math.round(position.z) - minZ));
+        int cell = nearest[cellZ * width + cellX];
+        return new Vector3f(minX + cell % width, position.y, minZ + cell / width);
+    }
+
+    /**
+     * Breadth-first search from every walkable cell at once; each cell keeps
+     * the walkable cell that reached it first
+     */
+    private int[] buildNearest() {
+        int[] result = new int[width * height];
+        Arrays.fill(result, -1);
+        int[] queue = new int[width * height];
+        int tail = 0;
+        for (int cell : cells) {
+            result[cell] = cell;
+            queue[tail++] = cell;
+        }
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            int x = cell % width;
+            int z = cell / width;
+            if (x > 0 && result[cell - 1] < 0) {
+                result[cell - 1] = result[cell];
+                queue[tail++] = cell - 1;
+            }
+            if (x < width - 1 && result[cell + 1] < 0) {
+                result[cell + 1] = result[cell];
+                queue[tail++] = cell + 1;
+            }
+            if (z > 0 && result[cell - width] < 0) {
+                result[cell - width] = result[cell];
+                queue[tail++] = cell - width;
+            }
+            if (z < height - 1 && result[cell + width] < 0) {
+                result[cell + width] = result[cell];
+                queue[tail++] = cell + width;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sample positions anywhere on the map, at least minDistance apart
+     */
+    public Sampler newSampler(float minDistance, Random random) {
+        return new Sampler(minDistance, random, 0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Sample positions at least minDistance apart, within range (on each
+     * axis) of a center
+     */
+    public Sampler newSampler(float minDistance, Random random, float centerX, float centerZ, float range) {
+        int boundsMinX = Math.max(0, (int) Math.floor(centerX - range) - minX);
+        int boundsMinZ = Math.max(0, (int) Math.floor(centerZ - range) - minZ);
+        int boundsMaxX = Math.min(width - 1, (int) Math.ceil(centerX + range) - minX);
+        int boundsMaxZ = Math.min(height - 1, (int) Math.ceil(centerZ + range) - minZ);
+        return new Sampler(minDistance, random, boundsMinX, boundsMinZ, boundsMaxX, boundsMaxZ);
+    }
+
+    /**
+     * One placement session: every position it returns or is told about
+     * through block() is kept at least minDistance from the next ones
+     */
+    public final class Sampler {
+
+        private final float minDistanceSquared;
+        private final float minDistance;
+        private final Random random;
+
+        // Bounds in map-local cells (inclusive)
+        private final int boundsMinX;
+        private final int boundsMinZ;
+        private final int boundsMaxX;
+        private final int boundsMaxZ;
+
+        // Background grid over the bounds; each grid cell links its points
+        private final float cellSize;
+        private final float gridOriginX;
+        private final float gridOriginZ;
+        private final int gridWidth;
+        private final int gridHeight;
+        private final int[] gridHead;
+
+        // Placed and blocked points
+        private float[] pointX = new float[16];
+        private float[] pointZ = new float[16];
+        private int[] pointNext = new int[16];
+        private int pointCount = 0;
+
+        // Samples that may still have room around them
+        private int[] active = new int[16];
+        private int activeCount = 0;
+
+        // Fallback scan over the bounds, built on first use
+        private int[] scanOrder;
+        private int scanCursor = 0;
+
+        private Sampler(float minDistance, Random random, int boundsMinX, int boundsMinZ, int boundsMaxX, int boundsMaxZ) {
+            this.minDistance = Math.max(minDistance, 0.01f); // Keeps the background grid finite
+            this.minDistanceSquared = this.minDistance * this.minDistance;
+            this.random = random;
+            this.boundsMinX = boundsMinX;
+            this.boundsMinZ = boundsMinZ;
+            this.boundsMaxX = boundsMaxX;
+            this.boundsMaxZ = boundsMaxZ;
+            this.cellSize = this.minDistance / FastMath.sqrt(2f);
+            this.gridOriginX = minX + boundsMinX - 0.5f;
+            this.gridOriginZ = minZ + boundsMinZ - 0.5f;
+            this.gridWidth = Math.max(1, (int) Math.ceil((boundsMaxX - boundsMinX + 1) / cellSize));
+            this.gridHeight = Math.max(1, (int) Math.ceil((boundsMaxZ - boundsMinZ + 1) / cellSize));
+            this.gridHead = new int[gridWidth * gridHeight];
+            Arrays.fill(gridHead, -1);
+        }
+
+        /**
+         * Keep later samples away from an existing entity (which may lie outside the bounds)
+         */
+        public void block(Vector3f position) {
+            addPoint(position.x, position.z);
+        }
+
+        /**
+         * Place one more entity
+         * @param filter extra condition on the position, or null
+         * @return the position, or null if no walkable position within the
+         *         bounds passes the filter and the distance check
+         */
+        public Vector3f next(PositionFilter filter) {
+            // Grow the Poisson-disk front from a random active sample
+            while (activeCount > 0) {
+                int slot = random.nextInt(activeCount);
+                int point = active[slot];
+                for (int i = 0; i < CANDIDATES; i++) {
+                    float angle = random.nextFloat() * FastMath.TWO_PI;
+                    float distance = minDistance * (1f + random.nextFloat());
+                    float x = pointX[point] + FastMath.cos(angle) * distance;
+                    float z = pointZ[point] + FastMath.sin(angle) * distance;
+                    if (accepts(x, z, filter)) {
+                        return place(x, z);
+                    }
+                }
+                active[slot] = active[--activeCount];
+            }
+
+            if (boundsMaxX < boundsMinX || boundsMaxZ < boundsMinZ) {
+                return null; // Bounds entirely outside the map
+            }
+
+            // Start a new front at a random cell of the bounds
+            for (int i = 0; i < CANDIDATES; i++) {
+                float x = minX + boundsMinX + random.nextInt(boundsMaxX - boundsMinX + 1);
+                float z = minZ + boundsMinZ + random.nextInt(boundsMaxZ - boundsMinZ + 1);
+                if (accepts(x, z, filter)) {
+                    return place(x, z);
+                }
+            }
+
+            // Scan the walkable cells of the bounds. Cells too close to a
+            // placed point stay unusable, so a leading run of them is skipped
+            // for good; cells the filter rejects are kept for later calls.
+            int[] order = getScanOrder();
+            boolean deadSoFar = true;
+            for (int i = scanCursor; i < order.length; i++) {
+                float x = minX + order[i] % width;
+                float z = minZ + order[i] / width;
+                if (!isFree(x, z)) {
+                    if (deadSoFar) {
+                        scanCursor = i + 1;
+                    }
+                } else if (filter != null && !filter.accept(x, z)) {
+                    deadSoFar = false;
+                } else {
+                    return place(x, z);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The walkable cells of the bounds, row by row from a random row
+         */
+        private int[] getScanOrder() {
+            if (scanOrder == null) {
+                int rows = boundsMaxZ - boundsMinZ + 1;
+                int firstRow = random.nextInt(rows);
+                int[] order = new int[cells.length];
+                int count = 0;
+                for (int i = 0; i < rows; i++) {
+                    int rowStart = (boundsMinZ + (firstRow + i) % rows) * width;
+                    int index = Arrays.binarySearch(cells, rowStart + boundsMinX);
+                    for (index = index < 0 ? -index - 1 : index;
+                         index < cells.length && cells[index] <= rowStart + boundsMaxX; index++) {
+                        order[count++] = cells[index];
+                    }
+                }
+                scanOrder = Arrays.copyOf(order, count);
+            }
+            return scanOrder;
+        }
+
+        private boolean accepts(float x, float z, PositionFilter filter) {
+            return isFree(x, z) && (filter == null || filter.accept(x, z));
+        }
+
+        /**
+         * Check that a position is walkable, inside the bounds and at least
+         * minDistance from every point
+         */
+        private boolean isFree(float x, float z) {
+            int cellX = Math.round(x) - minX;
+            int cellZ = Math.round(z) - minZ;
+            if (cellX < boundsMinX || cellX > boundsMaxX || cellZ < boundsMinZ || cellZ > boundsMaxZ
+                    || !walkable.get(cellZ * width + cellX)) {
+                return false;
+            }
+            // A point closer than minDistance is at most 2 grid cells away
+            int gridX = gridX(x);
+            int gridZ = gridZ(z);
+            for (int gz = Math.max(0, gridZ - 2); gz <= Math.min(gridHeight - 1, gridZ + 2); gz++) {
+                for (int gx = Math.max(0, gridX - 2); gx <= Math.min(gridWidth - 1, gridX + 2); gx++) {
+                    for (int point = gridHead[gz * gridWidth + gx]; point >= 0; point = pointNext[point]) {
+                        float dx = pointX[point] - x;
+                        float dz = pointZ[point] - z;
+                        if (dx * dx + dz * dz < minDistanceSquared) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        private Vector3f place(float x, float z) {
+            int point = addPoint(x, z);
+            if (activeCount == active.length) {
+                active = Arrays.copyOf(active, activeCount * 2);
+            }
+            active[activeCount++] = point;
+            return new Vector3f(x, 0, z);
+        }
+
+        private int addPoint(float x, float z) {
+            if (pointCount == pointX.length) {
+                pointX = Arrays.copyOf(pointX, pointCount * 2);
+                pointZ = Arrays.copyOf(pointZ, pointCount * 2);
+                pointNext = Arrays.copyOf(pointNext, pointCount * 2);
+            }
+            int point = pointCount++;
+            pointX[point] = x;
+            pointZ[point] = z;
+            // Points outside the bounds go in the nearest edge cell, which is
+            // still within 2 cells of any candidate they could be too close to
+            int gridCell = gridZ(z) * gridWidth + gridX(x);
+            pointNext[point] = gridHead[gridCell];
+            gridHead[gridCell] = point;
+            return point;
+        }
+
+        private int gridX(float x) {
+            return Math.max(0, Math.min(gridWidth - 1, (int) Math.floor((x - gridOriginX) / cellSize)));
+        }
+
+        private int gridZ(float z) {
+            return Math.max(0, Math.min(gridHeight - 1, (int) Math.floor((z - gridOriginZ) / cellSize)));
+        }
+    }
+}
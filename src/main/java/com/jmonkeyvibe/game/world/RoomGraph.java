@@ -0,0 +1,171 @@
+package com.jmonkeyvibe.game.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rooms of a dungeon and the corridors the generator carved between them.
+ *
+ * Every cell of the grid belongs to exactly one room: the room's own floor,
+ * then corridor floor by breadth-first distance from the nearest room, then
+ * walls and rock by spreading on from the floor. Shaped rooms can reach into
+ * each other's rectangles; floor inside several rectangles goes to the first
+ * room. The graph never changes once built, so a broken wall keeps the room
+ * it was assigned and layout copies share it.
+ */
+public class RoomGraph {
+
+    private final int width;
+    private final int height;
+    // Room of every cell (z * width + x)
+    private final int[] roomOfCell;
+    private final int roomCount;
+    // Carved rectangle (x, z, width, height) and cell bounds (minX, minZ, maxX, maxZ) per room
+    private final int[][] roomRects;
+    private final int[][] bounds;
+    private final List<int[]> corridors;
+
+    private RoomGraph(int[][] cells, int[][] roomRects, List<int[]> corridors) {
+        this.width = cells.length;
+        this.height = width > 0 ? cells[0].length : 0;
+        this.roomRects = roomRects.length > 0 ? roomRects : new int[][]{{0, 0, width, height}};
+        this.roomCount = this.roomRects.length;
+        this.corridors = Collections.unmodifiableList(new ArrayList<>(corridors));
+        this.roomOfCell = new int[width * height];
+        this.bounds = new int[roomCount][];
+        assignCells(cells);
+    }
+
+    /**
+     * Build the graph of a generated grid
+     * @param cells the cell grid indexed [x][z]
+     * @param roomRects the carved rectangle of each room as {x, z, width, height}
+     * @param corridors the rooms each corridor was carved between, as {roomA, roomB}
+     */
+    public static RoomGraph build(int[][] cells, int[][] roomRects, List<int[]> corridors) {
+        return new RoomGraph(cells, roomRects, corridors);
+    }
+
+    /**
+     * Give every cell to a room: breadth-first over floor from the rooms'
+     * own floor, then over everything else from all floor cells
+     */
+    private void assignCells(int[][] cells) {
+        Arrays.fill(roomOfCell, -1);
+        int[] queue = new int[roomOfCell.length];
+        int tail = 0;
+        for (int room = 0; room < roomCount; room++) {
+            int[] rect = roomRects[room];
+            for (int x = Math.max(0, rect[0]); x < Math.min(width, rect[0] + rect[2]); x++) {
+                for (int z = Math.max(0, rect[1]); z < Math.min(height, rect[1] + rect[3]); z++) {
+                    int cell = z * width + x;
+                    if (cells[x][z] == DungeonLayout.FLOOR && roomOfCell[cell] < 0) {
+                        roomOfCell[cell] = room;
+                        queue[tail++] = cell;
+                    }
+                }
+            }
+        }
+        tail = flood(cells, queue, 0, tail, true);
+        if (tail == 0 && roomOfCell.length > 0) {
+            // No floor at all: the whole grid is the first room
+            roomOfCell[0] = 0;
+            queue[tail++] = 0;
+        }
+        // Every cell claimed so far is in the queue, in breadth-first order
+        flood(cells, queue, 0, tail, false);
+
+        for (int cell = 0; cell < roomOfCell.length; cell++) {
+            int x = cell % width;
+            int z = cell / width;
+            int[] box = bounds[roomOfCell[cell]];
+            if (box == null) {
+                bounds[roomOfCell[cell]] = new int[]{x, z, x, z};
+            } else {
+                box[0] = Math.min(box[0], x);
+                box[1] = Math.min(box[1], z);
+                box[2] = Math.max(box[2], x);
+                box[3] = Math.max(box[3], z);
+            }
+        }
+        for (int room = 0; room < roomCount; room++) {
+            if (bounds[room] == null) {
+                // Carved over by other rooms' corridors; owns no cell
+                bounds[room] = new int[]{0, 0, -1, -1};
+            }
+        }
+    }
+
+    /**
+     * Spread the rooms of queue[head, tail) to their unclaimed neighbours
+     * @return the new tail of the queue
+     */
+    private int flood(int[][] cells, int[] queue, int head, int tail, boolean floorOnly) {
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int z = cell / width;
+            int room = roomOfCell[cell];
+            if (x > 0) {
+                tail = claim(cells, queue, tail, floorOnly, room, x - 1, z);
+            }
+            if (x + 1 < width) {
+                tail = claim(cells, queue, tail, floorOnly, room, x + 1, z);
+            }
+            if (z > 0) {
+                tail = claim(cells, queue, tail, floorOnly, room, x, z - 1);
+            }
+            if (z + 1 < height) {
+                tail = claim(cells, queue, tail, floorOnly, room, x, z + 1);
+            }
+        }
+        return tail;
+    }
+
+    private int claim(int[][] cells, int[] queue, int tail, boolean floorOnly, int room, int x, int z) {
+        int cell = z * width + x;
+        if (roomOfCell[cell] < 0 && (!floorOnly || cells[x][z] == DungeonLayout.FLOOR)) {
+            roomOfCell[cell] = room;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    /**
+     * @return the room a cell belongs to, or -1 outside the grid
+     */
+    public int getRoom(int x, int z) {
+        if (x < 0 || x >= width || z < 0 || z >= height) {
+            return -1;
+        }
+        return roomOfCell[z * width + x];
+    }
+
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    /**
+     * @return the cells a room covers as {minX, minZ, maxX, maxZ}, inclusive;
+     *         empty (max below min) if it owns no cell
+     */
+    public int[] getBounds(int room) {
+        return bounds[room].clone();
+    }
+
+    /**
+     * @return the carved rectangle of a room as {x, z, width, height}
+     */
+    public int[] getRoomRect(int room) {
+        return roomRects[room].clone();
+    }
+
+    /**
+     * @return the generator's corridors as {roomA, roomB} pairs
+     */
+    public List<int[]> getCorridors() {
+        return corridors;
+    }
+}
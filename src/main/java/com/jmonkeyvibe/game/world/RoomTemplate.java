@@ -0,0 +1,169 @@
+package com.jmonkeyvibe.game.world;
+
+/**
+ * A dungeon room shape, pre-packed as bitmasks for CollisionGrid.stamp().
+ *
+ * Each row of the shape is one long: bit i of shape[z] is the cell (i, z)
+ * of the room, set where the room has floor. The footprint is the shape
+ * grown by one cell in all eight directions, with its origin at (-1, -1);
+ * a room may be placed where its footprint misses every other room's
+ * shape, which keeps at least one wall between rooms however they are
+ * shaped. Both fit in 64 bits per row, so rooms are at most MAX_SIZE wide.
+ *
+ * The anchor is the floor cell nearest the middle of the room, where
+ * corridors attach; for a rectangle it is (width / 2, height / 2).
+ * Templates are immutable and shared between generators.
+ */
+public final class RoomTemplate {
+
+    /** Widest room whose footprint still fits a 64-bit row */
+    public static final int MAX_SIZE = 62;
+
+    private final String name;
+    private final int width;
+    private final int height;
+    private final long[] shape;
+    private final long[] footprint;
+    private final int anchorX;
+    private final int anchorZ;
+    private final int floorCount;
+
+    private RoomTemplate(String name, int width, int height, long[] shape) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.shape = shape;
+        this.footprint = new long[height + 2];
+        for (int z = 0; z < height; z++) {
+            long grown = shape[z] | (shape[z] << 1) | (shape[z] << 2);
+            footprint[z] |= grown;
+            footprint[z + 1] |= grown;
+            footprint[z + 2] |= grown;
+        }
+
+        int bestX = -1;
+        int bestZ = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int floor = 0;
+        for (int z = 0; z < height; z++) {
+            for (int x = 0; x < width; x++) {
+                if (isFloor(x, z)) {
+                    floor++;
+                    int distance = (x - width / 2) * (x - width / 2) + (z - height / 2) * (z - height / 2);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        bestX = x;
+                        bestZ = z;
+                    }
+                }
+            }
+        }
+        if (floor == 0) {
+            throw new IllegalArgumentException("Room template " + name + " has no floor");
+        }
+        this.anchorX = bestX;
+        this.anchorZ = bestZ;
+        this.floorCount = floor;
+    }
+
+    /**
+     * Parse a template drawn as text, one string per row (z), '.' for floor
+     * and any other character for solid rock
+     */
+    public static RoomTemplate parse(String name, String... rows) {
+        int height = rows.length;
+        int width = height > 0 ? rows[0].length() : 0;
+        checkSize(name, width, height);
+        long[] shape = new long[height];
+        for (int z = 0; z < height; z++) {
+            if (rows[z].length() != width) {
+                throw new IllegalArgumentException("Room template " + name + " has rows of different lengths");
+            }
+            for (int x = 0; x < width; x++) {
+                if (rows[z].charAt(x) == '.') {
+                    shape[z] |= 1L << x;
+                }
+            }
+        }
+        return new RoomTemplate(name, width, height, shape);
+    }
+
+    /**
+     * A plain rectangular room
+     */
+    public static RoomTemplate rectangle(int width, int height) {
+        String name = width + "x" + height;
+        checkSize(name, width, height);
+        long[] shape = new long[height];
+        long row = (1L << width) - 1;
+        for (int z = 0; z < height; z++) {
+            shape[z] = row;
+        }
+        return new RoomTemplate(name, width, height, shape);
+    }
+
+    private static void checkSize(String name, int width, int height) {
+        if (width < 1 || height < 1 || width > MAX_SIZE) {
+            throw new IllegalArgumentException("Bad room template size " + width + "x" + height + " for " + name);
+        }
+    }
+
+    /**
+     * @return this template turned a quarter clockwise (width and height swap)
+     */
+    public RoomTemplate rotate() {
+        checkSize(name, height, width);
+        long[] rotated = new long[width];
+        for (int z = 0; z < height; z++) {
+            for (int x = 0; x < width; x++) {
+                if (isFloor(x, z)) {
+                    // (x, z) moves to (height - 1 - z, x)
+                    rotated[x] |= 1L << (height - 1 - z);
+                }
+            }
+        }
+        return new RoomTemplate(name + "'", height, width, rotated);
+    }
+
+    public boolean isFloor(int x, int z) {
+        return x >= 0 && x < width && z >= 0 && z < height && (shape[z] & (1L << x)) != 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the floor rows, to stamp at the room's corner (not a copy; do not modify)
+     */
+    public long[] getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the grown rows, to test at the room's corner minus (1, 1) (not a copy; do not modify)
+     */
+    public long[] getFootprint() {
+        return footprint;
+    }
+
+    public int getAnchorX() {
+        return anchorX;
+    }
+
+    public int getAnchorZ() {
+        return anchorZ;
+    }
+
+    public int getFloorCount() {
+        return floorCount;
+    }
+}
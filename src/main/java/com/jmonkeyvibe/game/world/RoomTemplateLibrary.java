@@ -0,0 +1,149 @@
+package com.jmonkeyvibe.game.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The room shapes the dungeon generator places: handcrafted prefabs
+ * (pillared halls, L-shapes, arenas, ...) in all their distinct rotations,
+ * and plain rectangles of every size up to MAX_RECTANGLE, all packed once.
+ *
+ * Immutable; the default library is shared by every generator.
+ */
+public final class RoomTemplateLibrary {
+
+    /** Largest rectangle side kept ready-made; larger ones are packed on demand */
+    public static final int MAX_RECTANGLE = 16;
+
+    private static final RoomTemplateLibrary DEFAULT = new RoomTemplateLibrary(createDefaultPrefabs());
+
+    private final List<RoomTemplate> prefabs;
+    private final RoomTemplate[][] rectangles;
+
+    public RoomTemplateLibrary(List<RoomTemplate> prefabs) {
+        this.prefabs = Collections.unmodifiableList(new ArrayList<>(prefabs));
+        this.rectangles = new RoomTemplate[MAX_RECTANGLE + 1][MAX_RECTANGLE + 1];
+        for (int width = 1; width <= MAX_RECTANGLE; width++) {
+            for (int height = 1; height <= MAX_RECTANGLE; height++) {
+                rectangles[width][height] = RoomTemplate.rectangle(width, height);
+            }
+        }
+    }
+
+    public static RoomTemplateLibrary getDefault() {
+        return DEFAULT;
+    }
+
+    public List<RoomTemplate> getPrefabs() {
+        return prefabs;
+    }
+
+    public RoomTemplate getRectangle(int width, int height) {
+        if (width <= MAX_RECTANGLE && height <= MAX_RECTANGLE) {
+            return rectangles[width][height];
+        }
+        return RoomTemplate.rectangle(width, height);
+    }
+
+    /**
+     * Pick a random prefab; one random draw, whatever the outcome
+     * @return the prefab, or null if the one drawn is larger than
+     *         maxWidth x maxHeight (or there are none)
+     */
+    public RoomTemplate randomPrefab(Random random, int maxWidth, int maxHeight) {
+        if (prefabs.isEmpty()) {
+            return null;
+        }
+        RoomTemplate prefab = prefabs.get(random.nextInt(prefabs.size()));
+        return prefab.getWidth() <= maxWidth && prefab.getHeight() <= maxHeight ? prefab : null;
+    }
+
+    private static List<RoomTemplate> createDefaultPrefabs() {
+        List<RoomTemplate> prefabs = new ArrayList<>();
+        prefabs.add(RoomTemplate.parse("pillars",
+            "........",
+            "........",
+            "..#..#..",
+            "........",
+            "........",
+            "..#..#..",
+            "........",
+            "........"));
+        addRotations(prefabs, RoomTemplate.parse("l-shape",
+            "....#####",
+            "....#####",
+            "....#####",
+            "....#####",
+            ".........",
+            ".........",
+            ".........",
+            "........."));
+        prefabs.add(RoomTemplate.parse("arena",
+            "###.....###",
+            "##.......##",
+            "#.........#",
+            "...........",
+            "....#.#....",
+            ".....#.....",
+            "....#.#....",
+            "...........",
+            "#.........#",
+            "##.......##",
+            "###.....###"));
+        prefabs.add(RoomTemplate.parse("cross",
+            "###...###",
+            "###...###",
+            "###...###",
+            ".........",
+            ".........",
+            ".........",
+            "###...###",
+            "###...###",
+            "###...###"));
+        prefabs.add(RoomTemplate.parse("courtyard",
+            "..........",
+            "..........",
+            "..........",
+            "...####...",
+            "...####...",
+            "...####...",
+            "...####...",
+            "..........",
+            "..........",
+            ".........."));
+        addRotations(prefabs, RoomTemplate.parse("alcoves",
+            ".#.#.#.#.",
+            ".........",
+            ".........",
+            ".........",
+            ".#.#.#.#."));
+        return prefabs;
+    }
+
+    /**
+     * Add a template and its rotations that differ from the ones added
+     */
+    private static void addRotations(List<RoomTemplate> prefabs, RoomTemplate template) {
+        List<RoomTemplate> added = new ArrayList<>();
+        RoomTemplate rotation = template;
+        for (int turn = 0; turn < 4; turn++) {
+            boolean duplicate = false;
+            for (RoomTemplate other : added) {
+                duplicate |= sameShape(other, rotation);
+            }
+            if (!duplicate) {
+                added.add(rotation);
+            }
+            rotation = rotation.rotate();
+        }
+        prefabs.addAll(added);
+    }
+
+    private static boolean sameShape(RoomTemplate a, RoomTemplate b) {
+        return a.getWidth() == b.getWidth() && a.getHeight() == b.getHeight()
+            && Arrays.equals(a.getShape(), b.getShape());
+    }
+}
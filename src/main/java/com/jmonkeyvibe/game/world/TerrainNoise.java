@@ -0,0 +1,169 @@
+package com.jmonkeyvibe.game.world;
+
+/**
+ * Seeded, coordinate-addressable fractal value noise.
+ *
+ * Every sample is a pure function of (seed, x, z): there is no hidden state,
+ * so any region of the world can be evaluated independently, in any order and
+ * on any thread, and the same seed always produces the same terrain.
+ *
+ * Lattice values come from an integer hash of the cell coordinates, are
+ * interpolated with a smoothstep curve, and OCTAVES layers are summed with
+ * halving amplitude (fBm). Results are normalized to [0, 1].
+ *
+ * Block fills can run on a SIMD kernel built on the incubating Vector API
+ * (VectorNoiseKernel). It performs exactly the same float operations in the
+ * same order, so its output is bit-identical to the scalar path. It is used
+ * when the JVM was started with --add-modules jdk.incubator.vector, unless
+ * -Djmonkeyvibe.simdNoise=false is set.
+ */
+public final class TerrainNoise {
+
+    /** System property that switches the SIMD kernel on or off */
+    public static final String SIMD_PROPERTY = "jmonkeyvibe.simdNoise";
+
+    public static final int OCTAVES = 4;
+    static final float LACUNARITY = 2.0f;
+    static final float GAIN = 0.5f;
+    static final float INV_HASH_RANGE = 1.0f / 16777215.0f;
+    static final int OCTAVE_SEED_STEP = 1013;
+
+    private static volatile boolean simdEnabled = initialSimdSetting();
+
+    private final int seed;
+    private final float normalization;
+
+    public TerrainNoise(long seed) {
+        this.seed = (int) (seed ^ (seed >>> 32));
+
+        float amplitudeSum = 0f;
+        float amplitude = 1f;
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            amplitudeSum += amplitude;
+            amplitude *= GAIN;
+        }
+        this.normalization = 1f / amplitudeSum;
+    }
+
+    /**
+     * Fractal noise at a world position, scaled by frequency
+     * @return a value in [0, 1]
+     */
+    public float sample(float x, float z, float frequency) {
+        float sum = 0f;
+        float amplitude = 1f;
+        float fx = x * frequency;
+        float fz = z * frequency;
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            sum += amplitude * valueNoise(fx, fz, seed + octave * OCTAVE_SEED_STEP);
+            fx *= LACUNARITY;
+            fz *= LACUNARITY;
+            amplitude *= GAIN;
+        }
+        return sum * normalization;
+    }
+
+    /**
+     * Fill a row-major width x height block of samples starting at integer
+     * world coordinates (originX, originZ): out[row * width + column]
+     */
+    public void fill(float[] out, int originX, int originZ, int width, int height, float frequency) {
+        if (simdEnabled) {
+            VectorNoiseKernel.fill(this, out, originX, originZ, width, height, frequency);
+        } else {
+            fillScalar(out, originX, originZ, width, height, frequency);
+        }
+    }
+
+    /**
+     * Reference implementation of fill(), one sample at a time
+     */
+    public void fillScalar(float[] out, int originX, int originZ, int width, int height, float frequency) {
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                out[row * width + column] = sample(originX + column, originZ + row, frequency);
+            }
+        }
+    }
+
+    int getSeed() {
+        return seed;
+    }
+
+    float getNormalization() {
+        return normalization;
+    }
+
+    /**
+     * Whether the jdk.incubator.vector module was resolved at startup
+     */
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    public static boolean isSimdEnabled() {
+        return simdEnabled;
+    }
+
+    /**
+     * Switch the SIMD kernel on or off at runtime. Has no effect if the
+     * Vector API module is not available.
+     */
+    public static void setSimdEnabled(boolean enabled) {
+        simdEnabled = enabled && isVectorApiAvailable();
+    }
+
+    private static boolean initialSimdSetting() {
+        String setting = System.getProperty(SIMD_PROPERTY);
+        if ("false".equalsIgnoreCase(setting)) {
+            return false;
+        }
+        if (!isVectorApiAvailable()) {
+            if ("true".equalsIgnoreCase(setting)) {
+                System.out.println("Warning: " + SIMD_PROPERTY + "=true but jdk.incubator.vector is not available. "
+                    + "Start the JVM with --add-modules jdk.incubator.vector. Using scalar noise.");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Single octave of smoothly interpolated lattice noise, in [0, 1]
+     */
+    static float valueNoise(float x, float z, int octaveSeed) {
+        int x0 = floor(x);
+        int z0 = floor(z);
+        float tx = smooth(x - x0);
+        float tz = smooth(z - z0);
+
+        float v00 = lattice(x0, z0, octaveSeed);
+        float v10 = lattice(x0 + 1, z0, octaveSeed);
+        float v01 = lattice(x0, z0 + 1, octaveSeed);
+        float v11 = lattice(x0 + 1, z0 + 1, octaveSeed);
+
+        float top = v00 + (v10 - v00) * tx;
+        float bottom = v01 + (v11 - v01) * tx;
+        return top + (bottom - top) * tz;
+    }
+
+    static float lattice(int x, int z, int octaveSeed) {
+        return (hash(x, z, octaveSeed) & 0xFFFFFF) * INV_HASH_RANGE;
+    }
+
+    static int hash(int x, int z, int octaveSeed) {
+        int h = octaveSeed ^ (x * 0x27D4EB2D) ^ (z * 0x165667B1);
+        h = (h ^ (h >>> 15)) * 0x85EBCA6B;
+        h = (h ^ (h >>> 13)) * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    static float smooth(float t) {
+        return t * t * (3f - 2f * t);
+    }
+
+    static int floor(float value) {
+        int truncated = (int) value;
+        return value < truncated ? truncated - 1 : truncated;
+    }
+}
@@ -0,0 +1,125 @@
+package com.jmonkeyvibe.game.world;
+
+import java.util.Arrays;
+
+/**
+ * Tile data for one CHUNK_SIZE x CHUNK_SIZE overworld chunk.
+ *
+ * Tiles are stored as one byte each, indexing into a small per-chunk palette
+ * of the tile types that actually occur in the chunk (1 KB per chunk).
+ * Index layout is [localZ * CHUNK_SIZE + localX].
+ *
+ * Next to the tiles, a chunk keeps a low-resolution summary for the world
+ * map: the dominant tile type of every SUMMARY_BLOCK x SUMMARY_BLOCK block.
+ * It is computed on first use and recomputed only after a tile changes.
+ */
+public class TileChunk {
+
+    public static final int SIZE = WorldGenerator.CHUNK_SIZE;
+    public static final int TILE_COUNT = SIZE * SIZE;
+
+    /** Edge length in tiles of one summary block */
+    public static final int SUMMARY_BLOCK = 8;
+    /** Summary edge length in blocks; the summary holds SUMMARY_SIZE * SUMMARY_SIZE entries */
+    public static final int SUMMARY_SIZE = SIZE / SUMMARY_BLOCK;
+
+    private final int chunkX;
+    private final int chunkZ;
+    private final byte[] tiles;
+    private TileType[] palette;
+    // Walkability per palette entry, so isWalkable() is two array reads
+    private boolean[] walkable;
+    // Dominant TileType ordinal per block, [blockZ * SUMMARY_SIZE + blockX]; null when stale
+    private byte[] summary;
+
+    public TileChunk(int chunkX, int chunkZ, TileType[] types) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.tiles = new byte[TILE_COUNT];
+        this.palette = new TileType[0];
+        this.walkable = new boolean[0];
+        for (int i = 0; i < TILE_COUNT; i++) {
+            tiles[i] = (byte) paletteIndex(types[i]);
+        }
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    public TileType getTile(int localX, int localZ) {
+        return palette[tiles[localZ * SIZE + localX] & 0xFF];
+    }
+
+    public boolean isWalkable(int localX, int localZ) {
+        return walkable[tiles[localZ * SIZE + localX] & 0xFF];
+    }
+
+    public void setTile(int localX, int localZ, TileType type) {
+        tiles[localZ * SIZE + localX] = (byte) paletteIndex(type);
+        summary = null;
+    }
+
+    /**
+     * Dominant tile type ordinal of every summary block, indexed
+     * [blockZ * SUMMARY_SIZE + blockX]. Do not modify the returned array.
+     */
+    public byte[] getSummary() {
+        if (summary == null) {
+            summary = computeSummary();
+        }
+        return summary;
+    }
+
+    private byte[] computeSummary() {
+        byte[] result = new byte[SUMMARY_SIZE * SUMMARY_SIZE];
+        int[] counts = new int[palette.length];
+        for (int blockZ = 0; blockZ < SUMMARY_SIZE; blockZ++) {
+            for (int blockX = 0; blockX < SUMMARY_SIZE; blockX++) {
+                Arrays.fill(counts, 0);
+                for (int localZ = blockZ * SUMMARY_BLOCK; localZ < (blockZ + 1) * SUMMARY_BLOCK; localZ++) {
+                    int row = localZ * SIZE;
+                    for (int localX = blockX * SUMMARY_BLOCK; localX < (blockX + 1) * SUMMARY_BLOCK; localX++) {
+                        counts[tiles[row + localX] & 0xFF]++;
+                    }
+                }
+                int dominant = 0;
+                for (int i = 1; i < counts.length; i++) {
+                    if (counts[i] > counts[dominant]) {
+                        dominant = i;
+                    }
+                }
+                result[blockZ * SUMMARY_SIZE + blockX] = (byte) palette[dominant].ordinal();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expand the chunk back into one TileType per tile, e.g. for meshing
+     */
+    public TileType[] toTileArray() {
+        TileType[] types = new TileType[TILE_COUNT];
+        for (int i = 0; i < TILE_COUNT; i++) {
+            types[i] = palette[tiles[i] & 0xFF];
+        }
+        return types;
+    }
+
+    private int paletteIndex(TileType type) {
+        for (int i = 0; i < palette.length; i++) {
+            if (palette[i] == type) {
+                return i;
+            }
+        }
+        palette = Arrays.copyOf(palette, palette.length + 1);
+        walkable = Arrays.copyOf(walkable, walkable.length + 1);
+        palette[palette.length - 1] = type;
+        walkable[walkable.length - 1] = type.isWalkable();
+        return palette.length - 1;
+    }
+}
@@ -0,0 +1,113 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates flat, vertex-colored quads on the XZ plane and bakes them
+ * into a single mesh, so a whole block of tiles costs one draw call.
+ *
+ * Quads face +Y (towards the top-down camera). Tile (x, z) covers
+ * [x - 0.5, x + 0.5] x [z - 0.5, z + 0.5], matching the rounding used by
+ * the collision checks.
+ */
+public class TileMeshBuilder {
+
+    private float[] positions;
+    private float[] colors;
+    private int quadCount;
+
+    public TileMeshBuilder() {
+        this(64);
+    }
+
+    public TileMeshBuilder(int expectedQuads) {
+        int capacity = Math.max(1, expectedQuads);
+        this.positions = new float[capacity * 4 * 3];
+        this.colors = new float[capacity * 4 * 4];
+    }
+
+    /**
+     * Add a single 1x1 tile centered on (x, z)
+     */
+    public void addTile(float x, float z, ColorRGBA color) {
+        addQuad(x - 0.5f, z - 0.5f, x + 0.5f, z + 0.5f, color);
+    }
+
+    /**
+     * Add an axis-aligned quad spanning [x0, x1] x [z0, z1]
+     */
+    public void addQuad(float x0, float z0, float x1, float z1, ColorRGBA color) {
+        ensureCapacity(quadCount + 1);
+
+        // Vertex order matches a Quad rotated -90 degrees around X (normal +Y)
+        int p = quadCount * 12;
+        positions[p]      = x0; positions[p + 1]  = 0; positions[p + 2]  = z1;
+        positions[p + 3]  = x1; positions[p + 4]  = 0; positions[p + 5]  = z1;
+        positions[p + 6]  = x1; positions[p + 7]  = 0; positions[p + 8]  = z0;
+        positions[p + 9]  = x0; positions[p + 10] = 0; positions[p + 11] = z0;
+
+        int c = quadCount * 16;
+        for (int v = 0; v < 4; v++) {
+            colors[c++] = color.r;
+            colors[c++] = color.g;
+            colors[c++] = color.b;
+            colors[c++] = color.a;
+        }
+        quadCount++;
+    }
+
+    public int getQuadCount() {
+        return quadCount;
+    }
+
+    public boolean isEmpty() {
+        return quadCount == 0;
+    }
+
+    /**
+     * Forget all accumulated quads so the builder can be reused
+     */
+    public void clear() {
+        quadCount = 0;
+    }
+
+    /**
+     * Bake the accumulated quads into a new mesh
+     */
+    public Mesh build() {
+        int vertexCount = quadCount * 4;
+        int[] indices = new int[quadCount * 6];
+        for (int q = 0, i = 0; q < quadCount; q++) {
+            int base = q * 4;
+            indices[i++] = base;
+            indices[i++] = base + 1;
+            indices[i++] = base + 2;
+            indices[i++] = base;
+            indices[i++] = base + 2;
+            indices[i++] = base + 3;
+        }
+
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(VertexBuffer.Type.Position, 3,
+            BufferUtils.createFloatBuffer(Arrays.copyOf(positions, vertexCount * 3)));
+        mesh.setBuffer(VertexBuffer.Type.Color, 4,
+            BufferUtils.createFloatBuffer(Arrays.copyOf(colors, vertexCount * 4)));
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, BufferUtils.createIntBuffer(indices));
+        mesh.updateBound();
+        mesh.updateCounts();
+        return mesh;
+    }
+
+    private void ensureCapacity(int quads) {
+        if (quads * 12 > positions.length) {
+            int newQuads = Math.max(quads, positions.length / 12 * 2);
+            positions = Arrays.copyOf(positions, newQuads * 12);
+            colors = Arrays.copyOf(colors, newQuads * 16);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.jmonkeyvibe.game.world;
+
+import com.jme3.math.ColorRGBA;
+
+/**
+ * Overworld tile types with associated colors and walkability
+ */
+public enum TileType {
+    GRASS(new ColorRGBA(0.2f, 0.6f, 0.2f, 1.0f), true),
+    DIRT(new ColorRGBA(0.5f, 0.35f, 0.2f, 1.0f), true),
+    STONE(new ColorRGBA(0.5f, 0.5f, 0.5f, 1.0f), true),
+    WATER(new ColorRGBA(0.2f, 0.4f, 0.8f, 1.0f), false);
+
+    private static final TileType[] VALUES = values();
+
+    private final ColorRGBA color;
+    private final boolean walkable;
+
+    TileType(ColorRGBA color, boolean walkable) {
+        this.color = color;
+        this.walkable = walkable;
+    }
+
+    public ColorRGBA getColor() {
+        return color;
+    }
+
+    public boolean isWalkable() {
+        return walkable;
+    }
+
+    /**
+     * Look up a tile type by ordinal without allocating a values() array
+     */
+    public static TileType fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,103 @@
+package com.jmonkeyvibe.game.world;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD version of TerrainNoise.fill() using the incubating Vector API.
+ *
+ * Each vector holds consecutive samples of one row. Everything that only
+ * depends on the row (z lattice cell, z interpolation weight, z hash term)
+ * is computed once per row and octave as a scalar. The lane-wise operations
+ * mirror the scalar code exactly (same operations, same order, no fused
+ * multiply-add), so results are bit-identical to TerrainNoise.fillScalar().
+ *
+ * Only loaded when TerrainNoise decides the Vector API is available.
+ */
+final class VectorNoiseKernel {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    private VectorNoiseKernel() {
+    }
+
+    static void fill(TerrainNoise noise, float[] out, int originX, int originZ,
+                     int width, int height, float frequency) {
+        int lanes = FLOATS.length();
+        int bound = FLOATS.loopBound(width);
+        IntVector laneOffsets = IntVector.zero(INTS).addIndex(1);
+
+        for (int row = 0; row < height; row++) {
+            float z = originZ + row;
+            int column = 0;
+            for (; column < bound; column += lanes) {
+                FloatVector x = (FloatVector) laneOffsets.add(originX + column)
+                    .convert(VectorOperators.I2F, 0);
+                fbm(noise, x, z, frequency).intoArray(out, row * width + column);
+            }
+            // Scalar tail for widths that are not a multiple of the vector length
+            for (; column < width; column++) {
+                out[row * width + column] = noise.sample(originX + column, z, frequency);
+            }
+        }
+    }
+
+    private static FloatVector fbm(TerrainNoise noise, FloatVector x, float z, float frequency) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        float amplitude = 1f;
+        FloatVector fx = x.mul(frequency);
+        float fz = z * frequency;
+        for (int octave = 0; octave < TerrainNoise.OCTAVES; octave++) {
+            int octaveSeed = noise.getSeed() + octave * TerrainNoise.OCTAVE_SEED_STEP;
+            sum = sum.add(valueNoise(fx, fz, octaveSeed).mul(amplitude));
+            fx = fx.mul(TerrainNoise.LACUNARITY);
+            fz *= TerrainNoise.LACUNARITY;
+            amplitude *= TerrainNoise.GAIN;
+        }
+        return sum.mul(noise.getNormalization());
+    }
+
+    private static FloatVector valueNoise(FloatVector x, float z, int octaveSeed) {
+        IntVector x0 = floor(x);
+        int z0 = TerrainNoise.floor(z);
+        FloatVector tx = smooth(x.sub((FloatVector) x0.convert(VectorOperators.I2F, 0)));
+        float tz = TerrainNoise.smooth(z - z0);
+
+        // hash() is seed ^ (x * A) ^ (z * B) followed by mixing; the seed and z terms are per row
+        int rowTerm0 = octaveSeed ^ (z0 * 0x165667B1);
+        int rowTerm1 = octaveSeed ^ ((z0 + 1) * 0x165667B1);
+        IntVector xTerm0 = x0.mul(0x27D4EB2D);
+        IntVector xTerm1 = x0.add(1).mul(0x27D4EB2D);
+
+        FloatVector v00 = lattice(xTerm0.lanewise(VectorOperators.XOR, rowTerm0));
+        FloatVector v10 = lattice(xTerm1.lanewise(VectorOperators.XOR, rowTerm0));
+        FloatVector v01 = lattice(xTerm0.lanewise(VectorOperators.XOR, rowTerm1));
+        FloatVector v11 = lattice(xTerm1.lanewise(VectorOperators.XOR, rowTerm1));
+
+        FloatVector top = v00.add(v10.sub(v00).mul(tx));
+        FloatVector bottom = v01.add(v11.sub(v01).mul(tx));
+        return top.add(bottom.sub(top).mul(tz));
+    }
+
+    private static FloatVector lattice(IntVector h) {
+        h = h.lanewise(VectorOperators.XOR, h.lanewise(VectorOperators.LSHR, 15)).mul(0x85EBCA6B);
+        h = h.lanewise(VectorOperators.XOR, h.lanewise(VectorOperators.LSHR, 13)).mul(0xC2B2AE35);
+        h = h.lanewise(VectorOperators.XOR, h.lanewise(VectorOperators.LSHR, 16));
+        FloatVector masked = (FloatVector) h.and(0xFFFFFF).convert(VectorOperators.I2F, 0);
+        return masked.mul(TerrainNoise.INV_HASH_RANGE);
+    }
+
+    private static FloatVector smooth(FloatVector t) {
+        return t.mul(t).mul(FloatVector.broadcast(FLOATS, 3f).sub(t.mul(2f)));
+    }
+
+    private static IntVector floor(FloatVector value) {
+        IntVector truncated = (IntVector) value.convert(VectorOperators.F2I, 0);
+        VectorMask<Float> below = value.lt((FloatVector) truncated.convert(VectorOperators.I2F, 0));
+        return truncated.sub(1, below.cast(INTS));
+    }
+}
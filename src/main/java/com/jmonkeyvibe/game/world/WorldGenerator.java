@@ -2,90 +2,191 @@ package com.jmonkeyvibe.game.world;
 
 import com.jme3.asset.AssetManager;
 import com.jme3.material.Material;
-import com.jme3.math.ColorRGBA;
-import com.jme3.math.FastMath;
-import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
-import com.jme3.scene.shape.Quad;
 import java.util.Random;
 
 /**
- * Procedural world generation for exploration mode
+ * Procedural world generation for exploration mode.
+ *
+ * Tiles are grouped into CHUNK_SIZE x CHUNK_SIZE chunks. Each chunk is baked
+ * into one vertex-colored mesh (same-type tiles greedily merged into
+ * rectangles), and all chunks share a single material, so the overworld
+ * costs one draw call per visible chunk instead of one per tile.
+ *
+ * Terrain is driven by two layers of seeded noise (elevation and moisture),
+ * so every tile is a pure function of the seed and its coordinates: chunks
+ * can be generated independently (ChunkStreamer builds them on its worker
+ * threads) and reproduced from the seed.
  */
 public class WorldGenerator {
-    
+
+    /** Chunk edge length in tiles */
+    public static final int CHUNK_SIZE = 32;
+
+    // Noise frequencies (features per tile) and biome thresholds
+    private static final float ELEVATION_FREQUENCY = 1f / 40f;
+    private static final float MOISTURE_FREQUENCY = 1f / 90f;
+    private static final float WATER_LEVEL = 0.36f;
+    private static final float STONE_LEVEL = 0.66f;
+    private static final float DRY_LEVEL = 0.42f;
+
     private AssetManager assetManager;
-    private Random random;
-    
+    private Material tileMaterial;
+    private final long seed;
+    private final TerrainNoise elevationNoise;
+    private final TerrainNoise moistureNoise;
+
+    /**
+     * Create a world generator with a random seed
+     */
     public WorldGenerator(AssetManager assetManager) {
+        this(assetManager, new Random().nextLong());
+    }
+
+    /**
+     * Create a world generator; the same seed always produces the same world
+     */
+    public WorldGenerator(AssetManager assetManager, long seed) {
         this.assetManager = assetManager;
-        this.random = new Random();
+        this.seed = seed;
+        this.elevationNoise = new TerrainNoise(seed);
+        this.moistureNoise = new TerrainNoise(seed * 0x9E3779B97F4A7C15L + 1);
+
+        // Created up front so chunk meshes can be built on worker threads
+        this.tileMaterial = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        this.tileMaterial.setBoolean("VertexColor", true);
     }
-    
+
     /**
      * Generate a procedural overworld with tiles
      */
     public void generateOverworld(Node worldNode, int width, int height) {
-        System.out.println("Generating overworld: " + width + "x" + height);
-        
-        for (int x = -width / 2; x < width / 2; x++) {
-            for (int z = -height / 2; z < height / 2; z++) {
-                createTile(worldNode, x, z, getRandomTileType());
+        System.out.println("Generating overworld: " + width + "x" + height + " (seed " + seed + ")");
+
+        int minX = -width / 2;
+        int minZ = -height / 2;
+        int maxX = minX + width;   // exclusive
+        int maxZ = minZ + height;  // exclusive
+
+        int minChunkX = Math.floorDiv(minX, CHUNK_SIZE);
+        int minChunkZ = Math.floorDiv(minZ, CHUNK_SIZE);
+        int maxChunkX = Math.floorDiv(maxX - 1, CHUNK_SIZE);
+        int maxChunkZ = Math.floorDiv(maxZ - 1, CHUNK_SIZE);
+
+        int chunkCount = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                TileType[] tiles = generateChunkTiles(chunkX, chunkZ);
+                Geometry chunk = buildChunkGeometry(chunkX, chunkZ, tiles, minX, minZ, maxX, maxZ);
+                if (chunk != null) {
+                    worldNode.attachChild(chunk);
+                    chunkCount++;
+                }
             }
         }
+
+        System.out.println("Overworld built from " + chunkCount + " chunks of " + CHUNK_SIZE + "x" + CHUNK_SIZE);
     }
-    
-    private void createTile(Node parent, int x, int z, TileType type) {
-        Quad quad = new Quad(1, 1);
-        Geometry tile = new Geometry("Tile_" + x + "_" + z, quad);
-        
-        Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        mat.setColor("Color", type.getColor());
-        tile.setMaterial(mat);
-        
-        // Center quad at origin, then rotate to face up on XZ plane
-        tile.setLocalTranslation(-0.5f, 0, -0.5f); // Center the quad
-        tile.rotate(-FastMath.HALF_PI, 0, 0); // Rotate to face camera
-        
-        // Use container node for world positioning
-        Node tileNode = new Node("TileNode_" + x + "_" + z);
-        tileNode.attachChild(tile);
-        tileNode.setLocalTranslation(x, 0, z);
-        
-        parent.attachChild(tileNode);
+
+    /**
+     * Generate the tile types of one chunk, indexed [localZ * CHUNK_SIZE + localX]
+     */
+    public TileType[] generateChunkTiles(int chunkX, int chunkZ) {
+        int originX = chunkX * CHUNK_SIZE;
+        int originZ = chunkZ * CHUNK_SIZE;
+        float[] elevation = new float[CHUNK_SIZE * CHUNK_SIZE];
+        float[] moisture = new float[CHUNK_SIZE * CHUNK_SIZE];
+        elevationNoise.fill(elevation, originX, originZ, CHUNK_SIZE, CHUNK_SIZE, ELEVATION_FREQUENCY);
+        moistureNoise.fill(moisture, originX, originZ, CHUNK_SIZE, CHUNK_SIZE, MOISTURE_FREQUENCY);
+
+        TileType[] tiles = new TileType[CHUNK_SIZE * CHUNK_SIZE];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = classify(elevation[i], moisture[i]);
+        }
+        return tiles;
     }
-    
-    private TileType getRandomTileType() {
-        float rand = random.nextFloat();
-        if (rand < 0.6f) {
-            return TileType.GRASS;
-        } else if (rand < 0.8f) {
-            return TileType.DIRT;
-        } else if (rand < 0.9f) {
+
+    /**
+     * Tile type at any world coordinate, without generating its chunk
+     */
+    public TileType getTileType(int x, int z) {
+        return classify(elevationNoise.sample(x, z, ELEVATION_FREQUENCY),
+                        moistureNoise.sample(x, z, MOISTURE_FREQUENCY));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    private static TileType classify(float elevation, float moisture) {
+        if (elevation < WATER_LEVEL) {
+            return TileType.WATER;
+        } else if (elevation > STONE_LEVEL) {
             return TileType.STONE;
+        } else if (moisture < DRY_LEVEL) {
+            return TileType.DIRT;
         } else {
-            return TileType.WATER;
+            return TileType.GRASS;
         }
     }
-    
+
+    /**
+     * Bake a whole chunk into a single geometry
+     */
+    public Geometry buildChunkGeometry(int chunkX, int chunkZ, TileType[] tiles) {
+        return buildChunkGeometry(chunkX, chunkZ, tiles,
+            Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
     /**
-     * Tile types with associated colors
+     * Bake the part of a chunk that lies inside [minX, maxX) x [minZ, maxZ)
+     * into a single geometry positioned at the chunk origin.
+     * @return the chunk geometry, or null if no tile of the chunk is inside the bounds
      */
-    private enum TileType {
-        GRASS(new ColorRGBA(0.2f, 0.6f, 0.2f, 1.0f)),
-        DIRT(new ColorRGBA(0.5f, 0.35f, 0.2f, 1.0f)),
-        STONE(new ColorRGBA(0.5f, 0.5f, 0.5f, 1.0f)),
-        WATER(new ColorRGBA(0.2f, 0.4f, 0.8f, 1.0f));
-        
-        private final ColorRGBA color;
-        
-        TileType(ColorRGBA color) {
-            this.color = color;
+    private Geometry buildChunkGeometry(int chunkX, int chunkZ, TileType[] tiles,
+                                        int minX, int minZ, int maxX, int maxZ) {
+        int originX = chunkX * CHUNK_SIZE;
+        int originZ = chunkZ * CHUNK_SIZE;
+
+        // Tile type ordinal per cell, -1 outside the bounds
+        int[][] grid = new int[CHUNK_SIZE][CHUNK_SIZE];
+        for (int localZ = 0; localZ < CHUNK_SIZE; localZ++) {
+            int z = originZ + localZ;
+            for (int localX = 0; localX < CHUNK_SIZE; localX++) {
+                int x = originX + localX;
+                boolean inside = x >= minX && x < maxX && z >= minZ && z < maxZ;
+                grid[localX][localZ] = inside ? tiles[localZ * CHUNK_SIZE + localX].ordinal() : -1;
+            }
+        }
+
+        // Merge same-type tiles into rectangles, one vertex color per type
+        TileMeshBuilder builder = new TileMeshBuilder();
+        for (TileType type : TileType.values()) {
+            DungeonMesher.addRectangles(grid, type.ordinal(), type.getColor(), builder);
         }
-        
-        public ColorRGBA getColor() {
-            return color;
+
+        if (builder.isEmpty()) {
+            return null;
         }
+
+        Geometry chunk = new Geometry("Chunk_" + chunkX + "_" + chunkZ, builder.build());
+        chunk.setMaterial(getTileMaterial());
+        chunk.setLocalTranslation(originX, 0, originZ);
+        return chunk;
+    }
+
+    /**
+     * Pack chunk coordinates into a single map key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Shared unshaded material for all chunks; tile colors come from the mesh
+     */
+    public Material getTileMaterial() {
+        return tileMaterial;
     }
 }
@@ -0,0 +1,79 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+
+import java.util.Random;
+
+/**
+ * Scene helpers shared by the headless rendering benchmarks: the game's
+ * top-down camera, geometry counts with and without frustum culling, and
+ * random floor positions.
+ */
+final class BenchmarkScenes {
+
+    /** Visible area of the top-down camera, in world units (tiles) */
+    static final float VIEW_HEIGHT = 15f;
+    static final float VIEW_WIDTH = VIEW_HEIGHT * 1280f / 720f;
+
+    private BenchmarkScenes() {
+    }
+
+    /**
+     * A parallel-projection camera looking straight down at the origin,
+     * showing VIEW_WIDTH x VIEW_HEIGHT tiles like the game's
+     */
+    static ViewPort createTopDownViewPort() {
+        Camera cam = new Camera(1280, 720);
+        cam.setParallelProjection(true);
+        cam.setFrustum(-1000f, 1000f, -VIEW_WIDTH / 2, VIEW_WIDTH / 2, VIEW_HEIGHT / 2, -VIEW_HEIGHT / 2);
+        cam.setLocation(new Vector3f(0, 100, 0));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Z);
+        return new ViewPort("Benchmark", cam);
+    }
+
+    /**
+     * Count the geometries that survive frustum culling, mirroring the
+     * traversal RenderManager performs when it fills the render queue.
+     */
+    static int countVisibleGeometries(Spatial spatial, Camera cam) {
+        if (!spatial.checkCulling(cam)) {
+            return 0;
+        }
+        if (spatial instanceof Geometry) {
+            return 1;
+        }
+        int count = 0;
+        int planeState = cam.getPlaneState();
+        for (Spatial child : ((Node) spatial).getChildren()) {
+            cam.setPlaneState(planeState);
+            count += countVisibleGeometries(child, cam);
+        }
+        return count;
+    }
+
+    static int countGeometries(Spatial spatial) {
+        int[] count = {0};
+        spatial.depthFirstTraversal(child -> {
+            if (child instanceof Geometry) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    static Vector3f randomFloorCell(CollisionGrid grid, Random random) {
+        while (true) {
+            int x = random.nextInt(grid.getWidth());
+            int z = random.nextInt(grid.getHeight());
+            if (grid.isWalkable(x, z)) {
+                return new Vector3f(x, 0, z);
+            }
+        }
+    }
+}
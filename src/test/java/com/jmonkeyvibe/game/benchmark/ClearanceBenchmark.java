@@ -0,0 +1,118 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jmonkeyvibe.game.entities.Enemy;
+import com.jmonkeyvibe.game.world.ClearanceMap;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+
+import java.util.Random;
+
+/**
+ * Build cost of the ClearanceMap distance transform and the cost of a
+ * size-aware collision check with it.
+ *
+ * For each size the transform is checked against a brute-force nearest wall
+ * search (on the smaller maps) and timed. Then QUERIES random positions are
+ * tested for every enemy radius with one ClearanceMap lookup and with
+ * CollisionGrid.isCircleWalkable(), a multi-cell probe of every cell the
+ * circle touches, with the share of positions each of them accepts.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.ClearanceBenchmark
+ */
+public class ClearanceBenchmark {
+
+    private static final int[] SIZES = {40, 128, 512, 2048};
+    private static final int BRUTE_FORCE_LIMIT = 128;
+    private static final int QUERIES = 1 << 18;
+    private static final int PASSES = 10;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        System.out.printf("%-10s %10s %10s %12s %12s %10s %10s%n",
+            "grid", "build ms", "exact", "lookup ns", "circle ns", "fits", "circle");
+        for (int size : SIZES) {
+            DungeonGenerator generator = new DungeonGenerator(assetManager, 42L);
+            generator.setMode(size > 40 ? DungeonGenerator.Mode.BSP : DungeonGenerator.Mode.ROOMS);
+            CollisionGrid grid = generator.generateLayout(size, size).getCollisionGrid();
+            run(size, grid);
+        }
+    }
+
+    private static void run(int size, CollisionGrid grid) {
+        ClearanceMap map = null;
+        long buildNanos = Long.MAX_VALUE;
+        for (int pass = 0; pass < PASSES; pass++) {
+            long start = System.nanoTime();
+            map = ClearanceMap.fromGrid(grid);
+            buildNanos = Math.min(buildNanos, System.nanoTime() - start);
+        }
+        String exact = size <= BRUTE_FORCE_LIMIT ? (matchesBruteForce(grid, map) ? "yes" : "NO") : "-";
+
+        Random random = new Random(7);
+        float[] x = new float[QUERIES];
+        float[] z = new float[QUERIES];
+        float[] radius = new float[QUERIES];
+        Enemy.EnemyType[] types = Enemy.EnemyType.values();
+        for (int i = 0; i < QUERIES; i++) {
+            x[i] = random.nextFloat() * size;
+            z[i] = random.nextFloat() * size;
+            radius[i] = types[random.nextInt(types.length)].getRadius();
+        }
+
+        long lookupNanos = Long.MAX_VALUE;
+        long circleNanos = Long.MAX_VALUE;
+        int fits = 0;
+        int walkable = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            long start = System.nanoTime();
+            fits = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                if (map.fits(x[i], z[i], radius[i])) {
+                    fits++;
+                }
+            }
+            lookupNanos = Math.min(lookupNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            walkable = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                if (grid.isCircleWalkable(x[i], z[i], radius[i])) {
+                    walkable++;
+                }
+            }
+            circleNanos = Math.min(circleNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-10s %10.2f %10s %12.1f %12.1f %9.1f%% %9.1f%%%n", size + "x" + size, buildNanos / 1e6,
+            exact, (double) lookupNanos / QUERIES, (double) circleNanos / QUERIES,
+            100.0 * fits / QUERIES, 100.0 * walkable / QUERIES);
+    }
+
+    /**
+     * Compare every cell with the distance to the nearest wall cell center
+     * (or cell just outside the grid), found by brute force
+     */
+    private static boolean matchesBruteForce(CollisionGrid grid, ClearanceMap map) {
+        for (int x = 0; x < grid.getWidth(); x++) {
+            for (int z = 0; z < grid.getHeight(); z++) {
+                long best = Long.MAX_VALUE;
+                for (int wx = -1; wx <= grid.getWidth(); wx++) {
+                    for (int wz = -1; wz <= grid.getHeight(); wz++) {
+                        if (!grid.isWalkable(wx, wz)) {
+                            long dx = wx - x;
+                            long dz = wz - z;
+                            best = Math.min(best, dx * dx + dz * dz);
+                        }
+                    }
+                }
+                float expected = best == 0 ? 0f : (float) Math.sqrt(best) - 0.5f;
+                if (Math.abs(map.getClearance(x, z) - expected) > 1e-4f) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
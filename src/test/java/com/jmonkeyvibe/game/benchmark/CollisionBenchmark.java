@@ -0,0 +1,176 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.scene.Node;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+
+import java.util.Random;
+
+/**
+ * Query cost of the bit-packed CollisionGrid against the int[][] grid it replaced.
+ *
+ * For a 40x40 (the combat arena) and a 1024x1024 dungeon, QUERIES random
+ * queries around walkable cells are answered both ways: the int[][] side
+ * checks cell by cell with the old Math.round + bounds lookup, the
+ * CollisionGrid side uses its word-at-a-time shape queries. Both sides must
+ * agree on every answer.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.CollisionBenchmark
+ */
+public class CollisionBenchmark {
+
+    private static final int[] SIZES = {40, 1024};
+    private static final int QUERIES = 1 << 18;
+    private static final int WARMUP_PASSES = 5;
+    private static final int MEASURED_PASSES = 10;
+
+    /** Answers every query of a batch into out[] */
+    private interface Pass {
+        void run(boolean[] out);
+    }
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        System.out.printf("%-10s %-16s %12s %12s %8s%n", "grid", "query", "int[][] ns", "bitset ns", "speedup");
+        for (int size : SIZES) {
+            int[][] cells = new DungeonGenerator(assetManager, 42L).generateDungeon(new Node("Dungeon"), size, size);
+            CollisionGrid grid = CollisionGrid.fromCells(cells);
+            run(size, cells, grid);
+        }
+    }
+
+    private static void run(int size, int[][] cells, CollisionGrid grid) {
+        Random random = new Random(7);
+        float[] x = new float[QUERIES];
+        float[] z = new float[QUERIES];
+        float[] x2 = new float[QUERIES];
+        float[] z2 = new float[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int cellX;
+            int cellZ;
+            do {
+                cellX = random.nextInt(size);
+                cellZ = random.nextInt(size);
+            } while (cells[cellX][cellZ] != 1);
+            x[i] = cellX + random.nextFloat() - 0.5f;
+            z[i] = cellZ + random.nextFloat() - 0.5f;
+            x2[i] = x[i] + (random.nextFloat() - 0.5f) * 16f;
+            z2[i] = z[i] + (random.nextFloat() - 0.5f) * 16f;
+        }
+
+        String label = size + "x" + size;
+        compare(label, "point",
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = legacyPoint(cells, x[i], z[i]); },
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = grid.isWalkable(x[i], z[i]); });
+        compare(label, "box r=0.4",
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = legacyBox(cells, x[i] - 0.4f, z[i] - 0.4f, x[i] + 0.4f, z[i] + 0.4f); },
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = grid.isBoxWalkable(x[i] - 0.4f, z[i] - 0.4f, x[i] + 0.4f, z[i] + 0.4f); });
+        compare(label, "box r=3",
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = legacyBox(cells, x[i] - 3f, z[i] - 3f, x[i] + 3f, z[i] + 3f); },
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = grid.isBoxWalkable(x[i] - 3f, z[i] - 3f, x[i] + 3f, z[i] + 3f); });
+        compare(label, "box 48x1",
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = legacyBox(cells, x[i] - 24f, z[i], x[i] + 24f, z[i]); },
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = grid.isBoxWalkable(x[i] - 24f, z[i], x[i] + 24f, z[i]); });
+        compare(label, "circle r=0.4",
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = legacyCircle(cells, x[i], z[i], 0.4f); },
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = grid.isCircleWalkable(x[i], z[i], 0.4f); });
+        compare(label, "circle r=3",
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = legacyCircle(cells, x[i], z[i], 3f); },
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = grid.isCircleWalkable(x[i], z[i], 3f); });
+        compare(label, "segment <=16",
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = legacySegment(cells, x[i], z[i], x2[i], z2[i]); },
+            out -> { for (int i = 0; i < QUERIES; i++) out[i] = grid.isSegmentWalkable(x[i], z[i], x2[i], z2[i]); });
+    }
+
+    private static void compare(String label, String name, Pass legacy, Pass bitset) {
+        boolean[] expected = new boolean[QUERIES];
+        boolean[] actual = new boolean[QUERIES];
+        legacy.run(expected);
+        bitset.run(actual);
+        int mismatches = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            if (expected[i] != actual[i]) {
+                mismatches++;
+            }
+        }
+        double legacyNanos = measure(legacy, expected);
+        double bitsetNanos = measure(bitset, actual);
+        System.out.printf("%-10s %-16s %12.2f %12.2f %7.1fx%s%n", label, name, legacyNanos, bitsetNanos,
+            legacyNanos / bitsetNanos, mismatches == 0 ? "" : "  MISMATCHES: " + mismatches);
+    }
+
+    private static double measure(Pass pass, boolean[] out) {
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            pass.run(out);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_PASSES; i++) {
+            pass.run(out);
+        }
+        return (double) (System.nanoTime() - start) / ((long) MEASURED_PASSES * QUERIES);
+    }
+
+    // The int[][] lookup DungeonGenerator.isWalkable used before CollisionGrid
+    private static boolean legacyCell(int[][] cells, int gridX, int gridZ) {
+        if (gridX < 0 || gridX >= cells.length || gridZ < 0 || gridZ >= cells[0].length) {
+            return false;
+        }
+        return cells[gridX][gridZ] == 1;
+    }
+
+    private static boolean legacyPoint(int[][] cells, float x, float z) {
+        return legacyCell(cells, Math.round(x), Math.round(z));
+    }
+
+    private static boolean legacyRun(int[][] cells, int z, int minX, int maxX) {
+        for (int x = minX; x <= maxX; x++) {
+            if (!legacyCell(cells, x, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean legacyBox(int[][] cells, float minX, float minZ, float maxX, float maxZ) {
+        for (int z = Math.round(minZ); z <= Math.round(maxZ); z++) {
+            if (!legacyRun(cells, z, Math.round(minX), Math.round(maxX))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean legacyCircle(int[][] cells, float centerX, float centerZ, float radius) {
+        for (int z = Math.round(centerZ - radius); z <= Math.round(centerZ + radius); z++) {
+            float dz = Math.max(0f, Math.abs(centerZ - z) - 0.5f);
+            float halfWidth = (float) Math.sqrt(Math.max(0f, radius * radius - dz * dz));
+            if (!legacyRun(cells, z, Math.round(centerX - halfWidth), Math.round(centerX + halfWidth))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean legacySegment(int[][] cells, float x0, float z0, float x1, float z1) {
+        if (z0 > z1) {
+            float t = x0; x0 = x1; x1 = t;
+            t = z0; z0 = z1; z1 = t;
+        }
+        int firstRow = Math.round(z0);
+        int lastRow = Math.round(z1);
+        if (firstRow == lastRow) {
+            return legacyRun(cells, firstRow, Math.round(Math.min(x0, x1)), Math.round(Math.max(x0, x1)));
+        }
+        float slope = (x1 - x0) / (z1 - z0);
+        for (int z = firstRow; z <= lastRow; z++) {
+            float xa = x0 + (Math.max(z0, z - 0.5f) - z0) * slope;
+            float xb = x0 + (Math.min(z1, z + 0.5f) - z0) * slope;
+            if (!legacyRun(cells, z, Math.round(Math.min(xa, xb)), Math.round(Math.max(xa, xb)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
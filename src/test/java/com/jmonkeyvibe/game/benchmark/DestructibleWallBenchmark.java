@@ -0,0 +1,139 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.scene.Node;
+import com.jmonkeyvibe.game.world.ClearanceMap;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+import com.jmonkeyvibe.game.world.DungeonMesher;
+import com.jmonkeyvibe.game.world.FieldOfView;
+import com.jmonkeyvibe.game.world.FlowField;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cost of breaking a dungeon wall in place against rebuilding everything
+ * derived from the grid.
+ *
+ * On a 40x40 and a 512x512 dungeon every breakable wall is broken in random
+ * order, as CombatManager does on a projectile hit: DungeonGenerator
+ * updates the collision grid, repairs the clearance map and recolors the
+ * wall's quad in its chunk mesh, then the flow field is repaired and the
+ * field of view invalidated. The alternative is what a wall change cost before: a full
+ * greedy remesh, a full distance transform and a flow field rebuild (or a
+ * whole new dungeon). Afterwards the repaired clearance and flow field are
+ * checked against ones built from scratch on the final grid.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.DestructibleWallBenchmark
+ */
+public class DestructibleWallBenchmark {
+
+    // Clearance values up to this are compared (enemies are at most 0.75 wide)
+    private static final float CHECKED_CLEARANCE = 2.0f;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        System.out.printf("%-10s %8s %10s %10s %12s %14s %10s %10s%n",
+            "grid", "walls", "break us", "flow us", "rebuild us", "regenerate us", "clearance", "flow");
+        for (int pass = 0; pass < 2; pass++) {
+            run(assetManager, DungeonGenerator.Mode.ROOMS, 40, pass == 1);
+            run(assetManager, DungeonGenerator.Mode.BSP, 512, pass == 1);
+        }
+    }
+
+    private static void run(DesktopAssetManager assetManager, DungeonGenerator.Mode mode, int size, boolean print) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, 42L);
+        generator.setMode(mode);
+        long start = System.nanoTime();
+        DungeonLayout layout = generator.generateLayout(size, size);
+        double regenerateMicros = (System.nanoTime() - start) / 1e3;
+        generator.attachLayout(new Node("Dungeon"), layout);
+        CollisionGrid grid = generator.getCollisionGrid();
+
+        List<int[]> breakable = new ArrayList<>();
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                if (generator.isBreakableWall(x, z)) {
+                    breakable.add(new int[]{x, z});
+                }
+            }
+        }
+        Collections.shuffle(breakable, new Random(7));
+
+        // The player stands on the first floor cell
+        FlowField flowField = new FlowField(grid);
+        FieldOfView fieldOfView = new FieldOfView(grid, 12);
+        int goal = firstFloorCell(grid);
+        flowField.update(goal % size, goal / size);
+        fieldOfView.update(goal % size, goal / size);
+
+        long breakNanos = 0;
+        long flowNanos = 0;
+        for (int[] wall : breakable) {
+            start = System.nanoTime();
+            generator.breakWall(wall[0], wall[1]);
+            long mid = System.nanoTime();
+            flowField.cellOpened(wall[0], wall[1]);
+            fieldOfView.invalidate();
+            flowNanos += System.nanoTime() - mid;
+            breakNanos += mid - start;
+        }
+        double breakMicros = breakNanos / 1e3 / Math.max(1, breakable.size());
+        double flowMicros = flowNanos / 1e3 / Math.max(1, breakable.size());
+
+        // What every wall change would cost without incremental updates
+        int rebuilds = Math.min(breakable.size(), 20);
+        FlowField rebuilt = new FlowField(grid);
+        start = System.nanoTime();
+        for (int i = 0; i < rebuilds; i++) {
+            DungeonMesher.buildMesh(layout.getCells(), DungeonLayout.FLOOR);
+            DungeonMesher.buildMesh(layout.getCells(), DungeonLayout.WALL);
+            ClearanceMap.fromGrid(grid);
+            rebuilt.update(goal % size, goal / size);
+            rebuilt.cellClosed(0, 0);
+        }
+        double rebuildMicros = (System.nanoTime() - start) / 1e3 / Math.max(1, rebuilds);
+
+        // Compare the repaired data with data built from the final grid
+        ClearanceMap expected = ClearanceMap.fromGrid(grid);
+        ClearanceMap repaired = generator.getClearanceMap();
+        FlowField fresh = new FlowField(grid);
+        fresh.update(goal % size, goal / size);
+        long clearanceMismatches = 0;
+        long flowMismatches = 0;
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                float want = Math.min(expected.getClearance(x, z), CHECKED_CLEARANCE);
+                float got = Math.min(repaired.getClearance(x, z), CHECKED_CLEARANCE);
+                if (Math.abs(want - got) > 1e-4f) {
+                    clearanceMismatches++;
+                }
+                if (fresh.getDistance(x, z) != flowField.getDistance(x, z)) {
+                    flowMismatches++;
+                }
+            }
+        }
+
+        if (print) {
+            System.out.printf("%-10s %8d %10.2f %10.2f %12.2f %14.2f %10d %10d%n", size + "x" + size,
+                breakable.size(), breakMicros, flowMicros, rebuildMicros, regenerateMicros,
+                clearanceMismatches, flowMismatches);
+        }
+    }
+
+    private static int firstFloorCell(CollisionGrid grid) {
+        for (int z = 0; z < grid.getHeight(); z++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                if (grid.isWalkable(x, z)) {
+                    return z * grid.getWidth() + x;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+import com.jmonkeyvibe.game.world.DungeonLayoutCache;
+import com.jmonkeyvibe.game.world.DungeonLayoutFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Cost of restarting a dungeon with and without the layout cache.
+ *
+ * For the 40x40 ROOMS arena and BSP dungeons from 64x64 to 512x512, SEEDS
+ * layouts are timed four ways:
+ *   generate - generateLayout() without a cache
+ *   decode   - DungeonLayoutFormat.decode() of the encoded layout only
+ *   memory   - generateLayout() again with the layout in the memory cache
+ *              (a copy of the built layout, see DungeonLayout.copy())
+ *   disk     - the same from a fresh cache that has to read the .dgn file
+ *              (decode, room graph and room meshes); for sizes the cache
+ *              does not store on disk ("stored" no), loadLayout() of the
+ *              encoded layout, which is what a disk hit would cost
+ * The table also shows the encoded size, and "same" checks that every
+ * cached layout has exactly the cells and rooms of the generated one.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.DungeonLayoutCacheBenchmark
+ */
+public class DungeonLayoutCacheBenchmark {
+
+    private static final int SEEDS = 20;
+
+    public static void main(String[] args) throws IOException {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+
+        // One untimed round to warm up the JIT
+        measure(assetManager, DungeonGenerator.Mode.ROOMS, 40, false);
+        measure(assetManager, DungeonGenerator.Mode.BSP, 512, false);
+
+        System.out.printf("%-12s %10s %10s %10s %10s %10s %7s %6s%n",
+            "grid", "bytes", "generate", "decode", "memory", "disk", "stored", "same");
+        measure(assetManager, DungeonGenerator.Mode.ROOMS, 40, true);
+        for (int size = 64; size <= 512; size *= 2) {
+            measure(assetManager, DungeonGenerator.Mode.BSP, size, true);
+        }
+        System.out.println("(ms per dungeon)");
+    }
+
+    private static void measure(DesktopAssetManager assetManager, DungeonGenerator.Mode mode, int size,
+                                boolean print) throws IOException {
+        DungeonLayoutCache cache = new DungeonLayoutCache(Files.createTempDirectory("dungeoncache"));
+        long bytes = 0;
+        long generateNanos = 0;
+        long decodeNanos = 0;
+        long memoryNanos = 0;
+        long diskNanos = 0;
+        boolean same = true;
+        boolean stored = DungeonLayoutCache.isStoredOnDisk(size, size);
+        for (int seed = 0; seed < SEEDS; seed++) {
+            long start = System.nanoTime();
+            DungeonLayout generated = generator(assetManager, mode, seed, null).generateLayout(size, size);
+            generateNanos += System.nanoTime() - start;
+
+            // First call with the cache generates (and stores small layouts)
+            generator(assetManager, mode, seed, cache).generateLayout(size, size);
+            byte[] data = DungeonLayoutFormat.encode(seed, mode, generated.getCells(), generated.getRoomGraph());
+            bytes += data.length;
+
+            start = System.nanoTime();
+            DungeonLayoutFormat.decode(data);
+            decodeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            DungeonLayout fromMemory = generator(assetManager, mode, seed, cache).generateLayout(size, size);
+            memoryNanos += System.nanoTime() - start;
+
+            DungeonLayoutCache fresh = new DungeonLayoutCache(cache.getDirectory());
+            DungeonGenerator generator = generator(assetManager, mode, seed, fresh);
+            start = System.nanoTime();
+            DungeonLayout fromDisk = stored ? generator.generateLayout(size, size) : generator.loadLayout(data);
+            diskNanos += System.nanoTime() - start;
+
+            same &= isSame(generated, fromMemory) && isSame(generated, fromDisk);
+        }
+
+        if (print) {
+            System.out.printf("%-12s %10d %10.3f %10.3f %10.3f %10.3f %7s %6s%n",
+                mode + " " + size, bytes / SEEDS, generateNanos / 1e6 / SEEDS, decodeNanos / 1e6 / SEEDS,
+                memoryNanos / 1e6 / SEEDS, diskNanos / 1e6 / SEEDS, stored ? "yes" : "no", same ? "yes" : "NO");
+        }
+    }
+
+    private static DungeonGenerator generator(DesktopAssetManager assetManager, DungeonGenerator.Mode mode,
+                                              long seed, DungeonLayoutCache cache) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, seed);
+        generator.setMode(mode);
+        generator.setLayoutCache(cache);
+        return generator;
+    }
+
+    private static boolean isSame(DungeonLayout a, DungeonLayout b) {
+        if (a.getSeed() != b.getSeed() || !Arrays.deepEquals(a.getCells(), b.getCells())
+                || a.getRoomCount() != b.getRoomCount()) {
+            return false;
+        }
+        for (int room = 0; room < a.getRoomCount(); room++) {
+            if (!Arrays.equals(a.getRoomGraph().getBounds(room), b.getRoomGraph().getBounds(room))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+import com.jmonkeyvibe.game.world.FloorConnectivity;
+
+/**
+ * How dungeon generation scales with map size, for both layout modes.
+ *
+ * For each size, SEEDS layouts (grid plus greedy floor and wall meshes, no
+ * layout cache) are generated and timed. The table shows the average time,
+ * the time per cell (flat for linear scaling), the room count, the floor
+ * fraction and whether every floor cell is reachable from every other.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.DungeonScalingBenchmark
+ */
+public class DungeonScalingBenchmark {
+
+    private static final int[] SIZES = {40, 128, 256, 512, 1024, 2048};
+    private static final int SEEDS = 5;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+
+        // Warm up the JIT on a mid-sized map
+        for (DungeonGenerator.Mode mode : DungeonGenerator.Mode.values()) {
+            for (int seed = 0; seed < 10; seed++) {
+                generate(assetManager, mode, 100 + seed, 256);
+            }
+        }
+
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-6s %10s %10s %12s %8s %8s %10s%n",
+            "mode", "size", "ms", "ns/cell", "rooms", "floor", "connected"));
+        for (DungeonGenerator.Mode mode : DungeonGenerator.Mode.values()) {
+            for (int size : SIZES) {
+                long totalNanos = 0;
+                long rooms = 0;
+                long floor = 0;
+                boolean connected = true;
+                for (int seed = 0; seed < SEEDS; seed++) {
+                    long start = System.nanoTime();
+                    DungeonLayout layout = generate(assetManager, mode, seed, size);
+                    totalNanos += System.nanoTime() - start;
+                    rooms += layout.getRoomCount();
+                    floor += countFloor(layout.getCells());
+                    connected &= isConnected(layout.getCells());
+                }
+                double millis = totalNanos / 1e6 / SEEDS;
+                table.append(String.format("%-6s %10s %10.2f %12.1f %8d %7.0f%% %10s%n",
+                    mode, size + "x" + size, millis, millis * 1e6 / ((double) size * size),
+                    rooms / SEEDS, 100.0 * floor / ((double) SEEDS * size * size), connected ? "yes" : "NO"));
+            }
+        }
+        System.out.print(table);
+    }
+
+    private static DungeonLayout generate(DesktopAssetManager assetManager, DungeonGenerator.Mode mode,
+                                          long seed, int size) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, seed);
+        generator.setMode(mode);
+        return generator.generateLayout(size, size);
+    }
+
+    private static long countFloor(int[][] cells) {
+        long floor = 0;
+        for (int[] column : cells) {
+            for (int cell : column) {
+                if (cell == DungeonLayout.FLOOR) {
+                    floor++;
+                }
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Check that every floor cell is reachable from the first one
+     */
+    private static boolean isConnected(int[][] cells) {
+        CollisionGrid grid = CollisionGrid.fromCells(cells);
+        for (int z = 0; z < grid.getHeight(); z++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                if (grid.isWalkable(x, z)) {
+                    return FloorConnectivity.countUnreachable(grid, x, z) == 0;
+                }
+            }
+        }
+        return true;
+    }
+}
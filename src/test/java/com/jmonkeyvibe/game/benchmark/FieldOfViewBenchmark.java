@@ -0,0 +1,159 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector3f;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.FieldOfView;
+import com.jmonkeyvibe.game.world.FlowField;
+
+import java.util.Random;
+
+/**
+ * Cost of the shadowcasting FieldOfView against a naive per-frame raycast.
+ *
+ * On a 40x40 and a 512x512 dungeon a player walks (at 7 units/s, 60 fps)
+ * along the flow field between random floor cells for SIMULATED_SECONDS.
+ * The field of view is updated every frame, which recomputes it only on
+ * cell changes; the naive version casts a Bresenham ray to every cell in
+ * the radius every frame. The table shows the cost per frame of each, how
+ * often the field was recomputed, how many fog texels changed per
+ * recompute (instead of rewriting the whole texture), and how many cells
+ * the two methods disagree on, summed over all recomputes.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.FieldOfViewBenchmark
+ */
+public class FieldOfViewBenchmark {
+
+    private static final int RADIUS = 12;
+    private static final float SPEED = 7f;
+    private static final float TPF = 1f / 60f;
+    private static final float SIMULATED_SECONDS = 60f;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        System.out.printf("%-10s %12s %12s %10s %14s %12s %10s%n",
+            "grid", "fov us/frm", "naive us/frm", "recompute", "changed/recmp", "texels", "disagree");
+        for (int pass = 0; pass < 2; pass++) {
+            run(assetManager, DungeonGenerator.Mode.ROOMS, 40, pass == 1);
+            run(assetManager, DungeonGenerator.Mode.BSP, 512, pass == 1);
+        }
+    }
+
+    private static void run(DesktopAssetManager assetManager, DungeonGenerator.Mode mode, int size, boolean print) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, 42L);
+        generator.setMode(mode);
+        CollisionGrid grid = generator.generateLayout(size, size).getCollisionGrid();
+        Random random = new Random(7);
+
+        // Record the walk first so both methods see the same positions
+        int frames = (int) (SIMULATED_SECONDS / TPF);
+        float[] walkX = new float[frames];
+        float[] walkZ = new float[frames];
+        Vector3f position = BenchmarkScenes.randomFloorCell(grid, random);
+        Vector3f target = BenchmarkScenes.randomFloorCell(grid, random);
+        FlowField flowField = new FlowField(grid);
+        flowField.update(target.x, target.z);
+        Vector3f direction = new Vector3f();
+        for (int frame = 0; frame < frames; frame++) {
+            if (!flowField.getDirection(position.x, position.z, direction)) {
+                target = BenchmarkScenes.randomFloorCell(grid, random);
+                flowField.update(target.x, target.z);
+                direction.set(target).subtractLocal(position).normalizeLocal();
+            }
+            float newX = position.x + direction.x * SPEED * TPF;
+            if (grid.isWalkable(newX, position.z)) {
+                position.x = newX;
+            }
+            float newZ = position.z + direction.z * SPEED * TPF;
+            if (grid.isWalkable(position.x, newZ)) {
+                position.z = newZ;
+            }
+            walkX[frame] = position.x;
+            walkZ[frame] = position.z;
+        }
+
+        FieldOfView fieldOfView = new FieldOfView(grid, RADIUS);
+        long recomputes = 0;
+        long changed = 0;
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            if (fieldOfView.update(walkX[frame], walkZ[frame])) {
+                recomputes++;
+                changed += fieldOfView.getChangedCount();
+            }
+        }
+        double fovMicros = (System.nanoTime() - start) / 1e3 / frames;
+
+        boolean[] naive = new boolean[size * size];
+        start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            raycastAll(grid, Math.round(walkX[frame]), Math.round(walkZ[frame]), naive);
+        }
+        double naiveMicros = (System.nanoTime() - start) / 1e3 / frames;
+
+        // Compare the two on every cell change
+        FieldOfView check = new FieldOfView(grid, RADIUS);
+        long disagree = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            if (check.update(walkX[frame], walkZ[frame])) {
+                int cx = Math.round(walkX[frame]);
+                int cz = Math.round(walkZ[frame]);
+                raycastAll(grid, cx, cz, naive);
+                for (int x = Math.max(0, cx - RADIUS); x <= Math.min(size - 1, cx + RADIUS); x++) {
+                    for (int z = Math.max(0, cz - RADIUS); z <= Math.min(size - 1, cz + RADIUS); z++) {
+                        if (naive[z * size + x] != check.isVisible(x, z)) {
+                            disagree++;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (print) {
+            System.out.printf("%-10s %12.2f %12.2f %10d %14.1f %12d %10d%n", size + "x" + size, fovMicros, naiveMicros,
+                recomputes, (double) changed / Math.max(1, recomputes), size * size, disagree);
+        }
+    }
+
+    /**
+     * Naive visibility: a Bresenham ray from the viewer to every cell in the
+     * radius, blocked by the first wall before the target
+     */
+    private static void raycastAll(CollisionGrid grid, int originX, int originZ, boolean[] visible) {
+        int size = grid.getWidth();
+        for (int x = Math.max(0, originX - RADIUS); x <= Math.min(size - 1, originX + RADIUS); x++) {
+            for (int z = Math.max(0, originZ - RADIUS); z <= Math.min(size - 1, originZ + RADIUS); z++) {
+                int dx = x - originX;
+                int dz = z - originZ;
+                visible[z * size + x] = dx * dx + dz * dz <= RADIUS * RADIUS && isLineClear(grid, originX, originZ, x, z);
+            }
+        }
+    }
+
+    private static boolean isLineClear(CollisionGrid grid, int x0, int z0, int x1, int z1) {
+        int dx = Math.abs(x1 - x0);
+        int dz = -Math.abs(z1 - z0);
+        int stepX = x0 < x1 ? 1 : -1;
+        int stepZ = z0 < z1 ? 1 : -1;
+        int error = dx + dz;
+        int x = x0;
+        int z = z0;
+        while (x != x1 || z != z1) {
+            if ((x != x0 || z != z0) && !grid.isWalkable(x, z)) {
+                return false;
+            }
+            int error2 = 2 * error;
+            if (error2 >= dz) {
+                error += dz;
+                x += stepX;
+            }
+            if (error2 <= dx) {
+                error += dx;
+                z += stepZ;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,197 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector3f;
+import com.jmonkeyvibe.game.entities.Enemy;
+import com.jmonkeyvibe.game.world.ClearanceMap;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+import com.jmonkeyvibe.game.world.FlowField;
+
+import java.util.Random;
+
+/**
+ * Cost and effect of steering dungeon enemies with a FlowField.
+ *
+ * For the 40x40 arena and a 512x512 BSP dungeon this measures the cost of
+ * one rebuild (a player cell change) and then simulates ENEMIES enemies
+ * spawned on random floor cells within SPAWN_RANGE of a standing player for
+ * SIMULATED_SECONDS at 60 fps, moving the way CombatManager moves them.
+ * Flow field steering is compared with the old straight-line steering by
+ * how many enemies reach the player and by the steering cost per frame.
+ *
+ * Then, per enemy type, SIZED_PLAYERS x SIZED_ENEMIES enemies spawned on
+ * cells they fit move with the clearance check CombatManager uses, following
+ * either the shared field over all floor or the field of their size class.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.FlowFieldBenchmark
+ */
+public class FlowFieldBenchmark {
+
+    private static final int ENEMIES = 1000;
+    private static final int SPAWN_RANGE = 40;
+    private static final float SIMULATED_SECONDS = 40f;
+    private static final float TPF = 1f / 60f;
+    private static final float SPEED = 3f;
+    private static final float REACH_DISTANCE = 1.5f;
+    private static final int REBUILDS = 200;
+    private static final int SIZED_PLAYERS = 6;
+    private static final int SIZED_ENEMIES = 100;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        run(assetManager, DungeonGenerator.Mode.ROOMS, 40);
+        run(assetManager, DungeonGenerator.Mode.BSP, 512);
+    }
+
+    private static void run(DesktopAssetManager assetManager, DungeonGenerator.Mode mode, int size) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, 42L);
+        generator.setMode(mode);
+        DungeonLayout layout = generator.generateLayout(size, size);
+        CollisionGrid grid = layout.getCollisionGrid();
+        Random random = new Random(7);
+
+        // Rebuild cost, after warming up the JIT
+        FlowField field = new FlowField(grid);
+        for (int i = 0; i < REBUILDS; i++) {
+            int[] cell = randomFloorCell(grid, random);
+            field.update(cell[0], cell[1]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REBUILDS; i++) {
+            int[] cell = randomFloorCell(grid, random);
+            field.update(cell[0], cell[1]);
+        }
+        double rebuildMillis = (System.nanoTime() - start) / 1e6 / REBUILDS;
+
+        int[] player = randomFloorCell(grid, random);
+        Vector3f playerPosition = new Vector3f(player[0], 0, player[1]);
+        Vector3f[] spawns = new Vector3f[ENEMIES];
+        for (int i = 0; i < ENEMIES; i++) {
+            int[] cell;
+            do {
+                cell = randomFloorCell(grid, random);
+            } while (Math.abs(cell[0] - player[0]) > SPAWN_RANGE || Math.abs(cell[1] - player[1]) > SPAWN_RANGE);
+            spawns[i] = new Vector3f(cell[0], 0, cell[1]);
+        }
+
+        field.update(playerPosition.x, playerPosition.z);
+        simulate(grid, null, playerPosition, spawns);
+        simulate(grid, field, playerPosition, spawns);
+        double[] straight = simulate(grid, null, playerPosition, spawns);
+        double[] flow = simulate(grid, field, playerPosition, spawns);
+
+        System.out.printf("%s %dx%d: rebuild %.3f ms | %d enemies, %.0f s: "
+                + "straight line %d reached (%.3f ms/frame), flow field %d reached (%.3f ms/frame)%n",
+            mode, size, size, rebuildMillis, ENEMIES, SIMULATED_SECONDS,
+            (int) straight[0], straight[1], (int) flow[0], flow[1]);
+
+        StringBuilder sized = new StringBuilder("  reached (shared field / size class field):");
+        for (Enemy.EnemyType type : Enemy.EnemyType.values()) {
+            int[] reached = simulateSize(layout, type.getRadius(), new Random(11));
+            sized.append(String.format(" %s %d/%d", type, reached[0], reached[2]))
+                .append(String.format(" / %d/%d", reached[1], reached[2]));
+        }
+        System.out.println(sized);
+    }
+
+    /**
+     * Move enemies of one radius towards players on random floor cells,
+     * checking moves against the clearance map
+     * @return {reached with the shared field, reached with the size class
+     *         field, enemies per run}
+     */
+    private static int[] simulateSize(DungeonLayout layout, float radius, Random random) {
+        CollisionGrid grid = layout.getCollisionGrid();
+        ClearanceMap clearance = layout.getClearanceMap();
+        FlowField shared = new FlowField(grid);
+        FlowField sized = new FlowField(grid, clearance, ClearanceMap.sizeClass(radius));
+        int[] reached = new int[3];
+        Vector3f direction = new Vector3f();
+        for (int p = 0; p < SIZED_PLAYERS; p++) {
+            int[] player = randomFloorCell(grid, random);
+            Vector3f playerPosition = new Vector3f(player[0], 0, player[1]);
+            shared.update(playerPosition.x, playerPosition.z);
+            sized.update(playerPosition.x, playerPosition.z);
+            for (int i = 0; i < SIZED_ENEMIES; i++) {
+                int[] cell;
+                do {
+                    cell = randomFloorCell(grid, random);
+                } while (!clearance.fits(cell[0], cell[1], radius)
+                    || Math.abs(cell[0] - player[0]) > SPAWN_RANGE || Math.abs(cell[1] - player[1]) > SPAWN_RANGE);
+                for (int pass = 0; pass < 2; pass++) {
+                    FlowField field = pass == 0 ? shared : sized;
+                    Vector3f enemy = new Vector3f(cell[0], 0, cell[1]);
+                    for (int frame = 0; frame < SIMULATED_SECONDS / TPF; frame++) {
+                        if (!field.getDirection(enemy.x, enemy.z, direction)) {
+                            direction.set(playerPosition).subtractLocal(enemy).normalizeLocal();
+                        }
+                        float newX = enemy.x + direction.x * SPEED * TPF;
+                        if (clearance.fits(newX, enemy.z, radius)) {
+                            enemy.x = newX;
+                        }
+                        float newZ = enemy.z + direction.z * SPEED * TPF;
+                        if (clearance.fits(enemy.x, newZ, radius)) {
+                            enemy.z = newZ;
+                        }
+                    }
+                    if (enemy.distance(playerPosition) <= REACH_DISTANCE) {
+                        reached[pass]++;
+                    }
+                }
+                reached[2]++;
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Move every enemy towards the player for SIMULATED_SECONDS
+     * @return {enemies that reached the player, steering ms per frame}
+     */
+    private static double[] simulate(CollisionGrid grid, FlowField field, Vector3f player, Vector3f[] spawns) {
+        Vector3f[] enemies = new Vector3f[spawns.length];
+        for (int i = 0; i < spawns.length; i++) {
+            enemies[i] = spawns[i].clone();
+        }
+        Vector3f direction = new Vector3f();
+        int frames = (int) (SIMULATED_SECONDS / TPF);
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            for (Vector3f enemy : enemies) {
+                if (field == null || !field.getDirection(enemy.x, enemy.z, direction)) {
+                    direction.set(player).subtractLocal(enemy).normalizeLocal();
+                }
+                float newX = enemy.x + direction.x * SPEED * TPF;
+                if (grid.isWalkable(newX, enemy.z)) {
+                    enemy.x = newX;
+                }
+                float newZ = enemy.z + direction.z * SPEED * TPF;
+                if (grid.isWalkable(enemy.x, newZ)) {
+                    enemy.z = newZ;
+                }
+            }
+        }
+        double millisPerFrame = (System.nanoTime() - start) / 1e6 / frames;
+
+        int reached = 0;
+        for (Vector3f enemy : enemies) {
+            if (enemy.distance(player) <= REACH_DISTANCE) {
+                reached++;
+            }
+        }
+        return new double[]{reached, millisPerFrame};
+    }
+
+    private static int[] randomFloorCell(CollisionGrid grid, Random random) {
+        while (true) {
+            int x = random.nextInt(grid.getWidth());
+            int z = random.nextInt(grid.getHeight());
+            if (grid.isWalkable(x, z)) {
+                return new int[]{x, z};
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+import com.jmonkeyvibe.game.world.LightMap;
+import com.jmonkeyvibe.game.world.PlacementService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cost of the incremental LightMap against relighting the whole dungeon
+ * every frame.
+ *
+ * On a 40x40 and a 512x512 dungeon, static torches are placed as in
+ * DungeonCombatState and DYNAMIC_LIGHTS small lights fly around at
+ * projectile speed (15 units/s, 60 fps), bouncing off walls, for
+ * SIMULATED_SECONDS; every second a breakable wall is broken. The table
+ * shows the cost per frame of LightMap.update() against flooding every
+ * light and combining the whole map each frame, and how many cells differ
+ * between the incremental map and one built from scratch at the end.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.LightMapBenchmark
+ */
+public class LightMapBenchmark {
+
+    private static final int DYNAMIC_LIGHTS = 32;
+    private static final int DYNAMIC_RADIUS = 3;
+    private static final int TORCH_RADIUS = 7;
+    private static final float TORCH_SPACING = 9.0f;
+    private static final int CELLS_PER_TORCH = 60;
+    private static final float SPEED = 15f;
+    private static final float TPF = 1f / 60f;
+    private static final float SIMULATED_SECONDS = 20f;
+    private static final int FULL_FRAMES = 20;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        System.out.printf("%-10s %8s %12s %14s %12s %10s%n",
+            "grid", "torches", "update us", "texels/frame", "full us", "mismatch");
+        for (int pass = 0; pass < 2; pass++) {
+            run(assetManager, DungeonGenerator.Mode.ROOMS, 40, pass == 1);
+            run(assetManager, DungeonGenerator.Mode.BSP, 512, pass == 1);
+        }
+    }
+
+    private static void run(DesktopAssetManager assetManager, DungeonGenerator.Mode mode, int size, boolean print) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, 42L);
+        generator.setMode(mode);
+        DungeonLayout layout = generator.generateLayout(size, size);
+        generator.attachLayout(new Node("Dungeon"), layout);
+        CollisionGrid grid = generator.getCollisionGrid();
+        Random random = new Random(7);
+
+        // Static torches along the walls
+        PlacementService placement = generator.getPlacementService();
+        PlacementService.Sampler sampler = placement.newSampler(TORCH_SPACING, random);
+        List<float[]> torches = new ArrayList<>();
+        for (int i = 0; i < placement.getWalkableCount() / CELLS_PER_TORCH; i++) {
+            float[] torch = toArray(sampler.next((x, z) ->
+                generator.getClearanceMap().getClearance(Math.round(x), Math.round(z)) <= 0.5f));
+            if (torch == null) {
+                break;
+            }
+            torches.add(torch);
+        }
+        LightMap lightMap = new LightMap(assetManager, grid);
+        for (float[] torch : torches) {
+            lightMap.addLight(torch[0], torch[1], TORCH_RADIUS);
+        }
+
+        // Dynamic lights start on random floor cells
+        float[][] movers = new float[DYNAMIC_LIGHTS][];
+        LightMap.Light[] dynamic = new LightMap.Light[DYNAMIC_LIGHTS];
+        for (int i = 0; i < DYNAMIC_LIGHTS; i++) {
+            float[] start = toArray(placement.findNearestWalkable(
+                new Vector3f(random.nextInt(size), 0, random.nextInt(size))));
+            float angle = random.nextFloat() * 6.2831855f;
+            movers[i] = new float[]{start[0], start[1], (float) Math.cos(angle), (float) Math.sin(angle)};
+            dynamic[i] = lightMap.addLight(start[0], start[1], DYNAMIC_RADIUS);
+        }
+        lightMap.update();
+
+        List<int[]> breakable = new ArrayList<>();
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                if (generator.isBreakableWall(x, z)) {
+                    breakable.add(new int[]{x, z});
+                }
+            }
+        }
+
+        int frames = (int) (SIMULATED_SECONDS / TPF);
+        long updateNanos = 0;
+        long texelsBefore = lightMap.getTexelsWritten();
+        for (int frame = 0; frame < frames; frame++) {
+            moveLights(grid, movers, random);
+            if (frame % 60 == 0 && !breakable.isEmpty()) {
+                int[] wall = breakable.remove(random.nextInt(breakable.size()));
+                generator.breakWall(wall[0], wall[1]);
+                lightMap.cellChanged(wall[0], wall[1]);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < DYNAMIC_LIGHTS; i++) {
+                dynamic[i].setPosition(movers[i][0], movers[i][1]);
+            }
+            lightMap.update();
+            updateNanos += System.nanoTime() - start;
+        }
+        double texelsPerFrame = (double) (lightMap.getTexelsWritten() - texelsBefore) / frames;
+
+        // Relighting everything: a new map with every light, each frame
+        long start = System.nanoTime();
+        LightMap full = null;
+        for (int frame = 0; frame < FULL_FRAMES; frame++) {
+            full = new LightMap(assetManager, grid);
+            for (float[] torch : torches) {
+                full.addLight(torch[0], torch[1], TORCH_RADIUS);
+            }
+            for (float[] mover : movers) {
+                full.addLight(mover[0], mover[1], DYNAMIC_RADIUS);
+            }
+            full.update();
+        }
+        double fullMicros = (System.nanoTime() - start) / 1e3 / FULL_FRAMES;
+
+        long mismatches = 0;
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                if (full.getBrightness(x, z) != lightMap.getBrightness(x, z)) {
+                    mismatches++;
+                }
+            }
+        }
+
+        if (print) {
+            System.out.printf("%-10s %8d %12.2f %14.1f %12.2f %10d%n", size + "x" + size, torches.size(),
+                updateNanos / 1e3 / frames, texelsPerFrame, fullMicros, mismatches);
+        }
+    }
+
+    /**
+     * Fly straight on, turning to a random direction when about to enter a wall
+     */
+    private static void moveLights(CollisionGrid grid, float[][] movers, Random random) {
+        for (float[] mover : movers) {
+            float newX = mover[0] + mover[2] * SPEED * TPF;
+            float newZ = mover[1] + mover[3] * SPEED * TPF;
+            if (grid.isWalkable(newX, newZ)) {
+                mover[0] = newX;
+                mover[1] = newZ;
+            } else {
+                float angle = random.nextFloat() * 6.2831855f;
+                mover[2] = (float) Math.cos(angle);
+                mover[3] = (float) Math.sin(angle);
+            }
+        }
+    }
+
+    private static float[] toArray(Vector3f position) {
+        return position == null ? null : new float[]{position.x, position.z};
+    }
+}
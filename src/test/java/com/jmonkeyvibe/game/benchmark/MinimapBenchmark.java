@@ -0,0 +1,168 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AppState;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jmonkeyvibe.game.states.MinimapState;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.FieldOfView;
+import com.jmonkeyvibe.game.world.FlowField;
+
+import java.util.Random;
+
+/**
+ * Cost of the incrementally updated MinimapState against repainting the
+ * whole minimap texture every frame.
+ *
+ * On a 40x40 and a 512x512 dungeon a player walks (at 7 units/s, 60 fps)
+ * along the flow field between random floor cells for SIMULATED_SECONDS,
+ * with a FieldOfView revealing cells as in DungeonCombatState. The minimap
+ * runs headless (no window, nothing is rendered) so only the CPU side is
+ * measured: the table shows the pixels painted and the time per frame of
+ * the minimap (field of view update included) against a full MAP_CELLS x
+ * MAP_CELLS repaint, how many frames needed a texture upload, and how many
+ * geometries (draw calls) the minimap adds to the GUI, against one quad
+ * per cell.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.MinimapBenchmark
+ */
+public class MinimapBenchmark {
+
+    private static final int RADIUS = 12;
+    private static final float SPEED = 7f;
+    private static final float TPF = 1f / 60f;
+    private static final float SIMULATED_SECONDS = 60f;
+    private static final int ENEMIES = 50;
+
+    /**
+     * Just enough of an application for MinimapState to initialize
+     */
+    private static class HeadlessApp extends SimpleApplication {
+        HeadlessApp() {
+            super((AppState[]) null);
+            assetManager = new DesktopAssetManager(true);
+            cam = new Camera(1280, 720);
+        }
+
+        @Override
+        public void simpleInitApp() {
+        }
+    }
+
+    public static void main(String[] args) {
+        HeadlessApp app = new HeadlessApp();
+        System.out.printf("%-10s %12s %12s %12s %12s %10s %10s %12s%n",
+            "grid", "px/frame", "full px/frm", "minimap us", "full us", "uploads", "geometries", "cell quads");
+        for (int pass = 0; pass < 2; pass++) {
+            run(app, DungeonGenerator.Mode.ROOMS, 40, pass == 1);
+            run(app, DungeonGenerator.Mode.BSP, 512, pass == 1);
+        }
+    }
+
+    private static void run(HeadlessApp app, DungeonGenerator.Mode mode, int size, boolean print) {
+        DungeonGenerator generator = new DungeonGenerator(app.getAssetManager(), 42L);
+        generator.setMode(mode);
+        CollisionGrid grid = generator.generateLayout(size, size).getCollisionGrid();
+        Random random = new Random(7);
+
+        Vector3f[] enemies = new Vector3f[ENEMIES];
+        for (int i = 0; i < ENEMIES; i++) {
+            enemies[i] = BenchmarkScenes.randomFloorCell(grid, random);
+        }
+
+        FieldOfView fieldOfView = new FieldOfView(grid, RADIUS);
+        Vector3f position = BenchmarkScenes.randomFloorCell(grid, random);
+        MinimapState.Source source = new MinimapState.Source() {
+            @Override
+            public Vector3f getCenter() {
+                return position;
+            }
+
+            @Override
+            public int getColor(int x, int z) {
+                if (!fieldOfView.isExplored(x, z)) {
+                    return 0x00000080;
+                }
+                return grid.isWalkable(x, z) ? 0x5A5A62FF : 0x1C1C20FF;
+            }
+
+            @Override
+            public void addMarkers(MinimapState minimap) {
+                for (Vector3f enemy : enemies) {
+                    if (fieldOfView.isVisible(enemy.x, enemy.z)) {
+                        minimap.addMarker(enemy, ColorRGBA.Red);
+                    }
+                }
+                minimap.addMarker(position, ColorRGBA.White);
+            }
+        };
+        MinimapState minimap = new MinimapState(source);
+        minimap.initialize(app.getStateManager(), app);
+
+        int frames = (int) (SIMULATED_SECONDS / TPF);
+        Vector3f target = BenchmarkScenes.randomFloorCell(grid, random);
+        FlowField flowField = new FlowField(grid);
+        flowField.update(target.x, target.z);
+        Vector3f direction = new Vector3f();
+        int[] fullRepaint = new int[MinimapState.MAP_CELLS * MinimapState.MAP_CELLS];
+        long minimapNanos = 0;
+        long fullNanos = 0;
+        long checksum = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            if (!flowField.getDirection(position.x, position.z, direction)) {
+                target = BenchmarkScenes.randomFloorCell(grid, random);
+                flowField.update(target.x, target.z);
+                direction.set(target).subtractLocal(position).normalizeLocal();
+            }
+            float newX = position.x + direction.x * SPEED * TPF;
+            if (grid.isWalkable(newX, position.z)) {
+                position.x = newX;
+            }
+            float newZ = position.z + direction.z * SPEED * TPF;
+            if (grid.isWalkable(position.x, newZ)) {
+                position.z = newZ;
+            }
+
+            long start = System.nanoTime();
+            if (fieldOfView.update(position.x, position.z)) {
+                for (int i = 0; i < fieldOfView.getChangedCount(); i++) {
+                    int cell = fieldOfView.getChangedCell(i);
+                    minimap.markDirty(cell % size, cell / size);
+                }
+            }
+            minimap.update(TPF);
+            minimapNanos += System.nanoTime() - start;
+
+            // The alternative: repaint the whole window every frame
+            start = System.nanoTime();
+            int originX = Math.round(position.x) - MinimapState.MAP_CELLS / 2;
+            int originZ = Math.round(position.z) - MinimapState.MAP_CELLS / 2;
+            for (int z = 0; z < MinimapState.MAP_CELLS; z++) {
+                for (int x = 0; x < MinimapState.MAP_CELLS; x++) {
+                    fullRepaint[z * MinimapState.MAP_CELLS + x] = source.getColor(originX + x, originZ + z);
+                }
+            }
+            fullNanos += System.nanoTime() - start;
+            checksum += fullRepaint[frame % fullRepaint.length];
+        }
+
+        long pixels = minimap.getPixelsPainted();
+        long uploads = minimap.getUploads();
+        int geometries = BenchmarkScenes.countGeometries(app.getGuiNode());
+        minimap.cleanup();
+
+        if (print) {
+            System.out.printf("%-10s %12.1f %12d %12.2f %12.2f %10d %10d %12d%n", size + "x" + size,
+                (double) pixels / frames, fullRepaint.length, minimapNanos / 1e3 / frames, fullNanos / 1e3 / frames,
+                uploads, geometries, size * size);
+        }
+        if (checksum == 42) {
+            System.out.println();
+        }
+    }
+}
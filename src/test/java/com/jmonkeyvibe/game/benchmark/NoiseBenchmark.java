@@ -0,0 +1,93 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jmonkeyvibe.game.world.TerrainNoise;
+import com.jmonkeyvibe.game.world.WorldGenerator;
+
+/**
+ * Samples-per-second comparison of the scalar and SIMD terrain noise kernels,
+ * plus a bit-for-bit equality check between them.
+ *
+ * Each pass fills CHUNKS chunk-sized blocks (32x32 samples) spread over
+ * positive and negative world coordinates, the same shape WorldGenerator uses.
+ *
+ * Run with:
+ *   java --add-modules jdk.incubator.vector -cp target/test-classes:target/classes:&lt;dependencies&gt; \
+ *        com.jmonkeyvibe.game.benchmark.NoiseBenchmark
+ */
+public class NoiseBenchmark {
+
+    private static final int CHUNKS = 2048;
+    private static final int WARMUP_PASSES = 5;
+    private static final int MEASURED_PASSES = 10;
+    private static final float FREQUENCY = 1f / 40f;
+
+    public static void main(String[] args) {
+        TerrainNoise noise = new TerrainNoise(42L);
+        int size = WorldGenerator.CHUNK_SIZE;
+
+        System.out.println("Vector API available: " + TerrainNoise.isVectorApiAvailable());
+        if (!TerrainNoise.isVectorApiAvailable()) {
+            System.out.println("Start the JVM with --add-modules jdk.incubator.vector to benchmark the SIMD kernel.");
+        }
+
+        // Correctness: both kernels must agree on every bit
+        if (TerrainNoise.isVectorApiAvailable()) {
+            float[] scalar = new float[size * size];
+            float[] vector = new float[size * size];
+            TerrainNoise.setSimdEnabled(true);
+            long mismatches = 0;
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                int originX = chunkOriginX(chunk);
+                int originZ = chunkOriginZ(chunk);
+                noise.fillScalar(scalar, originX, originZ, size, size, FREQUENCY);
+                noise.fill(vector, originX, originZ, size, size, FREQUENCY);
+                for (int i = 0; i < scalar.length; i++) {
+                    if (Float.floatToRawIntBits(scalar[i]) != Float.floatToRawIntBits(vector[i])) {
+                        mismatches++;
+                    }
+                }
+            }
+            System.out.println("Bit-identical: " + (mismatches == 0)
+                + " (" + mismatches + " mismatches in " + (long) CHUNKS * size * size + " samples)");
+        }
+
+        TerrainNoise.setSimdEnabled(false);
+        double scalarRate = measure(noise, size);
+        System.out.printf("scalar: %8.1f M samples/s%n", scalarRate / 1e6);
+
+        if (TerrainNoise.isVectorApiAvailable()) {
+            TerrainNoise.setSimdEnabled(true);
+            double vectorRate = measure(noise, size);
+            System.out.printf("vector: %8.1f M samples/s (%.2fx)%n", vectorRate / 1e6, vectorRate / scalarRate);
+        }
+    }
+
+    private static double measure(TerrainNoise noise, int size) {
+        float[] out = new float[size * size];
+        float checksum = 0f;
+        long elapsed = 0;
+        for (int pass = 0; pass < WARMUP_PASSES + MEASURED_PASSES; pass++) {
+            long start = System.nanoTime();
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                noise.fill(out, chunkOriginX(chunk), chunkOriginZ(chunk), size, size, FREQUENCY);
+                checksum += out[chunk & (out.length - 1)];
+            }
+            if (pass >= WARMUP_PASSES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        if (checksum == Float.MIN_VALUE) {
+            System.out.println(checksum); // keep the work observable
+        }
+        long samples = (long) MEASURED_PASSES * CHUNKS * size * size;
+        return samples / (elapsed / 1e9);
+    }
+
+    private static int chunkOriginX(int chunk) {
+        return ((chunk % 64) - 32) * WorldGenerator.CHUNK_SIZE;
+    }
+
+    private static int chunkOriginZ(int chunk) {
+        return ((chunk / 64) - 16) * WorldGenerator.CHUNK_SIZE;
+    }
+}
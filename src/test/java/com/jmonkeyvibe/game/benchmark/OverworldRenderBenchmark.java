@@ -0,0 +1,126 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Quad;
+import com.jme3.system.NullRenderer;
+import com.jmonkeyvibe.game.world.TileType;
+import com.jmonkeyvibe.game.world.WorldGenerator;
+
+/**
+ * Headless comparison of the old one-geometry-per-tile overworld against the
+ * chunked overworld built by WorldGenerator.
+ *
+ * For each map size it reports the scene build time, the number of geometries
+ * in the scene, the number of draw calls queued for the game's 15-unit
+ * orthographic view, and the CPU-side frame time (scene update, frustum
+ * culling and render-queue submission, measured against a NullRenderer).
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.OverworldRenderBenchmark
+ * The per-tile variant at 1024x1024 needs a large heap (-Xmx8g) and is skipped
+ * when the heap is too small.
+ */
+public class OverworldRenderBenchmark {
+
+    private static final int[] SIZES = {20, 256, 1024};
+    private static final int WARMUP_FRAMES = 20;
+    private static final int MEASURED_FRAMES = 100;
+
+    public static void main(String[] args) {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        RenderManager renderManager = new RenderManager(new NullRenderer());
+
+        System.out.printf("%-10s %-9s %10s %12s %11s %14s%n",
+            "size", "mode", "build ms", "geometries", "draw calls", "frame ms (cpu)");
+        for (int size : SIZES) {
+            if (canAffordPerTile(size)) {
+                run(size, "per-tile", buildPerTile(assetManager, size), renderManager);
+            } else {
+                System.out.printf("%-10s %-9s %s%n", size + "x" + size, "per-tile", "skipped (heap too small)");
+            }
+            run(size, "chunked", buildChunked(assetManager, size), renderManager);
+        }
+    }
+
+    private static void run(int size, String mode, Built built, RenderManager renderManager) {
+        ViewPort viewPort = BenchmarkScenes.createTopDownViewPort();
+        Node root = new Node("Root");
+        root.attachChild(built.world);
+
+        long totalNanos = 0;
+        for (int frame = 0; frame < WARMUP_FRAMES + MEASURED_FRAMES; frame++) {
+            long start = System.nanoTime();
+            root.updateLogicalState(1f / 60f);
+            root.updateGeometricState();
+            renderManager.renderScene(root, viewPort);
+            viewPort.getQueue().clear();
+            if (frame >= WARMUP_FRAMES) {
+                totalNanos += System.nanoTime() - start;
+            }
+        }
+
+        viewPort.getCamera().setPlaneState(0);
+        int drawCalls = BenchmarkScenes.countVisibleGeometries(root, viewPort.getCamera());
+        System.out.printf("%-10s %-9s %10.1f %12d %11d %14.3f%n",
+            size + "x" + size, mode, built.buildMillis, BenchmarkScenes.countGeometries(built.world), drawCalls,
+            totalNanos / 1e6 / MEASURED_FRAMES);
+    }
+
+    private static Built buildChunked(AssetManager assetManager, int size) {
+        long start = System.nanoTime();
+        Node world = new Node("World");
+        new WorldGenerator(assetManager).generateOverworld(world, size, size);
+        return new Built(world, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * The overworld as it was built before chunking: a container node, a quad
+     * and a material for every tile.
+     */
+    private static Built buildPerTile(AssetManager assetManager, int size) {
+        long start = System.nanoTime();
+        Node world = new Node("World");
+        TileType[] types = TileType.values();
+        for (int x = -size / 2; x < size / 2; x++) {
+            for (int z = -size / 2; z < size / 2; z++) {
+                Geometry tile = new Geometry("Tile_" + x + "_" + z, new Quad(1, 1));
+                Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+                ColorRGBA color = types[Math.floorMod(x * 31 + z * 17, types.length)].getColor();
+                mat.setColor("Color", color);
+                tile.setMaterial(mat);
+                tile.setLocalTranslation(-0.5f, 0, -0.5f);
+                tile.rotate(-FastMath.HALF_PI, 0, 0);
+
+                Node tileNode = new Node("TileNode_" + x + "_" + z);
+                tileNode.attachChild(tile);
+                tileNode.setLocalTranslation(x, 0, z);
+                world.attachChild(tileNode);
+            }
+        }
+        return new Built(world, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static boolean canAffordPerTile(int size) {
+        // Roughly 4 KB of heap per tile for node, geometry, mesh and material
+        long needed = (long) size * size * 4096L;
+        return Runtime.getRuntime().maxMemory() > needed;
+    }
+
+    private static class Built {
+        final Node world;
+        final double buildMillis;
+
+        Built(Node world, double buildMillis) {
+            this.world = world;
+            this.buildMillis = buildMillis;
+        }
+    }
+}
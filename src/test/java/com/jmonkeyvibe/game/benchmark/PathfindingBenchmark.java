@@ -0,0 +1,208 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector3f;
+import com.jmonkeyvibe.game.world.OverworldPath;
+import com.jmonkeyvibe.game.world.OverworldPathfinder;
+import com.jmonkeyvibe.game.world.OverworldTileStore;
+import com.jmonkeyvibe.game.world.WorldGenerator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless benchmark of the hierarchical overworld pathfinder.
+ *
+ * ROUTES NPCs request paths between random walkable tiles up to RANGE tiles
+ * apart, all in the same frame. The pathfinder is then updated once per
+ * simulated 60 fps frame until every request is resolved, reporting how many
+ * frames that took and the worst per-frame cost on the calling thread, both
+ * in wall-clock time and in CPU time of that thread (chunk terrain for
+ * unexplored clusters is generated on the pathfinder's own thread, which on a
+ * machine with few cores competes for the same CPU and shows up in wall-clock
+ * time, as do GC pauses). Every found path is walked to the
+ * end to include lazy refinement, the same requests are repeated to show the
+ * route cache, and a few routes are compared against plain tile-level A*.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.PathfindingBenchmark
+ */
+public class PathfindingBenchmark {
+
+    private static final int ROUTES = 200;
+    private static final int RANGE = 2000;
+    private static final int FLAT_COMPARISONS = 5;
+    private static final int FLAT_MARGIN = 64;
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+
+        // Warm up the JIT on a different world so the measured run is not dominated by compilation
+        WorldGenerator warmupGenerator = new WorldGenerator(assetManager, 7L);
+        OverworldTileStore warmupStore = new OverworldTileStore(warmupGenerator, 8192);
+        run(null, new OverworldPathfinder(warmupStore), randomRoutes(warmupStore, new Random(1)));
+
+        WorldGenerator generator = new WorldGenerator(assetManager, 42L);
+        OverworldTileStore tileStore = new OverworldTileStore(generator, 8192);
+        OverworldPathfinder pathfinder = new OverworldPathfinder(tileStore);
+        List<Vector3f[]> routes = randomRoutes(tileStore, new Random(7));
+
+        run("empty graph", pathfinder, routes);
+        run("cached", pathfinder, routes);
+        System.out.println(pathfinder.getStatsSummary());
+
+        System.out.printf("%n%-6s %10s %12s %12s %12s %12s%n",
+            "route", "distance", "hpa tiles", "flat tiles", "flat ms", "flat expanded");
+        for (int i = 0; i < FLAT_COMPARISONS; i++) {
+            Vector3f[] route = routes.get(i);
+            OverworldPath path = pathfinder.requestPath(route[0], route[1]);
+            while (path.isPending()) {
+                pathfinder.update();
+            }
+            int hpaTiles = path.isFound() ? walk(path) : -1;
+
+            long start = System.nanoTime();
+            int[] flat = flatAStar(tileStore, Math.round(route[0].x), Math.round(route[0].z),
+                                   Math.round(route[1].x), Math.round(route[1].z));
+            double flatMillis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%-6d %10.0f %12d %12d %12.1f %12d%n",
+                i, route[0].distance(route[1]), hpaTiles, flat[0], flatMillis, flat[1]);
+        }
+    }
+
+    private static List<Vector3f[]> randomRoutes(OverworldTileStore tileStore, Random random) {
+        List<Vector3f[]> routes = new ArrayList<>();
+        while (routes.size() < ROUTES) {
+            Vector3f from = randomWalkable(tileStore, random, 0, 0, RANGE / 2);
+            Vector3f to = randomWalkable(tileStore, random, from.x, from.z, RANGE / 2);
+            routes.add(new Vector3f[]{from, to});
+        }
+        return routes;
+    }
+
+    private static void run(String label, OverworldPathfinder pathfinder, List<Vector3f[]> routes) {
+        List<OverworldPath> paths = new ArrayList<>();
+        for (Vector3f[] route : routes) {
+            paths.add(pathfinder.requestPath(route[0], route[1]));
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int frames = 0;
+        long worstFrame = 0;
+        long worstCpu = 0;
+        long totalNanos = 0;
+        while (pathfinder.getPendingRequestCount() > 0) {
+            long start = System.nanoTime();
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            pathfinder.update();
+            long elapsed = System.nanoTime() - start;
+            worstCpu = Math.max(worstCpu, threads.getCurrentThreadCpuTime() - cpuStart);
+            worstFrame = Math.max(worstFrame, elapsed);
+            totalNanos += elapsed;
+            frames++;
+            LockSupport.parkNanos(FRAME_NANOS - elapsed);
+        }
+
+        int found = 0;
+        long tiles = 0;
+        long walkStart = System.nanoTime();
+        for (OverworldPath path : paths) {
+            if (path.isFound()) {
+                found++;
+                tiles += walk(path);
+            }
+        }
+        double walkMillis = (System.nanoTime() - walkStart) / 1e6;
+
+        if (label == null) {
+            return;
+        }
+        System.out.printf("%s: %d/%d routes found in %d frames (total %.1f ms, worst frame %.2f ms, "
+                + "worst frame cpu %.2f ms) | %d tiles refined in %.1f ms%n",
+            label, found, paths.size(), frames, totalNanos / 1e6, worstFrame / 1e6, worstCpu / 1e6,
+            tiles, walkMillis);
+    }
+
+    private static int walk(OverworldPath path) {
+        int tiles = 0;
+        Vector3f waypoint = new Vector3f();
+        while (path.hasNextWaypoint() && path.nextWaypoint(waypoint) != null) {
+            tiles++;
+        }
+        return tiles;
+    }
+
+    private static Vector3f randomWalkable(OverworldTileStore tileStore, Random random,
+                                           float centerX, float centerZ, int radius) {
+        while (true) {
+            int x = Math.round(centerX) + random.nextInt(radius * 2 + 1) - radius;
+            int z = Math.round(centerZ) + random.nextInt(radius * 2 + 1) - radius;
+            if (tileStore.isWalkable(x, z)) {
+                return new Vector3f(x, 0, z);
+            }
+        }
+    }
+
+    /**
+     * Plain 4-connected tile A* inside the bounding box of start and goal (plus a margin)
+     * @return {path length in steps (-1 if none), tiles expanded}
+     */
+    private static int[] flatAStar(OverworldTileStore tileStore, int startX, int startZ, int goalX, int goalZ) {
+        int minX = Math.min(startX, goalX) - FLAT_MARGIN;
+        int minZ = Math.min(startZ, goalZ) - FLAT_MARGIN;
+        int width = Math.abs(startX - goalX) + 2 * FLAT_MARGIN + 1;
+        int height = Math.abs(startZ - goalZ) + 2 * FLAT_MARGIN + 1;
+
+        int[] cost = new int[width * height];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        boolean[] closed = new boolean[width * height];
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+        int start = (startZ - minZ) * width + (startX - minX);
+        int goal = (goalZ - minZ) * width + (goalX - minX);
+        cost[start] = 0;
+        open.add(new long[]{Math.abs(startX - goalX) + Math.abs(startZ - goalZ), start});
+
+        int expanded = 0;
+        int[] dx = {1, -1, 0, 0};
+        int[] dz = {0, 0, 1, -1};
+        while (!open.isEmpty()) {
+            int tile = (int) open.poll()[1];
+            if (closed[tile]) {
+                continue;
+            }
+            closed[tile] = true;
+            expanded++;
+            if (tile == goal) {
+                return new int[]{cost[goal], expanded};
+            }
+            int x = tile % width;
+            int z = tile / width;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + dx[d];
+                int nz = z + dz[d];
+                if (nx < 0 || nz < 0 || nx >= width || nz >= height) {
+                    continue;
+                }
+                int next = nz * width + nx;
+                if (closed[next] || !tileStore.isWalkable(nx + minX, nz + minZ)) {
+                    continue;
+                }
+                int nextCost = cost[tile] + 1;
+                if (nextCost < cost[next]) {
+                    cost[next] = nextCost;
+                    int h = Math.abs(nx + minX - goalX) + Math.abs(nz + minZ - goalZ);
+                    open.add(new long[]{nextCost + h, next});
+                }
+            }
+        }
+        return new int[]{-1, expanded};
+    }
+}
@@ -0,0 +1,151 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.PlacementService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Entity placement with PlacementService against the rejection sampling it
+ * replaced.
+ *
+ * On a 512x512 BSP dungeon, COUNTS entities are placed MIN_SEPARATION apart
+ * anywhere on the map, once with the old loop (50 random attempts per
+ * entity, each checked against every placed position) and once with a
+ * Poisson-disk Sampler. The table shows the time and how many entities were
+ * actually placed. Then the player spawn lookup is timed: the old
+ * expanding-square search against findNearestWalkable().
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.PlacementBenchmark
+ */
+public class PlacementBenchmark {
+
+    private static final int SIZE = 512;
+    private static final int[] COUNTS = {10, 100, 1000, 10000, 100000};
+    private static final float MIN_SEPARATION = 3.0f;
+    private static final int MAX_ATTEMPTS = 50;
+    private static final int LOOKUPS = 100000;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        DungeonGenerator generator = new DungeonGenerator(assetManager, 42L);
+        generator.setMode(DungeonGenerator.Mode.BSP);
+        CollisionGrid grid = generator.generateLayout(SIZE, SIZE).getCollisionGrid();
+
+        long start = System.nanoTime();
+        PlacementService placement = PlacementService.fromGrid(grid);
+        System.out.printf("Indexed %d walkable cells in %.2f ms%n",
+            placement.getWalkableCount(), (System.nanoTime() - start) / 1e6);
+
+        // Warm up both placers
+        for (int i = 0; i < 5; i++) {
+            placeByRejection(grid, 1000, new Random(i));
+            placeBySampler(placement, 1000, new Random(i));
+        }
+
+        System.out.printf("%10s %14s %10s %14s %10s%n", "entities", "rejection ms", "placed", "sampler ms", "placed");
+        for (int count : COUNTS) {
+            start = System.nanoTime();
+            int rejectionPlaced = placeByRejection(grid, count, new Random(1));
+            double rejectionMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            int samplerPlaced = placeBySampler(placement, count, new Random(1));
+            double samplerMillis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%10d %14.2f %10d %14.2f %10d%n",
+                count, rejectionMillis, rejectionPlaced, samplerMillis, samplerPlaced);
+        }
+
+        Random random = new Random(3);
+        Vector3f[] preferred = new Vector3f[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            preferred[i] = new Vector3f(random.nextInt(SIZE), 0, random.nextInt(SIZE));
+        }
+        placement.findNearestWalkable(preferred[0]);
+        for (int pass = 0; pass < 3; pass++) {
+            start = System.nanoTime();
+            int found = 0;
+            for (Vector3f position : preferred) {
+                if (findBySpiral(grid, position) != null) {
+                    found++;
+                }
+            }
+            double spiralNanos = (double) (System.nanoTime() - start) / LOOKUPS;
+            start = System.nanoTime();
+            int snapped = 0;
+            for (Vector3f position : preferred) {
+                if (placement.findNearestWalkable(position) != null) {
+                    snapped++;
+                }
+            }
+            double nearestNanos = (double) (System.nanoTime() - start) / LOOKUPS;
+            System.out.printf("Spawn lookup: spiral %.0f ns (%d found), nearest-walkable %.0f ns (%d found)%n",
+                spiralNanos, found, nearestNanos, snapped);
+        }
+    }
+
+    /**
+     * The old loop: random attempts, each checked against every used position
+     */
+    private static int placeByRejection(CollisionGrid grid, int count, Random random) {
+        List<Vector3f> used = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                Vector3f candidate = new Vector3f(random.nextFloat() * SIZE, 0, random.nextFloat() * SIZE);
+                if (!grid.isWalkable(candidate.x, candidate.z)) {
+                    continue;
+                }
+                boolean valid = true;
+                for (Vector3f position : used) {
+                    if (candidate.distance(position) < MIN_SEPARATION) {
+                        valid = false;
+                        break;
+                    }
+                }
+                if (valid) {
+                    used.add(candidate);
+                    break;
+                }
+            }
+        }
+        return used.size();
+    }
+
+    private static int placeBySampler(PlacementService placement, int count, Random random) {
+        PlacementService.Sampler sampler = placement.newSampler(MIN_SEPARATION, random);
+        int placed = 0;
+        for (int i = 0; i < count; i++) {
+            if (sampler.next(null) != null) {
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * The old player spawn search: expanding squares, up to 20 cells out
+     */
+    private static Vector3f findBySpiral(CollisionGrid grid, Vector3f preferred) {
+        if (grid.isWalkable(preferred.x, preferred.z)) {
+            return preferred;
+        }
+        for (int radius = 1; radius <= 20; radius++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    if (Math.abs(dx) == radius || Math.abs(dz) == radius) {
+                        if (grid.isWalkable(preferred.x + dx, preferred.z + dz)) {
+                            return new Vector3f(preferred.x + dx, 0, preferred.z + dz);
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
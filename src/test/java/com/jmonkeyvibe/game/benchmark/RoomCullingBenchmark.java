@@ -0,0 +1,152 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.system.NullRenderer;
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.DungeonGenerator;
+import com.jmonkeyvibe.game.world.DungeonLayout;
+import com.jmonkeyvibe.game.world.FieldOfView;
+import com.jmonkeyvibe.game.world.FlowField;
+import com.jmonkeyvibe.game.world.RoomGraph;
+
+import java.util.Random;
+
+/**
+ * Headless cost of drawing a dungeon with and without hiding the rooms the
+ * player has not explored (DungeonGenerator.revealRooms()).
+ *
+ * On a 40x40 and a 512x512 dungeon a player walks (at 7 units/s, 60 fps)
+ * along the flow field between random floor cells for SIMULATED_SECONDS,
+ * followed by the game's 15-unit orthographic camera, exploring the map
+ * through a FieldOfView as in the game. The same walk is run twice: with
+ * every room node left to jME's frustum culling, and with revealRooms()
+ * called whenever the field of view is recomputed. The table shows the
+ * rooms and geometries in the scene, the rooms shown and the draw calls
+ * queued per frame, the cost of revealRooms() per frame and the CPU-side
+ * frame time (scene update, culling and render-queue submission against a
+ * NullRenderer). "missed" counts on-screen explored cells (the ones the
+ * fog of war does not black out) whose room was hidden, which must stay 0.
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.RoomCullingBenchmark
+ */
+public class RoomCullingBenchmark {
+
+    private static final float SPEED = 7f;
+    private static final float TPF = 1f / 60f;
+    private static final float SIMULATED_SECONDS = 60f;
+    private static final int FOV_RADIUS = 12;
+
+    public static void main(String[] args) {
+        DesktopAssetManager assetManager = new DesktopAssetManager(true);
+        RenderManager renderManager = new RenderManager(new NullRenderer());
+        System.out.printf("%-10s %-8s %7s %10s %9s %11s %9s %14s %8s%n",
+            "grid", "culling", "rooms", "geometries", "shown", "draw calls", "reveal us", "frame us (cpu)", "missed");
+        for (int pass = 0; pass < 2; pass++) {
+            for (boolean culling : new boolean[]{false, true}) {
+                run(assetManager, renderManager, DungeonGenerator.Mode.ROOMS, 40, culling, pass == 1);
+                run(assetManager, renderManager, DungeonGenerator.Mode.BSP, 512, culling, pass == 1);
+            }
+        }
+    }
+
+    private static void run(DesktopAssetManager assetManager, RenderManager renderManager,
+                            DungeonGenerator.Mode mode, int size, boolean culling, boolean print) {
+        DungeonGenerator generator = new DungeonGenerator(assetManager, 42L);
+        generator.setMode(mode);
+        DungeonLayout layout = generator.generateLayout(size, size);
+        Node root = new Node("Root");
+        generator.attachLayout(root, layout);
+        CollisionGrid grid = generator.getCollisionGrid();
+        RoomGraph roomGraph = layout.getRoomGraph();
+        ViewPort viewPort = BenchmarkScenes.createTopDownViewPort();
+        Camera cam = viewPort.getCamera();
+        FieldOfView fieldOfView = new FieldOfView(grid, FOV_RADIUS);
+        Random random = new Random(7);
+
+        int frames = (int) (SIMULATED_SECONDS / TPF);
+        Vector3f position = BenchmarkScenes.randomFloorCell(grid, random);
+        Vector3f target = BenchmarkScenes.randomFloorCell(grid, random);
+        FlowField flowField = new FlowField(grid);
+        flowField.update(target.x, target.z);
+        Vector3f direction = new Vector3f();
+        long passNanos = 0;
+        long frameNanos = 0;
+        long shownRooms = 0;
+        long drawCalls = 0;
+        long missed = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            if (!flowField.getDirection(position.x, position.z, direction)) {
+                target = BenchmarkScenes.randomFloorCell(grid, random);
+                flowField.update(target.x, target.z);
+                direction.set(target).subtractLocal(position).normalizeLocal();
+            }
+            float newX = position.x + direction.x * SPEED * TPF;
+            if (grid.isWalkable(newX, position.z)) {
+                position.x = newX;
+            }
+            float newZ = position.z + direction.z * SPEED * TPF;
+            if (grid.isWalkable(position.x, newZ)) {
+                position.z = newZ;
+            }
+
+            boolean recomputed = fieldOfView.update(position.x, position.z);
+            long start = System.nanoTime();
+            if (recomputed && culling) {
+                generator.revealRooms(fieldOfView);
+            }
+            long mid = System.nanoTime();
+            cam.setLocation(new Vector3f(position.x, 50, position.z));
+            root.updateLogicalState(TPF);
+            root.updateGeometricState();
+            renderManager.renderScene(root, viewPort);
+            viewPort.getQueue().clear();
+            long end = System.nanoTime();
+            if (culling) {
+                passNanos += mid - start;
+            }
+            frameNanos += end - mid;
+
+            shownRooms += culling ? generator.getRevealedRoomCount() : roomGraph.getRoomCount();
+            cam.setPlaneState(0);
+            drawCalls += BenchmarkScenes.countVisibleGeometries(root, cam);
+            if (culling) {
+                missed += countMissedCells(fieldOfView, roomGraph, root, position);
+            }
+        }
+
+        if (print) {
+            System.out.printf("%-10s %-8s %7d %10d %9.1f %11.1f %9.2f %14.2f %8d%n", size + "x" + size,
+                culling ? "explored" : "frustum", roomGraph.getRoomCount(), BenchmarkScenes.countGeometries(root),
+                (double) shownRooms / frames, (double) drawCalls / frames, passNanos / 1e3 / frames,
+                frameNanos / 1e3 / frames, missed);
+        }
+    }
+
+    /**
+     * On-screen cells the player has explored whose room node is hidden
+     */
+    private static int countMissedCells(FieldOfView fieldOfView, RoomGraph roomGraph, Node root, Vector3f position) {
+        int missed = 0;
+        int minX = (int) Math.floor(position.x - BenchmarkScenes.VIEW_WIDTH / 2);
+        int maxX = (int) Math.ceil(position.x + BenchmarkScenes.VIEW_WIDTH / 2);
+        int minZ = (int) Math.floor(position.z - BenchmarkScenes.VIEW_HEIGHT / 2);
+        int maxZ = (int) Math.ceil(position.z + BenchmarkScenes.VIEW_HEIGHT / 2);
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = minX; x <= maxX; x++) {
+                int room = roomGraph.getRoom(x, z);
+                if (room >= 0 && fieldOfView.isExplored(x, z)
+                        && root.getChild("DungeonRoom_" + room).getCullHint() == Spatial.CullHint.Always) {
+                    missed++;
+                }
+            }
+        }
+        return missed;
+    }
+}
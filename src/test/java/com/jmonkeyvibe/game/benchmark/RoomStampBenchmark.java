@@ -0,0 +1,151 @@
+package com.jmonkeyvibe.game.benchmark;
+
+import com.jmonkeyvibe.game.world.CollisionGrid;
+import com.jmonkeyvibe.game.world.RoomTemplate;
+import com.jmonkeyvibe.game.world.RoomTemplateLibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Placing shaped rooms with bitmask stamps vs cell by cell.
+ *
+ * On a 512x512 grid, ATTEMPTS random templates (the default prefabs and
+ * rectangles) are dropped at random positions and kept if they are at
+ * least one cell away from every room placed so far, the way the ROOMS
+ * layout places rooms. Two implementations of the same placement are timed:
+ *   cells - overlap test over every footprint cell of an int[][] occupancy
+ *           grid, then carving every floor cell of the shape into int[][]
+ *   masks - CollisionGrid.intersects() with the template's footprint rows,
+ *           then CollisionGrid.stamp() of its shape rows
+ * Both must accept the same rooms and carve the same floor ("same").
+ *
+ * Run with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.jmonkeyvibe.game.benchmark.RoomStampBenchmark
+ */
+public class RoomStampBenchmark {
+
+    private static final int SIZE = 512;
+    private static final int ATTEMPTS = 2000;
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        RoomTemplateLibrary library = RoomTemplateLibrary.getDefault();
+        List<RoomTemplate> templates = new ArrayList<>(library.getPrefabs());
+        for (int width = 4; width <= 10; width++) {
+            for (int height = 4; height <= 10; height++) {
+                templates.add(library.getRectangle(width, height));
+            }
+        }
+
+        // Untimed rounds to warm up the JIT
+        for (int round = 0; round < ROUNDS; round++) {
+            placeWithCells(templates, round);
+            placeWithMasks(templates, round);
+        }
+
+        long cellNanos = 0;
+        long maskNanos = 0;
+        long placed = 0;
+        boolean same = true;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int[][] cells = placeWithCells(templates, round);
+            cellNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            CollisionGrid grid = placeWithMasks(templates, round);
+            maskNanos += System.nanoTime() - start;
+
+            int[][] unpacked = grid.toCells();
+            for (int x = 0; x < SIZE; x++) {
+                same &= Arrays.equals(cells[x], unpacked[x]);
+            }
+            placed += countPlaced(templates, round);
+        }
+
+        System.out.printf("%-8s %10s %12s %12s%n", "method", "rooms", "us total", "ns / attempt");
+        System.out.printf("%-8s %10d %12.1f %12.1f%n", "cells", placed / ROUNDS,
+            cellNanos / 1e3 / ROUNDS, (double) cellNanos / ROUNDS / ATTEMPTS);
+        System.out.printf("%-8s %10d %12.1f %12.1f%n", "masks", placed / ROUNDS,
+            maskNanos / 1e3 / ROUNDS, (double) maskNanos / ROUNDS / ATTEMPTS);
+        System.out.println("same floor: " + (same ? "yes" : "NO"));
+    }
+
+    private static int[][] placeWithCells(List<RoomTemplate> templates, long seed) {
+        Random random = new Random(seed);
+        int[][] occupied = new int[SIZE][SIZE];
+        int[][] floor = new int[SIZE][SIZE];
+        for (int i = 0; i < ATTEMPTS; i++) {
+            RoomTemplate template = templates.get(random.nextInt(templates.size()));
+            int x = random.nextInt(SIZE - template.getWidth() - 1);
+            int z = random.nextInt(SIZE - template.getHeight() - 1);
+            if (!overlapsCells(occupied, template, x, z)) {
+                for (int dz = 0; dz < template.getHeight(); dz++) {
+                    for (int dx = 0; dx < template.getWidth(); dx++) {
+                        if (template.isFloor(dx, dz)) {
+                            occupied[x + dx][z + dz] = 1;
+                            floor[x + dx][z + dz] = 1;
+                        }
+                    }
+                }
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Any room cell within one cell of the template's floor
+     */
+    private static boolean overlapsCells(int[][] occupied, RoomTemplate template, int x, int z) {
+        for (int dz = 0; dz < template.getHeight(); dz++) {
+            for (int dx = 0; dx < template.getWidth(); dx++) {
+                if (!template.isFloor(dx, dz)) {
+                    continue;
+                }
+                for (int nz = Math.max(0, z + dz - 1); nz <= Math.min(SIZE - 1, z + dz + 1); nz++) {
+                    for (int nx = Math.max(0, x + dx - 1); nx <= Math.min(SIZE - 1, x + dx + 1); nx++) {
+                        if (occupied[nx][nz] != 0) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static CollisionGrid placeWithMasks(List<RoomTemplate> templates, long seed) {
+        Random random = new Random(seed);
+        CollisionGrid occupied = new CollisionGrid(SIZE, SIZE);
+        CollisionGrid floor = new CollisionGrid(SIZE, SIZE);
+        for (int i = 0; i < ATTEMPTS; i++) {
+            RoomTemplate template = templates.get(random.nextInt(templates.size()));
+            int x = random.nextInt(SIZE - template.getWidth() - 1);
+            int z = random.nextInt(SIZE - template.getHeight() - 1);
+            if (!occupied.intersects(template.getFootprint(), x - 1, z - 1)) {
+                occupied.stamp(template.getShape(), x, z);
+                floor.stamp(template.getShape(), x, z);
+            }
+        }
+        return floor;
+    }
+
+    private static int countPlaced(List<RoomTemplate> templates, long seed) {
+        Random random = new Random(seed);
+        CollisionGrid occupied = new CollisionGrid(SIZE, SIZE);
+        int placed = 0;
+        for (int i = 0; i < ATTEMPTS; i++) {
+            RoomTemplate template = templates.get(random.nextInt(templates.size()));
+            int x = random.nextInt(SIZE - template.getWidth() - 1);
+            int z = random.nextInt(SIZE - template.getHeight() - 1);
+            if (!occupied.intersects(template.getFootprint(), x - 1, z - 1)) {
+                occupied.stamp(template.getShape(), x, z);
+                placed++;
+            }
+        }
+        return placed;
+    }
+}